@@ -0,0 +1,147 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.core.events.EventsManagerImpl;
+import org.matsim.core.events.handler.EventHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the events per second of {@link EventsManagerImpl} with calling the handlers via
+ * {@link Method#invoke(Object, Object...)}, as it was done for all event types not listed in the
+ * former <code>callHandlerFast</code>, for a standard and a custom event type.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventsDispatchBenchmark {
+
+	@Param({"1", "5", "20"})
+	public int numberOfHandlers;
+
+	private EventsManagerImpl events;
+	private Event linkEnterEvent;
+	private Event customEvent;
+
+	private CountingHandler[] handlers;
+	private Method linkEnterMethod;
+	private Method customMethod;
+
+	@Setup
+	public void setup() throws NoSuchMethodException {
+		this.events = new EventsManagerImpl();
+		this.handlers = new CountingHandler[this.numberOfHandlers];
+		for (int i = 0; i < this.numberOfHandlers; i++) {
+			this.handlers[i] = new CountingHandler();
+			this.events.addHandler(this.handlers[i]);
+		}
+		this.linkEnterEvent = new LinkEnterEvent(8 * 3600, Id.createVehicleId(1), Id.createLinkId(1));
+		this.customEvent = new CustomEvent(8 * 3600);
+		this.linkEnterMethod = LinkEnterEventHandler.class.getMethod("handleEvent", LinkEnterEvent.class);
+		this.customMethod = CustomEventHandler.class.getMethod("handleEvent", CustomEvent.class);
+	}
+
+	@Benchmark
+	public void dispatchStandardEvent() {
+		this.events.processEvent(this.linkEnterEvent);
+	}
+
+	@Benchmark
+	public void dispatchCustomEvent() {
+		this.events.processEvent(this.customEvent);
+	}
+
+	@Benchmark
+	public void reflectiveStandardEvent() throws IllegalAccessException, InvocationTargetException {
+		invokeAll(this.linkEnterMethod, this.linkEnterEvent);
+	}
+
+	@Benchmark
+	public void reflectiveCustomEvent() throws IllegalAccessException, InvocationTargetException {
+		invokeAll(this.customMethod, this.customEvent);
+	}
+
+	private void invokeAll(Method method, Event event) throws IllegalAccessException, InvocationTargetException {
+		for (CountingHandler handler : this.handlers) {
+			synchronized (handler) {
+				method.invoke(handler, event);
+			}
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(EventsDispatchBenchmark.class.getSimpleName()).build()).run();
+	}
+
+	public static class CustomEvent extends Event {
+		public CustomEvent(double time) {
+			super(time);
+		}
+		@Override
+		public String getEventType() {
+			return "custom";
+		}
+	}
+
+	public interface CustomEventHandler extends EventHandler {
+		void handleEvent(CustomEvent event);
+	}
+
+	public static class CountingHandler implements LinkEnterEventHandler, CustomEventHandler {
+		private long counter = 0;
+		@Override
+		public void handleEvent(LinkEnterEvent event) {
+			this.counter++;
+		}
+		@Override
+		public void handleEvent(CustomEvent event) {
+			this.counter++;
+		}
+		@Override
+		public void reset(int iteration) {
+			this.counter = 0;
+		}
+	}
+
+}
@@ -0,0 +1,81 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.io.File;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.EventsManagerImpl;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.core.events.handler.BasicEventHandler;
+
+/**
+ * Converts the given xml events file (first argument, e.g. output_events.xml.gz) into the binary events format
+ * (written next to it, or to the second argument), and compares the file sizes and the times needed to read
+ * both files.
+ */
+public class EventsFileFormatBenchmark {
+
+	private static final Logger log = Logger.getLogger(EventsFileFormatBenchmark.class);
+
+	public static void main(String[] args) {
+		String xmlFilename = args[0];
+		String binaryFilename = args.length > 1 ? args[1] : xmlFilename.replaceAll("\\.xml(\\.gz)?$", "") + ".bin";
+
+		EventsManagerImpl events = new EventsManagerImpl();
+		EventWriterBinary writer = new EventWriterBinary(binaryFilename);
+		events.addHandler(writer);
+		new MatsimEventsReader(events).readFile(xmlFilename);
+		writer.closeFile();
+
+		log.info("file size xml: " + new File(xmlFilename).length() + " bytes, binary: " + new File(binaryFilename).length() + " bytes");
+		for (int i = 0; i < 3; i++) {
+			log.info("reading xml: " + read(xmlFilename) + " ms, binary: " + read(binaryFilename) + " ms");
+		}
+	}
+
+	private static long read(String filename) {
+		EventsManagerImpl events = new EventsManagerImpl();
+		CountingHandler handler = new CountingHandler();
+		events.addHandler(handler);
+		long start = System.currentTimeMillis();
+		new MatsimEventsReader(events).readFile(filename);
+		long time = System.currentTimeMillis() - start;
+		log.info(handler.counter + " events read from " + filename);
+		return time;
+	}
+
+	private static class CountingHandler implements BasicEventHandler {
+		private long counter = 0;
+
+		@Override
+		public void handleEvent(Event event) {
+			this.counter++;
+		}
+
+		@Override
+		public void reset(int iteration) {
+			this.counter = 0;
+		}
+	}
+
+}
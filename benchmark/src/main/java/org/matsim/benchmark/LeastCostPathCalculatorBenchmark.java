@@ -0,0 +1,77 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.Random;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.router.ContractionHierarchiesFactory;
+import org.matsim.core.router.FastAStarLandmarksFactory;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+
+/**
+ * Routes random node pairs on the given network (first argument) with {@link FastAStarLandmarksFactory} and
+ * {@link ContractionHierarchiesFactory}, and reports the preprocessing time and the time per query.
+ */
+public class LeastCostPathCalculatorBenchmark {
+
+	private static final Logger log = Logger.getLogger(LeastCostPathCalculatorBenchmark.class);
+
+	public static void main(String[] args) {
+		Network network = NetworkUtils.createNetwork();
+		new MatsimNetworkReader(network).readFile(args[0]);
+		int queries = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+
+		run("FastAStarLandmarks", new FastAStarLandmarksFactory(1), network, queries);
+		run("ContractionHierarchies", new ContractionHierarchiesFactory(), network, queries);
+	}
+
+	private static void run(String name, LeastCostPathCalculatorFactory factory, Network network, int queries) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		Node[] nodes = network.getNodes().values().toArray(new Node[network.getNodes().size()]);
+		Random random = new Random(4711);
+
+		long start = System.currentTimeMillis();
+		LeastCostPathCalculator router = factory.createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+		// the first query also triggers the customization of the contraction hierarchy
+		router.calcLeastCostPath(nodes[0], nodes[nodes.length - 1], 8 * 3600, null, null);
+		long preprocessing = System.currentTimeMillis() - start;
+
+		start = System.currentTimeMillis();
+		double costs = 0;
+		for (int i = 0; i < queries; i++) {
+			Node from = nodes[random.nextInt(nodes.length)];
+			Node to = nodes[random.nextInt(nodes.length)];
+			LeastCostPathCalculator.Path path = router.calcLeastCostPath(from, to, 8 * 3600, null, null);
+			if (path != null) costs += path.travelCost;
+		}
+		long time = System.currentTimeMillis() - start;
+		log.info(name + ": preprocessing " + preprocessing + " ms, " + queries + " queries in " + time + " ms ("
+				+ ((double) time / queries) + " ms per query), sum of costs " + costs);
+	}
+
+}
@@ -0,0 +1,116 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Measures the events per second the parallel events managers bound by the EventsManagerModule achieve with
+ * 1 to 16 events processing threads, each with two event handlers. Events are created by the main thread
+ * and synchronized after every time step, with the number of events per time step given as first argument
+ * (default: 10000).
+ */
+public class ParallelEventsManagerBenchmark {
+
+	private static final Logger log = Logger.getLogger(ParallelEventsManagerBenchmark.class);
+
+	private static final int NUMBER_OF_EVENTS = 20000000;
+	private static final int NUMBER_OF_VEHICLES = 10000;
+
+	@SuppressWarnings("unchecked")
+	public static void main(String[] args) {
+		int eventsPerTimeStep = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+
+		Id<Link>[] linkIds = new Id[NUMBER_OF_VEHICLES];
+		Id<Vehicle>[] vehicleIds = new Id[NUMBER_OF_VEHICLES];
+		for (int i = 0; i < NUMBER_OF_VEHICLES; i++) {
+			linkIds[i] = Id.createLinkId(i);
+			vehicleIds[i] = Id.createVehicleId(i);
+		}
+
+		StringBuilder results = new StringBuilder("threads\tblockingQueues[events/s]\tringBuffer[events/s]\n");
+		for (int threads = 1; threads <= 16; threads *= 2) {
+			results.append(threads);
+			for (boolean ringBuffer : new boolean[] { false, true }) {
+				Config config = ConfigUtils.createConfig();
+				config.parallelEventHandling().setNumberOfThreads(threads);
+				config.parallelEventHandling().setSynchronizeOnSimSteps(true);
+				config.parallelEventHandling().setUseRingBuffer(ringBuffer);
+				EventsManager events = EventsUtils.createEventsManager(config);
+				for (int i = 0; i < 2 * threads; i++) {
+					events.addHandler(new CountingHandler());
+				}
+				results.append('\t').append(run(events, eventsPerTimeStep, linkIds, vehicleIds));
+			}
+			results.append('\n');
+		}
+		log.info("parallel events handling:\n" + results);
+	}
+
+	private static long run(EventsManager events, int eventsPerTimeStep, Id<Link>[] linkIds, Id<Vehicle>[] vehicleIds) {
+		events.initProcessing();
+		long start = System.nanoTime();
+		for (int i = 0; i < NUMBER_OF_EVENTS; i++) {
+			double time = i / eventsPerTimeStep;
+			int vehicle = i % NUMBER_OF_VEHICLES;
+			if (i % 2 == 0) {
+				events.processEvent(new LinkEnterEvent(time, vehicleIds[vehicle], linkIds[vehicle]));
+			} else {
+				events.processEvent(new LinkLeaveEvent(time, vehicleIds[vehicle], linkIds[vehicle]));
+			}
+			if ((i + 1) % eventsPerTimeStep == 0) {
+				events.afterSimStep(time);
+			}
+		}
+		events.finishProcessing();
+		return (long) (NUMBER_OF_EVENTS / ((System.nanoTime() - start) / 1e9));
+	}
+
+	private static class CountingHandler implements LinkEnterEventHandler, LinkLeaveEventHandler {
+		private long counter = 0;
+
+		@Override
+		public void handleEvent(LinkEnterEvent event) {
+			this.counter++;
+		}
+
+		@Override
+		public void handleEvent(LinkLeaveEvent event) {
+			this.counter++;
+		}
+
+		@Override
+		public void reset(int iteration) {
+			this.counter = 0;
+		}
+	}
+
+}
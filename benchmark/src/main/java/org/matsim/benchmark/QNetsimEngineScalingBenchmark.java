@@ -0,0 +1,73 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+
+/**
+ * Runs the mobsim of the benchmark scenario (or of the config given as first argument) with 1 to 64 threads,
+ * once with the default round robin assignment and barrier synchronization of the QNetsimEngine, and once with
+ * domain decomposition and neighbour-only synchronization.
+ */
+public class QNetsimEngineScalingBenchmark {
+
+	private static final Logger log = Logger.getLogger(QNetsimEngineScalingBenchmark.class);
+
+	public static void main(String[] args) {
+		Config config = args.length > 0 ? ConfigUtils.loadConfig(args[0]) :
+				ConfigUtils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("benchmark"), "config.xml"));
+		config.qsim().setUsingThreadpool(false);
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+		StringBuilder results = new StringBuilder("threads\troundRobin[ms]\tdomainDecomposition[ms]\n");
+		for (int threads = 1; threads <= 64; threads *= 2) {
+			config.qsim().setNumberOfThreads(threads);
+			results.append(threads);
+			for (boolean domainDecomposition : new boolean[] { false, true }) {
+				config.qsim().setUsingDomainDecomposition(domainDecomposition);
+				results.append('\t').append(runMobsim(scenario));
+			}
+			results.append('\n');
+		}
+		log.info("QNetsimEngine scaling:\n" + results);
+	}
+
+	private static long runMobsim(Scenario scenario) {
+		EventsManager events = EventsUtils.createEventsManager();
+		long start = System.currentTimeMillis();
+		new QSimBuilder(scenario.getConfig()) //
+			.useDefaults() //
+			.build(scenario, events) //
+			.run();
+		return System.currentTimeMillis() - start;
+	}
+
+}
@@ -35,12 +35,14 @@ public class RandomizingTransitRouterFactory implements Provider<TransitRouter>
 	private TransitRouterConfig trConfig;
 	private TransitSchedule schedule;
 	private TransitRouterNetwork routerNetwork;
+	private PreparedTransitSchedule preparedTransitSchedule;
 
     @Inject
 	RandomizingTransitRouterFactory(Config config, TransitSchedule schedule) {
 		this.trConfig = new TransitRouterConfig(config);
 		this.schedule = schedule;
 		this.routerNetwork = TransitRouterNetwork.createFromSchedule(schedule, trConfig.getBeelineWalkConnectionDistance());
+		this.preparedTransitSchedule = new PreparedTransitSchedule(schedule);
 	}
 	
 	@Override
@@ -48,7 +50,7 @@ public class RandomizingTransitRouterFactory implements Provider<TransitRouter>
 		RandomizingTransitRouterTravelTimeAndDisutility ttCalculator = new RandomizingTransitRouterTravelTimeAndDisutility(trConfig);
 		ttCalculator.setDataCollection(RandomizingTransitRouterTravelTimeAndDisutility.DataCollection.randomizedParameters, true) ;
 		ttCalculator.setDataCollection(RandomizingTransitRouterTravelTimeAndDisutility.DataCollection.additionalInformation, false) ;
-		return new TransitRouterImpl(trConfig, new PreparedTransitSchedule(schedule), routerNetwork, ttCalculator, ttCalculator);
+		return new TransitRouterImpl(trConfig, preparedTransitSchedule, routerNetwork, ttCalculator, ttCalculator);
 	}
 
 }
@@ -131,6 +131,10 @@ public class VehicleData {
 		}
 	}
 
+	public Entry getEntry(Id<Vehicle> vehicleId) {
+		return entries.get(vehicleId);
+	}
+
 	public int getSize() {
 		return entries.size();
 	}
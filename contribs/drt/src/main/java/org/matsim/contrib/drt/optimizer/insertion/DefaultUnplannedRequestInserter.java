@@ -25,7 +25,9 @@ import java.util.Optional;
 import java.util.concurrent.ForkJoinPool;
 
 import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.network.Network;
 import org.matsim.contrib.drt.data.DrtRequest;
 import org.matsim.contrib.drt.optimizer.VehicleData;
 import org.matsim.contrib.drt.optimizer.insertion.SingleVehicleInsertionProblem.BestInsertion;
@@ -34,13 +36,16 @@ import org.matsim.contrib.drt.run.Drt;
 import org.matsim.contrib.drt.run.DrtConfigGroup;
 import org.matsim.contrib.drt.scheduler.RequestInsertionScheduler;
 import org.matsim.contrib.dvrp.data.Fleet;
+import org.matsim.contrib.dvrp.data.Vehicle;
 import org.matsim.contrib.dvrp.passenger.PassengerRequestRejectedEvent;
+import org.matsim.contrib.dvrp.router.DvrpRoutingNetworkProvider;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.mobsim.framework.MobsimTimer;
 import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
 import org.matsim.core.mobsim.framework.listeners.MobsimBeforeCleanupListener;
 
 import com.google.inject.Inject;
+import com.google.inject.name.Named;
 
 /**
  * @author michalm
@@ -59,11 +64,16 @@ public class DefaultUnplannedRequestInserter implements UnplannedRequestInserter
 	private final ForkJoinPool forkJoinPool;
 	private final ParallelMultiVehicleInsertionProblem insertionProblem;
 
+	// vehicles that cannot reach the pickup in time can be skipped only if such insertions are infeasible anyway
+	// (otherwise null)
+	private final VehicleDepartureIndex departureIndex;
+
 	@Inject
 	public DefaultUnplannedRequestInserter(DrtConfigGroup drtCfg, @Drt Fleet fleet, MobsimTimer mobsimTimer,
 			EventsManager eventsManager, RequestInsertionScheduler insertionScheduler,
 			VehicleData.EntryFactory vehicleDataEntryFactory, PrecalculablePathDataProvider pathDataProvider,
-			InsertionCostCalculator.PenaltyCalculator penaltyCalculator) {
+			InsertionCostCalculator.PenaltyCalculator penaltyCalculator,
+			@Named(DvrpRoutingNetworkProvider.DVRP_ROUTING) Network network) {
 		this.drtCfg = drtCfg;
 		this.fleet = fleet;
 		this.mobsimTimer = mobsimTimer;
@@ -75,6 +85,9 @@ public class DefaultUnplannedRequestInserter implements UnplannedRequestInserter
 		insertionProblem = new ParallelMultiVehicleInsertionProblem(pathDataProvider, drtCfg, mobsimTimer, forkJoinPool,
 				penaltyCalculator);
 		insertionScheduler.initSchedules(drtCfg.isChangeStartLinkToLastLinkInSchedule());
+		departureIndex = penaltyCalculator instanceof InsertionCostCalculator.RejectSoftConstraintViolations ?
+				new VehicleDepartureIndex(drtCfg, network) :
+				null;
 	}
 
 	@Override
@@ -90,11 +103,17 @@ public class DefaultUnplannedRequestInserter implements UnplannedRequestInserter
 
 		VehicleData vData = new VehicleData(mobsimTimer.getTimeOfDay(), fleet.getVehicles().values().stream(),
 				vehicleDataEntryFactory, forkJoinPool);
+		if (departureIndex != null) {
+			departureIndex.refresh(vData.getEntries(), mobsimTimer.getTimeOfDay());
+		}
 
 		Iterator<DrtRequest> reqIter = unplannedRequests.iterator();
 		while (reqIter.hasNext()) {
 			DrtRequest req = reqIter.next();
-			Optional<BestInsertion> best = insertionProblem.findBestInsertion(req, vData.getEntries());
+			Collection<VehicleData.Entry> vEntries = departureIndex != null ?
+					departureIndex.findCandidates(req) :
+					vData.getEntries();
+			Optional<BestInsertion> best = insertionProblem.findBestInsertion(req, vEntries);
 			if (!best.isPresent()) {
 				req.setRejected(true);
 				eventsManager.processEvent(
@@ -110,6 +129,10 @@ public class DefaultUnplannedRequestInserter implements UnplannedRequestInserter
 				BestInsertion bestInsertion = best.get();
 				insertionScheduler.scheduleRequest(bestInsertion.vehicleEntry, req, bestInsertion.insertion);
 				vData.updateEntry(bestInsertion.vehicleEntry.vehicle);
+				if (departureIndex != null) {
+					Id<Vehicle> vehicleId = bestInsertion.vehicleEntry.vehicle.getId();
+					departureIndex.updateEntry(vehicleId, vData.getEntry(vehicleId));
+				}
 				eventsManager.processEvent(
 						new DrtRequestScheduledEvent(mobsimTimer.getTimeOfDay(), drtCfg.getMode(), req.getId(),
 								bestInsertion.vehicleEntry.vehicle.getId(), req.getPickupTask().getEndTime(),
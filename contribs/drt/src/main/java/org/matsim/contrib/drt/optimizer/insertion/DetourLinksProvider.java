@@ -103,8 +103,7 @@ class DetourLinksProvider {
 		linksFromDropoff = new ConcurrentHashMap<>();
 
 		// TODO use more sophisticated DetourTimeEstimator
-		double optimisticBeelineSpeed = OPTIMISTIC_BEELINE_SPEED_COEFF * drtCfg.getEstimatedDrtSpeed()
-				/ drtCfg.getEstimatedBeelineDistanceFactor();
+		double optimisticBeelineSpeed = getOptimisticBeelineSpeed(drtCfg);
 		insertionFilter = new SingleVehicleInsertionFilter(//
 				new DetourTimesProvider(
 						(from, to) -> DistanceUtils.calculateDistance(from, to) / optimisticBeelineSpeed,
@@ -112,6 +111,11 @@ class DetourLinksProvider {
 				new InsertionCostCalculator(drtCfg, timer, penaltyCalculator));
 	}
 
+	static double getOptimisticBeelineSpeed(DrtConfigGroup drtCfg) {
+		return OPTIMISTIC_BEELINE_SPEED_COEFF * drtCfg.getEstimatedDrtSpeed()
+				/ drtCfg.getEstimatedBeelineDistanceFactor();
+	}
+
 	void findInsertionsAndLinks(ForkJoinPool forkJoinPool, Collection<Entry> vEntries) {
 		forkJoinPool.submit(() -> vEntries.parallelStream()//
 				.forEach(this::addDetourLinks))//
@@ -18,6 +18,10 @@
 
 package org.matsim.contrib.drt.optimizer.insertion;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -27,6 +31,7 @@ import java.util.concurrent.Future;
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
@@ -38,7 +43,11 @@ import org.matsim.contrib.drt.run.DrtConfigGroup;
 import org.matsim.contrib.dvrp.path.OneToManyPathSearch;
 import org.matsim.contrib.dvrp.path.OneToManyPathSearch.PathData;
 import org.matsim.contrib.dvrp.router.DvrpRoutingNetworkProvider;
+import org.matsim.contrib.dvrp.router.LeastCostPathCalculatorWithCache.CacheStats;
+import org.matsim.contrib.dvrp.router.TimeSlicedLruCache;
+import org.matsim.contrib.dvrp.trafficmonitoring.DvrpOnlineTravelTimeEstimator;
 import org.matsim.contrib.dvrp.trafficmonitoring.DvrpTravelTimeModule;
+import org.matsim.contrib.dvrp.util.TimeDiscretizer;
 import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
 import org.matsim.core.mobsim.framework.listeners.MobsimBeforeCleanupListener;
 import org.matsim.core.router.util.TravelDisutility;
@@ -48,8 +57,40 @@ import org.matsim.core.router.util.TravelTime;
  * @author michalm
  */
 public class ParallelPathDataProvider implements PrecalculablePathDataProvider, MobsimBeforeCleanupListener {
+	private static final Logger log = Logger.getLogger(ParallelPathDataProvider.class);
+
 	public static final int MAX_THREADS = 4;
 
+	private static class PathDataKey {
+		private final boolean forward;
+		private final Id<Link> fromLinkId;// pickup or dropoff
+		private final Id<Link> toLinkId;
+
+		private PathDataKey(boolean forward, Id<Link> fromLinkId, Id<Link> toLinkId) {
+			this.forward = forward;
+			this.fromLinkId = fromLinkId;
+			this.toLinkId = toLinkId;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof PathDataKey)) {
+				return false;
+			}
+			PathDataKey other = (PathDataKey)o;
+			return forward == other.forward && fromLinkId.equals(other.fromLinkId) && toLinkId.equals(
+					other.toLinkId);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (31 * Boolean.hashCode(forward) + fromLinkId.hashCode()) + toLinkId.hashCode();
+		}
+	}
+
 	private final OneToManyPathSearch toPickupPathSearch;
 	private final OneToManyPathSearch fromPickupPathSearch;
 	private final OneToManyPathSearch toDropoffPathSearch;
@@ -59,6 +100,15 @@ public class ParallelPathDataProvider implements PrecalculablePathDataProvider,
 
 	private final ExecutorService executorService;
 
+	// shared by all the path searches (i.e. threads); null if caching is switched off
+	private final TimeSlicedLruCache<PathDataKey, PathData> pathDataCache;
+	private double oldestCachedTime = 0;
+	private int lastUpdatedSliceIdx = -1;
+
+	// registered only if the cached paths depend on the online travel time estimates
+	private final DvrpOnlineTravelTimeEstimator onlineTTEstimator;
+	private final DvrpOnlineTravelTimeEstimator.UpdateListener updateListener = this::invalidateUpdatedTimeSlices;
+
 	// ==== recalculated by precalculatePathData()
 	private Map<Id<Link>, PathData> pathsToPickupMap;
 	private Map<Id<Link>, PathData> pathsFromPickupMap;
@@ -75,6 +125,16 @@ public class ParallelPathDataProvider implements PrecalculablePathDataProvider,
 		fromDropoffPathSearch = OneToManyPathSearch.createForwardSearch(network, travelTime, travelDisutility);
 		stopDuration = drtCfg.getStopDuration();
 		executorService = Executors.newFixedThreadPool(Math.min(drtCfg.getNumberOfThreads(), MAX_THREADS));
+		pathDataCache = drtCfg.getPathDataCacheSize() > 0 ?
+				new TimeSlicedLruCache<>(TimeDiscretizer.OPEN_ENDED_15_MIN, drtCfg.getPathDataCacheSize()) :
+				null;
+
+		if (pathDataCache != null && travelTime instanceof DvrpOnlineTravelTimeEstimator) {
+			onlineTTEstimator = (DvrpOnlineTravelTimeEstimator)travelTime;
+			onlineTTEstimator.addUpdateListener(updateListener);
+		} else {
+			onlineTTEstimator = null;
+		}
 	}
 
 	@Override
@@ -86,34 +146,38 @@ public class ParallelPathDataProvider implements PrecalculablePathDataProvider,
 		double minTravelTime = 15 * 60; // FIXME inaccurate temp solution: fixed 15 min
 		double earliestDropoffTime = earliestPickupTime + minTravelTime + stopDuration;
 
+		if (pathDataCache != null) {
+			invalidatePastTimeSlices(drtRequest.getSubmissionTime());
+		}
+
 		// with vehicle insertion filtering -- pathsToPickup is the most computationally demanding task, while
 		// pathsFromDropoff is the least demanding one
 
 		// highest computation time (approx. 45% total CPU time)
 		Future<Map<Id<Link>, PathData>> pathsToPickupFuture = executorService.submit(() -> {
 			// calc backward dijkstra from pickup to ends of selected stops + starts
-			return toPickupPathSearch.calcPathDataMap(pickup, detourLinksSet.pickupDetourStartLinks.values(),
+			return calcPathDataMap(toPickupPathSearch, false, pickup, detourLinksSet.pickupDetourStartLinks.values(),
 					earliestPickupTime);
 		});
 
 		// medium computation time (approx. 25% total CPU time)
 		Future<Map<Id<Link>, PathData>> pathsFromPickupFuture = executorService.submit(() -> {
 			// calc forward dijkstra from pickup to beginnings of selected stops + dropoff
-			return fromPickupPathSearch.calcPathDataMap(pickup, detourLinksSet.pickupDetourEndLinks.values(),
+			return calcPathDataMap(fromPickupPathSearch, true, pickup, detourLinksSet.pickupDetourEndLinks.values(),
 					earliestPickupTime);
 		});
 
 		// medium computation time (approx. 25% total CPU time)
 		Future<Map<Id<Link>, PathData>> pathsToDropoffFuture = executorService.submit(() -> {
 			// calc backward dijkstra from dropoff to ends of selected stops
-			return toDropoffPathSearch.calcPathDataMap(dropoff, detourLinksSet.dropoffDetourStartLinks.values(),
+			return calcPathDataMap(toDropoffPathSearch, false, dropoff, detourLinksSet.dropoffDetourStartLinks.values(),
 					earliestDropoffTime);
 		});
 
 		// lowest computation time (approx. 5% total CPU time)
 		Future<Map<Id<Link>, PathData>> pathsFromDropoffFuture = executorService.submit(() -> {
 			// calc forward dijkstra from dropoff to beginnings of selected stops
-			return fromDropoffPathSearch.calcPathDataMap(dropoff, detourLinksSet.dropoffDetourEndLinks.values(),
+			return calcPathDataMap(fromDropoffPathSearch, true, dropoff, detourLinksSet.dropoffDetourEndLinks.values(),
 					earliestDropoffTime);
 		});
 
@@ -128,6 +192,51 @@ public class ParallelPathDataProvider implements PrecalculablePathDataProvider,
 		}
 	}
 
+	private Map<Id<Link>, PathData> calcPathDataMap(OneToManyPathSearch pathSearch, boolean forward, Link fromLink,
+			Collection<Link> toLinks, double startTime) {
+		if (pathDataCache == null) {
+			return pathSearch.calcPathDataMap(fromLink, toLinks, startTime);
+		}
+
+		Map<Id<Link>, PathData> pathDataMap = new HashMap<>();
+		List<Link> notCachedToLinks = new ArrayList<>();
+		for (Link toLink : toLinks) {
+			PathData pathData = pathDataCache.getIfPresent(startTime,
+					new PathDataKey(forward, fromLink.getId(), toLink.getId()));
+			if (pathData != null) {
+				pathDataMap.put(toLink.getId(), pathData);
+			} else {
+				notCachedToLinks.add(toLink);
+			}
+		}
+
+		if (!notCachedToLinks.isEmpty()) {
+			pathSearch.calcPathDataMap(fromLink, notCachedToLinks, startTime).forEach((toLinkId, pathData) -> {
+				pathDataMap.put(toLinkId, pathData);
+				pathDataCache.put(startTime, new PathDataKey(forward, fromLink.getId(), toLinkId), pathData);
+			});
+		}
+		return pathDataMap;
+	}
+
+	// the paths of the time slices that have already passed will not be used any more
+	private void invalidatePastTimeSlices(double now) {
+		TimeDiscretizer timeDiscretizer = pathDataCache.getTimeDiscretizer();
+		while (timeDiscretizer.getIdx(oldestCachedTime) < timeDiscretizer.getIdx(now)) {
+			pathDataCache.invalidate(oldestCachedTime);
+			oldestCachedTime += timeDiscretizer.getTimeInterval();
+		}
+	}
+
+	// the online estimates change at each sim step, but the cached paths are refreshed only once per time slice
+	private void invalidateUpdatedTimeSlices(double now, double latestAffectedTime) {
+		int sliceIdx = pathDataCache.getTimeDiscretizer().getIdx(now);
+		if (sliceIdx != lastUpdatedSliceIdx) {
+			pathDataCache.invalidate(now, latestAffectedTime);
+			lastUpdatedSliceIdx = sliceIdx;
+		}
+	}
+
 	@Override
 	public PathDataSet getPathDataSet(DrtRequest drtRequest, Entry vEntry) {
 		return PrecalculablePathDataProvider.getPathDataSet(drtRequest, vEntry, pathsToPickupMap, pathsFromPickupMap,
@@ -137,5 +246,13 @@ public class ParallelPathDataProvider implements PrecalculablePathDataProvider,
 	@Override
 	public void notifyMobsimBeforeCleanup(@SuppressWarnings("rawtypes") MobsimBeforeCleanupEvent e) {
 		executorService.shutdown();
+		if (onlineTTEstimator != null) {
+			onlineTTEstimator.removeUpdateListener(updateListener);
+		}
+		if (pathDataCache != null) {
+			CacheStats stats = pathDataCache.getCacheStats();
+			log.info("Path data cache: hits=" + stats.getHits() + " misses=" + stats.getMisses() + " evictions="
+					+ stats.getEvictions());
+		}
 	}
 }
@@ -0,0 +1,216 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.optimizer.insertion;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.contrib.drt.data.DrtRequest;
+import org.matsim.contrib.drt.optimizer.VehicleData.Entry;
+import org.matsim.contrib.drt.run.DrtConfigGroup;
+import org.matsim.contrib.dvrp.data.Vehicle;
+import org.matsim.contrib.util.distance.DistanceUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.utils.collections.QuadTree;
+
+/**
+ * Spatial index of the places (and times) at which the vehicles may depart to a new pickup, i.e. the start of each
+ * vehicle entry and the ends of its stops. Used to select the vehicles that can reach the pickup before the latest
+ * start time of a request (with the optimistic beeline speed used in {@link DetourLinksProvider}), so that no
+ * insertions have to be generated for all the other vehicles.
+ * <p>
+ * The index is kept over the whole simulation. Only the places are stored in the quad tree, the departure times are
+ * taken from the current vehicle entries. Therefore, on {@link #refresh(Collection, double)}, only the vehicles that
+ * have changed the links of their start or stops are re-indexed.
+ * <p>
+ * The selection is only valid if violating the max wait time makes an insertion infeasible (see
+ * {@link InsertionCostCalculator.RejectSoftConstraintViolations}). In this case, the vehicles which are not selected
+ * would anyway be removed by the {@link SingleVehicleInsertionFilter} in {@link DetourLinksProvider}.
+ */
+class VehicleDepartureIndex {
+	private static class Departure {
+		private final Id<Vehicle> vehicleId;
+		private final int idx;// 0 - start, i > 0 - end of stop i - 1
+		private final Link link;
+
+		private Departure(Id<Vehicle> vehicleId, int idx, Link link) {
+			this.vehicleId = vehicleId;
+			this.idx = idx;
+			this.link = link;
+		}
+	}
+
+	private final double stopDuration;
+	private final double optimisticBeelineSpeed;
+
+	private final QuadTree<Departure> quadTree;
+	private final Map<Id<Vehicle>, Entry> entries = new HashMap<>();
+	private final Map<Id<Vehicle>, List<Departure>> departuresPerVehicle = new HashMap<>();
+	private final Map<Id<Vehicle>, Entry> entriesOutOfBounds = new LinkedHashMap<>();
+	private double currentTime;
+
+	/**
+	 * @param network the network the vehicles operate on (determines the index bounds)
+	 */
+	VehicleDepartureIndex(DrtConfigGroup drtCfg, Network network) {
+		stopDuration = drtCfg.getStopDuration();
+		optimisticBeelineSpeed = DetourLinksProvider.getOptimisticBeelineSpeed(drtCfg);
+
+		if (network.getNodes().isEmpty()) {
+			quadTree = new QuadTree<>(0, 0, 0, 0);
+		} else {
+			double[] bounds = NetworkUtils.getBoundingBox(network.getNodes().values());
+			quadTree = new QuadTree<>(bounds[0], bounds[1], bounds[2], bounds[3]);
+		}
+	}
+
+	/**
+	 * Brings the index up to date with the new vehicle entries; vehicles without an entry are removed from the index.
+	 *
+	 * @param vEntries    all current vehicle entries
+	 * @param currentTime the time at which the entries were created
+	 */
+	void refresh(Collection<Entry> vEntries, double currentTime) {
+		this.currentTime = currentTime;
+		Set<Id<Vehicle>> removedVehicleIds = new HashSet<>(entries.keySet());
+		for (Entry vEntry : vEntries) {
+			Id<Vehicle> vehicleId = vEntry.vehicle.getId();
+			removedVehicleIds.remove(vehicleId);
+			updateEntry(vehicleId, vEntry);
+		}
+		for (Id<Vehicle> vehicleId : removedVehicleIds) {
+			updateEntry(vehicleId, null);
+		}
+	}
+
+	/**
+	 * @param vehicleId the vehicle that has been updated
+	 * @param vEntry    the new entry of the vehicle (or null if the vehicle is not available any more)
+	 */
+	void updateEntry(Id<Vehicle> vehicleId, Entry vEntry) {
+		Entry oldEntry = vEntry == null ? entries.remove(vehicleId) : entries.put(vehicleId, vEntry);
+		if (vEntry != null && oldEntry != null && haveSameDepartureLinks(oldEntry, vEntry)) {
+			// only the departure times may have changed (they are read from the entries)
+			entriesOutOfBounds.replace(vehicleId, vEntry);
+			return;
+		}
+
+		List<Departure> oldDepartures = departuresPerVehicle.remove(vehicleId);
+		if (oldDepartures != null) {
+			for (Departure d : oldDepartures) {
+				Coord coord = d.link.getCoord();
+				quadTree.remove(coord.getX(), coord.getY(), d);
+			}
+		}
+		entriesOutOfBounds.remove(vehicleId);
+
+		if (vEntry != null) {
+			addEntry(vEntry);
+		}
+	}
+
+	/**
+	 * @return vehicle entries that may reach the pickup of the request before its latest start time
+	 */
+	List<Entry> findCandidates(DrtRequest drtRequest) {
+		Set<Entry> candidates = new LinkedHashSet<>();
+		// no vehicle departs before the current time
+		double maxTimeToPickup = drtRequest.getLatestStartTime() - stopDuration - currentTime;
+		if (maxTimeToPickup >= 0) {
+			Coord pickupCoord = drtRequest.getFromLink().getCoord();
+			// + 1 m to make sure rounding errors do not exclude any departure at the border
+			double radius = maxTimeToPickup * optimisticBeelineSpeed + 1;
+			for (Departure d : quadTree.getDisk(pickupCoord.getX(), pickupCoord.getY(), radius)) {
+				Entry vEntry = entries.get(d.vehicleId);
+				if (isPickupInTime(vEntry, d, drtRequest)) {
+					candidates.add(vEntry);
+				}
+			}
+		}
+		candidates.addAll(entriesOutOfBounds.values());
+		return new ArrayList<>(candidates);
+	}
+
+	private boolean isPickupInTime(Entry vEntry, Departure departure, DrtRequest drtRequest) {
+		// the same estimation as done by SingleVehicleInsertionFilter in DetourLinksProvider
+		double departureTime = departure.idx == 0 ?
+				vEntry.start.time :
+				vEntry.stops.get(departure.idx - 1).task.getEndTime();
+		double timeToPickup = DistanceUtils.calculateDistance(departure.link, drtRequest.getFromLink())
+				/ optimisticBeelineSpeed;
+		double pickupEndTime = departureTime + timeToPickup + stopDuration;
+		return pickupEndTime <= drtRequest.getLatestStartTime();
+	}
+
+	private void addEntry(Entry vEntry) {
+		List<Departure> departures = createDepartures(vEntry);
+		for (Departure d : departures) {
+			if (!isWithinBounds(d.link.getCoord())) {
+				// should not happen; anyway, such a vehicle is always considered as a candidate
+				entriesOutOfBounds.put(vEntry.vehicle.getId(), vEntry);
+				return;
+			}
+		}
+
+		for (Departure d : departures) {
+			Coord coord = d.link.getCoord();
+			quadTree.put(coord.getX(), coord.getY(), d);
+		}
+		departuresPerVehicle.put(vEntry.vehicle.getId(), departures);
+	}
+
+	private boolean isWithinBounds(Coord coord) {
+		return coord.getX() >= quadTree.getMinEasting() && coord.getX() <= quadTree.getMaxEasting()
+				&& coord.getY() >= quadTree.getMinNorthing() && coord.getY() <= quadTree.getMaxNorthing();
+	}
+
+	private static boolean haveSameDepartureLinks(Entry entry1, Entry entry2) {
+		if (entry1.start.link != entry2.start.link || entry1.stops.size() != entry2.stops.size()) {
+			return false;
+		}
+		for (int i = 0; i < entry1.stops.size(); i++) {
+			if (entry1.stops.get(i).task.getLink() != entry2.stops.get(i).task.getLink()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static List<Departure> createDepartures(Entry vEntry) {
+		// the pickup can be inserted after the start (i == 0) or after any stop (i > 0)
+		Id<Vehicle> vehicleId = vEntry.vehicle.getId();
+		List<Departure> departures = new ArrayList<>(vEntry.stops.size() + 1);
+		departures.add(new Departure(vehicleId, 0, vEntry.start.link));
+		for (int i = 0; i < vEntry.stops.size(); i++) {
+			departures.add(new Departure(vehicleId, i + 1, vEntry.stops.get(i).task.getLink()));
+		}
+		return departures;
+	}
+}
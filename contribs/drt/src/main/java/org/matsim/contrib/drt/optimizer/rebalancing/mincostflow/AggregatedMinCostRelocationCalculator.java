@@ -20,53 +20,113 @@ package org.matsim.contrib.drt.optimizer.rebalancing.mincostflow;
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.inject.Inject;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.lang3.tuple.Triple;
 import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.contrib.drt.analysis.zonal.DrtZonalSystem;
 import org.matsim.contrib.drt.optimizer.rebalancing.RebalancingStrategy.Relocation;
 import org.matsim.contrib.dvrp.data.Vehicle;
+import org.matsim.contrib.dvrp.path.OneToManyPathSearch;
+import org.matsim.contrib.dvrp.path.OneToManyPathSearch.PathData;
 import org.matsim.contrib.dvrp.router.DvrpRoutingNetworkProvider;
+import org.matsim.contrib.dvrp.router.TimeAsTravelDisutility;
 import org.matsim.contrib.dvrp.schedule.Schedules;
+import org.matsim.contrib.dvrp.trafficmonitoring.DvrpTravelTimeModule;
+import org.matsim.contrib.dvrp.util.TimeDiscretizer;
 import org.matsim.contrib.util.distance.DistanceUtils;
 import org.matsim.core.network.NetworkUtils;
-import org.matsim.core.utils.geometry.geotools.MGC;
+import org.matsim.core.router.util.TravelTime;
 
 import com.google.inject.name.Named;
-import com.vividsolutions.jts.geom.Geometry;
 
 /**
+ * Inter-zonal relocations are costed with the estimated travel times between the zones' destination links. The
+ * zone-to-zone travel times are computed once per time bin (lazily, one row per producer zone), and the transport
+ * problem is solved starting from the basis of the previous rebalancing step.
+ *
  * @author michalm
  */
 public class AggregatedMinCostRelocationCalculator implements MinCostRelocationCalculator {
+	private static final TimeDiscretizer TIME_DISCRETIZER = TimeDiscretizer.OPEN_ENDED_15_MIN;
+
 	private final DrtZonalSystem zonalSystem;
 	private final Network network;
+	private final OneToManyPathSearch pathSearch;
+	private final TransportProblem<String, String> transportProblem = new TransportProblem<>(this::getTravelTime);
+
+	// zones do not change, so their centroids and nearest links are computed only once
+	private final Map<String, Coord> zoneCentroids = new HashMap<>();
+	private final Map<String, Link> zoneDestinationLinks = new HashMap<>();
+
+	// zone-to-zone travel times (rows: from-zones) valid in the current time bin
+	private final Map<String, Map<String, Integer>> travelTimeMatrix = new HashMap<>();
+	private int timeBinIdx = -1;
+	private double timeBinStart;
 
 	@Inject
 	public AggregatedMinCostRelocationCalculator(DrtZonalSystem zonalSystem,
-			@Named(DvrpRoutingNetworkProvider.DVRP_ROUTING) Network network) {
+			@Named(DvrpRoutingNetworkProvider.DVRP_ROUTING) Network network,
+			@Named(DvrpTravelTimeModule.DVRP_ESTIMATED) TravelTime travelTime) {
 		this.zonalSystem = zonalSystem;
 		this.network = network;
+		pathSearch = OneToManyPathSearch.createForwardSearch(network, travelTime,
+				new TimeAsTravelDisutility(travelTime));
 	}
 
 	@Override
 	public List<Relocation> calcRelocations(List<Pair<String, Integer>> supply, List<Pair<String, Integer>> demand,
-			Map<String, List<Vehicle>> rebalancableVehiclesPerZone) {
-		List<Triple<String, String, Integer>> interZonalRelocations = new TransportProblem<String, String>(
-				this::calcStraightLineDistance).solve(supply, demand);
+			Map<String, List<Vehicle>> rebalancableVehiclesPerZone, double time) {
+		int idx = TIME_DISCRETIZER.getIdx(time);
+		if (idx != timeBinIdx) {
+			// travel times may have changed (estimated travel times are updated during the simulation)
+			travelTimeMatrix.clear();
+			timeBinIdx = idx;
+			timeBinStart = TIME_DISCRETIZER.discretize(time);
+		}
+
+		List<Triple<String, String, Integer>> interZonalRelocations = transportProblem.solve(supply, demand);
 		return calcRelocations(rebalancableVehiclesPerZone, interZonalRelocations);
 	}
 
-	private int calcStraightLineDistance(String zone1, String zone2) {
-		return (int)DistanceUtils.calculateDistance(zonalSystem.getZoneCentroid(zone1),
-				zonalSystem.getZoneCentroid(zone2));
+	private int getTravelTime(String fromZone, String toZone) {
+		return travelTimeMatrix.computeIfAbsent(fromZone, this::calcTravelTimes).get(toZone);
+	}
+
+	private Map<String, Integer> calcTravelTimes(String fromZone) {
+		Set<Link> toLinks = new LinkedHashSet<>();
+		for (String zone : zonalSystem.getZones().keySet()) {
+			toLinks.add(getDestinationLink(zone));
+		}
+
+		Link fromLink = getDestinationLink(fromZone);
+		Map<Id<Link>, PathData> pathDataMap = pathSearch.calcPathDataMap(fromLink, toLinks, timeBinStart);
+
+		Map<String, Integer> travelTimes = new HashMap<>();
+		for (String zone : zonalSystem.getZones().keySet()) {
+			Link toLink = getDestinationLink(zone);
+			travelTimes.put(zone, toLink == fromLink ? 0 : (int)pathDataMap.get(toLink.getId()).getTravelTime());
+		}
+		return travelTimes;
+	}
+
+	private Coord getZoneCentroid(String zone) {
+		return zoneCentroids.computeIfAbsent(zone, zonalSystem::getZoneCentroid);
+	}
+
+	private Link getDestinationLink(String zone) {
+		return zoneDestinationLinks.computeIfAbsent(zone,
+				z -> NetworkUtils.getNearestLink(network, getZoneCentroid(z)));
 	}
 
 	private List<Relocation> calcRelocations(Map<String, List<Vehicle>> rebalancableVehiclesPerZone,
@@ -75,10 +135,7 @@ public class AggregatedMinCostRelocationCalculator implements MinCostRelocationC
 		for (Triple<String, String, Integer> r : interZonalRelocations) {
 			List<Vehicle> rebalancableVehicles = rebalancableVehiclesPerZone.get(r.getLeft());
 
-			String toZone = r.getMiddle();
-			Geometry z = zonalSystem.getZone(toZone);
-			Coord zoneCentroid = MGC.point2Coord(z.getCentroid());
-			Link destinationLink = NetworkUtils.getNearestLink(network, zoneCentroid);
+			Link destinationLink = getDestinationLink(r.getMiddle());
 
 			int flow = r.getRight();
 			for (int f = 0; f < flow; f++) {
@@ -126,6 +126,6 @@ public class MinCostFlowRebalancingStrategy implements RebalancingStrategy {
 			}
 		}
 
-		return minCostRelocationCalculator.calcRelocations(supply, demand, rebalancableVehiclesPerZone);
+		return minCostRelocationCalculator.calcRelocations(supply, demand, rebalancableVehiclesPerZone, time);
 	}
 }
@@ -30,5 +30,5 @@ import org.matsim.contrib.dvrp.data.Vehicle;
  */
 public interface MinCostRelocationCalculator {
 	List<Relocation> calcRelocations(List<Pair<String, Integer>> supply, List<Pair<String, Integer>> demand,
-			Map<String, List<Vehicle>> rebalancableVehiclesPerZone);
+			Map<String, List<Vehicle>> rebalancableVehiclesPerZone, double time);
 }
@@ -29,7 +29,9 @@ import org.matsim.contrib.drt.run.DrtConfigGroup;
 import org.matsim.contrib.dvrp.data.Fleet;
 import org.matsim.contrib.dvrp.router.DvrpRoutingNetworkProvider;
 import org.matsim.contrib.dvrp.run.AbstractMultiModeModule;
+import org.matsim.contrib.dvrp.trafficmonitoring.DvrpTravelTimeModule;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.router.util.TravelTime;
 
 /**
  * @author michalm
@@ -58,7 +60,8 @@ public class MultiModeMinCostFlowRebalancingModule extends AbstractMultiModeModu
 
 		bindModal(MinCostRelocationCalculator.class).toProvider(modalProvider(
 				getter -> new AggregatedMinCostRelocationCalculator(getter.getModal(DrtZonalSystem.class),
-						getter.getNamed(Network.class, DvrpRoutingNetworkProvider.DVRP_ROUTING)))).asEagerSingleton();
+						getter.getNamed(Network.class, DvrpRoutingNetworkProvider.DVRP_ROUTING),
+						getter.getNamed(TravelTime.class, DvrpTravelTimeModule.DVRP_ESTIMATED)))).asEagerSingleton();
 
 		bindModal(ZonalDemandAggregator.class).toProvider(modalProvider(
 				getter -> new ZonalDemandAggregator(getter.get(EventsManager.class),
@@ -20,86 +20,290 @@ package org.matsim.contrib.drt.optimizer.rebalancing.mincostflow;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.function.ToIntBiFunction;
-import java.util.stream.Stream;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.lang3.tuple.Triple;
 
-import graphs.flows.MinCostFlow;
-import graphs.flows.MinCostFlow.Edge;
-
 /**
+ * Transport problem solved with the transportation (network) simplex method. If total supply and demand differ,
+ * min(totalSupply, totalDemand) units are transported.
+ * <p>
+ * The basis of the last optimal solution is kept, and the initial basic solution of the next {@link #solve(List,
+ * List)} is built preferably from its cells (producer-consumer pairs), so that consecutive rebalancing steps (with
+ * similar supply, demand and costs) need only a few pivots. Therefore, an instance must not be used by several
+ * threads at the same time.
+ *
  * @author michalm
  */
 public class TransportProblem<P, C> {
 	private final ToIntBiFunction<P, C> costFunction;
 
+	// cells of the last optimal basis; null stands for the dummy producer/consumer
+	private Set<Pair<P, C>> lastBasis = Collections.emptySet();
+
 	public TransportProblem(ToIntBiFunction<P, C> costFunction) {
 		this.costFunction = costFunction;
 	}
 
 	public List<Triple<P, C, Integer>> solve(List<Pair<P, Integer>> supply, List<Pair<C, Integer>> demand) {
-		final int P = supply.size();
-		final int C = demand.size();
-		final int N = P + C + 2;
-
-		// N nodes, which indices are:
-		// 0 - source
-		// 1..P - producers 1..P
-		// P+1..P+C - consumers 1..C
-		// P+C+1 - sink
-
-		@SuppressWarnings("unchecked")
-		List<Edge>[] graph = Stream.generate(ArrayList::new).limit(N).toArray(List[]::new);
-
-		// source -> producers
-		int totalSupply = 0;
-		for (int i = 0; i < P; i++) {
-			int supplyValue = supply.get(i).getValue();
-			MinCostFlow.addEdge(graph, 0, 1 + i, supplyValue, 0);
-			totalSupply += supplyValue;
+		int totalSupply = supply.stream().mapToInt(Pair::getValue).sum();
+		int totalDemand = demand.stream().mapToInt(Pair::getValue).sum();
+		if (totalSupply == 0 || totalDemand == 0) {
+			return Collections.emptyList();
 		}
 
-		// producers --> consumers
-		for (int i = 0; i < P; i++) {
-			Pair<P, Integer> producer = supply.get(i);
-			for (int j = 0; j < C; j++) {
-				Pair<C, Integer> consumer = demand.get(j);
-				int capacity = Math.min(producer.getValue(), consumer.getValue());
-				int cost = costFunction.applyAsInt(producer.getKey(), consumer.getKey());
-				MinCostFlow.addEdge(graph, 1 + i, 1 + P + j, capacity, cost);
-			}
+		// balance the problem with a dummy producer/consumer (zero costs)
+		List<P> producers = new ArrayList<>();
+		List<Integer> producerSupply = new ArrayList<>();
+		supply.forEach(p -> {
+			producers.add(p.getKey());
+			producerSupply.add(p.getValue());
+		});
+		List<C> consumers = new ArrayList<>();
+		List<Integer> consumerDemand = new ArrayList<>();
+		demand.forEach(c -> {
+			consumers.add(c.getKey());
+			consumerDemand.add(c.getValue());
+		});
+		if (totalSupply < totalDemand) {
+			producers.add(null);
+			producerSupply.add(totalDemand - totalSupply);
+		} else if (totalSupply > totalDemand) {
+			consumers.add(null);
+			consumerDemand.add(totalSupply - totalDemand);
 		}
 
-		// consumers -> sink
-		int totalDemand = 0;
-		for (int j = 0; j < C; j++) {
-			int demandValue = demand.get(j).getValue();
-			MinCostFlow.addEdge(graph, 1 + P + j, N - 1, demandValue, 0);
-			totalDemand += demandValue;
+		final int m = producers.size();
+		final int n = consumers.size();
+		int[][] costs = new int[m][n];
+		for (int i = 0; i < m; i++) {
+			for (int j = 0; j < n; j++) {
+				P producer = producers.get(i);
+				C consumer = consumers.get(j);
+				costs[i][j] = producer == null || consumer == null ? 0 : costFunction.applyAsInt(producer, consumer);
+			}
 		}
 
-		// solve min cost flow problem
-		int[] result = MinCostFlow.minCostFlow(graph, 0, N - 1, Math.min(totalSupply, totalDemand), false);
-		if (result[0] == 0) {
-			return Collections.emptyList();
+		// initial basis: cells of the last basis first, then the cheapest cells first (least cost method)
+		List<Integer> cellOrder = new ArrayList<>(m * n);
+		boolean[] inLastBasis = new boolean[m * n];
+		for (int i = 0; i < m; i++) {
+			for (int j = 0; j < n; j++) {
+				cellOrder.add(i * n + j);
+				inLastBasis[i * n + j] = lastBasis.contains(Pair.of(producers.get(i), consumers.get(j)));
+			}
 		}
+		cellOrder.sort(Comparator.<Integer, Boolean>comparing(c -> !inLastBasis[c])//
+				.thenComparingInt(c -> costs[c / n][c % n])//
+				.thenComparingInt(c -> c));
+
+		Simplex simplex = new Simplex(costs);
+		simplex.initBasis(producerSupply.stream().mapToInt(Integer::intValue).toArray(),
+				consumerDemand.stream().mapToInt(Integer::intValue).toArray(), cellOrder);
+		simplex.optimise();
 
-		// extract flows
+		Set<Pair<P, C>> basis = new HashSet<>();
 		List<Triple<P, C, Integer>> flows = new ArrayList<>();
-		for (int i = 0; i < P; i++) {
-			P from = supply.get(i).getKey();
-			for (Edge e : graph[1 + i]) {
-				int flow = e.getFlow();
-				if (flow > 0) {
-					int j = e.getTo() - (1 + P);
-					C to = demand.get(j).getKey();
+		for (int i = 0; i < m; i++) {
+			P from = producers.get(i);
+			for (int j = 0; j < n; j++) {
+				C to = consumers.get(j);
+				if (simplex.basic[i][j]) {
+					basis.add(Pair.of(from, to));
+				}
+				int flow = simplex.flows[i][j];
+				if (flow > 0 && from != null && to != null) {
 					flows.add(Triple.of(from, to, flow));
 				}
 			}
 		}
+		lastBasis = basis;
 		return flows;
 	}
+
+	/**
+	 * Transportation simplex for a balanced problem. The basis is a spanning tree over m row (producer) nodes,
+	 * indexed 0..m-1, and n column (consumer) nodes, indexed m..m+n-1. Bland's rule is used to avoid cycling on
+	 * degenerate pivots.
+	 */
+	private static class Simplex {
+		private final int m;
+		private final int n;
+		private final int[][] costs;
+		private final int[][] flows;
+		private final boolean[][] basic;
+
+		// spanning tree (recalculated in each iteration); root: row 0
+		private final int[] parent;
+		private final int[] parentCell;// the basic cell connecting a node with its parent
+		private final int[] depth;
+		private final long[] potentials;// u (rows), v (columns)
+
+		private Simplex(int[][] costs) {
+			this.costs = costs;
+			m = costs.length;
+			n = costs[0].length;
+			flows = new int[m][n];
+			basic = new boolean[m][n];
+			parent = new int[m + n];
+			parentCell = new int[m + n];
+			depth = new int[m + n];
+			potentials = new long[m + n];
+		}
+
+		/**
+		 * Builds an initial basic feasible solution by allocating as much as possible to the cells in the given
+		 * order. Each allocation closes one row or column (both only at the last one), so exactly m+n-1 cells
+		 * become basic and they form a spanning tree.
+		 */
+		private void initBasis(int[] supply, int[] demand, List<Integer> cellOrder) {
+			int[] rowRemaining = supply.clone();
+			int[] colRemaining = demand.clone();
+			boolean[] rowClosed = new boolean[m];
+			boolean[] colClosed = new boolean[n];
+			int openRows = m;
+			int openCols = n;
+
+			for (int cell : cellOrder) {
+				int i = cell / n;
+				int j = cell % n;
+				if (rowClosed[i] || colClosed[j]) {
+					continue;
+				}
+
+				int flow = Math.min(rowRemaining[i], colRemaining[j]);
+				flows[i][j] = flow;
+				basic[i][j] = true;
+				rowRemaining[i] -= flow;
+				colRemaining[j] -= flow;
+
+				if (rowRemaining[i] == 0 && openRows > 1) {
+					rowClosed[i] = true;
+					openRows--;
+				} else {// colRemaining[j] == 0
+					colClosed[j] = true;
+					openCols--;
+					if (openCols == 0) {
+						return;
+					}
+				}
+			}
+			throw new IllegalStateException("Supply and demand are not balanced");
+		}
+
+		private void optimise() {
+			while (true) {
+				buildTree();
+				int enteringCell = findEnteringCell();
+				if (enteringCell < 0) {
+					return;// optimal
+				}
+				pivot(enteringCell / n, enteringCell % n);
+			}
+		}
+
+		private void buildTree() {
+			// adjacency lists of the basic cells
+			List<List<Integer>> cellsAtNode = new ArrayList<>(m + n);
+			for (int k = 0; k < m + n; k++) {
+				cellsAtNode.add(new ArrayList<>());
+			}
+			for (int i = 0; i < m; i++) {
+				for (int j = 0; j < n; j++) {
+					if (basic[i][j]) {
+						cellsAtNode.get(i).add(i * n + j);
+						cellsAtNode.get(m + j).add(i * n + j);
+					}
+				}
+			}
+
+			int[] queue = new int[m + n];
+			boolean[] visited = new boolean[m + n];
+			int head = 0;
+			int tail = 0;
+			queue[tail++] = 0;
+			visited[0] = true;
+			parent[0] = -1;
+			depth[0] = 0;
+			potentials[0] = 0;
+			while (head < tail) {
+				int node = queue[head++];
+				for (int cell : cellsAtNode.get(node)) {
+					int i = cell / n;
+					int j = cell % n;
+					int other = node < m ? m + j : i;
+					if (!visited[other]) {
+						visited[other] = true;
+						parent[other] = node;
+						parentCell[other] = cell;
+						depth[other] = depth[node] + 1;
+						// u_i + v_j = c_ij
+						potentials[other] = costs[i][j] - potentials[node];
+						queue[tail++] = other;
+					}
+				}
+			}
+			if (tail != m + n) {
+				throw new IllegalStateException("The basis is not a spanning tree");
+			}
+		}
+
+		// Bland's rule: the first cell with a negative reduced cost
+		private int findEnteringCell() {
+			for (int i = 0; i < m; i++) {
+				for (int j = 0; j < n; j++) {
+					if (!basic[i][j] && costs[i][j] - potentials[i] - potentials[m + j] < 0) {
+						return i * n + j;
+					}
+				}
+			}
+			return -1;
+		}
+
+		private void pivot(int enteringRow, int enteringCol) {
+			// tree path from the column node to the row node of the entering cell; together with the entering cell,
+			// it makes a cycle in which the flows alternately decrease (even positions) and increase (odd positions)
+			List<Integer> pathFromCol = new ArrayList<>();
+			List<Integer> pathFromRow = new ArrayList<>();
+			int a = m + enteringCol;
+			int b = enteringRow;
+			while (a != b) {
+				if (depth[a] >= depth[b]) {
+					pathFromCol.add(parentCell[a]);
+					a = parent[a];
+				} else {
+					pathFromRow.add(parentCell[b]);
+					b = parent[b];
+				}
+			}
+			Collections.reverse(pathFromRow);
+			List<Integer> path = pathFromCol;
+			path.addAll(pathFromRow);
+
+			int theta = Integer.MAX_VALUE;
+			int leavingCell = -1;
+			for (int k = 0; k < path.size(); k += 2) {
+				int cell = path.get(k);
+				int flow = flows[cell / n][cell % n];
+				// Bland's rule: the first cell among the ones limiting theta
+				if (flow < theta || (flow == theta && cell < leavingCell)) {
+					theta = flow;
+					leavingCell = cell;
+				}
+			}
+
+			for (int k = 0; k < path.size(); k++) {
+				int cell = path.get(k);
+				flows[cell / n][cell % n] += k % 2 == 0 ? -theta : theta;
+			}
+			flows[enteringRow][enteringCol] = theta;
+			basic[enteringRow][enteringCol] = true;
+			basic[leavingCell / n][leavingCell % n] = false;
+		}
+	}
 }
@@ -119,6 +119,12 @@ public class DrtConfigGroup extends ReflectiveConfigGroup implements HasMode {
 					+ " Scales well up to 4, due to path data provision, the most computationally intensive part,"
 					+ " using up to 4 threads. Default value is 'min(4, no. of cores available to JVM)'";
 
+	public static final String PATH_DATA_CACHE_SIZE = "pathDataCacheSize";
+	static final String PATH_DATA_CACHE_SIZE_EXP =
+			"Max number of paths (over all 15-minute time slices) cached by the path data provider and shared"
+					+ " by all its threads. Cached paths are reused for all requests within the same time slice, so the travel"
+					+ " times are slightly less accurate. 0 (default) means no caching.";
+
 	@NotBlank
 	private String mode = TransportMode.drt; // travel mode (passengers'/customers' perspective)
 
@@ -169,6 +175,9 @@ public class DrtConfigGroup extends ReflectiveConfigGroup implements HasMode {
 	private int numberOfThreads = Math.min(Runtime.getRuntime().availableProcessors(),
 			ParallelPathDataProvider.MAX_THREADS);
 
+	@PositiveOrZero
+	private int pathDataCacheSize = 0;
+
 	public enum OperationalScheme {
 		stopbased, door2door
 	}
@@ -195,6 +204,7 @@ public class DrtConfigGroup extends ReflectiveConfigGroup implements HasMode {
 		map.put(ESTIMATED_DRT_SPEED, ESTIMATED_DRT_SPEED_EXP);
 		map.put(ESTIMATED_BEELINE_DISTANCE_FACTOR, ESTIMATED_BEELINE_DISTANCE_FACTOR_EXP);
 		map.put(NUMBER_OF_THREADS, NUMBER_OF_THREADS_EXP);
+		map.put(PATH_DATA_CACHE_SIZE, PATH_DATA_CACHE_SIZE_EXP);
 		map.put(PRINT_WARNINGS, PRINT_WARNINGS_EXP);
 		map.put(REQUEST_REJECTION, REQUEST_REJECTION_EXP);
 		return map;
@@ -472,6 +482,22 @@ public class DrtConfigGroup extends ReflectiveConfigGroup implements HasMode {
 		this.numberOfThreads = numberOfThreads;
 	}
 
+	/**
+	 * @return -- {@value #PATH_DATA_CACHE_SIZE_EXP}
+	 */
+	@StringGetter(PATH_DATA_CACHE_SIZE)
+	public int getPathDataCacheSize() {
+		return pathDataCacheSize;
+	}
+
+	/**
+	 * @param-- {@value #PATH_DATA_CACHE_SIZE_EXP}
+	 */
+	@StringSetter(PATH_DATA_CACHE_SIZE)
+	public void setPathDataCacheSize(final int pathDataCacheSize) {
+		this.pathDataCacheSize = pathDataCacheSize;
+	}
+
 	/**
 	 * @return -- {@value #PRINT_WARNINGS_EXP}
 	 */
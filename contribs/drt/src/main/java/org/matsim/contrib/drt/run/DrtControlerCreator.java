@@ -33,6 +33,7 @@ import org.matsim.contrib.drt.optimizer.insertion.DefaultUnplannedRequestInserte
 import org.matsim.contrib.drt.optimizer.insertion.ParallelPathDataProvider;
 import org.matsim.contrib.drt.routing.DrtRoute;
 import org.matsim.contrib.drt.routing.DrtRouteFactory;
+import org.matsim.contrib.drt.scheduler.EmptyVehicleRelocator;
 import org.matsim.contrib.dvrp.run.DvrpModule;
 import org.matsim.contrib.otfvis.OTFVisLiveModule;
 import org.matsim.core.config.Config;
@@ -108,7 +109,7 @@ public final class DrtControlerCreator {
 		addDrtWithoutDvrpModuleToControler(controler);
 		controler.addOverridingModule(DvrpModule.createModule(DrtConfigGroup.get(controler.getConfig()).getMode(),
 				Arrays.asList(DrtOptimizer.class, DefaultUnplannedRequestInserter.class,
-						ParallelPathDataProvider.class)));
+						ParallelPathDataProvider.class, EmptyVehicleRelocator.class)));
 	}
 
 	public static void addDrtWithoutDvrpModuleToControler(Controler controler) {
@@ -85,7 +85,8 @@ public class MultiModeDrtQSimModule extends AbstractMultiModeQSimModule {
 						getter.getModal(RequestInsertionScheduler.class),
 						getter.getModal(VehicleData.EntryFactory.class),
 						getter.getModal(PrecalculablePathDataProvider.class),
-						getter.getModal(InsertionCostCalculator.PenaltyCalculator.class)))).asEagerSingleton();
+						getter.getModal(InsertionCostCalculator.PenaltyCalculator.class),
+						getter.getNamed(Network.class, DvrpRoutingNetworkProvider.DVRP_ROUTING)))).asEagerSingleton();
 		bindModal(UnplannedRequestInserter.class).to(modalKey(DefaultUnplannedRequestInserter.class));
 
 		bindModal(VehicleData.EntryFactory.class).toInstance(new VehicleDataEntryFactoryImpl(drtCfg));
@@ -112,7 +113,8 @@ public class MultiModeDrtQSimModule extends AbstractMultiModeQSimModule {
 					@Override
 					public EmptyVehicleRelocator get() {
 						DrtTaskFactory taskFactory = getModalInstance(DrtTaskFactory.class);
-						return new EmptyVehicleRelocator(network, travelTime, travelDisutility, timer, taskFactory);
+						return new EmptyVehicleRelocator(network, travelTime, travelDisutility, timer, taskFactory,
+								drtCfg);
 					}
 				}).asEagerSingleton();
 
@@ -19,9 +19,17 @@
 
 package org.matsim.contrib.drt.scheduler;
 
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.contrib.drt.optimizer.rebalancing.RebalancingStrategy.Relocation;
 import org.matsim.contrib.drt.run.Drt;
+import org.matsim.contrib.drt.run.DrtConfigGroup;
 import org.matsim.contrib.drt.schedule.DrtStayTask;
 import org.matsim.contrib.drt.schedule.DrtTaskFactory;
 import org.matsim.contrib.dvrp.data.Vehicle;
@@ -31,6 +39,8 @@ import org.matsim.contrib.dvrp.router.DvrpRoutingNetworkProvider;
 import org.matsim.contrib.dvrp.schedule.Schedule;
 import org.matsim.contrib.dvrp.trafficmonitoring.DvrpTravelTimeModule;
 import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeCleanupListener;
 import org.matsim.core.router.FastAStarEuclideanFactory;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.TravelDisutility;
@@ -42,20 +52,35 @@ import com.google.inject.name.Named;
 /**
  * @author michalm
  */
-public class EmptyVehicleRelocator {
+public class EmptyVehicleRelocator implements MobsimBeforeCleanupListener {
 	private final TravelTime travelTime;
 	private final MobsimTimer timer;
 	private final DrtTaskFactory taskFactory;
-	private final LeastCostPathCalculator router;
+	private final ForkJoinPool forkJoinPool;
+
+	// one router per chunk of relocations processed in parallel; routers[0] is also used by relocateVehicle()
+	private final LeastCostPathCalculator[] routers;
 
 	@Inject
 	public EmptyVehicleRelocator(@Named(DvrpRoutingNetworkProvider.DVRP_ROUTING) Network network,
 			@Named(DvrpTravelTimeModule.DVRP_ESTIMATED) TravelTime travelTime, @Drt TravelDisutility travelDisutility,
-			MobsimTimer timer, DrtTaskFactory taskFactory) {
+			MobsimTimer timer, DrtTaskFactory taskFactory, DrtConfigGroup drtCfg) {
 		this.travelTime = travelTime;
 		this.timer = timer;
 		this.taskFactory = taskFactory;
-		router = new FastAStarEuclideanFactory().createPathCalculator(network, travelDisutility, travelTime);
+		forkJoinPool = new ForkJoinPool(drtCfg.getNumberOfThreads());
+
+		// the factory shares the routing network and pre-processed data among all routers
+		FastAStarEuclideanFactory routerFactory = new FastAStarEuclideanFactory();
+		routers = new LeastCostPathCalculator[drtCfg.getNumberOfThreads()];
+		for (int i = 0; i < routers.length; i++) {
+			routers[i] = routerFactory.createPathCalculator(network, travelDisutility, travelTime);
+		}
+	}
+
+	@Override
+	public void notifyMobsimBeforeCleanup(@SuppressWarnings("rawtypes") MobsimBeforeCleanupEvent e) {
+		forkJoinPool.shutdown();
 	}
 
 	public void relocateVehicle(Vehicle vehicle, Link link) {
@@ -63,14 +88,58 @@ public class EmptyVehicleRelocator {
 		Link currentLink = currentTask.getLink();
 
 		if (currentLink != link) {
-			VrpPathWithTravelData path = VrpPaths.calcAndCreatePath(currentLink, link, timer.getTimeOfDay(), router,
-					travelTime);
+			VrpPathWithTravelData path = VrpPaths.calcAndCreatePath(currentLink, link, timer.getTimeOfDay(),
+					routers[0], travelTime);
+			if (path.getArrivalTime() < vehicle.getServiceEndTime()) {
+				relocateVehicleImpl(vehicle, path);
+			}
+		}
+	}
+
+	/**
+	 * Relocates the vehicles like {@link #relocateVehicle(Vehicle, Link)}, but the paths are calculated in parallel.
+	 */
+	public void relocateVehicles(List<Relocation> relocations) {
+		List<Relocation> relocationsToOtherLinks = relocations.stream()
+				.filter(r -> getCurrentLink(r.vehicle) != r.link)
+				.collect(Collectors.toList());
+		int chunkCount = Math.min(routers.length, relocationsToOtherLinks.size());
+		if (chunkCount <= 1) {
+			relocationsToOtherLinks.forEach(r -> relocateVehicle(r.vehicle, r.link));
+			return;
+		}
+
+		// each chunk of relocations is routed with its own router
+		double time = timer.getTimeOfDay();
+		VrpPathWithTravelData[] paths = new VrpPathWithTravelData[relocationsToOtherLinks.size()];
+		try {
+			forkJoinPool.submit(() -> IntStream.range(0, chunkCount).parallel().forEach(c -> {
+				int from = c * paths.length / chunkCount;
+				int to = (c + 1) * paths.length / chunkCount;
+				for (int i = from; i < to; i++) {
+					Relocation r = relocationsToOtherLinks.get(i);
+					paths[i] = VrpPaths.calcAndCreatePath(getCurrentLink(r.vehicle), r.link, time, routers[c],
+							travelTime);
+				}
+			})).get();
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException(e);
+		}
+
+		// schedules are updated sequentially
+		for (int i = 0; i < paths.length; i++) {
+			Vehicle vehicle = relocationsToOtherLinks.get(i).vehicle;
+			VrpPathWithTravelData path = paths[i];
 			if (path.getArrivalTime() < vehicle.getServiceEndTime()) {
 				relocateVehicleImpl(vehicle, path);
 			}
 		}
 	}
 
+	private Link getCurrentLink(Vehicle vehicle) {
+		return ((DrtStayTask)vehicle.getSchedule().getCurrentTask()).getLink();
+	}
+
 	private void relocateVehicleImpl(Vehicle vehicle, VrpPathWithTravelData vrpPath) {
 		Schedule schedule = vehicle.getSchedule();
 		DrtStayTask stayTask = (DrtStayTask)schedule.getCurrentTask();
@@ -0,0 +1,316 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.optimizer.insertion;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.drt.data.DrtRequest;
+import org.matsim.contrib.drt.optimizer.VehicleData;
+import org.matsim.contrib.drt.optimizer.VehicleData.Entry;
+import org.matsim.contrib.drt.optimizer.insertion.DetourLinksProvider.DetourLinksSet;
+import org.matsim.contrib.drt.optimizer.insertion.SingleVehicleInsertionProblem.BestInsertion;
+import org.matsim.contrib.drt.run.DrtConfigGroup;
+import org.matsim.contrib.drt.schedule.DrtStayTask;
+import org.matsim.contrib.drt.schedule.DrtStopTask;
+import org.matsim.contrib.dvrp.data.Request;
+import org.matsim.contrib.dvrp.data.Vehicle;
+import org.matsim.contrib.dvrp.data.VehicleImpl;
+import org.matsim.contrib.dvrp.path.OneToManyPathSearch.PathData;
+import org.matsim.contrib.dvrp.util.LinkTimePair;
+import org.matsim.contrib.util.distance.DistanceUtils;
+import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Checks that the insertions found for the vehicles selected by {@link VehicleDepartureIndex} are the same as those
+ * found for the whole fleet (if soft constraint violations are rejected).
+ */
+public class VehicleDepartureIndexTest {
+	private static final int GRID_SIZE = 11;
+	private static final double GRID_SPACING = 500;
+	private static final int VEHICLE_COUNT = 60;
+	private static final int REQUEST_COUNT = 200;
+
+	private final DrtConfigGroup drtCfg = new DrtConfigGroup();
+	private final MobsimTimer timer = new MobsimTimer();
+	private final Random random = new Random(4711);
+	private final Network network = NetworkUtils.createNetwork();
+	private final List<Link> links = new ArrayList<>();
+	private final List<Link> linksOutOfBounds = new ArrayList<>();
+	private final Map<Id<Vehicle>, Vehicle> vehicles = new LinkedHashMap<>();
+
+	private ForkJoinPool forkJoinPool;
+	private ParallelMultiVehicleInsertionProblem insertionProblem;
+	private int requestCounter = 0;
+
+	@Before
+	public void init() {
+		drtCfg.setStopDuration(60);
+		drtCfg.setMaxWaitTime(600);
+		drtCfg.setMaxTravelTimeAlpha(1.5);
+		drtCfg.setMaxTravelTimeBeta(600);
+		drtCfg.setEstimatedSpeed(25. / 3.6);
+		drtCfg.setEstimatedBeelineDistanceFactor(1.3);
+
+		Node[][] nodes = new Node[GRID_SIZE][GRID_SIZE];
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y),
+						new Coord(x * GRID_SPACING, y * GRID_SPACING));
+			}
+		}
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				if (x + 1 < GRID_SIZE) {
+					links.add(createLink(network, nodes[x][y], nodes[x + 1][y]));
+					links.add(createLink(network, nodes[x + 1][y], nodes[x][y]));
+				}
+				if (y + 1 < GRID_SIZE) {
+					links.add(createLink(network, nodes[x][y], nodes[x][y + 1]));
+					links.add(createLink(network, nodes[x][y + 1], nodes[x][y]));
+				}
+			}
+		}
+
+		// links which are not part of the network (and so out of the index bounds), but close enough to it
+		Network otherNetwork = NetworkUtils.createNetwork();
+		Node outside1 = NetworkUtils.createAndAddNode(otherNetwork, Id.createNodeId("outside1"),
+				new Coord(-300, 2000));
+		Node outside2 = NetworkUtils.createAndAddNode(otherNetwork, Id.createNodeId("outside2"),
+				new Coord(-300, 2500));
+		linksOutOfBounds.add(createLink(otherNetwork, outside1, outside2));
+		linksOutOfBounds.add(createLink(otherNetwork, outside2, outside1));
+
+		for (int i = 0; i < VEHICLE_COUNT; i++) {
+			Id<Vehicle> id = Id.create(i, Vehicle.class);
+			Vehicle vehicle = new VehicleImpl(id, links.get(0), 4, 0, 30 * 3600);
+			// the time window of the vehicle is checked against the last (stay) task
+			vehicle.getSchedule().addTask(new DrtStayTask(0, 30 * 3600, links.get(0)));
+			vehicles.put(id, vehicle);
+		}
+
+		forkJoinPool = new ForkJoinPool(2);
+		insertionProblem = new ParallelMultiVehicleInsertionProblem(new BeelinePathDataProvider(), drtCfg, timer,
+				forkJoinPool, new InsertionCostCalculator.RejectSoftConstraintViolations());
+	}
+
+	@After
+	public void shutdown() {
+		insertionProblem.shutdown();
+	}
+
+	@Test
+	public void testSameInsertionsAsWithoutIndex() {
+		VehicleDepartureIndex index = new VehicleDepartureIndex(drtCfg, network);
+
+		double now = 8 * 3600;
+		Map<Id<Vehicle>, Entry> entries = new LinkedHashMap<>();
+		for (Vehicle v : vehicles.values()) {
+			entries.put(v.getId(), createEntry(v, now));
+		}
+		int[] stats = checkInsertions(index, entries.values(), now);
+
+		// the vehicles move on: some get delayed at the same links, some get new stops, some become unavailable
+		for (int round = 1; round <= 3; round++) {
+			now += 60;
+			for (Vehicle v : vehicles.values()) {
+				Entry oldEntry = entries.get(v.getId());
+				double r = random.nextDouble();
+				if (r < 0.3 && oldEntry != null) {
+					entries.put(v.getId(), delayEntry(oldEntry, now, random.nextDouble() * 120));
+				} else if (r < 0.6) {
+					entries.put(v.getId(), createEntry(v, now));
+				} else if (r < 0.7) {
+					entries.remove(v.getId());
+				} else if (oldEntry != null && oldEntry.start.time < now) {
+					entries.put(v.getId(), delayEntry(oldEntry, now, 0));
+				}
+			}
+			int[] roundStats = checkInsertions(index, entries.values(), now);
+			for (int i = 0; i < stats.length; i++) {
+				stats[i] += roundStats[i];
+			}
+		}
+
+		Assert.assertTrue("too few feasible requests, the test is probably broken", stats[0] > REQUEST_COUNT);
+		Assert.assertTrue("the index does not skip any vehicles", stats[1] < stats[2]);
+	}
+
+	/**
+	 * @return [number of requests with a feasible insertion, number of candidate entries, number of all entries]
+	 */
+	private int[] checkInsertions(VehicleDepartureIndex index, Iterable<Entry> entryIterable, double now) {
+		timer.setTime(now);
+		List<Entry> allEntries = new ArrayList<>();
+		entryIterable.forEach(allEntries::add);
+		index.refresh(allEntries, now);
+
+		int[] stats = new int[3];
+		for (int i = 0; i < REQUEST_COUNT; i++) {
+			DrtRequest request = createRequest(now);
+			List<Entry> candidates = index.findCandidates(request);
+			for (Entry e : allEntries) {
+				if (isOutOfBounds(e)) {
+					Assert.assertTrue("vehicles out of bounds must always be candidates", candidates.contains(e));
+				}
+			}
+
+			Optional<BestInsertion> expected = insertionProblem.findBestInsertion(request, allEntries);
+			Optional<BestInsertion> actual = insertionProblem.findBestInsertion(request, candidates);
+			Assert.assertEquals(expected.isPresent(), actual.isPresent());
+			if (expected.isPresent()) {
+				// other vehicles may have the same cost, so only the cost is compared
+				Assert.assertEquals(expected.get().cost, actual.get().cost, 0);
+				Assert.assertTrue(candidates.contains(expected.get().vehicleEntry));
+				stats[0]++;
+			}
+			stats[1] += candidates.size();
+			stats[2] += allEntries.size();
+		}
+		return stats;
+	}
+
+	private boolean isOutOfBounds(Entry vEntry) {
+		if (linksOutOfBounds.contains(vEntry.start.link)) {
+			return true;
+		}
+		for (VehicleData.Stop s : vEntry.stops) {
+			if (linksOutOfBounds.contains(s.task.getLink())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private Entry createEntry(Vehicle vehicle, double now) {
+		Link startLink = random.nextInt(10) == 0 ? randomLink(linksOutOfBounds) : randomLink(links);
+		double startTime = now + random.nextDouble() * 300;
+		int stopCount = random.nextInt(4);
+
+		List<VehicleData.Stop> stops = new ArrayList<>();
+		Link previousLink = startLink;
+		double previousTime = startTime;
+		for (int i = 0; i < stopCount; i++) {
+			// stops at the same link as the start or the previous stop
+			Link link = random.nextInt(4) == 0 ? previousLink : randomLink(links);
+			double beginTime = previousTime + getTravelTime(previousLink, link) + random.nextDouble() * 60;
+			DrtStopTask task = new DrtStopTask(beginTime, beginTime + drtCfg.getStopDuration(), link);
+			task.addDropoffRequest(new DrtRequest(Id.create("onboard_" + requestCounter++, Request.class), null, link,
+					link, now, now, beginTime + random.nextDouble() * 300, now));
+			stops.add(new VehicleData.Stop(task, stopCount - i - 1));
+			previousLink = link;
+			previousTime = task.getEndTime();
+		}
+		return new Entry(vehicle, new LinkTimePair(startLink, startTime), stopCount, ImmutableList.copyOf(stops));
+	}
+
+	/**
+	 * The same start and stop links, but the times are shifted (at least up to now).
+	 */
+	private Entry delayEntry(Entry vEntry, double now, double delay) {
+		double startTime = Math.max(vEntry.start.time + delay, now);
+		double shift = startTime - vEntry.start.time;
+		List<VehicleData.Stop> stops = new ArrayList<>();
+		for (VehicleData.Stop s : vEntry.stops) {
+			DrtStopTask task = new DrtStopTask(s.task.getBeginTime() + shift, s.task.getEndTime() + shift,
+					s.task.getLink());
+			s.task.getDropoffRequests().forEach(task::addDropoffRequest);
+			stops.add(new VehicleData.Stop(task, s.outgoingOccupancy));
+		}
+		return new Entry(vEntry.vehicle, new LinkTimePair(vEntry.start.link, startTime), vEntry.startOccupancy,
+				ImmutableList.copyOf(stops));
+	}
+
+	private DrtRequest createRequest(double now) {
+		Link fromLink = randomLink(links);
+		Link toLink = randomLink(links);
+		double latestArrivalTime = now + drtCfg.getMaxTravelTimeAlpha() * getTravelTime(fromLink, toLink)
+				+ drtCfg.getMaxTravelTimeBeta();
+		return new DrtRequest(Id.create("request_" + requestCounter++, Request.class), null, fromLink, toLink, now,
+				now + drtCfg.getMaxWaitTime(), latestArrivalTime, now);
+	}
+
+	private Link randomLink(List<Link> links) {
+		return links.get(random.nextInt(links.size()));
+	}
+
+	private double getTravelTime(Link from, Link to) {
+		// never faster than the optimistic beeline speed used by the index
+		return DistanceUtils.calculateDistance(from, to) * drtCfg.getEstimatedBeelineDistanceFactor()
+				/ drtCfg.getEstimatedDrtSpeed();
+	}
+
+	private static Link createLink(Network network, Node from, Node to) {
+		return NetworkUtils.createAndAddLink(network, Id.createLinkId(from.getId() + "-" + to.getId()), from, to,
+				GRID_SPACING, 10, 1000, 1);
+	}
+
+	private class BeelinePathDataProvider implements PrecalculablePathDataProvider {
+		@Override
+		public void precalculatePathData(DrtRequest drtRequest, DetourLinksSet detourLinkSet) {
+		}
+
+		@Override
+		public PathDataSet getPathDataSet(DrtRequest drtRequest, Entry vEntry) {
+			Link pickup = drtRequest.getFromLink();
+			Link dropoff = drtRequest.getToLink();
+			int length = vEntry.stops.size() + 1;
+			PathData[] pathsToPickup = new PathData[length];
+			PathData[] pathsFromPickup = new PathData[length];
+			PathData[] pathsToDropoff = new PathData[length];
+			PathData[] pathsFromDropoff = new PathData[length];
+
+			pathsToPickup[0] = createPathData(vEntry.start.link, pickup);
+			pathsFromPickup[0] = createPathData(pickup, dropoff);
+			for (int i = 1; i < length; i++) {
+				Link link = vEntry.stops.get(i - 1).task.getLink();
+				pathsToPickup[i] = createPathData(link, pickup);
+				pathsFromPickup[i] = createPathData(pickup, link);
+				pathsToDropoff[i] = createPathData(link, dropoff);
+				pathsFromDropoff[i] = createPathData(dropoff, link);
+			}
+			return new PathDataSet(pathsToPickup, pathsFromPickup, pathsToDropoff, pathsFromDropoff);
+		}
+
+		private PathData createPathData(Link from, Link to) {
+			double travelTime = getTravelTime(from, to);
+			return new PathData(new Path(null, Collections.emptyList(), travelTime, travelTime), 0);
+		}
+	}
+}
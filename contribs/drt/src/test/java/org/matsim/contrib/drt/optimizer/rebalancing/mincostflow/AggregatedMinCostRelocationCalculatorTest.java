@@ -0,0 +1,151 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.optimizer.rebalancing.mincostflow;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.drt.analysis.zonal.DrtZonalSystem;
+import org.matsim.contrib.drt.optimizer.rebalancing.RebalancingStrategy.Relocation;
+import org.matsim.contrib.drt.schedule.DrtStayTask;
+import org.matsim.contrib.dvrp.data.Vehicle;
+import org.matsim.contrib.dvrp.data.VehicleImpl;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.util.TravelTime;
+
+import com.vividsolutions.jts.geom.Point;
+
+/**
+ * Checks that the zone centroids and destination links are computed only once, and the zone-to-zone travel times
+ * once per time bin.
+ */
+public class AggregatedMinCostRelocationCalculatorTest {
+	private static final int GRID_SIZE = 5;
+	private static final double GRID_SPACING = 1000;
+
+	private final Network network = NetworkUtils.createNetwork();
+	private final Map<String, Integer> centroidCalculations = new HashMap<>();
+	private int travelTimeCalculations = 0;
+
+	// zones (cell size: 2000): "1" - bottom-left, "2" - top-left, "3" - bottom-right, "4" - top-right
+	private final DrtZonalSystem zonalSystem;
+
+	// horizontal links in the bottom half are very slow; so, from zone "1", it is faster to get to zone "4" than
+	// to zone "3" (although "3" is closer)
+	private final TravelTime travelTime = (link, time, person, vehicle) -> {
+		travelTimeCalculations++;
+		boolean slow = link.getFromNode().getCoord().getY() == link.getToNode().getCoord().getY()
+				&& link.getFromNode().getCoord().getY() <= 2000;
+		return link.getLength() / link.getFreespeed() * (slow ? 100 : 1);
+	};
+
+	public AggregatedMinCostRelocationCalculatorTest() {
+		Node[][] nodes = new Node[GRID_SIZE][GRID_SIZE];
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y),
+						new Coord(x * GRID_SPACING, y * GRID_SPACING));
+			}
+		}
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				if (x + 1 < GRID_SIZE) {
+					createLink(nodes[x][y], nodes[x + 1][y]);
+					createLink(nodes[x + 1][y], nodes[x][y]);
+				}
+				if (y + 1 < GRID_SIZE) {
+					createLink(nodes[x][y], nodes[x][y + 1]);
+					createLink(nodes[x][y + 1], nodes[x][y]);
+				}
+			}
+		}
+
+		zonalSystem = new DrtZonalSystem(network, 2000) {
+			@Override
+			public Coord getZoneCentroid(String zoneId) {
+				centroidCalculations.merge(zoneId, 1, Integer::sum);
+				return super.getZoneCentroid(zoneId);
+			}
+		};
+	}
+
+	@Test
+	public void testCachedZoneLinksAndTravelTimes() {
+		AggregatedMinCostRelocationCalculator calculator = new AggregatedMinCostRelocationCalculator(zonalSystem,
+				network, travelTime);
+		Link linkInZone1 = NetworkUtils.getNearestLink(network, new Coord(500, 500));
+
+		List<Relocation> relocations = calcRelocations(calculator, linkInZone1, 0);
+		Assert.assertEquals(1, relocations.size());
+		Assert.assertEquals(getDestinationLink("4"), relocations.get(0).link);
+		Assert.assertTrue(travelTimeCalculations > 0);
+
+		// the same time bin: no routing
+		travelTimeCalculations = 0;
+		relocations = calcRelocations(calculator, linkInZone1, 899);
+		Assert.assertEquals(getDestinationLink("4"), relocations.get(0).link);
+		Assert.assertEquals(0, travelTimeCalculations);
+
+		// the next time bin: travel times are computed again
+		relocations = calcRelocations(calculator, linkInZone1, 900);
+		Assert.assertEquals(getDestinationLink("4"), relocations.get(0).link);
+		Assert.assertTrue(travelTimeCalculations > 0);
+
+		// centroids (and so destination links) are computed once for all zones
+		Map<String, Integer> expectedCentroidCalculations = new HashMap<>();
+		zonalSystem.getZones().keySet().forEach(z -> expectedCentroidCalculations.put(z, 1));
+		Assert.assertEquals(4, expectedCentroidCalculations.size());
+		Assert.assertEquals(expectedCentroidCalculations, centroidCalculations);
+	}
+
+	private List<Relocation> calcRelocations(AggregatedMinCostRelocationCalculator calculator, Link vehicleLink,
+			double time) {
+		Vehicle vehicle = new VehicleImpl(Id.create("v", Vehicle.class), vehicleLink, 4, 0, 30 * 3600);
+		vehicle.getSchedule().addTask(new DrtStayTask(0, 30 * 3600, vehicleLink));
+		Map<String, List<Vehicle>> rebalancableVehiclesPerZone = new HashMap<>();
+		rebalancableVehiclesPerZone.put("1", new ArrayList<>(Collections.singletonList(vehicle)));
+
+		List<Pair<String, Integer>> supply = Collections.singletonList(Pair.of("1", 1));
+		List<Pair<String, Integer>> demand = Arrays.asList(Pair.of("3", 1), Pair.of("4", 1));
+		return calculator.calcRelocations(supply, demand, rebalancableVehiclesPerZone, time);
+	}
+
+	private Link getDestinationLink(String zone) {
+		Point centroid = zonalSystem.getZones().get(zone).getCentroid();
+		return NetworkUtils.getNearestLink(network, new Coord(centroid.getX(), centroid.getY()));
+	}
+
+	private void createLink(Node from, Node to) {
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(from.getId() + "-" + to.getId()), from, to,
+				GRID_SPACING, 10, 1000, 1);
+	}
+}
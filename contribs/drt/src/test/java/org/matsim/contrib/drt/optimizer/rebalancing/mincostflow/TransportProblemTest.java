@@ -0,0 +1,149 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.optimizer.rebalancing.mincostflow;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.commons.lang3.tuple.Triple;
+import org.junit.Assert;
+import org.junit.Test;
+
+import graphs.flows.MinCostFlow;
+import graphs.flows.MinCostFlow.Edge;
+
+/**
+ * Compares the costs of the solutions found by {@link TransportProblem} (also when starting from the basis of the
+ * previous solution) with the min cost flow solutions.
+ */
+public class TransportProblemTest {
+	private static final int ZONE_COUNT = 12;
+
+	private final Random random = new Random(4711);
+	private final int[][] costs = new int[ZONE_COUNT][ZONE_COUNT];
+
+	@Test
+	public void testSimpleProblem() {
+		int[][] costs = { { 4, 1 }, { 2, 5 } };
+		TransportProblem<Integer, Integer> problem = new TransportProblem<>((p, c) -> costs[p][c]);
+
+		List<Triple<Integer, Integer, Integer>> flows = problem.solve(
+				Arrays.asList(Pair.of(0, 3), Pair.of(1, 2)), Arrays.asList(Pair.of(0, 2), Pair.of(1, 3)));
+		Assert.assertEquals(Arrays.asList(Triple.of(0, 1, 3), Triple.of(1, 0, 2)), flows);
+
+		Assert.assertTrue(problem.solve(Arrays.asList(Pair.of(0, 0)), Arrays.asList(Pair.of(1, 3))).isEmpty());
+		Assert.assertTrue(problem.solve(Arrays.asList(Pair.of(0, 2)), Collections.emptyList()).isEmpty());
+	}
+
+	@Test
+	public void testRandomProblems() {
+		TransportProblem<Integer, Integer> warmProblem = new TransportProblem<>((p, c) -> costs[p][c]);
+		for (int round = 0; round < 200; round++) {
+			// costs change slightly between the rounds, like travel times between the time bins
+			for (int i = 0; i < ZONE_COUNT; i++) {
+				for (int j = 0; j < ZONE_COUNT; j++) {
+					costs[i][j] = round == 0 || random.nextInt(4) == 0 ? 100 + random.nextInt(1000) : costs[i][j];
+				}
+			}
+
+			// degenerate problems (repeated supply and demand values) are frequent
+			List<Pair<Integer, Integer>> supply = new ArrayList<>();
+			List<Pair<Integer, Integer>> demand = new ArrayList<>();
+			for (int zone = 0; zone < ZONE_COUNT; zone++) {
+				switch (random.nextInt(3)) {
+					case 0:
+						supply.add(Pair.of(zone, 1 + random.nextInt(4)));
+						break;
+					case 1:
+						demand.add(Pair.of(zone, 1 + random.nextInt(4)));
+						break;
+					default:// neither surplus nor deficit
+				}
+			}
+
+			int expectedCost = solveMinCostFlow(supply, demand);
+			List<Triple<Integer, Integer, Integer>> coldFlows = new TransportProblem<Integer, Integer>(
+					(p, c) -> costs[p][c]).solve(supply, demand);
+			List<Triple<Integer, Integer, Integer>> warmFlows = warmProblem.solve(supply, demand);
+
+			assertFeasible(supply, demand, coldFlows);
+			assertFeasible(supply, demand, warmFlows);
+			Assert.assertEquals(expectedCost, calcCost(coldFlows));
+			Assert.assertEquals(expectedCost, calcCost(warmFlows));
+		}
+	}
+
+	private void assertFeasible(List<Pair<Integer, Integer>> supply, List<Pair<Integer, Integer>> demand,
+			List<Triple<Integer, Integer, Integer>> flows) {
+		int[] outflows = new int[ZONE_COUNT];
+		int[] inflows = new int[ZONE_COUNT];
+		for (Triple<Integer, Integer, Integer> f : flows) {
+			Assert.assertTrue(f.getRight() > 0);
+			outflows[f.getLeft()] += f.getRight();
+			inflows[f.getMiddle()] += f.getRight();
+		}
+
+		int totalSupply = supply.stream().mapToInt(Pair::getValue).sum();
+		int totalDemand = demand.stream().mapToInt(Pair::getValue).sum();
+		for (Pair<Integer, Integer> s : supply) {
+			Assert.assertTrue(outflows[s.getKey()] <= s.getValue());
+			Assert.assertTrue(totalSupply > totalDemand || outflows[s.getKey()] == s.getValue());
+		}
+		for (Pair<Integer, Integer> d : demand) {
+			Assert.assertTrue(inflows[d.getKey()] <= d.getValue());
+			Assert.assertTrue(totalSupply < totalDemand || inflows[d.getKey()] == d.getValue());
+		}
+	}
+
+	private int calcCost(List<Triple<Integer, Integer, Integer>> flows) {
+		return flows.stream().mapToInt(f -> f.getRight() * costs[f.getLeft()][f.getMiddle()]).sum();
+	}
+
+	private int solveMinCostFlow(List<Pair<Integer, Integer>> supply, List<Pair<Integer, Integer>> demand) {
+		final int P = supply.size();
+		final int C = demand.size();
+		final int N = P + C + 2;
+
+		@SuppressWarnings("unchecked")
+		List<Edge>[] graph = Stream.generate(ArrayList::new).limit(N).toArray(List[]::new);
+		int totalSupply = 0;
+		for (int i = 0; i < P; i++) {
+			MinCostFlow.addEdge(graph, 0, 1 + i, supply.get(i).getValue(), 0);
+			totalSupply += supply.get(i).getValue();
+		}
+		for (int i = 0; i < P; i++) {
+			for (int j = 0; j < C; j++) {
+				MinCostFlow.addEdge(graph, 1 + i, 1 + P + j, Integer.MAX_VALUE / 2,
+						costs[supply.get(i).getKey()][demand.get(j).getKey()]);
+			}
+		}
+		int totalDemand = 0;
+		for (int j = 0; j < C; j++) {
+			MinCostFlow.addEdge(graph, 1 + P + j, N - 1, demand.get(j).getValue(), 0);
+			totalDemand += demand.get(j).getValue();
+		}
+		return MinCostFlow.minCostFlow(graph, 0, N - 1, Math.min(totalSupply, totalDemand), false)[1];
+	}
+}
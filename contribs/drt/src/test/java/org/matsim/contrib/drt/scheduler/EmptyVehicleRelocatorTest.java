@@ -0,0 +1,153 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.drt.optimizer.rebalancing.RebalancingStrategy.Relocation;
+import org.matsim.contrib.drt.run.DrtConfigGroup;
+import org.matsim.contrib.drt.schedule.DrtStayTask;
+import org.matsim.contrib.drt.schedule.DrtTask;
+import org.matsim.contrib.drt.schedule.DrtTaskFactoryImpl;
+import org.matsim.contrib.dvrp.data.Vehicle;
+import org.matsim.contrib.dvrp.data.VehicleImpl;
+import org.matsim.contrib.dvrp.path.VrpPath;
+import org.matsim.contrib.dvrp.router.TimeAsTravelDisutility;
+import org.matsim.contrib.dvrp.schedule.DriveTask;
+import org.matsim.contrib.dvrp.schedule.StayTask;
+import org.matsim.contrib.dvrp.schedule.Task;
+import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+
+/**
+ * Checks that relocating vehicles in parallel results in the same schedules as relocating them one by one.
+ */
+public class EmptyVehicleRelocatorTest {
+	private static final int GRID_SIZE = 10;
+	private static final double GRID_SPACING = 500;
+	private static final int VEHICLE_COUNT = 50;
+	private static final double TIME = 8 * 3600;
+
+	private final Network network = NetworkUtils.createNetwork();
+	private final List<Link> links = new ArrayList<>();
+	private final TravelTime travelTime = new FreeSpeedTravelTime();
+
+	public EmptyVehicleRelocatorTest() {
+		Node[][] nodes = new Node[GRID_SIZE][GRID_SIZE];
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y),
+						new Coord(x * GRID_SPACING, y * GRID_SPACING));
+			}
+		}
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				if (x + 1 < GRID_SIZE) {
+					createLink(nodes[x][y], nodes[x + 1][y]);
+					createLink(nodes[x + 1][y], nodes[x][y]);
+				}
+				if (y + 1 < GRID_SIZE) {
+					createLink(nodes[x][y], nodes[x][y + 1]);
+					createLink(nodes[x][y + 1], nodes[x][y]);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testParallelRelocations() {
+		List<String> expected = relocate(1, false);
+		Assert.assertEquals(expected, relocate(1, true));
+		Assert.assertEquals(expected, relocate(4, true));
+		Assert.assertEquals(expected, relocate(VEHICLE_COUNT * 2, true));// more threads than relocations
+
+		// some vehicles stay where they are, or cannot reach their destinations before the service end
+		long relocatedVehicles = expected.stream().filter(s -> s.contains("DRIVE")).count();
+		Assert.assertTrue(relocatedVehicles > VEHICLE_COUNT / 2);
+		Assert.assertTrue(relocatedVehicles < VEHICLE_COUNT);
+	}
+
+	private List<String> relocate(int numberOfThreads, boolean inParallel) {
+		DrtConfigGroup drtCfg = new DrtConfigGroup();
+		drtCfg.setNumberOfThreads(numberOfThreads);
+		MobsimTimer timer = new MobsimTimer();
+		timer.setTime(TIME);
+		EmptyVehicleRelocator relocator = new EmptyVehicleRelocator(network, travelTime,
+				new TimeAsTravelDisutility(travelTime), timer, new DrtTaskFactoryImpl(), drtCfg);
+
+		Random random = new Random(4711);
+		List<Vehicle> vehicles = new ArrayList<>();
+		List<Relocation> relocations = new ArrayList<>();
+		for (int i = 0; i < VEHICLE_COUNT; i++) {
+			Link startLink = links.get(random.nextInt(links.size()));
+			Link targetLink = i % 10 == 0 ? startLink : links.get(random.nextInt(links.size()));
+			double serviceEndTime = i % 10 == 1 ? TIME + 60 : 30 * 3600;
+
+			Vehicle vehicle = new VehicleImpl(Id.create(i, Vehicle.class), startLink, 4, 0, serviceEndTime);
+			vehicle.getSchedule().addTask(new DrtStayTask(0, serviceEndTime, startLink));
+			vehicle.getSchedule().nextTask();
+			vehicles.add(vehicle);
+			relocations.add(new Relocation(vehicle, targetLink));
+		}
+
+		if (inParallel) {
+			relocator.relocateVehicles(relocations);
+		} else {
+			relocations.forEach(r -> relocator.relocateVehicle(r.vehicle, r.link));
+		}
+		relocator.notifyMobsimBeforeCleanup(null);
+
+		List<String> schedules = new ArrayList<>();
+		for (Vehicle vehicle : vehicles) {
+			StringBuilder sb = new StringBuilder();
+			for (Task task : vehicle.getSchedule().getTasks()) {
+				sb.append(((DrtTask)task).getDrtTaskType()).append(' ').append(task.getBeginTime()).append(' ')
+						.append(task.getEndTime());
+				if (task instanceof DriveTask) {
+					VrpPath path = ((DriveTask)task).getPath();
+					for (int i = 0; i < path.getLinkCount(); i++) {
+						sb.append(' ').append(path.getLink(i).getId());
+					}
+				} else if (task instanceof StayTask) {
+					sb.append(' ').append(((StayTask)task).getLink().getId());
+				}
+				sb.append('\n');
+			}
+			schedules.add(sb.toString());
+		}
+		return schedules;
+	}
+
+	private void createLink(Node from, Node to) {
+		links.add(NetworkUtils.createAndAddLink(network, Id.createLinkId(from.getId() + "-" + to.getId()), from, to,
+				GRID_SPACING, 10, 1000, 1));
+	}
+}
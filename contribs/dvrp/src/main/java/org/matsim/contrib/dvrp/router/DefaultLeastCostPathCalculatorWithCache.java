@@ -19,6 +19,8 @@
 
 package org.matsim.contrib.dvrp.router;
 
+import java.util.Map;
+
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
@@ -26,46 +28,36 @@ import org.matsim.contrib.dvrp.util.TimeDiscretizer;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.vehicles.Vehicle;
 
-import com.google.common.collect.*;
+import com.google.common.collect.Maps;
 
 public class DefaultLeastCostPathCalculatorWithCache implements LeastCostPathCalculatorWithCache {
 	private final LeastCostPathCalculator calculator;
-	private final TimeDiscretizer timeDiscretizer;
-	private final Table<Id<Node>, Id<Node>, Path>[] pathCache;
-
-	private CacheStats cacheStats = new CacheStats();
+	private final TimeSlicedLruCache<Map.Entry<Id<Node>, Id<Node>>, Path> pathCache;
 
-	@SuppressWarnings("unchecked")
 	public DefaultLeastCostPathCalculatorWithCache(LeastCostPathCalculator calculator,
 			TimeDiscretizer timeDiscretizer) {
-		this.calculator = calculator;
-		this.timeDiscretizer = timeDiscretizer;
+		this(calculator, new TimeSlicedLruCache<>(timeDiscretizer));
+	}
 
-		pathCache = new Table[timeDiscretizer.getIntervalCount()];
-		for (int i = 0; i < pathCache.length; i++) {
-			pathCache[i] = HashBasedTable.create();
-		}
+	/**
+	 * The cache may be shared by several calculators (e.g. one per thread)
+	 */
+	public DefaultLeastCostPathCalculatorWithCache(LeastCostPathCalculator calculator,
+			TimeSlicedLruCache<Map.Entry<Id<Node>, Id<Node>>, Path> pathCache) {
+		this.calculator = calculator;
+		this.pathCache = pathCache;
 	}
 
 	@Override
 	public Path calcLeastCostPath(Node fromNode, Node toNode, double startTime, Person person, Vehicle vehicle) {
-		Table<Id<Node>, Id<Node>, Path> spCacheSlice = pathCache[timeDiscretizer.getIdx(startTime)];
-		Path path = spCacheSlice.get(fromNode.getId(), toNode.getId());
-
-		if (path == null) {
-			cacheStats.incMisses();
-			path = calculator.calcLeastCostPath(fromNode, toNode, timeDiscretizer.discretize(startTime), person,
-					vehicle);
-			spCacheSlice.put(fromNode.getId(), toNode.getId(), path);
-		} else {
-			cacheStats.incHits();
-		}
-
-		return path;
+		TimeDiscretizer timeDiscretizer = pathCache.getTimeDiscretizer();
+		return pathCache.computeIfAbsent(startTime, Maps.immutableEntry(fromNode.getId(), toNode.getId()),
+				k -> calculator.calcLeastCostPath(fromNode, toNode, timeDiscretizer.discretize(startTime), person,
+						vehicle));
 	}
 
 	@Override
 	public CacheStats getCacheStats() {
-		return cacheStats;
+		return pathCache.getCacheStats();
 	}
 }
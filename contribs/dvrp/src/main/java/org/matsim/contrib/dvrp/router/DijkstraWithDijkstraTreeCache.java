@@ -19,8 +19,6 @@
 
 package org.matsim.contrib.dvrp.router;
 
-import java.util.Map;
-
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.*;
 import org.matsim.api.core.v01.population.Person;
@@ -28,55 +26,46 @@ import org.matsim.contrib.dvrp.util.TimeDiscretizer;
 import org.matsim.core.router.util.*;
 import org.matsim.vehicles.Vehicle;
 
-import com.google.common.collect.Maps;
-
 public class DijkstraWithDijkstraTreeCache implements LeastCostPathCalculatorWithCache {
 	private final Network network;
 	private final TravelDisutility costFunction;
 	private final TravelTime timeFunction;
-	private final TimeDiscretizer timeDiscretizer;
-	private final Map<Id<Node>, DijkstraTree>[] treeCache;
-
-	private CacheStats cacheStats = new CacheStats();
+	private final TimeSlicedLruCache<Id<Node>, DijkstraTree> treeCache;
 
-	@SuppressWarnings("unchecked")
 	public DijkstraWithDijkstraTreeCache(Network network, TravelDisutility costFunction, final TravelTime timeFunction,
 			TimeDiscretizer timeDiscretizer) {
+		this(network, costFunction, timeFunction, new TimeSlicedLruCache<>(timeDiscretizer));
+	}
+
+	/**
+	 * The cache may be shared by several calculators (e.g. one per thread). Since each tree takes memory proportional
+	 * to the network size, limiting the cache size is recommended for large networks.
+	 */
+	public DijkstraWithDijkstraTreeCache(Network network, TravelDisutility costFunction, final TravelTime timeFunction,
+			TimeSlicedLruCache<Id<Node>, DijkstraTree> treeCache) {
 		this.network = network;
 		this.costFunction = costFunction;
 		this.timeFunction = timeFunction;
-		this.timeDiscretizer = timeDiscretizer;
-
-		treeCache = new Map[timeDiscretizer.getIntervalCount()];
-		for (int i = 0; i < treeCache.length; i++) {
-			treeCache[i] = Maps.newHashMap();
-		}
+		this.treeCache = treeCache;
 	}
 
 	@Override
 	public Path calcLeastCostPath(Node fromNode, Node toNode, double startTime, Person person, Vehicle vehicle) {
+		TimeDiscretizer timeDiscretizer = treeCache.getTimeDiscretizer();
 		return getTree(fromNode, startTime).calcLeastCostPath(fromNode, toNode, timeDiscretizer.discretize(startTime),
 				person, vehicle);
 	}
 
 	public DijkstraTree getTree(Node fromNode, double startTime) {
-		Map<Id<Node>, DijkstraTree> treeCacheSlice = treeCache[timeDiscretizer.getIdx(startTime)];
-		DijkstraTree tree = treeCacheSlice.get(fromNode.getId());
-
-		if (tree == null) {
-			cacheStats.incMisses();
-			tree = new DijkstraTree(network, costFunction, timeFunction);
-			tree.calcLeastCostPathTree(fromNode, timeDiscretizer.discretize(startTime));
-			treeCacheSlice.put(fromNode.getId(), tree);
-		} else {
-			cacheStats.incHits();
-		}
-
-		return tree;
+		return treeCache.computeIfAbsent(startTime, fromNode.getId(), k -> {
+			DijkstraTree tree = new DijkstraTree(network, costFunction, timeFunction);
+			tree.calcLeastCostPathTree(fromNode, treeCache.getTimeDiscretizer().discretize(startTime));
+			return tree;
+		});
 	}
 
 	@Override
 	public CacheStats getCacheStats() {
-		return cacheStats;
+		return treeCache.getCacheStats();
 	}
 }
@@ -0,0 +1,234 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.dvrp.router;
+
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+import org.matsim.contrib.dvrp.router.LeastCostPathCalculatorWithCache.CacheStats;
+import org.matsim.contrib.dvrp.util.TimeDiscretizer;
+
+/**
+ * Cache of routing results (paths, trees) per time slice, with a limited number of entries. If the limit is
+ * exceeded, the least recently used entry is evicted.
+ * <p>
+ * The cache is thread-safe, so it can be shared by several calculators (e.g. one per thread, as the calculators
+ * themselves are not thread-safe). To let the threads look up entries concurrently, larger caches are split into
+ * up to {@value #MAX_SEGMENT_COUNT} segments (selected by the hash of the time slice and key), each with its own
+ * lock and an equal share of the size limit. The least recently used entry is thus evicted per segment, not over
+ * the whole cache. Caches with less than {@value #MIN_SEGMENT_SIZE} entries per segment are not split. The values
+ * are computed outside the locks, so the same value may be computed concurrently by several threads.
+ */
+public class TimeSlicedLruCache<K, V> {
+	public static final int UNLIMITED_SIZE = Integer.MAX_VALUE;
+
+	static final int MAX_SEGMENT_COUNT = 16;
+	static final int MIN_SEGMENT_SIZE = 64;
+
+	private static class SliceKey<K> {
+		private final int sliceIdx;
+		private final K key;
+
+		private SliceKey(int sliceIdx, K key) {
+			this.sliceIdx = sliceIdx;
+			this.key = key;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof SliceKey)) {
+				return false;
+			}
+			SliceKey<?> other = (SliceKey<?>)o;
+			return sliceIdx == other.sliceIdx && key.equals(other.key);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * sliceIdx + key.hashCode();
+		}
+	}
+
+	// access order ==> the eldest entry is the least recently used one
+	private static class Segment<K, V> extends LinkedHashMap<SliceKey<K>, V> {
+		private final int maxSize;
+		private final CacheStats cacheStats;
+
+		private Segment(int maxSize, CacheStats cacheStats) {
+			super(16, 0.75f, true);
+			this.maxSize = maxSize;
+			this.cacheStats = cacheStats;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<SliceKey<K>, V> eldest) {
+			if (size() > maxSize) {
+				cacheStats.incEvictions();
+				return true;
+			}
+			return false;
+		}
+	}
+
+	private final TimeDiscretizer timeDiscretizer;
+	private final Segment<K, V>[] segments;
+	private final CacheStats cacheStats = new CacheStats();
+
+	public TimeSlicedLruCache(TimeDiscretizer timeDiscretizer) {
+		this(timeDiscretizer, UNLIMITED_SIZE);
+	}
+
+	@SuppressWarnings("unchecked")
+	public TimeSlicedLruCache(TimeDiscretizer timeDiscretizer, int maxSize) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize must be positive");
+		}
+		this.timeDiscretizer = timeDiscretizer;
+
+		// a power of 2, so the segment can be selected by masking the hash
+		int segmentCount = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENT_COUNT, maxSize / MIN_SEGMENT_SIZE)));
+		segments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++) {
+			// the sizes of the segments sum up to maxSize
+			int segmentMaxSize = maxSize / segmentCount + (i < maxSize % segmentCount ? 1 : 0);
+			segments[i] = new Segment<>(segmentMaxSize, cacheStats);
+		}
+	}
+
+	private Segment<K, V> getSegment(SliceKey<K> sliceKey) {
+		// the (fibonacci) multiplication also spreads the low bits, which are often the same (e.g. all even)
+		int h = sliceKey.hashCode() * 0x9E3779B9;
+		return segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+	}
+
+	/**
+	 * @param time            the time determining the time slice
+	 * @param key             the key within the time slice
+	 * @param mappingFunction computes the value if it is not cached (it must not return null)
+	 */
+	public V computeIfAbsent(double time, K key, Function<? super K, ? extends V> mappingFunction) {
+		SliceKey<K> sliceKey = new SliceKey<>(timeDiscretizer.getIdx(time), key);
+		Segment<K, V> segment = getSegment(sliceKey);
+		synchronized (segment) {
+			V value = segment.get(sliceKey);
+			if (value != null) {
+				cacheStats.incHits();
+				return value;
+			}
+		}
+
+		cacheStats.incMisses();
+		V value = Objects.requireNonNull(mappingFunction.apply(key));
+		synchronized (segment) {
+			V cachedValue = segment.putIfAbsent(sliceKey, value);
+			return cachedValue != null ? cachedValue : value;
+		}
+	}
+
+	/**
+	 * @return the cached value or null if there is none
+	 */
+	public V getIfPresent(double time, K key) {
+		SliceKey<K> sliceKey = new SliceKey<>(timeDiscretizer.getIdx(time), key);
+		Segment<K, V> segment = getSegment(sliceKey);
+		V value;
+		synchronized (segment) {
+			value = segment.get(sliceKey);
+		}
+		if (value != null) {
+			cacheStats.incHits();
+		} else {
+			cacheStats.incMisses();
+		}
+		return value;
+	}
+
+	/**
+	 * Stores the value (computed by the caller), replacing the previously cached one (if any)
+	 */
+	public void put(double time, K key, V value) {
+		SliceKey<K> sliceKey = new SliceKey<>(timeDiscretizer.getIdx(time), key);
+		Segment<K, V> segment = getSegment(sliceKey);
+		synchronized (segment) {
+			segment.put(sliceKey, Objects.requireNonNull(value));
+		}
+	}
+
+	/**
+	 * Removes all entries of the time slice containing the given time (e.g. after the travel times of that time
+	 * slice have changed).
+	 */
+	public void invalidate(double time) {
+		invalidate(time, time);
+	}
+
+	/**
+	 * Removes all entries of the time slices containing any time from <code>fromTime</code> to <code>toTime</code>
+	 * (e.g. after the estimated travel times of that period have changed).
+	 */
+	public void invalidate(double fromTime, double toTime) {
+		BitSet sliceIdxs = new BitSet(timeDiscretizer.getIntervalCount());
+		int interval = timeDiscretizer.getTimeInterval();
+		// after intervalCount steps, all time slices have been visited
+		int stepCount = (int)Math.min(timeDiscretizer.getIntervalCount(), Math.floor((toTime - fromTime) / interval) + 1);
+		for (int i = 0; i < stepCount; i++) {
+			sliceIdxs.set(timeDiscretizer.getIdx(fromTime + (double)i * interval));
+		}
+		sliceIdxs.set(timeDiscretizer.getIdx(toTime));
+
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				segment.keySet().removeIf(k -> sliceIdxs.get(k.sliceIdx));
+			}
+		}
+	}
+
+	public void invalidateAll() {
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+	public int size() {
+		int size = 0;
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	public TimeDiscretizer getTimeDiscretizer() {
+		return timeDiscretizer;
+	}
+
+	public CacheStats getCacheStats() {
+		return cacheStats;
+	}
+}
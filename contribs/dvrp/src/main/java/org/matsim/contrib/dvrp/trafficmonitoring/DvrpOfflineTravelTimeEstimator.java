@@ -19,7 +19,8 @@
 
 package org.matsim.contrib.dvrp.trafficmonitoring;
 
-import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
@@ -27,6 +28,7 @@ import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.contrib.dvrp.router.DvrpRoutingNetworkProvider;
 import org.matsim.contrib.dvrp.run.DvrpConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
 import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
 import org.matsim.core.mobsim.framework.listeners.MobsimBeforeCleanupListener;
@@ -34,7 +36,6 @@ import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.trafficmonitoring.TimeBinUtils;
 import org.matsim.vehicles.Vehicle;
 
-import com.google.common.collect.Maps;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
 
@@ -44,6 +45,12 @@ import com.google.inject.name.Named;
  * 
  * The averaging starts from the initial travel time estimates. If not provided, the free-speed TTs is used as the
  * initial estimates
+ * <p>
+ * The TTs are stored in a flat array indexed by link index ({@link Id#index()}) and time bin. At the end of each
+ * iteration, the new estimates are calculated into a new array, which then replaces the current one. So the routers
+ * always see a consistent set of TTs without any locking. The observed TTs are read by
+ * {@link GlobalConfigGroup#getNumberOfThreads()} threads, so they must allow concurrent reads (as the routers in
+ * replanning do anyway). The initial TTs are read only by the calling thread.
  * 
  * @author michalm
  */
@@ -53,21 +60,24 @@ public class DvrpOfflineTravelTimeEstimator implements DvrpTravelTimeEstimator,
 
 	private final int interval;
 	private final int intervalCount;
-	private final Map<Id<Link>, double[]> linkTTs;
+	private volatile double[] linkTTs;// [link.getId().index() * intervalCount + timeBin]
 	private final double alpha;
+	private final int numberOfThreads;
 
 	@Inject
 	public DvrpOfflineTravelTimeEstimator(@Named(DvrpTravelTimeModule.DVRP_INITIAL) TravelTime initialTT,
 			@Named(DvrpTravelTimeModule.DVRP_OBSERVED) TravelTime observedTT,
 			@Named(DvrpRoutingNetworkProvider.DVRP_ROUTING) Network network, TravelTimeCalculatorConfigGroup ttCalcConfig,
-			DvrpConfigGroup dvrpConfig) {
-		this(initialTT, observedTT, network, ttCalcConfig, dvrpConfig.getTravelTimeEstimationAlpha());
+			DvrpConfigGroup dvrpConfig, GlobalConfigGroup globalConfig) {
+		this(initialTT, observedTT, network, ttCalcConfig, dvrpConfig.getTravelTimeEstimationAlpha(),
+				globalConfig.getNumberOfThreads());
 	}
 
 	public DvrpOfflineTravelTimeEstimator(TravelTime initialTT, TravelTime observedTT, Network network,
-			TravelTimeCalculatorConfigGroup ttCalcConfig, double travelTimeEstimationAlpha) {
+			TravelTimeCalculatorConfigGroup ttCalcConfig, double travelTimeEstimationAlpha, int numberOfThreads) {
 		this.observedTT = observedTT;
 		this.network = network;
+		this.numberOfThreads = Math.max(1, numberOfThreads);
 
 		alpha = travelTimeEstimationAlpha;
 		if (alpha > 1 || alpha <= 0) {
@@ -77,37 +87,49 @@ public class DvrpOfflineTravelTimeEstimator implements DvrpTravelTimeEstimator,
 		interval = ttCalcConfig.getTraveltimeBinSize();
 		intervalCount = TimeBinUtils.getTimeBinCount(ttCalcConfig.getMaxTime(), interval);
 
-		linkTTs = Maps.newHashMapWithExpectedSize(network.getLinks().size());
-		init(initialTT);
-	}
+		long arraySize = (long)Id.getNumberOfIds(Link.class) * intervalCount;
+		if (arraySize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many links (" + Id.getNumberOfIds(Link.class) + ") and time bins ("
+					+ intervalCount + ") to store all TTs in one array, increase the travel time bin size");
+		}
 
-	private void init(TravelTime initialTT) {
+		double[] tts = new double[(int)arraySize];
 		for (Link link : network.getLinks().values()) {
-			double[] tt = new double[intervalCount];
-			updateTTs(link, tt, initialTT, 1.);
-			linkTTs.put(link.getId(), tt);
+			updateTTs(link, tts, initialTT, 1.);
 		}
+		linkTTs = tts;
 	}
 
 	@Override
 	public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
 		// TODO TTC is more flexible (simple averaging vs linear interpolation, etc.)
 		int idx = TimeBinUtils.getTimeBinIndex(time, interval, intervalCount);
-		return linkTTs.get(link.getId())[idx];
+		return linkTTs[link.getId().index() * intervalCount + idx];
 	}
 
 	@Override
 	public void notifyMobsimBeforeCleanup(@SuppressWarnings("rawtypes") MobsimBeforeCleanupEvent e) {
-		for (Link link : network.getLinks().values()) {
-			updateTTs(link, linkTTs.get(link.getId()), observedTT, alpha);
+		double[] tts = linkTTs.clone();
+		// each link has its own range in the array, so the links can be updated in parallel
+		ForkJoinPool forkJoinPool = new ForkJoinPool(numberOfThreads);
+		try {
+			forkJoinPool.submit(() -> network.getLinks().values().parallelStream()//
+					.forEach(link -> updateTTs(link, tts, observedTT, alpha)))//
+					.get();
+		} catch (InterruptedException | ExecutionException ex) {
+			throw new RuntimeException(ex);
+		} finally {
+			forkJoinPool.shutdown();
 		}
+		linkTTs = tts;
 	}
 
-	private void updateTTs(Link link, double[] tt, TravelTime travelTime, double alpha) {
+	private void updateTTs(Link link, double[] tts, TravelTime travelTime, double alpha) {
+		int offset = link.getId().index() * intervalCount;
 		for (int i = 0; i < intervalCount; i++) {
-			double oldEstimatedTT = tt[i];
+			double oldEstimatedTT = tts[offset + i];
 			double experiencedTT = travelTime.getLinkTravelTime(link, i * interval, null, null);
-			tt[i] = alpha * experiencedTT + (1 - alpha) * oldEstimatedTT;
+			tts[offset + i] = alpha * experiencedTT + (1 - alpha) * oldEstimatedTT;
 		}
 	}
 }
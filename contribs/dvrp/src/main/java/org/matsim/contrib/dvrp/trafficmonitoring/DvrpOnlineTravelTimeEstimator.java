@@ -18,6 +18,9 @@
 
 package org.matsim.contrib.dvrp.trafficmonitoring;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import javax.inject.Inject;
 
 import org.matsim.api.core.v01.network.Link;
@@ -25,8 +28,10 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.contrib.dvrp.run.DvrpConfigGroup;
 import org.matsim.core.mobsim.framework.MobsimTimer;
 import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
 import org.matsim.core.mobsim.framework.events.MobsimInitializedEvent;
 import org.matsim.core.mobsim.framework.listeners.MobsimBeforeCleanupListener;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener;
 import org.matsim.core.mobsim.framework.listeners.MobsimInitializedListener;
 import org.matsim.core.mobsim.qsim.QSim;
 import org.matsim.vehicles.Vehicle;
@@ -37,15 +42,28 @@ import org.matsim.withinday.trafficmonitoring.WithinDayTravelTime;
  * DvrpOfflineTravelTimeEstimator. The beta coefficient is provided in seconds and should be either 0 (no online
  * estimation) or positive (mixed online-offline estimation). If beta is sufficiently large, 'beta >> 0', only the
  * currently observed TT is used
+ * <p>
+ * The estimates for the time period from now to now+beta change along with the observed TT, i.e. at each sim step.
+ * Components that cache results based on these estimates (e.g. paths) can register an {@link UpdateListener} to be
+ * notified about that.
  * 
  * @author michalm
  */
-public class DvrpOnlineTravelTimeEstimator
-		implements DvrpTravelTimeEstimator, MobsimInitializedListener, MobsimBeforeCleanupListener {
+public class DvrpOnlineTravelTimeEstimator implements DvrpTravelTimeEstimator, MobsimInitializedListener,
+		MobsimBeforeSimStepListener, MobsimBeforeCleanupListener {
+	public interface UpdateListener {
+		/**
+		 * Called before each sim step, once the estimates for the times from <code>now</code> to
+		 * <code>latestAffectedTime</code> have been updated
+		 */
+		void onlineEstimatesUpdated(double now, double latestAffectedTime);
+	}
+
 	private final WithinDayTravelTime withinDayTT;
 	private final DvrpOfflineTravelTimeEstimator offlineTTEstimator;
 	private MobsimTimer mobsimTimer;
 	private final double beta;
+	private final List<UpdateListener> updateListeners = new CopyOnWriteArrayList<>();
 
 	@Inject
 	public DvrpOnlineTravelTimeEstimator(WithinDayTravelTime withinDayTT,
@@ -76,11 +94,27 @@ public class DvrpOnlineTravelTimeEstimator
 		// return correction * currentTT * offlineTT / currentOfflineTT + (1-correction) * offlineTT
 	}
 
+	public void addUpdateListener(UpdateListener listener) {
+		updateListeners.add(listener);
+	}
+
+	public void removeUpdateListener(UpdateListener listener) {
+		updateListeners.remove(listener);
+	}
+
 	@Override
 	public void notifyMobsimInitialized(@SuppressWarnings("rawtypes") MobsimInitializedEvent e) {
 		mobsimTimer = ((QSim)e.getQueueSimulation()).getSimTimer();
 	}
 
+	@Override
+	public void notifyMobsimBeforeSimStep(@SuppressWarnings("rawtypes") MobsimBeforeSimStepEvent e) {
+		double now = e.getSimulationTime();
+		for (UpdateListener listener : updateListeners) {
+			listener.onlineEstimatesUpdated(now, now + beta);
+		}
+	}
+
 	@Override
 	public void notifyMobsimBeforeCleanup(MobsimBeforeCleanupEvent e) {
 		mobsimTimer = null;
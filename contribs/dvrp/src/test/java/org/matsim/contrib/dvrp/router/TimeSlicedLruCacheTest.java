@@ -0,0 +1,210 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.dvrp.router;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.dvrp.router.LeastCostPathCalculatorWithCache.CacheStats;
+import org.matsim.contrib.dvrp.util.TimeDiscretizer;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+
+import com.google.common.collect.Maps;
+
+public class TimeSlicedLruCacheTest {
+	private static final TimeDiscretizer DISCRETIZER = TimeDiscretizer.OPEN_ENDED_15_MIN;
+
+	@Test
+	public void testEvictionOrder() {
+		TimeSlicedLruCache<String, String> cache = new TimeSlicedLruCache<>(DISCRETIZER, 3);
+		cache.put(0, "a", "a0");
+		cache.put(0, "b", "b0");
+		cache.put(900, "a", "a900");// the same key, but another time slice
+
+		// "a" in slice 0 is used, so "b" becomes the least recently used entry
+		Assert.assertEquals("a0", cache.getIfPresent(100, "a"));
+		cache.put(0, "c", "c0");
+		Assert.assertEquals(3, cache.size());
+		Assert.assertNull(cache.getIfPresent(0, "b"));
+
+		// now, the order (from the least recently used) is: a900, a0, c0
+		Assert.assertEquals("d0", cache.computeIfAbsent(0, "d", k -> k + "0"));
+		Assert.assertNull(cache.getIfPresent(900, "a"));
+		Assert.assertEquals("a0", cache.getIfPresent(0, "a"));
+		Assert.assertEquals("c0", cache.getIfPresent(0, "c"));
+		Assert.assertEquals("d0", cache.getIfPresent(0, "d"));
+
+		CacheStats stats = cache.getCacheStats();
+		Assert.assertEquals(2, stats.getEvictions());
+		Assert.assertEquals(4, stats.getHits());
+		Assert.assertEquals(3, stats.getMisses());
+	}
+
+	@Test
+	public void testInvalidate() {
+		TimeSlicedLruCache<String, String> cache = new TimeSlicedLruCache<>(DISCRETIZER);
+		cache.put(0, "a", "a0");
+		cache.put(899, "b", "b0");
+		cache.put(900, "a", "a900");
+		cache.put(2000, "a", "a1800");
+
+		// removes the whole slice [0, 900)
+		cache.invalidate(450);
+		Assert.assertEquals(2, cache.size());
+		Assert.assertNull(cache.getIfPresent(0, "a"));
+		Assert.assertNull(cache.getIfPresent(0, "b"));
+		Assert.assertEquals("a900", cache.getIfPresent(1000, "a"));
+		Assert.assertEquals("a1800", cache.getIfPresent(1800, "a"));
+
+		// invalidation is not eviction
+		Assert.assertEquals(0, cache.getCacheStats().getEvictions());
+
+		cache.invalidateAll();
+		Assert.assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testInvalidateTimeRange() {
+		TimeSlicedLruCache<String, String> cache = new TimeSlicedLruCache<>(DISCRETIZER);
+		for (int t = 0; t < 5 * 900; t += 900) {
+			cache.put(t, "a", "a" + t);
+		}
+
+		// removes the slices [900, 1800), [1800, 2700) and [2700, 3600)
+		cache.invalidate(1000, 2800);
+		Assert.assertEquals(2, cache.size());
+		Assert.assertEquals("a0", cache.getIfPresent(0, "a"));
+		Assert.assertEquals("a3600", cache.getIfPresent(3600, "a"));
+
+		// the range goes beyond the last slice of the discretizer
+		cache.invalidate(0, Double.MAX_VALUE);
+		Assert.assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testSegmentedCache() {
+		int maxSize = TimeSlicedLruCache.MAX_SEGMENT_COUNT * TimeSlicedLruCache.MIN_SEGMENT_SIZE;
+		TimeSlicedLruCache<Integer, Integer> cache = new TimeSlicedLruCache<>(DISCRETIZER, maxSize);
+		for (int k = 0; k < 10 * maxSize; k++) {
+			cache.put(k % 2 * 900, k, k);
+		}
+
+		// each segment is limited separately, and together they keep at most maxSize entries
+		Assert.assertEquals(maxSize, cache.size());
+		Assert.assertEquals(9 * maxSize, cache.getCacheStats().getEvictions());
+		int lastKey = 10 * maxSize - 1;
+		Assert.assertEquals(lastKey, cache.getIfPresent(900, lastKey).intValue());
+
+		cache.invalidate(0);
+		Assert.assertNull(cache.getIfPresent(900, lastKey - 1));// in slice 0
+		Assert.assertEquals(lastKey, cache.getIfPresent(900, lastKey).intValue());
+		cache.invalidateAll();
+		Assert.assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testConcurrentComputeIfAbsent() throws Exception {
+		int threadCount = 8;
+		int keyCount = 100;
+		TimeSlicedLruCache<Integer, Integer> cache = new TimeSlicedLruCache<>(DISCRETIZER, keyCount);
+		AtomicInteger computations = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		List<Future<List<Integer>>> futures = new ArrayList<>();
+		for (int t = 0; t < threadCount; t++) {
+			futures.add(executor.submit(() -> {
+				start.await();
+				List<Integer> values = new ArrayList<>();
+				for (int k = 0; k < keyCount; k++) {
+					values.add(cache.computeIfAbsent(0, k, key -> {
+						computations.incrementAndGet();
+						return Integer.valueOf(key * 1000);// (mostly) a new instance each time
+					}));
+				}
+				return values;
+			}));
+		}
+		start.countDown();
+
+		List<List<Integer>> results = new ArrayList<>();
+		for (Future<List<Integer>> f : futures) {
+			results.add(f.get());
+		}
+		executor.shutdown();
+		Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+		Assert.assertEquals(keyCount, cache.size());
+		Assert.assertEquals(0, cache.getCacheStats().getEvictions());
+		for (int k = 0; k < keyCount; k++) {
+			Integer cachedValue = cache.getIfPresent(0, k);
+			Assert.assertEquals(k * 1000, cachedValue.intValue());
+			for (List<Integer> values : results) {
+				// all threads get the instance that has been cached
+				Assert.assertSame(cachedValue, values.get(k));
+			}
+		}
+
+		// a value may be computed more than once, but every lookup is either a hit or a miss
+		CacheStats stats = cache.getCacheStats();
+		Assert.assertTrue(computations.get() >= keyCount);
+		Assert.assertEquals(computations.get(), stats.getMisses());
+		Assert.assertEquals(threadCount * keyCount + keyCount, stats.getHits() + stats.getMisses());
+	}
+
+	@Test
+	public void testEvictionsInCacheStats() {
+		TimeSlicedLruCache<Map.Entry<Id<Node>, Id<Node>>, Path> cache = new TimeSlicedLruCache<>(DISCRETIZER, 2);
+		LeastCostPathCalculatorWithCache calculator = new DefaultLeastCostPathCalculatorWithCache(null, cache);
+		Path path = new Path(new ArrayList<>(), new ArrayList<>(), 0, 0);
+		for (int k = 0; k < 5; k++) {
+			cache.computeIfAbsent(0, Maps.immutableEntry(Id.createNodeId(k), Id.createNodeId(k + 1)), key -> path);
+		}
+		Assert.assertEquals(3, cache.getCacheStats().getEvictions());
+
+		LeastCostPathCalculatorCacheStats cacheStats = new LeastCostPathCalculatorCacheStats();
+		cacheStats.updateStats(calculator);
+		StringWriter sw = new StringWriter();
+		try (PrintWriter pw = new PrintWriter(sw)) {
+			pw.println(LeastCostPathCalculatorCacheStats.HEADER);
+			cacheStats.printStats(pw, "cfg");
+		}
+		String[] lines = sw.toString().split("\n");
+		Assert.assertArrayEquals(new String[] { "cfg", "Hits", "Misses", "Evictions" }, lines[0].split("\t"));
+		String[] values = lines[1].split("\t");
+		Assert.assertEquals(4, values.length);
+		Assert.assertEquals(0, Double.parseDouble(values[1]), 0);
+		Assert.assertEquals(5, Double.parseDouble(values[2]), 0);
+		Assert.assertEquals(3, Double.parseDouble(values[3]), 0);
+	}
+}
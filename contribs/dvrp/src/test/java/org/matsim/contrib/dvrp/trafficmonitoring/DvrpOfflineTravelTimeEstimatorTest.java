@@ -0,0 +1,102 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.dvrp.trafficmonitoring;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.trafficmonitoring.TimeBinUtils;
+
+public class DvrpOfflineTravelTimeEstimatorTest {
+	private static final double ALPHA = 0.05;
+	private static final int ITERATIONS = 5;
+
+	private int iteration = 0;
+
+	@Test
+	public void testSameTTsAsPerLinkArrays() {
+		Network network = NetworkUtils.createNetwork();
+		Node[] nodes = new Node[10];
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = NetworkUtils.createAndAddNode(network, Id.createNodeId("dvrp_tt_" + i), new Coord(i * 100, 0));
+		}
+		for (int i = 1; i < nodes.length; i++) {
+			NetworkUtils.createAndAddLink(network, Id.createLinkId("dvrp_tt_" + i), nodes[i - 1], nodes[i], 100 * i, 10,
+					1000, 1);
+		}
+
+		TravelTimeCalculatorConfigGroup ttCalcConfig = new TravelTimeCalculatorConfigGroup();
+		ttCalcConfig.setTraveltimeBinSize(900);
+		TravelTime initialTT = (link, time, person, vehicle) -> link.getLength() / link.getFreespeed();
+		TravelTime observedTT = (link, time, person, vehicle) -> link.getLength() / link.getFreespeed()
+				* (1 + iteration + Math.sin(time / 3600));
+
+		DvrpOfflineTravelTimeEstimator estimator = new DvrpOfflineTravelTimeEstimator(initialTT, observedTT, network,
+				ttCalcConfig, ALPHA, 4);
+
+		// the estimates as calculated before by keeping an array for each link
+		int interval = ttCalcConfig.getTraveltimeBinSize();
+		int intervalCount = TimeBinUtils.getTimeBinCount(ttCalcConfig.getMaxTime(), interval);
+		Map<Id<Link>, double[]> expectedTTs = new HashMap<>();
+		for (Link link : network.getLinks().values()) {
+			double[] tt = new double[intervalCount];
+			updateTTs(link, tt, initialTT, 1., interval);
+			expectedTTs.put(link.getId(), tt);
+		}
+		assertSameTTs(network, expectedTTs, estimator, interval);
+
+		for (iteration = 0; iteration < ITERATIONS; iteration++) {
+			estimator.notifyMobsimBeforeCleanup(null);
+			for (Link link : network.getLinks().values()) {
+				updateTTs(link, expectedTTs.get(link.getId()), observedTT, ALPHA, interval);
+			}
+			assertSameTTs(network, expectedTTs, estimator, interval);
+		}
+	}
+
+	private static void updateTTs(Link link, double[] tt, TravelTime travelTime, double alpha, int interval) {
+		for (int i = 0; i < tt.length; i++) {
+			double oldEstimatedTT = tt[i];
+			double experiencedTT = travelTime.getLinkTravelTime(link, i * interval, null, null);
+			tt[i] = alpha * experiencedTT + (1 - alpha) * oldEstimatedTT;
+		}
+	}
+
+	private static void assertSameTTs(Network network, Map<Id<Link>, double[]> expectedTTs,
+			DvrpOfflineTravelTimeEstimator estimator, int interval) {
+		for (Link link : network.getLinks().values()) {
+			double[] tt = expectedTTs.get(link.getId());
+			for (int i = 0; i < tt.length; i++) {
+				assertEquals(tt[i], estimator.getLinkTravelTime(link, i * interval + interval / 2, null, null), 0.);
+			}
+		}
+	}
+}
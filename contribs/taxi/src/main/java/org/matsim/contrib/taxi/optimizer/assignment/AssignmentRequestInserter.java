@@ -70,7 +70,8 @@ public class AssignmentRequestInserter implements UnplannedRequestInserter {
 		this.params = params;
 
 		assignmentProblem = new VehicleAssignmentProblem<>(travelTime, multiNodeRouter, backwardMultiNodeRouter, router,
-				params.nearestRequestsLimit, params.nearestVehiclesLimit);
+				params.nearestRequestsLimit, params.nearestVehiclesLimit, params.sparseAssignment,
+				params.sparseAssignmentTimeBudget);
 
 		assignmentCostProvider = new TaxiToRequestAssignmentCostProvider(params);
 	}
@@ -34,6 +34,12 @@ public class AssignmentTaxiOptimizerParams extends DefaultTaxiOptimizerParams {
 	public static final String NEAREST_REQUESTS_LIMIT = "nearestRequestsLimit";
 	public static final String NEAREST_VEHICLES_LIMIT = "nearestVehiclesLimit";
 
+	// if true, only the vehicle-request pairs found by the kNN search are considered (SparseAssignmentSolver),
+	// otherwise, the full cost matrix is used (HungarianAlgorithm)
+	public static final String SPARSE_ASSIGNMENT = "sparseAssignment";
+	// max computation time (in ms) of SparseAssignmentSolver, afterwards the best assignment found so far is used
+	public static final String SPARSE_ASSIGNMENT_TIME_BUDGET = "sparseAssignmentTimeBudget";
+
 	public final Mode mode;
 	public final double nullPathCost;
 
@@ -43,6 +49,9 @@ public class AssignmentTaxiOptimizerParams extends DefaultTaxiOptimizerParams {
 	public final int nearestRequestsLimit;
 	public final int nearestVehiclesLimit;
 
+	public final boolean sparseAssignment;
+	public final long sparseAssignmentTimeBudget;
+
 	public AssignmentTaxiOptimizerParams(Configuration optimizerConfig) {
 		super(optimizerConfig, true, true);
 
@@ -57,5 +66,8 @@ public class AssignmentTaxiOptimizerParams extends DefaultTaxiOptimizerParams {
 
 		nearestRequestsLimit = optimizerConfig.getInt(NEAREST_REQUESTS_LIMIT);
 		nearestVehiclesLimit = optimizerConfig.getInt(NEAREST_VEHICLES_LIMIT);
+
+		sparseAssignment = optimizerConfig.getBoolean(SPARSE_ASSIGNMENT, false);
+		sparseAssignmentTimeBudget = optimizerConfig.getLong(SPARSE_ASSIGNMENT_TIME_BUDGET, Long.MAX_VALUE);
 	}
 }
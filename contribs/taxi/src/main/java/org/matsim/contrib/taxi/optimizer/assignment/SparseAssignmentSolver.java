@@ -0,0 +1,254 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.taxi.optimizer.assignment;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Solves the assignment problem on a sparse bipartite graph (only some worker-job pairs are allowed) by means of the
+ * successive shortest path algorithm. Unlike {@link HungarianAlgorithm}, which requires a full cost matrix and always
+ * runs in O(n^3), the running time depends on the number of allowed pairs (edges), i.e. O(n * m * log(n)) for n
+ * workers/jobs and m edges, so it is well suited for kNN-filtered problems.
+ * <p>
+ * Each shortest path increases the number of assigned workers by one, and the assignment obtained after each step
+ * has the minimum cost among all assignments of this size. The final assignment has the maximum size possible with
+ * the allowed pairs (which may be less than min(workers, jobs)). If the time budget is exceeded, the current
+ * assignment is returned, also in the middle of a shortest path search. Each call to {@link #execute(long)} solves the
+ * problem from scratch, i.e. there is no warm start from a previous assignment.
+ */
+public class SparseAssignmentSolver {
+	// the time budget is checked before the first and then before every POLLS_PER_DEADLINE_CHECK-th poll of the queue
+	private static final int POLLS_PER_DEADLINE_CHECK = 256;
+
+	private final int rows, cols;
+
+	// edges in the order of adding
+	private int edgeCount = 0;
+	private int[] edgeRows = new int[16];
+	private int[] edgeCols = new int[16];
+	private double[] edgeCosts = new double[16];
+
+	// edges sorted by rows: the edges of row r are at [firstEdgeByRow[r], firstEdgeByRow[r + 1])
+	private int[] firstEdgeByRow;
+	private int[] sortedEdgeCols;
+	private double[] sortedEdgeCosts;
+
+	private final double[] rowPotentials, colPotentials;
+	private final int[] matchColByRow, matchRowByCol;
+
+	// reused by the shortest path searches
+	private final double[] rowDists, colDists;
+	private final int[] prevRowByCol;
+	private final boolean[] settledCols;
+
+	public SparseAssignmentSolver(int rows, int cols) {
+		this.rows = rows;
+		this.cols = cols;
+
+		rowPotentials = new double[rows];
+		colPotentials = new double[cols];
+		matchColByRow = new int[rows];
+		matchRowByCol = new int[cols];
+
+		rowDists = new double[rows];
+		colDists = new double[cols];
+		prevRowByCol = new int[cols];
+		settledCols = new boolean[cols];
+	}
+
+	/**
+	 * Allows assigning worker <code>row</code> to job <code>col</code> at the given cost.
+	 */
+	public void addEdge(int row, int col, double cost) {
+		if (row < 0 || row >= rows || col < 0 || col >= cols) {
+			throw new IllegalArgumentException("row=" + row + ", col=" + col);
+		}
+		if (edgeCount == edgeRows.length) {
+			int newLength = 2 * edgeCount;
+			edgeRows = Arrays.copyOf(edgeRows, newLength);
+			edgeCols = Arrays.copyOf(edgeCols, newLength);
+			edgeCosts = Arrays.copyOf(edgeCosts, newLength);
+		}
+		edgeRows[edgeCount] = row;
+		edgeCols[edgeCount] = col;
+		edgeCosts[edgeCount] = cost;
+		edgeCount++;
+	}
+
+	/**
+	 * @return the assignment (job index for each worker, -1 if no job assigned)
+	 */
+	public int[] execute() {
+		return execute(Long.MAX_VALUE);
+	}
+
+	/**
+	 * @param timeBudgetMillis computation time after which the current (incomplete) assignment is returned
+	 * @return the assignment (job index for each worker, -1 if no job assigned)
+	 */
+	public int[] execute(long timeBudgetMillis) {
+		long startTime = System.currentTimeMillis();
+		long deadline = timeBudgetMillis > Long.MAX_VALUE - startTime ? Long.MAX_VALUE : startTime + timeBudgetMillis;
+		sortEdgesByRows();
+		initPotentials();
+		Arrays.fill(matchColByRow, -1);
+		Arrays.fill(matchRowByCol, -1);
+
+		int maxSize = Math.min(rows, cols);
+		for (int size = 0; size < maxSize; size++) {
+			if (!augment(deadline)) {
+				break;
+			}
+		}
+
+		return matchColByRow.clone();
+	}
+
+	private void sortEdgesByRows() {
+		firstEdgeByRow = new int[rows + 1];
+		for (int e = 0; e < edgeCount; e++) {
+			firstEdgeByRow[edgeRows[e] + 1]++;
+		}
+		for (int r = 0; r < rows; r++) {
+			firstEdgeByRow[r + 1] += firstEdgeByRow[r];
+		}
+
+		sortedEdgeCols = new int[edgeCount];
+		sortedEdgeCosts = new double[edgeCount];
+		int[] nextEdgeByRow = Arrays.copyOf(firstEdgeByRow, rows);
+		for (int e = 0; e < edgeCount; e++) {
+			int i = nextEdgeByRow[edgeRows[e]]++;
+			sortedEdgeCols[i] = edgeCols[e];
+			sortedEdgeCosts[i] = edgeCosts[e];
+		}
+	}
+
+	// reduced costs (cost + rowPotential - colPotential) must be non-negative; in addition, all unassigned workers
+	// (and all unassigned jobs) must have equal potentials, so that the reduced path lengths are comparable
+	private void initPotentials() {
+		double minCost = 0;
+		for (int i = 0; i < edgeCount; i++) {
+			minCost = i == 0 ? sortedEdgeCosts[i] : Math.min(minCost, sortedEdgeCosts[i]);
+		}
+		Arrays.fill(rowPotentials, 0);
+		Arrays.fill(colPotentials, minCost);
+	}
+
+	private static class ColDist implements Comparable<ColDist> {
+		private final int col;
+		private final double dist;
+
+		private ColDist(int col, double dist) {
+			this.col = col;
+			this.dist = dist;
+		}
+
+		@Override
+		public int compareTo(ColDist o) {
+			return Double.compare(dist, o.dist);
+		}
+	}
+
+	/**
+	 * Finds the shortest augmenting path (wrt reduced costs) from any unassigned worker to any unassigned job (Dijkstra
+	 * over jobs, as each assigned job leads to its worker at zero reduced cost), and augments the assignment along it.
+	 *
+	 * @return false if there is no augmenting path, or if the deadline passed before one was found (then the assignment
+	 *         and the potentials are left unchanged)
+	 */
+	private boolean augment(long deadline) {
+		Arrays.fill(rowDists, Double.POSITIVE_INFINITY);
+		Arrays.fill(colDists, Double.POSITIVE_INFINITY);
+		Arrays.fill(settledCols, false);
+		PriorityQueue<ColDist> queue = new PriorityQueue<>();
+
+		for (int r = 0; r < rows; r++) {
+			if (matchColByRow[r] == -1) {
+				rowDists[r] = 0;
+				relaxEdges(r, queue);
+			}
+		}
+
+		int targetCol = -1;
+		int pollCount = 0;
+		while (!queue.isEmpty()) {
+			if (pollCount++ % POLLS_PER_DEADLINE_CHECK == 0 && System.currentTimeMillis() > deadline) {
+				return false;
+			}
+
+			ColDist cd = queue.poll();
+			int c = cd.col;
+			if (settledCols[c] || cd.dist > colDists[c]) {
+				continue;// outdated entry
+			}
+
+			settledCols[c] = true;
+			int r = matchRowByCol[c];
+			if (r == -1) {
+				targetCol = c;
+				break;
+			}
+
+			rowDists[r] = colDists[c];
+			relaxEdges(r, queue);
+		}
+
+		if (targetCol == -1) {
+			return false;
+		}
+
+		// keep reduced costs non-negative (and zero along the path)
+		double maxDist = colDists[targetCol];
+		for (int r = 0; r < rows; r++) {
+			rowPotentials[r] += Math.min(rowDists[r], maxDist);
+		}
+		for (int c = 0; c < cols; c++) {
+			colPotentials[c] += settledCols[c] ? colDists[c] : maxDist;
+		}
+
+		// augment along the path
+		int c = targetCol;
+		while (c != -1) {
+			int r = prevRowByCol[c];
+			int prevCol = matchColByRow[r];
+			matchColByRow[r] = c;
+			matchRowByCol[c] = r;
+			c = prevCol;
+		}
+		return true;
+	}
+
+	private void relaxEdges(int r, PriorityQueue<ColDist> queue) {
+		for (int i = firstEdgeByRow[r]; i < firstEdgeByRow[r + 1]; i++) {
+			int c = sortedEdgeCols[i];
+			if (settledCols[c] || c == matchColByRow[r]) {
+				continue;
+			}
+
+			double dist = rowDists[r] + sortedEdgeCosts[i] + rowPotentials[r] - colPotentials[c];
+			if (dist < colDists[c]) {
+				colDists[c] = dist;
+				prevRowByCol[c] = r;
+				queue.add(new ColDist(c, dist));
+			}
+		}
+	}
+}
@@ -56,6 +56,9 @@ public class VehicleAssignmentProblem<D> {
 	private final StraightLineKnnFinder<VehicleData.Entry, DestEntry<D>> destinationFinder;
 	private final StraightLineKnnFinder<DestEntry<D>, VehicleData.Entry> vehicleFinder;
 
+	private final boolean sparseAssignment;
+	private final long sparseAssignmentTimeBudget;
+
 	private AssignmentCost<D> assignmentCost;
 	private VehicleData vData;
 	private AssignmentDestinationData<D> dData;
@@ -69,8 +72,18 @@ public class VehicleAssignmentProblem<D> {
 	public VehicleAssignmentProblem(TravelTime travelTime, MultiNodePathCalculator multiNodeRouter,
 			BackwardMultiNodePathCalculator backwardMultiNodeRouter, LeastCostPathCalculator router,
 			int nearestDestinationLimit, int nearestVehicleLimit) {
+		this(travelTime, multiNodeRouter, backwardMultiNodeRouter, router, nearestDestinationLimit,
+				nearestVehicleLimit, false, Long.MAX_VALUE);
+	}
+
+	public VehicleAssignmentProblem(TravelTime travelTime, MultiNodePathCalculator multiNodeRouter,
+			BackwardMultiNodePathCalculator backwardMultiNodeRouter, LeastCostPathCalculator router,
+			int nearestDestinationLimit, int nearestVehicleLimit, boolean sparseAssignment,
+			long sparseAssignmentTimeBudget) {
 		this.travelTime = travelTime;
 		this.router = router;
+		this.sparseAssignment = sparseAssignment;
+		this.sparseAssignmentTimeBudget = sparseAssignmentTimeBudget;
 
 		forwardPathSearch = OneToManyPathSearch.create(multiNodeRouter);
 		backwardPathSearch = OneToManyPathSearch.create(backwardMultiNodeRouter);
@@ -89,8 +102,13 @@ public class VehicleAssignmentProblem<D> {
 		this.assignmentCost = assignmentCost;
 
 		PathData[][] pathDataMatrix = createPathDataMatrix();
-		double[][] costMatrix = createCostMatrix(pathDataMatrix);
-		int[] assignments = new HungarianAlgorithm(costMatrix).execute();
+		int[] assignments;
+		if (sparseAssignment) {
+			assignments = createSparseAssignmentSolver(pathDataMatrix).execute(sparseAssignmentTimeBudget);
+		} else {
+			double[][] costMatrix = createCostMatrix(pathDataMatrix);
+			assignments = new HungarianAlgorithm(costMatrix).execute();
+		}
 		return createDispatches(assignments, pathDataMatrix, travelTime);
 	}
 
@@ -165,6 +183,21 @@ public class VehicleAssignmentProblem<D> {
 		return costMatrix;
 	}
 
+	// only pairs with paths (i.e. found by the kNN search) are considered
+	private SparseAssignmentSolver createSparseAssignmentSolver(PathData[][] pathDataMatrix) {
+		SparseAssignmentSolver solver = new SparseAssignmentSolver(vData.getSize(), dData.getSize());
+		for (int v = 0; v < vData.getSize(); v++) {
+			VehicleData.Entry departure = vData.getEntry(v);
+			for (int r = 0; r < dData.getSize(); r++) {
+				PathData pathData = pathDataMatrix[v][r];
+				if (pathData != null) {
+					solver.addEdge(v, r, assignmentCost.calc(departure, dData.getEntry(r), pathData));
+				}
+			}
+		}
+		return solver;
+	}
+
 	private List<Dispatch<D>> createDispatches(int[] assignments, PathData[][] pathDataMatrix, TravelTime travelTime) {
 		List<Dispatch<D>> dispatches = new ArrayList<>(Math.min(vData.getSize(), dData.getSize()));
 		for (int v = 0; v < assignments.length; v++) {
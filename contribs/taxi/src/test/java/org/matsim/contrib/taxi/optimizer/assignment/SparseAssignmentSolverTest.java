@@ -0,0 +1,123 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.taxi.optimizer.assignment;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SparseAssignmentSolverTest {
+	@Test
+	public void testSameCostAsHungarianAlgorithm_fullMatrix() {
+		Random random = new Random(4711);
+		int[][] sizes = { { 1, 1 }, { 5, 5 }, { 3, 8 }, { 8, 3 }, { 20, 20 }, { 30, 17 } };
+		for (int[] size : sizes) {
+			for (int k = 0; k < 10; k++) {
+				int rows = size[0];
+				int cols = size[1];
+				double[][] costMatrix = new double[rows][cols];
+				SparseAssignmentSolver solver = new SparseAssignmentSolver(rows, cols);
+				for (int r = 0; r < rows; r++) {
+					for (int c = 0; c < cols; c++) {
+						costMatrix[r][c] = random.nextInt(1000);
+						solver.addEdge(r, c, costMatrix[r][c]);
+					}
+				}
+
+				int[] expected = new HungarianAlgorithm(costMatrix).execute();
+				int[] actual = solver.execute();
+				assertValidAssignment(actual, cols);
+				assertEquals(Math.min(rows, cols), countAssigned(actual));
+				assertEquals(calcCost(costMatrix, expected), calcCost(costMatrix, actual), 1e-9);
+			}
+		}
+	}
+
+	@Test
+	public void testSparseGraph() {
+		// worker 0 can only do job 0, workers 1 and 2 can only do job 1, job 2 can be done only by worker 2
+		SparseAssignmentSolver solver = new SparseAssignmentSolver(3, 3);
+		solver.addEdge(0, 0, 10);
+		solver.addEdge(1, 1, 5);
+		solver.addEdge(2, 1, 1);
+		solver.addEdge(2, 2, 7);
+
+		// all 3 workers assigned: 0->0, 1->1, 2->2 (cost 22), although 2->1 is the cheapest edge
+		assertArrayEquals(new int[] { 0, 1, 2 }, solver.execute());
+	}
+
+	@Test
+	public void testSparseGraph_notAllAssignable() {
+		// workers 0 and 1 can only do job 0
+		SparseAssignmentSolver solver = new SparseAssignmentSolver(2, 2);
+		solver.addEdge(0, 0, 3);
+		solver.addEdge(1, 0, 2);
+
+		assertArrayEquals(new int[] { -1, 0 }, solver.execute());
+	}
+
+	@Test
+	public void testNoEdges() {
+		assertArrayEquals(new int[] { -1, -1 }, new SparseAssignmentSolver(2, 3).execute());
+	}
+
+	@Test
+	public void testTimeBudgetExceeded() {
+		SparseAssignmentSolver solver = new SparseAssignmentSolver(2, 2);
+		solver.addEdge(0, 0, 3);
+		solver.addEdge(1, 1, 2);
+
+		// the budget is exceeded before the first path search
+		assertArrayEquals(new int[] { -1, -1 }, solver.execute(-1));
+		assertArrayEquals(new int[] { 0, 1 }, solver.execute(Long.MAX_VALUE));
+	}
+
+	private static void assertValidAssignment(int[] assignment, int cols) {
+		boolean[] assigned = new boolean[cols];
+		for (int c : assignment) {
+			if (c != -1) {
+				assertFalse("job " + c + " assigned twice", assigned[c]);
+				assigned[c] = true;
+			}
+		}
+	}
+
+	private static int countAssigned(int[] assignment) {
+		int count = 0;
+		for (int c : assignment) {
+			if (c != -1) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static double calcCost(double[][] costMatrix, int[] assignment) {
+		double cost = 0;
+		for (int r = 0; r < assignment.length; r++) {
+			if (assignment[r] != -1) {
+				cost += costMatrix[r][assignment[r]];
+			}
+		}
+		return cost;
+	}
+}
@@ -20,6 +20,7 @@
 
 package org.matsim.api.core.v01;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -36,12 +37,25 @@ import org.matsim.vehicles.Vehicle;
  * Note that Ids should not contain any whitespace characters (spaces, tabs, newlines, ...), 
  * as this may lead to problems when Ids are written to file and read back in.
  * 
+ * Every Id additionally carries an index which is unique per type and dense, i.e. the n Ids created for a type
+ * have the indices <code>0</code> to <code>n-1</code>. This allows to store data per Id in arrays instead of
+ * hash maps, see {@link org.matsim.core.utils.collections.IdMap} and {@link org.matsim.core.utils.collections.IdSet}.
+ * 
  *  @author mrieser / Senozon AG
  */
 public abstract class Id<T> implements Comparable<Id<T>> {
 
-	private final static Map<Class<?>, Map<String, Id<?>>> cache = new ConcurrentHashMap<Class<?>, Map<String, Id<?>>>();
+	private final static Map<Class<?>, IdCache> cache = new ConcurrentHashMap<Class<?>, IdCache>();
 	
+	/**
+	 * All Ids of one type, by key and by index.  Ids are only added under the lock of the cache, the lookup
+	 * by key is lock-free.
+	 */
+	private static class IdCache {
+		private final Map<String, Id<?>> byKey = new ConcurrentHashMap<String, Id<?>>();
+		private volatile Id<?>[] byIndex = new Id<?>[16];
+		private volatile int size = 0;
+	}
 	
 	public static <T> Id<T> create(final long key, final Class<T> type) {
 		return create(Long.toString(key), type);
@@ -58,21 +72,58 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	 * This method supports a cache where ids are stored and re-used per type.   
 	 */
 	public static <T> Id<T> create(final String key, final Class<T> type) {
-		Map<String, Id<?>> map = cache.get(type);
-		if (map == null) {
-			map = new ConcurrentHashMap<String, Id<?>>();
-			cache.put(type, map);
-		}
+		IdCache idCache = cache.computeIfAbsent(type, k -> new IdCache());
 		Gbl.assertNotNull(key);
-		Id<?> id = map.get(key);
+		Id<?> id = idCache.byKey.get(key);
 		if (id == null) {
-			id = new IdImpl<T>(key);
-			map.put(key, id);
+			synchronized (idCache) {
+				id = idCache.byKey.get(key);
+				if (id == null) {
+					int index = idCache.size;
+					Id<?>[] byIndex = idCache.byIndex;
+					if (index == byIndex.length) {
+						byIndex = Arrays.copyOf(byIndex, byIndex.length * 2);
+					}
+					id = new IdImpl<T>(key, index);
+					byIndex[index] = id;
+					idCache.byIndex = byIndex;
+					idCache.size = index + 1;
+					// the map must be updated last, as other threads may access the id by its index as soon as they get it from there
+					idCache.byKey.put(key, id);
+				}
+			}
 		}
 		
 		return (Id<T>) id;
 	}
 	
+	/**
+	 * @return the Id of the given type which has the given index, see {@link #index()}
+	 * 
+	 * @throws IllegalArgumentException if no Id with this index has been created for the type (yet)
+	 */
+	public static <T> Id<T> get(final int index, final Class<T> type) {
+		IdCache idCache = cache.get(type);
+		if (idCache == null || index < 0 || index >= idCache.size) {
+			throw new IllegalArgumentException("No Id with index " + index + " exists for type " + type.getName());
+		}
+		return (Id<T>) idCache.byIndex[index];
+	}
+	
+	/**
+	 * @return the number of Ids created so far for the given type. All of them have an index smaller than this number.
+	 */
+	public static int getNumberOfIds(final Class<?> type) {
+		IdCache idCache = cache.get(type);
+		return idCache == null ? 0 : idCache.size;
+	}
+	
+	/**
+	 * @return the index of this Id, which is unique among all Ids of the same type and smaller than
+	 * {@link #getNumberOfIds(Class)}. It can be used to store data per Id in arrays.
+	 */
+	public abstract int index();
+	
 	/**
 	 * @return <code>0</code> when the two objects being compared are the same objects, other values according to their ids being compared to each other.
 	 * 
@@ -113,9 +164,16 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	private static class IdImpl<T> extends Id<T> {
 
 		private final String id; 
+		private final int index;
 		
-		/*package*/ IdImpl(final String id) {
+		/*package*/ IdImpl(final String id, final int index) {
 			this.id = id;
+			this.index = index;
+		}
+
+		@Override
+		public int index() {
+			return this.index;
 		}
 
 		@Override
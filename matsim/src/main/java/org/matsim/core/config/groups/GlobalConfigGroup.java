@@ -40,10 +40,12 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 	private static final String RANDOM_SEED = "randomSeed";
 	private static final String NUMBER_OF_THREADS = "numberOfThreads";
 	private static final String COORDINATE_SYSTEM = "coordinateSystem";
+	private static final String USING_PERSON_SPECIFIC_RANDOM_SEEDS = "usingPersonSpecificRandomSeeds";
 
 	private long randomSeed = 4711L;
 	private int numberOfThreads = 2;
 	private String coordinateSystem = "Atlantis";
+	private boolean usingPersonSpecificRandomSeeds = false;
 	
 	@Override
 	public Map<String, String> getComments() {
@@ -51,6 +53,10 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		map.put(NUMBER_OF_THREADS, "\"global\" number of threads.  "
 				+ "This number is used, e.g., for replanning, but NOT in the mobsim.  "
 				+ "This can typically be set to as many cores as you have available, or possibly even slightly more.") ;
+		map.put(USING_PERSON_SPECIFIC_RANDOM_SEEDS, "If true, the random number generators of the multi-threaded replanning modules "
+				+ "are reseeded for each person, and the threads take the plans in small chunks instead of round-robin.  "
+				+ "The random numbers drawn for a person then do not depend on the number of threads, and slow plans do not hold up "
+				+ "a thread.  The random numbers are different from the ones with false, so results change.  Default is false.") ;
 		return map ;
 	}
 
@@ -84,6 +90,15 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		this.coordinateSystem = coordinateSystem;
 	}
 	
+	@StringGetter( USING_PERSON_SPECIFIC_RANDOM_SEEDS )
+	public boolean isUsingPersonSpecificRandomSeeds() {
+		return this.usingPersonSpecificRandomSeeds;
+	}
+	@StringSetter( USING_PERSON_SPECIFIC_RANDOM_SEEDS )
+	public void setUsingPersonSpecificRandomSeeds(final boolean usingPersonSpecificRandomSeeds) {
+		this.usingPersonSpecificRandomSeeds = usingPersonSpecificRandomSeeds;
+	}
+	
 	private static final String INSITING_ON_DEPRECATED_CONFIG_VERSION = "insistingOnDeprecatedConfigVersion" ;
 	@StringGetter( INSITING_ON_DEPRECATED_CONFIG_VERSION )
 	public final boolean isInsistingOnDeprecatedConfigVersion() { return this.insistingOnDeprecatedConfigVersion ; }
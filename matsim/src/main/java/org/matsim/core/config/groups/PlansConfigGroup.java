@@ -87,6 +87,13 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		comments.put(REMOVING_UNNECESSARY_PLAN_ATTRIBUTES, "(not tested) will remove plan attributes that are presumably not used, such as " +
                 "activityStartTime. default=false. Use with Caution!");
 
+		comments.put(COMPACTING_NON_SELECTED_PLANS, "if true, the activities and legs of non-selected plans are kept in a compact " +
+				"binary form while they are not used, which reduces the memory needed for large populations considerably. " +
+				"Accessing them is slower the first time after each compaction. default=false.");
+
+		comments.put(READING_IN_PARALLEL, "if true, population_v6 files are parsed by global.numberOfThreads threads, while the " +
+				"persons are still added in file order. Only useful with more than one thread. default=false.");
+
 		comments.put( INPUT_CRS , "The Coordinates Reference System in which the coordinates are expressed in the input file." +
 				" At import, the coordinates will be converted to the coordinate system defined in \"global\", and will" +
 				"be converted back at export. If not specified, no conversion happens." );
@@ -177,6 +184,33 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		this.removingUnneccessaryPlanAttributes = removingUnneccessaryPlanAttributes;
 	}
 
+	// ---
+
+	private static final String COMPACTING_NON_SELECTED_PLANS = "compactingNonSelectedPlans";
+	private boolean compactingNonSelectedPlans = false;
+	@StringGetter(COMPACTING_NON_SELECTED_PLANS)
+	public boolean isCompactingNonSelectedPlans() {
+		return this.compactingNonSelectedPlans;
+	}
+	@StringSetter(COMPACTING_NON_SELECTED_PLANS)
+	public void setCompactingNonSelectedPlans(final boolean compactingNonSelectedPlans) {
+		this.compactingNonSelectedPlans = compactingNonSelectedPlans;
+	}
+
+
+	// ---
+
+	private static final String READING_IN_PARALLEL = "readingInParallel";
+	private boolean readingInParallel = false;
+	@StringGetter(READING_IN_PARALLEL)
+	public boolean isReadingInParallel() {
+		return this.readingInParallel;
+	}
+	@StringSetter(READING_IN_PARALLEL)
+	public void setReadingInParallel(final boolean readingInParallel) {
+		this.readingInParallel = readingInParallel;
+	}
+
 
 	@StringGetter( INPUT_CRS )
 	public String getInputCRS() {
@@ -264,6 +264,16 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		map.put(USE_PERSON_ID_FOR_MISSING_VEHICLE_ID, "If a route does not reference a vehicle, agents will use the vehicle with the same id as their own.");
 		map.put(USING_THREADPOOL, "if the qsim should use as many runners as there are threads (Christoph's dissertation version)"
 				+ " or more of them, together with a thread pool (seems to be faster in some situations, but is not tested).") ;
+		map.put(USING_DOMAIN_DECOMPOSITION, "If true, the network is partitioned geographically (recursive bisection) among the "
+				+ "qsim runners, and each runner only waits for the runners owning the other end of its boundary links instead of "
+				+ "for all runners.  Only has an effect if " + USING_THREADPOOL + " is false.  Default is false.") ;
+		map.put(USING_COMPACT_LINK_QUEUES, "If true, the links keep their vehicles in ring buffers of vehicle indices with the earliest "
+				+ "exit times in primitive arrays, and the capacity accumulators of the links of each qsim runner in shared arrays.  "
+				+ "Simulates the same as the default links, but only with link dynamics " + LinkDynamics.FIFO + " and without lanes.  "
+				+ "Default is false.") ;
+		map.put(SKIPPING_IDLE_TIME_STEPS, "If true, the qsim jumps over the time steps in which none of its engines has anything to do, "
+				+ "e.g. at night.  Only mobsim listeners which declare that they need every time step are notified in these time steps.  "
+				+ "Engines which cannot tell when they have something to do next prevent skipping.  Default is false.") ;
 		map.put(FAST_CAPACITY_UPDATE, "If false, the qsim accumulates fractional flows up to one flow unit in every time step.  If true, "
 				+ "flows are updated only if an agent wants to enter the link or an agent is added to buffer. "
 				+ "Default is true.") ;
@@ -528,6 +538,39 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		this.usingThreadpool = val ;
 	}
 
+	private static final String USING_DOMAIN_DECOMPOSITION = "usingDomainDecomposition" ;
+	private boolean usingDomainDecomposition = false ;
+	@StringGetter(USING_DOMAIN_DECOMPOSITION)
+	public boolean isUsingDomainDecomposition() {
+		return this.usingDomainDecomposition ;
+	}
+	@StringSetter(USING_DOMAIN_DECOMPOSITION)
+	public void setUsingDomainDecomposition( boolean val ) {
+		this.usingDomainDecomposition = val ;
+	}
+
+	private static final String USING_COMPACT_LINK_QUEUES = "usingCompactLinkQueues" ;
+	private boolean usingCompactLinkQueues = false ;
+	@StringGetter(USING_COMPACT_LINK_QUEUES)
+	public boolean isUsingCompactLinkQueues() {
+		return this.usingCompactLinkQueues ;
+	}
+	@StringSetter(USING_COMPACT_LINK_QUEUES)
+	public void setUsingCompactLinkQueues( boolean val ) {
+		this.usingCompactLinkQueues = val ;
+	}
+
+	private static final String SKIPPING_IDLE_TIME_STEPS = "skippingIdleTimeSteps" ;
+	private boolean skippingIdleTimeSteps = false ;
+	@StringGetter(SKIPPING_IDLE_TIME_STEPS)
+	public boolean isSkippingIdleTimeSteps() {
+		return this.skippingIdleTimeSteps ;
+	}
+	@StringSetter(SKIPPING_IDLE_TIME_STEPS)
+	public void setSkippingIdleTimeSteps( boolean val ) {
+		this.skippingIdleTimeSteps = val ;
+	}
+
 	private static final String USE_LANES="useLanes" ;
 	private boolean useLanes = false ;
 
@@ -0,0 +1,82 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BackgroundEventWriter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.controler.corelisteners;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.algorithms.EventWriter;
+import org.matsim.core.events.handler.BasicEventHandler;
+
+/**
+ * Collects the events in batches, which are written by the wrapped event writer in background, so the events
+ * thread only has to add the events to a list. As the batches are handed to a {@link BackgroundOutputWriter},
+ * the events thread waits if the writer falls behind by more than a few batches.
+ */
+final class BackgroundEventWriter implements EventWriter, BasicEventHandler {
+
+	private static final int BATCH_SIZE = 10000;
+
+	private final EventWriter writer;
+	private final BasicEventHandler handler;
+	private final BackgroundOutputWriter backgroundWriter;
+	private List<Event> batch = new ArrayList<>(BATCH_SIZE);
+
+	<W extends EventWriter & BasicEventHandler> BackgroundEventWriter(final W writer, final BackgroundOutputWriter backgroundWriter) {
+		this.writer = writer;
+		this.handler = writer;
+		this.backgroundWriter = backgroundWriter;
+	}
+
+	@Override
+	public void handleEvent(final Event event) {
+		this.batch.add(event);
+		if (this.batch.size() == BATCH_SIZE) {
+			writeBatch();
+		}
+	}
+
+	private void writeBatch() {
+		final List<Event> events = this.batch;
+		this.batch = new ArrayList<>(BATCH_SIZE);
+		this.backgroundWriter.write("writing events", () -> {
+			for (Event event : events) {
+				this.handler.handleEvent(event);
+			}
+		}, false);
+	}
+
+	@Override
+	public void reset(final int iteration) {
+		// the wrapped writers do nothing on reset
+	}
+
+	/**
+	 * Writes the remaining events and closes the file in background.
+	 */
+	@Override
+	public void closeFile() {
+		writeBatch();
+		this.backgroundWriter.write("closing events file", this.writer::closeFile);
+	}
+
+}
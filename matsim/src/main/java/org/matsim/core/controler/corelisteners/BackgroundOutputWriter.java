@@ -0,0 +1,151 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BackgroundOutputWriter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.controler.corelisteners;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.matsim.core.config.groups.ControlerConfigGroup;
+
+/**
+ * Runs the writing of output files of the core listeners on a background thread, so that the next
+ * iteration can already start while the files are written, see
+ * {@link ControlerConfigGroup#isWriteInBackground()}. If writing in background is disabled,
+ * the files are written immediately by the calling thread.
+ * <p></p>
+ * Each listener uses its own instance, so the files of the different listeners are written independently.
+ * The files of one listener are written one after the other, in the order they were submitted. At most
+ * {@link #MAX_OUTSTANDING_WRITES} writes may be outstanding, further submissions wait until
+ * a write has finished. The listeners using this class must call {@link #waitForAll()} at shutdown.
+ */
+final class BackgroundOutputWriter {
+
+	private static final Logger log = Logger.getLogger(BackgroundOutputWriter.class);
+
+	/*package*/ static final int MAX_OUTSTANDING_WRITES = 2;
+
+	private final ExecutorService executor;
+	private final Semaphore outstandingWrites = new Semaphore(MAX_OUTSTANDING_WRITES);
+	private volatile Throwable exception = null;
+
+	/*package*/ BackgroundOutputWriter(final boolean writeInBackground) {
+		if (writeInBackground) {
+			this.executor = Executors.newSingleThreadExecutor(runnable -> {
+				Thread thread = new Thread(runnable, BackgroundOutputWriter.class.getSimpleName());
+				thread.setDaemon(true);
+				return thread;
+			});
+		} else {
+			this.executor = null;
+		}
+	}
+
+	/**
+	 * Runs the given task, either in the background or immediately.
+	 *
+	 * @throws RuntimeException if a previous task failed, or the {@link Error} a previous task threw
+	 */
+	/*package*/ void write(final String description, final Runnable task) {
+		write(description, task, true);
+	}
+
+	/**
+	 * Same as {@link #write(String, Runnable)}, but optionally without logging when the task is finished, for
+	 * tasks that are submitted very often.
+	 */
+	/*package*/ void write(final String description, final Runnable task, final boolean logWhenFinished) {
+		rethrowException();
+		if (this.executor == null) {
+			task.run();
+			return;
+		}
+		try {
+			this.outstandingWrites.acquire();
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+		this.executor.execute(() -> {
+			try {
+				task.run();
+				if (logWhenFinished) {
+					log.info("finished " + description + " in background.");
+				}
+			} catch (Throwable e) {
+				log.error("error while " + description + " in background.", e);
+				this.exception = e;
+			} finally {
+				this.outstandingWrites.release();
+			}
+		});
+	}
+
+	/**
+	 * Waits until all tasks submitted so far are finished.
+	 *
+	 * @throws RuntimeException if a task failed, or the {@link Error} a task threw
+	 */
+	/*package*/ void waitForAll() {
+		if (this.executor != null) {
+			try {
+				this.outstandingWrites.acquire(MAX_OUTSTANDING_WRITES);
+				this.outstandingWrites.release(MAX_OUTSTANDING_WRITES);
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		rethrowException();
+	}
+
+	/**
+	 * Waits for all tasks and stops the background thread. No tasks can be submitted afterwards.
+	 *
+	 * @throws RuntimeException if a task failed, or the {@link Error} a task threw
+	 */
+	/*package*/ void shutdown() {
+		try {
+			waitForAll();
+		} finally {
+			if (this.executor != null) {
+				this.executor.shutdown();
+				try {
+					this.executor.awaitTermination(1, TimeUnit.MINUTES);
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		}
+	}
+
+	private void rethrowException() {
+		Throwable e = this.exception;
+		if (e != null) {
+			this.exception = null;
+			if (e instanceof Error) {
+				throw (Error) e;
+			}
+			throw new RuntimeException("writing output in background failed", e);
+		}
+	}
+
+}
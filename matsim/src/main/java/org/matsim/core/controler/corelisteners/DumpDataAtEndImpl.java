@@ -269,7 +269,9 @@ final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
 
 	private void dumpNetwork() {
 		// dump network
-		new NetworkWriter(network).write(controlerIO.getOutputFilename(Controler.OUTPUT_PREFIX + Controler.FILENAME_NETWORK));
+		final NetworkWriter writer = new NetworkWriter(network);
+		writer.setCompressionThreads(config.controler().getCompressionThreads());
+		writer.write(controlerIO.getOutputFilename(Controler.OUTPUT_PREFIX + Controler.FILENAME_NETWORK));
 	}
 
 	private void dumpPlans() {
@@ -277,6 +279,7 @@ final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
 
 		final PopulationWriter writer = new PopulationWriter(population, network);
 		writer.putAttributeConverters( attributeConverters );
+		writer.setCompressionThreads(config.controler().getCompressionThreads());
 		writer.write(controlerIO.getOutputFilename(Controler.OUTPUT_PREFIX + Controler.FILENAME_POPULATION));
 
 		final ObjectAttributes personAttributes = population.getPersonAttributes();
@@ -37,7 +37,9 @@ import org.matsim.core.controler.listener.BeforeMobsimListener;
 import org.matsim.core.controler.listener.IterationEndsListener;
 import org.matsim.core.controler.listener.ShutdownListener;
 import org.matsim.core.events.algorithms.EventWriter;
+import org.matsim.core.events.algorithms.EventWriterBinary;
 import org.matsim.core.events.algorithms.EventWriterXML;
+import org.matsim.core.events.handler.BasicEventHandler;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -60,6 +62,12 @@ final class EventsHandlingImpl implements EventsHandling, BeforeMobsimListener,
 
 	private int writeMoreUntilIteration;
 
+	private final int compressionThreads;
+
+	private final BackgroundOutputWriter backgroundWriter;
+
+	private final boolean writeInBackground;
+
 	@Inject
 	EventsHandlingImpl(
 			final EventsManager eventsManager,
@@ -71,6 +79,9 @@ final class EventsHandlingImpl implements EventsHandling, BeforeMobsimListener,
 		this.eventsFileFormats = config.getEventsFileFormats();
 		this.controlerIO = controlerIO;
 		this.writeMoreUntilIteration = config.getWriteEventsUntilIteration() ;
+		this.compressionThreads = config.getCompressionThreads();
+		this.writeInBackground = config.isWriteInBackground();
+		this.backgroundWriter = new BackgroundOutputWriter(this.writeInBackground);
 	}
 
 	@Override
@@ -85,8 +96,12 @@ final class EventsHandlingImpl implements EventsHandling, BeforeMobsimListener,
 			for (EventsFileFormat format : eventsFileFormats) {
 				switch (format) {
 				case xml:
-					this.eventWriters.add(new EventWriterXML(controlerIO.getIterationFilename(event.getIteration(), 
-							Controler.FILENAME_EVENTS_XML)));
+					addEventWriter(new EventWriterXML(controlerIO.getIterationFilename(event.getIteration(), 
+							Controler.FILENAME_EVENTS_XML), this.compressionThreads));
+					break;
+				case binary:
+					addEventWriter(new EventWriterBinary(controlerIO.getIterationFilename(event.getIteration(),
+							Controler.FILENAME_EVENTS_BINARY)));
 					break;
 				default:
 					log.warn("Unknown events file format specified: " + format.toString() + ".");
@@ -97,6 +112,14 @@ final class EventsHandlingImpl implements EventsHandling, BeforeMobsimListener,
 			}
 		}
 	}
+
+	private <W extends EventWriter & BasicEventHandler> void addEventWriter(final W writer) {
+		if (this.writeInBackground) {
+			this.eventWriters.add(new BackgroundEventWriter(writer, this.backgroundWriter));
+		} else {
+			this.eventWriters.add(writer);
+		}
+	}
 	
 	@Override
 	public void notifyIterationEnds(IterationEndsEvent event) {
@@ -105,8 +128,9 @@ final class EventsHandlingImpl implements EventsHandling, BeforeMobsimListener,
 		 * module, should also be written to the events file.
 		 */
 		for (EventWriter writer : this.eventWriters) {
-			writer.closeFile();
 			this.eventsManager.removeHandler(writer);
+			// when writing in background, this only hands the last events to the background thread
+			writer.closeFile();
 		}
 		this.eventWriters.clear();
 	}
@@ -116,6 +140,7 @@ final class EventsHandlingImpl implements EventsHandling, BeforeMobsimListener,
 		for (EventWriter writer : this.eventWriters) {
 			writer.closeFile();
 		}
+		this.backgroundWriter.shutdown();
 	}
 	
 }
@@ -23,19 +23,28 @@ package org.matsim.core.controler.corelisteners;
 import org.apache.log4j.Logger;
 import org.matsim.analysis.IterationStopWatch;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
 import org.matsim.api.core.v01.population.PopulationWriter;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.controler.Controler;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.core.controler.events.BeforeMobsimEvent;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.events.ShutdownEvent;
 import org.matsim.core.controler.listener.BeforeMobsimListener;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.controler.listener.ShutdownListener;
+import org.matsim.core.population.PopulationUtils;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
 import org.matsim.core.utils.geometry.transformations.TransformationFactory;
+import org.matsim.utils.objectattributes.attributable.AttributesUtils;
 
 /**
  * {@link org.matsim.core.controler.listener.ControlerListener} that dumps the
@@ -43,11 +52,15 @@ import org.matsim.core.utils.geometry.transformations.TransformationFactory;
  * ({@link ControlerConfigGroup#getWritePlansInterval()} as well as in the first
  * iteration, just in case someone might check that the replanning worked
  * correctly in the first iteration.
+ * <p></p>
+ * If {@link ControlerConfigGroup#isWriteInBackground()} is set, a copy of the plans
+ * is written by a background thread while the mobsim already runs. Writing must be
+ * finished when the next iteration starts, i.e. before the next replanning.
  *
  * @author mrieser
  */
 @Singleton
-final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
+final class PlansDumpingImpl implements PlansDumping, IterationStartsListener, BeforeMobsimListener, ShutdownListener {
 
 	static final private Logger log = Logger.getLogger(PlansDumpingImpl.class);
 
@@ -56,14 +69,25 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 	@Inject private Population population;
 	@Inject private IterationStopWatch stopwatch;
 	@Inject private OutputDirectoryHierarchy controlerIO;
+	private final BackgroundOutputWriter backgroundWriter;
 	private int writePlansInterval ;
 
 	private int writeMoreUntilIteration;
 
+	private final boolean writeInBackground;
+
 	@Inject
 	PlansDumpingImpl(ControlerConfigGroup config) {
 		this.writePlansInterval = config.getWritePlansInterval();
 		this.writeMoreUntilIteration = config.getWritePlansUntilIteration() ;
+		this.writeInBackground = config.isWriteInBackground();
+		this.backgroundWriter = new BackgroundOutputWriter(this.writeInBackground);
+	}
+
+	@Override
+	public void notifyIterationStarts(final IterationStartsEvent event) {
+		// the copy shares the activities and legs of the non-selected plans, which the next replanning may change
+		backgroundWriter.waitForAll();
 	}
 
 	@Override
@@ -76,9 +100,12 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 			log.info("dumping plans...");
 			final String inputCRS = config.plans().getInputCRS();
 			final String internalCRS = config.global().getCoordinateSystem();
+			// the mobsim and the scoring modify the selected plans while they are written in background:
+			final Population population = this.writeInBackground ? copyPopulation(this.population, config, network) : this.population;
 
+			final PopulationWriter writer;
 			if ( inputCRS == null ) {
-				new PopulationWriter(population, network).write(controlerIO.getIterationFilename(event.getIteration(), Controler.FILENAME_POPULATION));
+				writer = new PopulationWriter(population, network);
 			}
 			else {
 				log.info( "re-projecting population from "+internalCRS+" back to "+inputCRS+" for export" );
@@ -88,11 +115,46 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 								internalCRS,
 								inputCRS );
 
-				new PopulationWriter(transformation, population, network).write(controlerIO.getIterationFilename(event.getIteration(), Controler.FILENAME_POPULATION));
+				writer = new PopulationWriter(transformation, population, network);
 			}
+			writer.setCompressionThreads(config.controler().getCompressionThreads());
+			final String filename = controlerIO.getIterationFilename(event.getIteration(), Controler.FILENAME_POPULATION);
+			backgroundWriter.write("dumping plans to " + filename, () -> writer.write(filename));
 			log.info("finished plans dump.");
 			stopwatch.endOperation("dump all plans");
 		}
 	}
 
+	@Override
+	public void notifyShutdown(final ShutdownEvent event) {
+		backgroundWriter.shutdown();
+	}
+
+	/**
+	 * Copies the persons with their selected plans, which are changed by the mobsim and the scoring. Of the other plans,
+	 * only snapshots sharing the activities and legs are created, see {@link PopulationUtils#createSnapshot(Plan)}.
+	 */
+	/*package*/ static Population copyPopulation(final Population population, final Config config, final Network network) {
+		Population copy = PopulationUtils.createPopulation(config, network);
+		copy.setName(population.getName());
+		AttributesUtils.copyAttributesFromTo(population, copy);
+		PopulationFactory factory = copy.getFactory();
+		for (Person person : population.getPersons().values()) {
+			Person personCopy = factory.createPerson(person.getId());
+			AttributesUtils.copyAttributesFromTo(person, personCopy);
+			for (Plan plan : person.getPlans()) {
+				if (plan == person.getSelectedPlan()) {
+					Plan planCopy = factory.createPlan();
+					PopulationUtils.copyFromTo(plan, planCopy);
+					personCopy.addPlan(planCopy);
+					personCopy.setSelectedPlan(planCopy);
+				} else {
+					personCopy.addPlan(PopulationUtils.createSnapshot(plan));
+				}
+			}
+			copy.addPerson(personCopy);
+		}
+		return copy;
+	}
+
 }
@@ -20,9 +20,15 @@
 
 package org.matsim.core.events;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -73,9 +79,13 @@ import org.matsim.core.events.handler.EventHandler;
  * <li>add method public void handleEvent(MyEvent event) to it</li>
  * <li>ready to go, just implement the interface somewhere and add a
  * HandlerObject with a call to <code>Events.addHandler(HandlerObject)</code></li>
- * <li>(optional) add an appropriate line in callHandlerFast() for speeding
+ * <li>(optional) add an appropriate line in FAST_CALLERS for speeding
  * up execution!</li>
  * </ol>
+ * Handlers are not called via reflection: when the handlers for an event class are looked up the first time,
+ * every handler method gets a {@link HandlerCaller}, either a direct call for the event types listed in
+ * FAST_CALLERS, or one generated with {@link LambdaMetafactory}. Only if generation fails (e.g. because the
+ * handler interface is not accessible), {@link Method#invoke(Object, Object...)} is used as before.
  *
  * @author dstrippgen
  * @author mrieser
@@ -101,15 +111,50 @@ public final class EventsManagerImpl implements EventsManager {
 	static private class HandlerInfo {
 		protected final Class<?> eventClass;
 		protected final EventHandler eventHandler;
-		protected final Method method;
+		protected final HandlerCaller caller;
 
-		protected HandlerInfo(final Class<?> eventClass, final EventHandler eventHandler, final Method method) {
+		protected HandlerInfo(final Class<?> eventClass, final EventHandler eventHandler, final HandlerCaller caller) {
 			this.eventClass = eventClass;
 			this.eventHandler = eventHandler;
-			this.method = method;
+			this.caller = caller;
 		}
 	}
 
+	/**
+	 * Calls the handleEvent method of one handler interface.
+	 */
+	@FunctionalInterface
+	/*package*/ interface HandlerCaller {
+		void call(EventHandler handler, Event event);
+	}
+
+	/*
+	 * Direct calls for the most common event types.  These were checked one after the other for every
+	 * event and handler before; now the caller is selected once per event class and handler.
+	 */
+	private static final Map<Class<?>, HandlerCaller> FAST_CALLERS = new HashMap<>();
+	static {
+		FAST_CALLERS.put(LinkLeaveEvent.class, (h, ev) -> ((LinkLeaveEventHandler) h).handleEvent((LinkLeaveEvent) ev));
+		FAST_CALLERS.put(LinkEnterEvent.class, (h, ev) -> ((LinkEnterEventHandler) h).handleEvent((LinkEnterEvent) ev));
+		FAST_CALLERS.put(VehicleEntersTrafficEvent.class, (h, ev) -> ((VehicleEntersTrafficEventHandler) h).handleEvent((VehicleEntersTrafficEvent) ev));
+		FAST_CALLERS.put(PersonArrivalEvent.class, (h, ev) -> ((PersonArrivalEventHandler) h).handleEvent((PersonArrivalEvent) ev));
+		FAST_CALLERS.put(PersonDepartureEvent.class, (h, ev) -> ((PersonDepartureEventHandler) h).handleEvent((PersonDepartureEvent) ev));
+		FAST_CALLERS.put(ActivityEndEvent.class, (h, ev) -> ((ActivityEndEventHandler) h).handleEvent((ActivityEndEvent) ev));
+		FAST_CALLERS.put(ActivityStartEvent.class, (h, ev) -> ((ActivityStartEventHandler) h).handleEvent((ActivityStartEvent) ev));
+		FAST_CALLERS.put(TransitDriverStartsEvent.class, (h, ev) -> ((TransitDriverStartsEventHandler) h).handleEvent((TransitDriverStartsEvent) ev));
+		FAST_CALLERS.put(PersonStuckEvent.class, (h, ev) -> ((PersonStuckEventHandler) h).handleEvent((PersonStuckEvent) ev));
+		FAST_CALLERS.put(PersonMoneyEvent.class, (h, ev) -> ((PersonMoneyEventHandler) h).handleEvent((PersonMoneyEvent) ev));
+		FAST_CALLERS.put(AgentWaitingForPtEvent.class, (h, ev) -> ((AgentWaitingForPtEventHandler) h).handleEvent((AgentWaitingForPtEvent) ev));
+		FAST_CALLERS.put(PersonEntersVehicleEvent.class, (h, ev) -> ((PersonEntersVehicleEventHandler) h).handleEvent((PersonEntersVehicleEvent) ev));
+		FAST_CALLERS.put(PersonLeavesVehicleEvent.class, (h, ev) -> ((PersonLeavesVehicleEventHandler) h).handleEvent((PersonLeavesVehicleEvent) ev));
+		FAST_CALLERS.put(VehicleDepartsAtFacilityEvent.class, (h, ev) -> ((VehicleDepartsAtFacilityEventHandler) h).handleEvent((VehicleDepartsAtFacilityEvent) ev));
+		FAST_CALLERS.put(VehicleArrivesAtFacilityEvent.class, (h, ev) -> ((VehicleArrivesAtFacilityEventHandler) h).handleEvent((VehicleArrivesAtFacilityEvent) ev));
+		FAST_CALLERS.put(Event.class, (h, ev) -> ((BasicEventHandler) h).handleEvent(ev));
+	}
+
+	/* generated callers are shared between all instances, as they only depend on the handler method */
+	private static final Map<Method, HandlerCaller> generatedCallers = new ConcurrentHashMap<>();
+
 	private final List<HandlerData> handlerData = new ArrayList<HandlerData>();
 
 	private final Map<Class<?>, HandlerInfo[]> cacheHandlers = new ConcurrentHashMap<Class<?>, HandlerInfo[]>(15);
@@ -219,20 +264,57 @@ public final class EventsManagerImpl implements EventsManager {
 	private void computeEvent(final Event event) {
 		for (HandlerInfo info : getHandlersForClass(event.getClass())) {
 			synchronized(info.eventHandler) {
-				if (callHandlerFast(info.eventClass, event, info.eventHandler)) {
-					continue;
+				info.caller.call(info.eventHandler, event);
+			}
+		}
+	}
+
+	/*package*/ static HandlerCaller getCaller(final Class<?> eventClass, final Method method) {
+		HandlerCaller caller = FAST_CALLERS.get(eventClass);
+		if (caller != null) {
+			return caller;
+		}
+		return generatedCallers.computeIfAbsent(method, EventsManagerImpl::generateCaller);
+	}
+
+	/*
+	 * Handler exceptions are wrapped exactly like they were when the handler was called via Method.invoke,
+	 * such that the behavior does not depend on how the caller was created.
+	 */
+	private static HandlerCaller generateCaller(final Method method) {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			MethodHandle target = lookup.unreflect(method);
+			CallSite site = LambdaMetafactory.metafactory(lookup, "call",
+					MethodType.methodType(HandlerCaller.class),
+					MethodType.methodType(void.class, EventHandler.class, Event.class),
+					target, target.type());
+			HandlerCaller direct = (HandlerCaller) site.getTarget().invokeExact();
+			return (handler, event) -> {
+				try {
+					direct.call(handler, event);
+				} catch (Throwable e) {
+					throw new RuntimeException(createInvocationErrorMessage(handler, method), e);
 				}
+			};
+		} catch (Throwable e) {
+			log.warn("could not generate direct call for " + method + ", falling back to reflection: " + e.getMessage());
+			return (handler, event) -> {
 				try {
-					info.method.invoke(info.eventHandler, event);
-				} catch (IllegalArgumentException | IllegalAccessException e) {
-					throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e);
-				} catch (InvocationTargetException e) {
-					throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e.getCause());
+					method.invoke(handler, event);
+				} catch (IllegalArgumentException | IllegalAccessException ex) {
+					throw new RuntimeException(createInvocationErrorMessage(handler, method), ex);
+				} catch (InvocationTargetException ex) {
+					throw new RuntimeException(createInvocationErrorMessage(handler, method), ex.getCause());
 				}
-			}
+			};
 		}
 	}
 
+	private static String createInvocationErrorMessage(final EventHandler handler, final Method method) {
+		return "problem invoking EventHandler " + handler.getClass().getCanonicalName() + " for event-class " + method.getParameterTypes()[0].getCanonicalName();
+	}
+
 	private HandlerInfo[] getHandlersForClass(final Class<?> eventClass) {
 		Class<?> klass = eventClass;
 		HandlerInfo[] cache = this.cacheHandlers.get(eventClass);
@@ -246,7 +328,7 @@ public final class EventsManagerImpl implements EventsManager {
 			HandlerData dat = findHandler(klass);
 			if (dat != null) {
 				for(EventHandler handler: dat.handlerList) {
-					info.add(new HandlerInfo(klass, handler, dat.method));
+					info.add(new HandlerInfo(klass, handler, getCaller(klass, dat.method)));
 				}
 			}
 			klass = klass.getSuperclass();
@@ -256,7 +338,7 @@ public final class EventsManagerImpl implements EventsManager {
 			HandlerData dat = findHandler(intfc);
 			if (dat != null) {
 				for(EventHandler handler: dat.handlerList) {
-					info.add(new HandlerInfo(intfc, handler, dat.method));
+					info.add(new HandlerInfo(intfc, handler, getCaller(intfc, dat.method)));
 				}
 			}
 		}
@@ -282,60 +364,6 @@ public final class EventsManagerImpl implements EventsManager {
 		return intfs;
 	}
 
-	// this method is purely for performance reasons and need not be implemented
-	private boolean callHandlerFast(final Class<?> klass, final Event ev, final EventHandler handler) {
-		if (klass == LinkLeaveEvent.class) {
-			((LinkLeaveEventHandler)handler).handleEvent((LinkLeaveEvent)ev);
-			return true;
-		} else if (klass == LinkEnterEvent.class) {
-			((LinkEnterEventHandler)handler).handleEvent((LinkEnterEvent)ev);
-			return true;
-		} else if (klass == VehicleEntersTrafficEvent.class) {
-			((VehicleEntersTrafficEventHandler)handler).handleEvent((VehicleEntersTrafficEvent)ev);
-			return true;
-		} else if (klass == PersonArrivalEvent.class) {
-			((PersonArrivalEventHandler)handler).handleEvent((PersonArrivalEvent)ev);
-			return true;
-		} else if (klass == PersonDepartureEvent.class) {
-			((PersonDepartureEventHandler)handler).handleEvent((PersonDepartureEvent)ev);
-			return true;
-		} else if (klass == ActivityEndEvent.class) {
-			((ActivityEndEventHandler)handler).handleEvent((ActivityEndEvent)ev);
-			return true;
-		} else if (klass == ActivityStartEvent.class) {
-			((ActivityStartEventHandler)handler).handleEvent((ActivityStartEvent)ev);
-			return true;
-		} else if (klass == TransitDriverStartsEvent.class) {
-			((TransitDriverStartsEventHandler) handler).handleEvent((TransitDriverStartsEvent) ev);
-			return true;
-		} else if (klass == PersonStuckEvent.class) {
-			((PersonStuckEventHandler)handler).handleEvent((PersonStuckEvent)ev);
-			return true;
-		} else if (klass == PersonMoneyEvent.class) {
-			((PersonMoneyEventHandler)handler).handleEvent((PersonMoneyEvent)ev);
-			return true;
-		} else if (klass == AgentWaitingForPtEvent.class) {
-			((AgentWaitingForPtEventHandler)handler).handleEvent((AgentWaitingForPtEvent)ev);
-			return true;
-		} else if (klass == PersonEntersVehicleEvent.class) {
-			((PersonEntersVehicleEventHandler)handler).handleEvent((PersonEntersVehicleEvent)ev);
-			return true;
-		} else if (klass == PersonLeavesVehicleEvent.class) {
-			((PersonLeavesVehicleEventHandler)handler).handleEvent((PersonLeavesVehicleEvent)ev);
-			return true;
-		} else if (klass == VehicleDepartsAtFacilityEvent.class) {
-			((VehicleDepartsAtFacilityEventHandler) handler).handleEvent((VehicleDepartsAtFacilityEvent) ev);
-			return true;
-		} else if (klass == VehicleArrivesAtFacilityEvent.class) {
-			((VehicleArrivesAtFacilityEventHandler) handler).handleEvent((VehicleArrivesAtFacilityEvent) ev);
-			return true;
-		} else if (klass == Event.class) {
-			((BasicEventHandler)handler).handleEvent(ev);
-			return true;
-		}
-		return false;
-	}
-
 	public void printEventHandlers() {
 		log.info("currently registered event-handlers:");
 		for (HandlerData handlerType : this.handlerData) {
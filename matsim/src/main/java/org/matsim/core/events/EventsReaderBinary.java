@@ -0,0 +1,301 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsReaderBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
+import org.matsim.api.core.v01.events.VehicleAbortsEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.AgentWaitingForPtEvent;
+import org.matsim.core.api.experimental.events.BoardingDeniedEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Reads events files written by {@link EventWriterBinary}. The events stored field by field are created directly
+ * from their fields; the ids are created only once per dictionary entry and id type. Events stored by their
+ * attributes are created like in {@link EventsReaderXMLv1}: as {@link GenericEvent}s, converted by the custom
+ * event mapper of their type, if there is one.
+ */
+public final class EventsReaderBinary implements MatsimReader {
+
+	private final EventsManager events;
+	private final Map<String, EventsReaderXMLv1.CustomEventMapper<?>> customEventMappers = new HashMap<>();
+	private final LZ4FastDecompressor decompressor = LZ4Factory.fastestInstance().fastDecompressor();
+
+	private String[] dictionary = new String[1024];
+	private int dictionarySize = 0;
+
+	private final IdCache<Person> personIds = new IdCache<>(Person.class);
+	private final IdCache<Link> linkIds = new IdCache<>(Link.class);
+	private final IdCache<Vehicle> vehicleIds = new IdCache<>(Vehicle.class);
+	private final IdCache<ActivityFacility> facilityIds = new IdCache<>(ActivityFacility.class);
+	private final IdCache<TransitStopFacility> stopIds = new IdCache<>(TransitStopFacility.class);
+	private final IdCache<TransitLine> lineIds = new IdCache<>(TransitLine.class);
+	private final IdCache<TransitRoute> routeIds = new IdCache<>(TransitRoute.class);
+	private final IdCache<Departure> departureIds = new IdCache<>(Departure.class);
+
+	// the current block
+	private ByteBuffer block;
+	private int intsPos;
+	private int kindsPos;
+	private int doublesPos;
+
+	public EventsReaderBinary(final EventsManager events) {
+		this.events = events;
+	}
+
+	public void addCustomEventMapper(String eventType, EventsReaderXMLv1.CustomEventMapper<?> cem) {
+		this.customEventMappers.put(eventType, cem);
+	}
+
+	@Override
+	public void readFile(final String filename) {
+		try (InputStream stream = IOUtils.getInputStream(filename)) {
+			parse(stream);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void readURL(final URL url) {
+		try (InputStream stream = IOUtils.getInputStream(url)) {
+			parse(stream);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void parse(final InputStream stream) {
+		try {
+			DataInputStream in = new DataInputStream(stream);
+			if (in.readInt() != EventWriterBinary.MAGIC) {
+				throw new IllegalArgumentException("Stream does not contain binary events.");
+			}
+			int version = in.readInt();
+			if (version != EventWriterBinary.VERSION) {
+				throw new IllegalArgumentException("Binary events version " + version + " is not supported.");
+			}
+
+			byte[] compressed = new byte[0];
+			byte[] raw = new byte[0];
+			int rawLength;
+			while ((rawLength = in.readInt()) != 0) {
+				int compressedLength = in.readInt();
+				if (compressed.length < compressedLength) {
+					compressed = new byte[compressedLength];
+				}
+				if (raw.length < rawLength) {
+					raw = new byte[rawLength];
+				}
+				in.readFully(compressed, 0, compressedLength);
+				this.decompressor.decompress(compressed, 0, raw, 0, rawLength);
+				parseBlock(raw, rawLength);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void parseBlock(final byte[] raw, final int rawLength) {
+		this.block = ByteBuffer.wrap(raw, 0, rawLength);
+		int eventCount = this.block.getInt();
+		int newEntries = this.block.getInt();
+		if (this.dictionarySize + newEntries > this.dictionary.length) {
+			this.dictionary = Arrays.copyOf(this.dictionary, Math.max(this.dictionary.length * 2, this.dictionarySize + newEntries));
+		}
+		for (int i = 0; i < newEntries; i++) {
+			int length = this.block.getInt();
+			this.dictionary[this.dictionarySize++] = new String(raw, this.block.position(), length, StandardCharsets.UTF_8);
+			this.block.position(this.block.position() + length);
+		}
+
+		// the start positions of all columns follow from the number of events, ints, kinds and doubles
+		int codesPos = this.block.position();
+		int timesPos = codesPos + eventCount;
+		int countsPos = timesPos + 8 * eventCount;
+		int intCount = this.block.getInt(countsPos);
+		int kindCount = this.block.getInt(countsPos + 4);
+		this.intsPos = countsPos + 12;
+		this.kindsPos = this.intsPos + 4 * intCount;
+		this.doublesPos = this.kindsPos + kindCount;
+
+		for (int i = 0; i < eventCount; i++) {
+			this.events.processEvent(createEvent(raw[codesPos + i], this.block.getDouble(timesPos + 8 * i)));
+		}
+	}
+
+	private Event createEvent(final byte code, final double time) {
+		switch (code) {
+			case EventWriterBinary.CODE_LINK_ENTER:
+				return new LinkEnterEvent(time, nextId(this.vehicleIds), nextId(this.linkIds));
+			case EventWriterBinary.CODE_LINK_LEAVE:
+				return new LinkLeaveEvent(time, nextId(this.vehicleIds), nextId(this.linkIds));
+			case EventWriterBinary.CODE_VEHICLE_ENTERS_TRAFFIC:
+				return new VehicleEntersTrafficEvent(time, nextId(this.personIds), nextId(this.linkIds), nextId(this.vehicleIds),
+						nextString(), nextDouble());
+			case EventWriterBinary.CODE_VEHICLE_LEAVES_TRAFFIC:
+				return new VehicleLeavesTrafficEvent(time, nextId(this.personIds), nextId(this.linkIds), nextId(this.vehicleIds),
+						nextString(), nextDouble());
+			case EventWriterBinary.CODE_ACTIVITY_START:
+				return new ActivityStartEvent(time, nextId(this.personIds), nextId(this.linkIds), nextId(this.facilityIds),
+						nextString());
+			case EventWriterBinary.CODE_ACTIVITY_END:
+				return new ActivityEndEvent(time, nextId(this.personIds), nextId(this.linkIds), nextId(this.facilityIds),
+						nextString());
+			case EventWriterBinary.CODE_PERSON_DEPARTURE:
+				return new PersonDepartureEvent(time, nextId(this.personIds), nextId(this.linkIds), nextString());
+			case EventWriterBinary.CODE_PERSON_ARRIVAL:
+				return new PersonArrivalEvent(time, nextId(this.personIds), nextId(this.linkIds), nextString());
+			case EventWriterBinary.CODE_PERSON_STUCK:
+				return new PersonStuckEvent(time, nextId(this.personIds), nextId(this.linkIds), nextString());
+			case EventWriterBinary.CODE_VEHICLE_ABORTS:
+				return new VehicleAbortsEvent(time, nextId(this.vehicleIds), nextId(this.linkIds));
+			case EventWriterBinary.CODE_PERSON_MONEY:
+				return new PersonMoneyEvent(time, nextId(this.personIds), nextDouble());
+			case EventWriterBinary.CODE_PERSON_ENTERS_VEHICLE:
+				return new PersonEntersVehicleEvent(time, nextId(this.personIds), nextId(this.vehicleIds));
+			case EventWriterBinary.CODE_PERSON_LEAVES_VEHICLE:
+				return new PersonLeavesVehicleEvent(time, nextId(this.personIds), nextId(this.vehicleIds));
+			case EventWriterBinary.CODE_TELEPORTATION_ARRIVAL:
+				return new TeleportationArrivalEvent(time, nextId(this.personIds), nextDouble());
+			case EventWriterBinary.CODE_VEHICLE_ARRIVES_AT_FACILITY:
+				return new VehicleArrivesAtFacilityEvent(time, nextId(this.vehicleIds), nextId(this.stopIds), nextDouble());
+			case EventWriterBinary.CODE_VEHICLE_DEPARTS_AT_FACILITY:
+				return new VehicleDepartsAtFacilityEvent(time, nextId(this.vehicleIds), nextId(this.stopIds), nextDouble());
+			case EventWriterBinary.CODE_TRANSIT_DRIVER_STARTS:
+				return new TransitDriverStartsEvent(time, nextId(this.personIds), nextId(this.vehicleIds), nextId(this.lineIds),
+						nextId(this.routeIds), nextId(this.departureIds));
+			case EventWriterBinary.CODE_BOARDING_DENIED:
+				return new BoardingDeniedEvent(time, nextId(this.personIds), nextId(this.vehicleIds));
+			case EventWriterBinary.CODE_AGENT_WAITING_FOR_PT:
+				return new AgentWaitingForPtEvent(time, nextId(this.personIds), nextId(this.stopIds), nextId(this.stopIds));
+			case EventWriterBinary.CODE_ATTRIBUTES:
+				return createEventFromAttributes(time);
+			default:
+				throw new IllegalArgumentException("Unknown event code " + code);
+		}
+	}
+
+	private Event createEventFromAttributes(final double time) {
+		String eventType = nextString();
+		GenericEvent event = new GenericEvent(eventType, time);
+		int count = nextInt();
+		for (int a = 0; a < count; a++) {
+			String key = nextString();
+			byte kind = this.block.get(this.kindsPos++);
+			String value = kind == EventWriterBinary.KIND_STRING ? nextString() : Double.toString(nextDouble());
+			event.getAttributes().put(key, value);
+		}
+		EventsReaderXMLv1.CustomEventMapper<?> cem = this.customEventMappers.get(eventType);
+		return cem == null ? event : cem.apply(event);
+	}
+
+	private int nextInt() {
+		int value = this.block.getInt(this.intsPos);
+		this.intsPos += 4;
+		return value;
+	}
+
+	private double nextDouble() {
+		double value = this.block.getDouble(this.doublesPos);
+		this.doublesPos += 8;
+		return value;
+	}
+
+	private String nextString() {
+		int index = nextInt();
+		return index < 0 ? null : this.dictionary[index];
+	}
+
+	private <T> Id<T> nextId(final IdCache<T> cache) {
+		int index = nextInt();
+		return index < 0 ? null : cache.get(index, this.dictionary);
+	}
+
+	/**
+	 * The ids of one type created so far, by dictionary index.
+	 */
+	private static final class IdCache<T> {
+		private final Class<T> type;
+		private Id<T>[] ids;
+
+		@SuppressWarnings("unchecked")
+		IdCache(final Class<T> type) {
+			this.type = type;
+			this.ids = new Id[1024];
+		}
+
+		Id<T> get(final int index, final String[] dictionary) {
+			if (index >= this.ids.length) {
+				this.ids = Arrays.copyOf(this.ids, Math.max(this.ids.length * 2, index + 1));
+			}
+			Id<T> id = this.ids[index];
+			if (id == null) {
+				id = Id.create(dictionary[index], this.type);
+				this.ids[index] = id;
+			}
+			return id;
+		}
+	}
+
+}
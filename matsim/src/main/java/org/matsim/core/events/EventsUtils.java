@@ -21,13 +21,15 @@ public class EventsUtils {
     }
 
     /**
-     * The SimStepParallelEventsManagerImpl can handle events from multiple threads.
+     * The SimStepParallelEventsManagerImpl and the RingBufferParallelEventsManagerImpl can handle events from multiple threads.
      * The (Parallel)EventsMangerImpl cannot, therefore it has to be wrapped into a
      * SynchronizedEventsManagerImpl.
      */
     public static EventsManager getParallelFeedableInstance(EventsManager events) {
     	if (events instanceof SimStepParallelEventsManagerImpl) {
     		return events;
+    	} else if (events instanceof RingBufferParallelEventsManagerImpl) {
+    		return events;
     	} else if (events instanceof ParallelEventsManager) {
     		return events;
     	}
@@ -37,6 +39,27 @@ public class EventsUtils {
     		return new SynchronizedEventsManagerImpl(events);
     	}
     }
+
+    /**
+     * Returns the number of threads among which the given events manager distributes its handlers (in the order they
+     * are added), i.e. 1 if all handlers are called by the same thread.
+     */
+    public static int getNumberOfHandlerThreads(EventsManager events) {
+    	if (events instanceof SimStepParallelEventsManagerImpl) {
+    		return ((SimStepParallelEventsManagerImpl) events).getNumberOfThreads();
+    	} else if (events instanceof RingBufferParallelEventsManagerImpl) {
+    		return ((RingBufferParallelEventsManagerImpl) events).getNumberOfThreads();
+    	} else if (events instanceof ParallelEventsManager) {
+    		return ((ParallelEventsManager) events).getNumberOfThreads();
+    	} else if (events instanceof ParallelEventsManagerImpl) {
+    		return ((ParallelEventsManagerImpl) events).getNumberOfThreads();
+    	} else if (events instanceof SynchronizedEventsManagerImpl) {
+    		return getNumberOfHandlerThreads(((SynchronizedEventsManagerImpl) events).getDelegate());
+    	} else {
+    		return 1;
+    	}
+    }
+
     public static void readEvents( EventsManager events, String filename ) {
     	new MatsimEventsReader(events).readFile(filename) ;
 	}
@@ -20,15 +20,25 @@
 
 package org.matsim.core.events;
 
+import java.io.BufferedInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Locale;
 import java.util.Stack;
+import java.util.zip.GZIPInputStream;
+
+import net.jpountz.lz4.LZ4BlockInputStream;
 
 import org.apache.log4j.Logger;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.events.algorithms.EventWriterBinary;
 import org.matsim.core.utils.io.MatsimXmlParser;
+import org.matsim.core.utils.io.UncheckedIOException;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 
@@ -41,6 +51,7 @@ import org.xml.sax.SAXException;
 public final class MatsimEventsReader implements MatsimReader {
 
 	private final static Logger log = Logger.getLogger(MatsimEventsReader.class);
+	private final static byte[] LZ4_BLOCK_MAGIC = "LZ4Block".getBytes(StandardCharsets.US_ASCII);
 	private final EventsManager events;
 
 	/**
@@ -62,6 +73,8 @@ public final class MatsimEventsReader implements MatsimReader {
 		String lcFilename = filename.toLowerCase(Locale.ROOT);
 		if (lcFilename.endsWith(".xml") || lcFilename.endsWith(".xml.gz")) {
 			new XmlEventsReader(this.events).readFile(filename);
+		} else if (lcFilename.endsWith(".bin") || lcFilename.endsWith(".bin.gz") || lcFilename.endsWith(".bin.lz4")) {
+			new EventsReaderBinary(this.events).readFile(filename);
 		} else if (lcFilename.endsWith(".txt") || lcFilename.endsWith(".txt.gz")) {
 			throw new RuntimeException("text events are no longer supported. Please use MATSim 0.6.1 or earlier to read text events.");
 		} else {
@@ -69,13 +82,57 @@ public final class MatsimEventsReader implements MatsimReader {
 		}
 	}
 
+	/**
+	 * Parses the events from the specified stream. As there is no filename, the format (xml or binary events, optionally
+	 * gzip- or lz4-compressed) is recognized from the first bytes of the stream.
+	 */
 	public void readStream(final InputStream stream) {
-		new XmlEventsReader(this.events).parse(stream);
+		try {
+			InputStream in = stream.markSupported() ? stream : new BufferedInputStream(stream);
+			byte[] header = peek(in, LZ4_BLOCK_MAGIC.length);
+			if (header.length >= 2 && (header[0] & 0xff) == 0x1f && (header[1] & 0xff) == 0x8b) {
+				readStream(new GZIPInputStream(in));
+			} else if (Arrays.equals(header, LZ4_BLOCK_MAGIC)) {
+				readStream(new LZ4BlockInputStream(in));
+			} else if (header.length >= 4 && ByteBuffer.wrap(header).getInt() == EventWriterBinary.MAGIC) {
+				new EventsReaderBinary(this.events).parse(in);
+			} else {
+				new XmlEventsReader(this.events).parse(in);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
 	}
 
+	/**
+	 * Parses the events from the specified URL. The format is recognized from the content, like in
+	 * {@link #readStream(InputStream)}, so it does not depend on the file extension (except for text events, which are
+	 * not supported).
+	 */
 	@Override
 	public void readURL( final URL url ) {
-		new XmlEventsReader( this.events ).readURL( url );
+		String lcPath = url.getPath().toLowerCase(Locale.ROOT);
+		if (lcPath.endsWith(".txt") || lcPath.endsWith(".txt.gz")) {
+			throw new RuntimeException("text events are no longer supported. Please use MATSim 0.6.1 or earlier to read text events.");
+		}
+		try (InputStream stream = url.openStream()) {
+			readStream(stream);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// returns up to length bytes from the start of the stream, which is then reset to the start
+	private static byte[] peek(final InputStream in, final int length) throws IOException {
+		byte[] bytes = new byte[length];
+		in.mark(length);
+		int read = 0;
+		int n;
+		while (read < length && (n = in.read(bytes, read, length - read)) != -1) {
+			read += n;
+		}
+		in.reset();
+		return read == length ? bytes : Arrays.copyOf(bytes, read);
 	}
 
 	private static class XmlEventsReader extends MatsimXmlParser {
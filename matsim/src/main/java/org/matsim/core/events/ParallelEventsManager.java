@@ -270,6 +270,11 @@ public final class ParallelEventsManager implements EventsManager {
 		this.locked = false;
 	}
 
+	/*package*/ int getNumberOfThreads() {
+		// with one thread per handler, any number of handlers gets its own threads; as many as processors can run in parallel
+		return this.oneThreadPerHandler ? Runtime.getRuntime().availableProcessors() : this.numOfThreads;
+	}
+
 	@Override
 	public void afterSimStep(double time) {
 		/*
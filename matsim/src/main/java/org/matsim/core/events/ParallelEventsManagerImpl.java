@@ -241,6 +241,10 @@ public final class ParallelEventsManagerImpl implements EventsManager {
 
 	}
 
+	/*package*/ int getNumberOfThreads() {
+		return this.numberOfThreads;
+	}
+
 	@Override
 	public void afterSimStep(double time) {
 		// nothing to do in this implementation
@@ -0,0 +1,396 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RingBufferParallelEventsManagerImpl.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.inject.Inject;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.gbl.Gbl;
+
+/**
+ * An EventsManager that handles all occurring Events in separate Threads, like the
+ * {@link SimStepParallelEventsManagerImpl}, and thus also guarantees that all Events
+ * created in a time step have been processed when {@link #afterSimStep(double)} returns.
+ * <p></p>
+ * Instead of one blocking queue per thread, all Events are written into a single ring buffer
+ * that is read by all events processing threads. Adding an Event claims a slot with an atomic
+ * increment and does neither lock nor allocate. Each events processing thread handles all
+ * Events that are available when it looks at the buffer as one batch, and the threads are only
+ * parked when there is nothing to do; they are woken up at the end of each time step.
+ * <p></p>
+ * Events that are created by event handlers, i.e. in the events processing threads, are not
+ * written into the ring buffer directly, since a thread could otherwise wait for free space
+ * that only it can free. They are collected separately and appended to the ring buffer at the
+ * end of the time step, i.e. after the Events of the time step.
+ */
+final class RingBufferParallelEventsManagerImpl implements EventsManager {
+
+	private final static Logger log = Logger.getLogger(RingBufferParallelEventsManagerImpl.class);
+
+	/*package*/ final static int DEFAULT_RING_BUFFER_SIZE = 65536;
+
+	// number of times a waiting thread checks again before it yields, and before it parks itself
+	private final static int SPIN_TRIES = 100;
+	private final static int YIELD_TRIES = 200;
+	private final static long PARK_NANOS = 100000;
+
+	private final int numOfThreads;
+	private final EventsManagerImpl delegate;
+	private final EventsManagerImpl[] eventsManagers;
+	private int handlerCount = 0;
+
+	private final Event[] ring;
+	private final AtomicIntegerArray published;
+	private final int mask;
+	private final int shift;
+
+	/**
+	 * The highest sequence that has been claimed by a producer.
+	 */
+	private final AtomicLong claimed = new AtomicLong(-1);
+	/**
+	 * Cached minimum of the consumers' sequences, so that producers only have to look at all
+	 * consumers when the ring buffer seems to be full.
+	 */
+	private volatile long gatingSequence = -1;
+	/**
+	 * Events created by event handlers while processing other events.
+	 */
+	private final Queue<Event> handlerEvents = new ConcurrentLinkedQueue<>();
+
+	private ProcessEventsThread[] threads;
+	private volatile boolean parallelMode = false;
+	private final AtomicReference<Throwable> hadException = new AtomicReference<>();
+
+	@Inject
+	RingBufferParallelEventsManagerImpl(ParallelEventHandlingConfigGroup config) {
+		this(config.getNumberOfThreads() != null ? config.getNumberOfThreads() : 1);
+	}
+
+	public RingBufferParallelEventsManagerImpl(int numOfThreads) {
+		this(numOfThreads, DEFAULT_RING_BUFFER_SIZE);
+	}
+
+	public RingBufferParallelEventsManagerImpl(int numOfThreads, int ringBufferSize) {
+		if (numOfThreads < 1) {
+			throw new IllegalArgumentException("number of threads must be at least 1, but is " + numOfThreads);
+		}
+		if (ringBufferSize < 2 || Integer.bitCount(ringBufferSize) != 1) {
+			throw new IllegalArgumentException("ring buffer size must be a power of 2, but is " + ringBufferSize);
+		}
+		this.numOfThreads = numOfThreads;
+		log.info("number of threads=" + numOfThreads + " ring buffer size=" + ringBufferSize);
+
+		this.delegate = new EventsManagerImpl();
+		this.eventsManagers = new EventsManagerImpl[numOfThreads];
+		for (int i = 0; i < numOfThreads; i++) this.eventsManagers[i] = new EventsManagerImpl();
+
+		this.ring = new Event[ringBufferSize];
+		this.published = new AtomicIntegerArray(ringBufferSize);
+		this.mask = ringBufferSize - 1;
+		this.shift = Integer.numberOfTrailingZeros(ringBufferSize);
+	}
+
+	@Override
+	public void processEvent(final Event event) {
+		if (!this.parallelMode) {
+			this.delegate.processEvent(event);
+		} else if (Thread.currentThread() instanceof ProcessEventsThread) {
+			this.handlerEvents.add(event);
+		} else {
+			publish(event);
+		}
+	}
+
+	@Override
+	public void addHandler(final EventHandler handler) {
+		this.delegate.addHandler(handler);
+
+		this.eventsManagers[this.handlerCount % this.numOfThreads].addHandler(handler);
+		this.handlerCount++;
+	}
+
+	@Override
+	public void removeHandler(final EventHandler handler) {
+		this.delegate.removeHandler(handler);
+
+		for (EventsManager eventsManager : this.eventsManagers) eventsManager.removeHandler(handler);
+	}
+
+	@Override
+	public void resetHandlers(int iteration) {
+		this.delegate.resetHandlers(iteration);
+	}
+
+	@Override
+	public void initProcessing() {
+		this.delegate.initProcessing();
+		for (EventsManager eventsManager : this.eventsManagers) eventsManager.initProcessing();
+
+		this.claimed.set(-1);
+		this.gatingSequence = -1;
+		for (int i = 0; i < this.ring.length; i++) {
+			this.ring[i] = null;
+			this.published.set(i, -1);
+		}
+		this.handlerEvents.clear();
+		this.hadException.set(null);
+
+		ExceptionHandler uncaughtExceptionHandler = new ExceptionHandler(this.hadException);
+		this.threads = new ProcessEventsThread[this.numOfThreads];
+		for (int i = 0; i < this.numOfThreads; i++) {
+			ProcessEventsThread thread = new ProcessEventsThread(this, this.eventsManagers[i]);
+			thread.setDaemon(true);
+			thread.setUncaughtExceptionHandler(uncaughtExceptionHandler);
+			thread.setName(ProcessEventsThread.class.getSimpleName() + i);
+			this.threads[i] = thread;
+		}
+		for (ProcessEventsThread thread : this.threads) thread.start();
+
+		/*
+		 * During the simulation Events are processed in
+		 * the events processing threads.
+		 */
+		this.parallelMode = true;
+	}
+
+	/*package*/ int getNumberOfThreads() {
+		return this.numOfThreads;
+	}
+
+	@Override
+	public void afterSimStep(double time) {
+		/*
+		 * If an exception occurred, at least one of the events processing threads
+		 * has crashed and would never catch up.
+		 */
+		if (this.hadException.get() != null) {
+			return;
+		}
+		awaitAllEventsProcessed();
+	}
+
+	@Override
+	public synchronized void finishProcessing() {
+		if (this.hadException.get() == null) {
+			awaitAllEventsProcessed();
+			publish(new LastEventOfIteration(Double.POSITIVE_INFINITY));
+			wakeUpThreads();
+			for (Thread thread : this.threads) {
+				try {
+					thread.join();
+				} catch (InterruptedException e) {
+					this.hadException.compareAndSet(null, e);
+				}
+			}
+		}
+
+		/*
+		 * Events created after this point (e.g. by the ones processed in finishProcessing) are
+		 * processed in the main thread.
+		 */
+		this.parallelMode = false;
+
+		this.delegate.finishProcessing();
+		for (EventsManager eventsManager : this.eventsManagers) eventsManager.finishProcessing();
+
+		Throwable throwable = this.hadException.get();
+		if (throwable != null) {
+			throw new RuntimeException("Exception while processing events. Cannot guarantee that all events have been fully processed.", throwable);
+		}
+	}
+
+	/*
+	 * Waits until all events processing threads have processed all Events claimed so far. Since
+	 * event handlers may create additional Events while doing so, this is repeated until no more
+	 * Events are created. A thread announces its progress only after the Events of a batch have been
+	 * handled, so any Event created by a handler is already in the ring buffer or in handlerEvents
+	 * once all threads have reached the awaited sequence.
+	 */
+	private void awaitAllEventsProcessed() {
+		while (true) {
+			Event event;
+			while ((event = this.handlerEvents.poll()) != null) {
+				publish(event);
+			}
+			long target = this.claimed.get();
+			if (!awaitConsumers(target, true)) {
+				return;
+			}
+			if (this.handlerEvents.isEmpty() && this.claimed.get() == target) {
+				return;
+			}
+		}
+	}
+
+	private void publish(final Event event) {
+		long sequence = this.claimed.incrementAndGet();
+		long wrapPoint = sequence - this.ring.length;
+		if (wrapPoint > this.gatingSequence) {
+			// the ring buffer seems to be full, check whether the slot has been processed by all threads in the meantime
+			if (!awaitConsumers(wrapPoint, false)) {
+				return;
+			}
+		}
+		int index = (int) sequence & this.mask;
+		this.ring[index] = event;
+		this.published.lazySet(index, (int) (sequence >>> this.shift));
+	}
+
+	/*
+	 * Waits until all events processing threads have processed the Event with the given sequence.
+	 * Returns false if this is not going to happen because an events processing thread crashed.
+	 */
+	private boolean awaitConsumers(final long sequence, final boolean wakeUp) {
+		if (wakeUp) {
+			wakeUpThreads();
+		}
+		int tries = 0;
+		while (true) {
+			long min = minimumSequence();
+			if (min >= sequence) {
+				this.gatingSequence = min;
+				return true;
+			}
+			if (this.hadException.get() != null) {
+				return false;
+			}
+			tries++;
+			if (tries == SPIN_TRIES) {
+				wakeUpThreads();
+			} else if (tries > SPIN_TRIES) {
+				Thread.yield();
+			}
+		}
+	}
+
+	private long minimumSequence() {
+		long min = Long.MAX_VALUE;
+		for (ProcessEventsThread thread : this.threads) {
+			min = Math.min(min, thread.sequence);
+		}
+		return min;
+	}
+
+	private void wakeUpThreads() {
+		for (ProcessEventsThread thread : this.threads) {
+			LockSupport.unpark(thread);
+		}
+	}
+
+	/*
+	 * Returns the highest sequence in [from, claimed] up to which all Events have been published,
+	 * or from - 1 if the Event with sequence from is not yet available.
+	 */
+	private long getHighestPublishedSequence(final long from) {
+		long to = this.claimed.get();
+		for (long sequence = from; sequence <= to; sequence++) {
+			if (this.published.get((int) sequence & this.mask) != (int) (sequence >>> this.shift)) {
+				return sequence - 1;
+			}
+		}
+		return to;
+	}
+
+	private static class ProcessEventsThread extends Thread {
+
+		private final RingBufferParallelEventsManagerImpl ringBuffer;
+		private final EventsManager eventsManager;
+
+		// padding to keep the sequences of different threads in different cache lines
+		@SuppressWarnings("unused")
+		private long p1, p2, p3, p4, p5, p6, p7;
+		/**
+		 * The sequence of the last Event this thread has processed.
+		 */
+		private volatile long sequence = -1;
+		@SuppressWarnings("unused")
+		private long q1, q2, q3, q4, q5, q6, q7;
+
+		ProcessEventsThread(RingBufferParallelEventsManagerImpl ringBuffer, EventsManager eventsManager) {
+			this.ringBuffer = ringBuffer;
+			this.eventsManager = eventsManager;
+		}
+
+		@Override
+		public void run() {
+			Event[] ring = this.ringBuffer.ring;
+			int mask = this.ringBuffer.mask;
+			int idle = 0;
+			while (true) {
+				long next = this.sequence + 1;
+				long available = this.ringBuffer.getHighestPublishedSequence(next);
+				if (available < next) {
+					if (this.ringBuffer.hadException.get() != null) {
+						// another events processing thread crashed, the iteration is not going to end regularly
+						return;
+					}
+					idle++;
+					if (idle > SPIN_TRIES + YIELD_TRIES) {
+						LockSupport.parkNanos(this, PARK_NANOS);
+					} else if (idle > SPIN_TRIES) {
+						Thread.yield();
+					}
+					continue;
+				}
+				idle = 0;
+				for (long s = next; s <= available; s++) {
+					Event event = ring[(int) s & mask];
+					if (event instanceof LastEventOfIteration) {
+						this.sequence = s;
+						Gbl.printCurrentThreadCpuTime();
+						return;
+					}
+					this.eventsManager.processEvent(event);
+				}
+				this.sequence = available;
+			}
+		}
+	}
+
+	private static class ExceptionHandler implements UncaughtExceptionHandler {
+
+		private final AtomicReference<Throwable> hadException;
+
+		ExceptionHandler(final AtomicReference<Throwable> hadException) {
+			this.hadException = hadException;
+		}
+
+		@Override
+		public void uncaughtException(Thread t, Throwable e) {
+			this.hadException.compareAndSet(null, e);
+			log.error("Thread " + t.getName() + " died with exception while handling events.", e);
+		}
+	}
+
+}
@@ -213,6 +213,10 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 		}
 	}
 
+	/*package*/ int getNumberOfThreads() {
+		return this.numOfThreads;
+	}
+
 	@Override
 	public void afterSimStep(double time) {
 		
@@ -70,6 +70,10 @@ class SynchronizedEventsManagerImpl implements EventsManager {
 		delegate.initProcessing();
 	}
 
+	/*package*/ EventsManager getDelegate() {
+		return this.delegate;
+	}
+
 	@Override
 	public void afterSimStep(double time) {
 		delegate.afterSimStep(time);
@@ -0,0 +1,454 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventWriterBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
+import org.matsim.api.core.v01.events.VehicleAbortsEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.core.api.experimental.events.AgentWaitingForPtEvent;
+import org.matsim.core.api.experimental.events.BoardingDeniedEvent;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+/**
+ * Writes events in a compact binary format, to be read with {@link org.matsim.core.events.EventsReaderBinary}
+ * (or {@link org.matsim.core.events.MatsimEventsReader} if the filename ends with ".bin").
+ * <p></p>
+ * The events of the core and transit types (link enter/leave, departure/arrival, activity start/end, ...) are
+ * stored field by field: the time and other numbers as doubles, ids and strings (modes, activity types) as
+ * indices into a dictionary that is written incrementally. Ids and strings are never parsed or formatted,
+ * neither when writing nor when reading. Events of all other types are stored by their attributes, like in
+ * the xml format: the event type, the attribute names and all attribute values that are not numbers as
+ * dictionary indices, and numeric attribute values (positions, coordinates, amounts, ...) as doubles. Numeric
+ * values are only stored as doubles if they can be converted back to exactly the same string, so the events
+ * read are equal to the ones written.
+ * <p></p>
+ * Events are collected in blocks of {@value #BLOCK_SIZE} events, and each block is written column by column
+ * and compressed with LZ4.
+ * <p></p>
+ * File layout: {@value #MAGIC} (int), {@value #VERSION} (int), then the blocks, each consisting of
+ * the uncompressed length (int), the compressed length (int) and the compressed data, and finally 0 (int).
+ * Uncompressed, a block consists of:
+ * <ul>
+ * <li>number of events <i>n</i>, number of new dictionary entries <i>d</i> (int)</li>
+ * <li><i>d</i> times: length (int) and UTF-8 bytes of the new dictionary entries</li>
+ * <li><i>n</i> event codes (byte), see <code>CODE_*</code>, and <i>n</i> times (double)</li>
+ * <li>the numbers of ints <i>i</i>, of value kinds <i>k</i> and of doubles <i>f</i> (int)</li>
+ * <li><i>i</i> ints, <i>k</i> value kinds (byte) and <i>f</i> doubles; these are the fields of all events
+ * of the block, in the order of the events and, within each event, in the order of the constructor
+ * parameters. Dictionary indices of <code>null</code> are stored as -1.</li>
+ * </ul>
+ * An event stored by its attributes adds to the ints: the event type, the number of attributes and, per
+ * attribute, the name and (for strings) the value; to the kinds: one kind per attribute, see
+ * <code>KIND_*</code>; and to the doubles: the numeric values.
+ */
+public class EventWriterBinary implements EventWriter, BasicEventHandler {
+
+	public static final int MAGIC = 0x4d455642; // "MEVB"
+	public static final int VERSION = 2;
+	public static final int BLOCK_SIZE = 32768;
+
+	public static final byte KIND_STRING = 0;
+	public static final byte KIND_DOUBLE = 1;
+
+	public static final byte CODE_ATTRIBUTES = 0;
+	public static final byte CODE_LINK_ENTER = 1;
+	public static final byte CODE_LINK_LEAVE = 2;
+	public static final byte CODE_VEHICLE_ENTERS_TRAFFIC = 3;
+	public static final byte CODE_VEHICLE_LEAVES_TRAFFIC = 4;
+	public static final byte CODE_ACTIVITY_START = 5;
+	public static final byte CODE_ACTIVITY_END = 6;
+	public static final byte CODE_PERSON_DEPARTURE = 7;
+	public static final byte CODE_PERSON_ARRIVAL = 8;
+	public static final byte CODE_PERSON_STUCK = 9;
+	public static final byte CODE_VEHICLE_ABORTS = 10;
+	public static final byte CODE_PERSON_MONEY = 11;
+	public static final byte CODE_PERSON_ENTERS_VEHICLE = 12;
+	public static final byte CODE_PERSON_LEAVES_VEHICLE = 13;
+	public static final byte CODE_TELEPORTATION_ARRIVAL = 14;
+	public static final byte CODE_VEHICLE_ARRIVES_AT_FACILITY = 15;
+	public static final byte CODE_VEHICLE_DEPARTS_AT_FACILITY = 16;
+	public static final byte CODE_TRANSIT_DRIVER_STARTS = 17;
+	public static final byte CODE_BOARDING_DENIED = 18;
+	public static final byte CODE_AGENT_WAITING_FOR_PT = 19;
+
+	private final DataOutputStream out;
+	private final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+
+	private final Map<String, Integer> dictionary = new HashMap<>();
+	// ids are unique objects, so they can be looked up by identity instead of by their strings
+	private final Map<Id<?>, Integer> idIndices = new IdentityHashMap<>();
+	private final List<String> newDictionaryEntries = new ArrayList<>();
+
+	private int eventCount = 0;
+	private final byte[] codes = new byte[BLOCK_SIZE];
+	private final double[] times = new double[BLOCK_SIZE];
+
+	private int intCount = 0;
+	private int[] ints = new int[BLOCK_SIZE * 4];
+	private int kindCount = 0;
+	private byte[] kinds = new byte[BLOCK_SIZE];
+	private int doubleCount = 0;
+	private double[] doubles = new double[BLOCK_SIZE];
+
+	private final ByteArrayOutputStream blockBuffer = new ByteArrayOutputStream(BLOCK_SIZE * 32);
+	private byte[] compressed = new byte[0];
+
+	public EventWriterBinary(final String outfilename) {
+		this(IOUtils.getOutputStream(outfilename));
+	}
+
+	public EventWriterBinary(final OutputStream stream) {
+		this.out = new DataOutputStream(stream);
+		try {
+			this.out.writeInt(MAGIC);
+			this.out.writeInt(VERSION);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void handleEvent(final Event event) {
+		int index = this.eventCount;
+		this.times[index] = event.getTime();
+		this.codes[index] = addFields(event);
+		this.eventCount++;
+		if (this.eventCount == BLOCK_SIZE) {
+			writeBlock();
+		}
+	}
+
+	/**
+	 * Only events of exactly the known classes are stored field by field, as subclasses may have additional
+	 * fields or attributes.
+	 */
+	@SuppressWarnings("deprecation")
+	private byte addFields(final Event event) {
+		Class<? extends Event> type = event.getClass();
+		if (type == LinkEnterEvent.class) {
+			LinkEnterEvent e = (LinkEnterEvent) event;
+			addId(e.getVehicleId());
+			addId(e.getLinkId());
+			return CODE_LINK_ENTER;
+		} else if (type == LinkLeaveEvent.class) {
+			LinkLeaveEvent e = (LinkLeaveEvent) event;
+			addId(e.getVehicleId());
+			addId(e.getLinkId());
+			return CODE_LINK_LEAVE;
+		} else if (type == VehicleEntersTrafficEvent.class) {
+			VehicleEntersTrafficEvent e = (VehicleEntersTrafficEvent) event;
+			addId(e.getPersonId());
+			addId(e.getLinkId());
+			addId(e.getVehicleId());
+			addString(e.getNetworkMode());
+			addDouble(e.getRelativePositionOnLink());
+			return CODE_VEHICLE_ENTERS_TRAFFIC;
+		} else if (type == VehicleLeavesTrafficEvent.class) {
+			VehicleLeavesTrafficEvent e = (VehicleLeavesTrafficEvent) event;
+			addId(e.getPersonId());
+			addId(e.getLinkId());
+			addId(e.getVehicleId());
+			addString(e.getNetworkMode());
+			addDouble(e.getRelativePositionOnLink());
+			return CODE_VEHICLE_LEAVES_TRAFFIC;
+		} else if (type == ActivityStartEvent.class) {
+			ActivityStartEvent e = (ActivityStartEvent) event;
+			addId(e.getPersonId());
+			addId(e.getLinkId());
+			addId(e.getFacilityId());
+			addString(e.getActType());
+			return CODE_ACTIVITY_START;
+		} else if (type == ActivityEndEvent.class) {
+			ActivityEndEvent e = (ActivityEndEvent) event;
+			addId(e.getPersonId());
+			addId(e.getLinkId());
+			addId(e.getFacilityId());
+			addString(e.getActType());
+			return CODE_ACTIVITY_END;
+		} else if (type == PersonDepartureEvent.class) {
+			PersonDepartureEvent e = (PersonDepartureEvent) event;
+			addId(e.getPersonId());
+			addId(e.getLinkId());
+			addString(e.getLegMode());
+			return CODE_PERSON_DEPARTURE;
+		} else if (type == PersonArrivalEvent.class) {
+			PersonArrivalEvent e = (PersonArrivalEvent) event;
+			addId(e.getPersonId());
+			addId(e.getLinkId());
+			addString(e.getLegMode());
+			return CODE_PERSON_ARRIVAL;
+		} else if (type == PersonStuckEvent.class) {
+			PersonStuckEvent e = (PersonStuckEvent) event;
+			addId(e.getPersonId());
+			addId(e.getLinkId());
+			addString(e.getLegMode());
+			return CODE_PERSON_STUCK;
+		} else if (type == VehicleAbortsEvent.class) {
+			VehicleAbortsEvent e = (VehicleAbortsEvent) event;
+			addId(e.getVehicleId());
+			addId(e.getLinkId());
+			return CODE_VEHICLE_ABORTS;
+		} else if (type == PersonMoneyEvent.class) {
+			PersonMoneyEvent e = (PersonMoneyEvent) event;
+			addId(e.getPersonId());
+			addDouble(e.getAmount());
+			return CODE_PERSON_MONEY;
+		} else if (type == PersonEntersVehicleEvent.class) {
+			PersonEntersVehicleEvent e = (PersonEntersVehicleEvent) event;
+			addId(e.getPersonId());
+			addId(e.getVehicleId());
+			return CODE_PERSON_ENTERS_VEHICLE;
+		} else if (type == PersonLeavesVehicleEvent.class) {
+			PersonLeavesVehicleEvent e = (PersonLeavesVehicleEvent) event;
+			addId(e.getPersonId());
+			addId(e.getVehicleId());
+			return CODE_PERSON_LEAVES_VEHICLE;
+		} else if (type == TeleportationArrivalEvent.class) {
+			TeleportationArrivalEvent e = (TeleportationArrivalEvent) event;
+			addId(e.getPersonId());
+			addDouble(e.getDistance());
+			return CODE_TELEPORTATION_ARRIVAL;
+		} else if (type == VehicleArrivesAtFacilityEvent.class) {
+			VehicleArrivesAtFacilityEvent e = (VehicleArrivesAtFacilityEvent) event;
+			addId(e.getVehicleId());
+			addId(e.getFacilityId());
+			addDouble(e.getDelay());
+			return CODE_VEHICLE_ARRIVES_AT_FACILITY;
+		} else if (type == VehicleDepartsAtFacilityEvent.class) {
+			VehicleDepartsAtFacilityEvent e = (VehicleDepartsAtFacilityEvent) event;
+			addId(e.getVehicleId());
+			addId(e.getFacilityId());
+			addDouble(e.getDelay());
+			return CODE_VEHICLE_DEPARTS_AT_FACILITY;
+		} else if (type == TransitDriverStartsEvent.class) {
+			TransitDriverStartsEvent e = (TransitDriverStartsEvent) event;
+			addId(e.getDriverId());
+			addId(e.getVehicleId());
+			addId(e.getTransitLineId());
+			addId(e.getTransitRouteId());
+			addId(e.getDepartureId());
+			return CODE_TRANSIT_DRIVER_STARTS;
+		} else if (type == BoardingDeniedEvent.class) {
+			BoardingDeniedEvent e = (BoardingDeniedEvent) event;
+			addId(e.getPersonId());
+			addId(e.getVehicleId());
+			return CODE_BOARDING_DENIED;
+		} else if (type == AgentWaitingForPtEvent.class) {
+			AgentWaitingForPtEvent e = (AgentWaitingForPtEvent) event;
+			addId(e.getPersonId());
+			addId(e.getWaitingAtStopId());
+			addId(e.getDestinationStopId());
+			return CODE_AGENT_WAITING_FOR_PT;
+		}
+		addAttributes(event);
+		return CODE_ATTRIBUTES;
+	}
+
+	@Override
+	public void reset(final int iter) {
+	}
+
+	@Override
+	public void closeFile() {
+		try {
+			if (this.eventCount > 0) {
+				writeBlock();
+			}
+			this.out.writeInt(0);
+			this.out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void addAttributes(final Event event) {
+		addString(event.getEventType());
+		int countIndex = this.intCount;
+		addInt(0);
+		int count = 0;
+		for (Map.Entry<String, String> entry : event.getAttributes().entrySet()) {
+			String key = entry.getKey();
+			if (Event.ATTRIBUTE_TIME.equals(key) || Event.ATTRIBUTE_TYPE.equals(key)) {
+				continue;
+			}
+			addString(key);
+			String value = entry.getValue();
+			if (isExactDouble(value)) {
+				addKind(KIND_DOUBLE);
+				addDouble(Double.parseDouble(value));
+			} else {
+				addKind(KIND_STRING);
+				addString(value);
+			}
+			count++;
+		}
+		this.ints[countIndex] = count;
+	}
+
+	private void addId(final Id<?> id) {
+		if (id == null) {
+			addInt(-1);
+			return;
+		}
+		Integer index = this.idIndices.get(id);
+		if (index == null) {
+			index = getDictionaryIndex(id.toString());
+			this.idIndices.put(id, index);
+		}
+		addInt(index);
+	}
+
+	private void addString(final String string) {
+		addInt(string == null ? -1 : getDictionaryIndex(string));
+	}
+
+	private void addInt(final int value) {
+		if (this.intCount == this.ints.length) {
+			this.ints = Arrays.copyOf(this.ints, this.ints.length * 2);
+		}
+		this.ints[this.intCount++] = value;
+	}
+
+	private void addKind(final byte kind) {
+		if (this.kindCount == this.kinds.length) {
+			this.kinds = Arrays.copyOf(this.kinds, this.kinds.length * 2);
+		}
+		this.kinds[this.kindCount++] = kind;
+	}
+
+	private void addDouble(final double value) {
+		if (this.doubleCount == this.doubles.length) {
+			this.doubles = Arrays.copyOf(this.doubles, this.doubles.length * 2);
+		}
+		this.doubles[this.doubleCount++] = value;
+	}
+
+	private int getDictionaryIndex(final String string) {
+		Integer index = this.dictionary.get(string);
+		if (index == null) {
+			index = this.dictionary.size();
+			this.dictionary.put(string, index);
+			this.newDictionaryEntries.add(string);
+		}
+		return index;
+	}
+
+	/*
+	 * Returns true if the value looks like a number as written by Double.toString() and converting it
+	 * back results in the same string. The first check avoids the costs of exceptions for ids.
+	 */
+	private static boolean isExactDouble(final String value) {
+		if (value == null || value.isEmpty()) {
+			return false;
+		}
+		boolean hasDot = false;
+		for (int i = 0; i < value.length(); i++) {
+			char ch = value.charAt(i);
+			if (ch == '.') {
+				hasDot = true;
+			} else if (!((ch >= '0' && ch <= '9') || ch == '-' || ch == 'E')) {
+				return false;
+			}
+		}
+		if (!hasDot) {
+			return false;
+		}
+		try {
+			return Double.toString(Double.parseDouble(value)).equals(value);
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	private void writeBlock() {
+		try {
+			this.blockBuffer.reset();
+			DataOutputStream block = new DataOutputStream(this.blockBuffer);
+			block.writeInt(this.eventCount);
+			block.writeInt(this.newDictionaryEntries.size());
+			for (String entry : this.newDictionaryEntries) {
+				byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+				block.writeInt(bytes.length);
+				block.write(bytes);
+			}
+			block.write(this.codes, 0, this.eventCount);
+			for (int i = 0; i < this.eventCount; i++) block.writeDouble(this.times[i]);
+			block.writeInt(this.intCount);
+			block.writeInt(this.kindCount);
+			block.writeInt(this.doubleCount);
+			for (int i = 0; i < this.intCount; i++) block.writeInt(this.ints[i]);
+			block.write(this.kinds, 0, this.kindCount);
+			for (int i = 0; i < this.doubleCount; i++) block.writeDouble(this.doubles[i]);
+			block.flush();
+
+			byte[] raw = this.blockBuffer.toByteArray();
+			int maxLength = this.compressor.maxCompressedLength(raw.length);
+			if (this.compressed.length < maxLength) {
+				this.compressed = new byte[maxLength];
+			}
+			int compressedLength = this.compressor.compress(raw, 0, raw.length, this.compressed, 0, maxLength);
+			this.out.writeInt(raw.length);
+			this.out.writeInt(compressedLength);
+			this.out.write(this.compressed, 0, compressedLength);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		this.newDictionaryEntries.clear();
+		this.eventCount = 0;
+		this.intCount = 0;
+		this.kindCount = 0;
+		this.doubleCount = 0;
+	}
+
+}
@@ -40,6 +40,15 @@ public class EventWriterXML implements EventWriter, BasicEventHandler {
 		this.writeHeader();
 	}
 
+	/**
+	 * @param compressionThreads the number of threads used to compress the file if it ends with ".gz",
+	 * see {@link IOUtils#getOutputStream(String, boolean, int)}
+	 */
+	public EventWriterXML(final String outfilename, final int compressionThreads) {
+		this.out = IOUtils.getBufferedWriter(outfilename, IOUtils.CHARSET_UTF8, false, compressionThreads);
+		this.writeHeader();
+	}
+
 	/**
 	 * Constructor so you can pass System.out or System.err to the writer to see the result on the console.
 	 *
@@ -20,9 +20,11 @@
 
 package org.matsim.core.gbl;
 
+import java.util.List;
 import java.util.Random;
 
 import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
 
 
 /**
@@ -89,6 +91,21 @@ public abstract class MatsimRandom {
 		return r;
 	}
 
+	/**
+	 * Reseeds the given local instances before the object with the given id is handled, so the random numbers drawn for it
+	 * only depend on <code>seed</code> and its id, but not on the thread handling it or on the objects handled before.
+	 * This keeps runs reproducible when the objects are distributed dynamically to several threads. The instances must
+	 * only be used by the calling thread.
+	 */
+	public static void reseedLocalInstances(final List<Random> localInstances, final long seed, final Id<?> id) {
+		long idSeed = seed + 31L * id.toString().hashCode();
+		for (int i = 0; i < localInstances.size(); i++) {
+			Random r = localInstances.get(i);
+			r.setSeed(idSeed + i*23l);
+			prepareRNG(r);
+		}
+	}
+
 	/**
 	 * Draw some random numbers to better initialize the pseudo-random number generator.
 	 *
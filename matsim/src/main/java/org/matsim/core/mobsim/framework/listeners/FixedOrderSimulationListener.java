@@ -118,6 +118,16 @@ public class FixedOrderSimulationListener implements MobsimInitializedListener,
 		}
 	}
 
+	@Override
+	public boolean isNeedingEveryTimeStep() {
+		for(MobsimBeforeSimStepListener listener : simulationBeforeSimStepListener) {
+			if (listener.isNeedingEveryTimeStep()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	public void addSimulationAfterSimStepListener(MobsimAfterSimStepListener listener) {
 		simulationAfterSimStepListener.add(listener);
 	}
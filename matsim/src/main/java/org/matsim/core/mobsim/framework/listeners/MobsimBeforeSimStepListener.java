@@ -31,4 +31,12 @@ public interface MobsimBeforeSimStepListener extends MobsimListener {
 
 	public void notifyMobsimBeforeSimStep(final MobsimBeforeSimStepEvent e);
 
+	/**
+	 * If the QSim skips time steps in which its engines have nothing to do, only listeners returning <code>true</code>
+	 * are notified in these time steps, see {@link org.matsim.core.config.groups.QSimConfigGroup#isSkippingIdleTimeSteps()}.
+	 */
+	default boolean isNeedingEveryTimeStep() {
+		return false;
+	}
+
 }
@@ -0,0 +1,285 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ActivityEndsQueue.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.ObjDoubleConsumer;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+
+/**
+ * The agents performing an activity in the {@link ActivityEngine}, ordered by the end times of their activities.
+ * <p></p>
+ * This is a calendar queue with one bucket per second of simulation time: an agent is appended to the bucket of
+ * the second in which its activity ends, and the agents of a bucket are only sorted once the bucket is due.
+ * Activities ending more than {@link #BUCKET_COUNT} seconds ahead are kept in a priority queue until their bucket
+ * comes into range.
+ * <p></p>
+ * Whether an agent is in the queue, and with which end time, is stored in arrays indexed by the index of its id. So
+ * removing an agent, e.g. when its activity end is rescheduled, does not need to search it in the buckets: its entry
+ * just becomes outdated and is dropped when the bucket is due.
+ * <p></p>
+ * All methods are synchronized, as agents may start activities in several threads of the parallel qsim at the same
+ * time.
+ */
+/*package*/ final class ActivityEndsQueue {
+
+	/*package*/ static final int BUCKET_COUNT = 1 << 17; // about 36 hours
+
+	private final Bucket[] buckets = new Bucket[BUCKET_COUNT];
+	private final PriorityQueue<LaterEntry> laterEntries = new PriorityQueue<>(
+			(e0, e1) -> Long.compare(e0.second, e1.second));
+	/** all buckets before this second are empty, and this bucket also contains all entries from before */
+	private long firstSecond = 0;
+	private int bucketEntryCount = 0;
+	/** all buckets from firstSecond up to before this second are known to be empty, see getNextActivityEndTime() */
+	private long emptyUntilSecond = 0;
+
+	// per agent, indexed by the index of its id
+	private MobsimAgent[] agents = new MobsimAgent[Math.max(16, Id.getNumberOfIds(Person.class))];
+	private double[] activityEndTimes = new double[this.agents.length];
+	private int[] versions = new int[this.agents.length];
+
+	private final Comparator<MobsimAgent> comparator = (agent0, agent1) -> {
+		int cmp = Double.compare(this.activityEndTimes[agent0.getId().index()], this.activityEndTimes[agent1.getId().index()]);
+		if (cmp == 0) {
+			// Both depart at the same time -> let the one with the larger id be first (=smaller)
+			//
+			// yy We are not sure what the above comment line is supposed to say.  Presumably, it is supposed
+			// to say that the agent with the larger ID should be "smaller" one in the comparison.
+			// In practice, it seems
+			// that something like "emob_9" is before "emob_8", and something like "emob_10" before "emob_1".
+			// It is unclear why this convention is supposed to be helpful.
+			// kai & dominik, jul'12
+			//
+			return agent1.getId().compareTo(agent0.getId());
+		}
+		return cmp;
+	};
+
+	/*package*/ synchronized void add(final MobsimAgent agent, final double activityEndTime) {
+		int index = agent.getId().index();
+		if (index >= this.agents.length) {
+			int length = Math.max(index + 1, 2 * this.agents.length);
+			this.agents = Arrays.copyOf(this.agents, length);
+			this.activityEndTimes = Arrays.copyOf(this.activityEndTimes, length);
+			this.versions = Arrays.copyOf(this.versions, length);
+		}
+		if (this.agents[index] != null && this.agents[index] != agent) {
+			throw new IllegalStateException("Another agent with the same id index as " + agent.getId()
+					+ " is already performing an activity. Are there agent ids which were not created for Person.class?");
+		}
+		this.agents[index] = agent;
+		this.activityEndTimes[index] = activityEndTime;
+		int version = ++this.versions[index];
+
+		long second = Math.max(this.firstSecond, toSecond(activityEndTime));
+		if (second - this.firstSecond >= BUCKET_COUNT) {
+			this.laterEntries.add(new LaterEntry(agent, version, second));
+		} else {
+			addToBucket(agent, version, second);
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the agent was in the queue.
+	 */
+	/*package*/ synchronized boolean remove(final MobsimAgent agent) {
+		int index = agent.getId().index();
+		if (index >= this.agents.length || this.agents[index] != agent) {
+			return false;
+		}
+		this.agents[index] = null;
+		this.versions[index]++;
+		return true;
+	}
+
+	/**
+	 * Removes the agent only if its activity ends at or before the given time.
+	 *
+	 * @return <code>true</code> if the agent was removed.
+	 */
+	/*package*/ synchronized boolean removeIfDue(final MobsimAgent agent, final double time) {
+		int index = agent.getId().index();
+		return index < this.agents.length && this.agents[index] == agent && this.activityEndTimes[index] <= time
+				&& remove(agent);
+	}
+
+	/**
+	 * Adds the agents whose activities end at or before the given time to <code>dueAgents</code>, in the order in
+	 * which they should end their activities. The agents stay in the queue until they are removed, so the caller
+	 * can check with {@link #removeIfDue(MobsimAgent, double)} whether they are still due when it handles them.
+	 */
+	/*package*/ synchronized void collectDueAgents(final double time, final List<MobsimAgent> dueAgents) {
+		long second = toSecond(time);
+		while (this.firstSecond < second) {
+			if (this.bucketEntryCount == 0) {
+				// skip the empty buckets at once
+				long nextSecond = this.laterEntries.isEmpty() ? second : this.laterEntries.peek().second;
+				if (nextSecond >= second) {
+					this.firstSecond = second;
+					moveLaterEntriesToBuckets();
+					break;
+				}
+				this.firstSecond = nextSecond;
+				moveLaterEntriesToBuckets();
+			}
+			collectDueAgents(this.firstSecond, Double.POSITIVE_INFINITY, dueAgents);
+			this.firstSecond++;
+			moveLaterEntriesToBuckets();
+		}
+		collectDueAgents(this.firstSecond, time, dueAgents);
+	}
+
+	private void collectDueAgents(final long second, final double time, final List<MobsimAgent> dueAgents) {
+		Bucket bucket = this.buckets[(int) (second & (BUCKET_COUNT - 1))];
+		if (bucket == null || bucket.size == 0) {
+			return;
+		}
+		int firstDueAgent = dueAgents.size();
+		int kept = 0;
+		for (int i = 0; i < bucket.size; i++) {
+			MobsimAgent agent = bucket.agents[i];
+			int index = agent.getId().index();
+			if (this.agents[index] != agent || this.versions[index] != bucket.versions[i]) {
+				continue; // outdated
+			}
+			if (this.activityEndTimes[index] <= time) {
+				dueAgents.add(agent);
+			} else {
+				bucket.agents[kept] = agent;
+				bucket.versions[kept] = bucket.versions[i];
+				kept++;
+			}
+		}
+		Arrays.fill(bucket.agents, kept, bucket.size, null);
+		this.bucketEntryCount -= bucket.size - kept;
+		bucket.size = kept;
+		dueAgents.subList(firstDueAgent, dueAgents.size()).sort(this.comparator);
+	}
+
+	/**
+	 * @return a lower bound of the earliest activity end time in the queue, namely the second in which it ends, or
+	 * {@link Double#POSITIVE_INFINITY} if the queue is empty. Outdated entries may make the bound earlier than necessary.
+	 */
+	/*package*/ synchronized double getNextActivityEndTime() {
+		if (this.bucketEntryCount == 0) {
+			while (!this.laterEntries.isEmpty() && isOutdated(this.laterEntries.peek())) {
+				this.laterEntries.poll();
+			}
+			return this.laterEntries.isEmpty() ? Double.POSITIVE_INFINITY : this.laterEntries.peek().second;
+		}
+		// the buckets contain entries, so one of them is found within BUCKET_COUNT seconds
+		for (long second = Math.max(this.firstSecond, this.emptyUntilSecond); ; second++) {
+			Bucket bucket = this.buckets[(int) (second & (BUCKET_COUNT - 1))];
+			if (bucket != null && bucket.size > 0) {
+				this.emptyUntilSecond = second;
+				return second;
+			}
+		}
+	}
+
+	/**
+	 * Removes all agents from the queue, and passes them to the consumer together with their activity end times, in
+	 * the order in which they would have ended their activities.
+	 */
+	/*package*/ synchronized void removeAll(final ObjDoubleConsumer<MobsimAgent> consumer) {
+		List<MobsimAgent> remainingAgents = new ArrayList<>();
+		for (MobsimAgent agent : this.agents) {
+			if (agent != null) {
+				remainingAgents.add(agent);
+			}
+		}
+		remainingAgents.sort(this.comparator);
+		for (MobsimAgent agent : remainingAgents) {
+			consumer.accept(agent, this.activityEndTimes[agent.getId().index()]);
+		}
+		Arrays.fill(this.agents, null);
+		Arrays.fill(this.buckets, null);
+		this.laterEntries.clear();
+		this.bucketEntryCount = 0;
+		this.firstSecond = 0;
+		this.emptyUntilSecond = 0;
+	}
+
+	private void moveLaterEntriesToBuckets() {
+		while (!this.laterEntries.isEmpty() && this.laterEntries.peek().second - this.firstSecond < BUCKET_COUNT) {
+			LaterEntry entry = this.laterEntries.poll();
+			addToBucket(entry.agent, entry.version, entry.second);
+		}
+	}
+
+	private void addToBucket(final MobsimAgent agent, final int version, final long second) {
+		int bucketIndex = (int) (second & (BUCKET_COUNT - 1));
+		Bucket bucket = this.buckets[bucketIndex];
+		if (bucket == null) {
+			bucket = new Bucket();
+			this.buckets[bucketIndex] = bucket;
+		}
+		bucket.add(agent, version);
+		this.bucketEntryCount++;
+		this.emptyUntilSecond = Math.min(this.emptyUntilSecond, second);
+	}
+
+	private boolean isOutdated(final LaterEntry entry) {
+		int index = entry.agent.getId().index();
+		return this.agents[index] != entry.agent || this.versions[index] != entry.version;
+	}
+
+	private static long toSecond(final double time) {
+		return (long) Math.floor(time);
+	}
+
+	private static final class Bucket {
+		MobsimAgent[] agents = new MobsimAgent[4];
+		int[] versions = new int[4];
+		int size = 0;
+
+		void add(final MobsimAgent agent, final int version) {
+			if (this.size == this.agents.length) {
+				this.agents = Arrays.copyOf(this.agents, 2 * this.size);
+				this.versions = Arrays.copyOf(this.versions, 2 * this.size);
+			}
+			this.agents[this.size] = agent;
+			this.versions[this.size] = version;
+			this.size++;
+		}
+	}
+
+	private static final class LaterEntry {
+		final MobsimAgent agent;
+		final int version;
+		final long second;
+
+		LaterEntry(final MobsimAgent agent, final int version, final long second) {
+			this.agent = agent;
+			this.version = version;
+			this.second = second;
+		}
+	}
+
+}
@@ -103,6 +103,12 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 		handleTeleportationArrivals();
 	}
 
+	@Override
+	public double getNextRelevantTime() {
+		Tuple<Double, MobsimAgent> entry = teleportationList.peek();
+		return entry == null ? Double.POSITIVE_INFINITY : entry.getFirst();
+	}
+
 	private void handleTeleportationArrivals() {
 		double now = internalInterface.getMobsim().getSimTimer().getTimeOfDay();
 		while (teleportationList.peek() != null) {
@@ -107,4 +107,28 @@ class MobsimListenerManager implements MatsimManager {
         }
 	}
 
+	/**
+	 * Creates the event and notifies only the listeners which need, or which do not need, every time step.
+	 *
+	 * @see MobsimBeforeSimStepListener#isNeedingEveryTimeStep()
+	 */
+	public void fireQueueSimulationBeforeSimStepEvent(double time, boolean needingEveryTimeStep) {
+		MobsimBeforeSimStepEvent<Mobsim> event = new MobsimBeforeSimStepEvent<>(sim, time);
+		MobsimBeforeSimStepListener[] listener = this.listenerList.getListeners(MobsimBeforeSimStepListener.class);
+		for (MobsimBeforeSimStepListener aListener : listener) {
+			if (aListener.isNeedingEveryTimeStep() == needingEveryTimeStep) {
+				aListener.notifyMobsimBeforeSimStep(event);
+			}
+		}
+	}
+
+	public boolean hasBeforeSimStepListenersNeedingEveryTimeStep() {
+		for (MobsimBeforeSimStepListener aListener : this.listenerList.getListeners(MobsimBeforeSimStepListener.class)) {
+			if (aListener.isNeedingEveryTimeStep()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 }
@@ -338,11 +338,60 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		if (analyzeRunTimes) this.startTime = System.nanoTime();
 
 		final double now = this.getSimTimer().getTimeOfDay();
+		final QSimConfigGroup qsimConfigGroup = this.scenario.getConfig().qsim();
 
-		this.listenerManager.fireQueueSimulationBeforeSimStepEvent(now);
+		/*
+		 * If no engine has anything to do in this time step, only the listeners which need every time step are notified.
+		 * They might give the engines something to do, so check again afterwards.
+		 */
+		boolean idle = qsimConfigGroup.isSkippingIdleTimeSteps() && getNextRelevantTime() > now;
+		if (idle) {
+			this.listenerManager.fireQueueSimulationBeforeSimStepEvent(now, true);
+			idle = getNextRelevantTime() > now;
+			if (!idle) {
+				this.listenerManager.fireQueueSimulationBeforeSimStepEvent(now, false);
+			}
+		} else {
+			this.listenerManager.fireQueueSimulationBeforeSimStepEvent(now);
+		}
 		
 		if (analyzeRunTimes) this.qSimInternalTime += System.nanoTime() - this.startTime;
 		
+		if (!idle) {
+			doEngineSimSteps(now);
+		}
+
+		if (analyzeRunTimes) this.startTime = System.nanoTime();
+		
+		// console printout:
+		this.printSimLog(now);
+		boolean doContinue =  (this.agentCounter.isLiving() && (this.stopTime > now));
+		if (!idle) {
+			this.events.afterSimStep(now);
+			this.listenerManager.fireQueueSimulationAfterSimStepEvent(now);
+		}
+
+		if ( qsimConfigGroup.getSimEndtimeInterpretation()==EndtimeInterpretation.onlyUseEndtime ) {
+			if ( now > qsimConfigGroup.getEndTime() ) {
+				doContinue = false ;
+			} else {
+				doContinue = true ;
+			}
+		}
+
+		if (doContinue) {
+			this.simTimer.incrementTime();
+			if (qsimConfigGroup.isSkippingIdleTimeSteps() && !this.listenerManager.hasBeforeSimStepListenersNeedingEveryTimeStep()) {
+				skipIdleTimeSteps();
+			}
+		}
+		
+		if (analyzeRunTimes) this.qSimInternalTime += System.nanoTime() - this.startTime;
+
+		return doContinue;
+	}
+
+	private void doEngineSimSteps(final double now) {
 		/*
 		 * The WithinDayEngine has to perform its replannings before
 		 * the other engines simulate the sim step.
@@ -364,31 +413,37 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 			
 			if (analyzeRunTimes) this.mobsimEngineRunTimes.get(mobsimEngine).addAndGet(System.nanoTime() - this.startTime);
 		}
+	}
 
-		if (analyzeRunTimes) this.startTime = System.nanoTime();
-		
-		// console printout:
-		this.printSimLog(now);
-		boolean doContinue =  (this.agentCounter.isLiving() && (this.stopTime > now));
-		this.events.afterSimStep(now);
-		this.listenerManager.fireQueueSimulationAfterSimStepEvent(now);
+	/**
+	 * @return the earliest time at which one of the engines has something to do, see {@link MobsimEngine#getNextRelevantTime()}
+	 */
+	private double getNextRelevantTime() {
+		double nextRelevantTime = Double.POSITIVE_INFINITY;
+		for (MobsimEngine mobsimEngine : this.mobsimEngines) {
+			nextRelevantTime = Math.min(nextRelevantTime, mobsimEngine.getNextRelevantTime());
+			if (nextRelevantTime == Double.NEGATIVE_INFINITY) {
+				break;
+			}
+		}
+		return nextRelevantTime;
+	}
 
+	/**
+	 * Moves the sim timer forward to the last time step not after the next relevant time of the engines.  Never moves it
+	 * beyond the end time, so the simulation still ends in the same time step as without skipping.
+	 */
+	private void skipIdleTimeSteps() {
+		final double now = this.simTimer.getTimeOfDay();
+		final double stepSize = this.simTimer.getSimTimestepSize();
+		double nextTime = Math.min(getNextRelevantTime(), this.stopTime);
 		final QSimConfigGroup qsimConfigGroup = this.scenario.getConfig().qsim();
 		if ( qsimConfigGroup.getSimEndtimeInterpretation()==EndtimeInterpretation.onlyUseEndtime ) {
-			if ( now > qsimConfigGroup.getEndTime() ) {
-				doContinue = false ;
-			} else {
-				doContinue = true ;
-			}
+			nextTime = Math.min(nextTime, qsimConfigGroup.getEndTime() + stepSize);
 		}
-
-		if (doContinue) {
-			this.simTimer.incrementTime();
+		if (nextTime >= now + stepSize) {
+			this.simTimer.setTime(now + Math.floor((nextTime - now) / stepSize) * stepSize);
 		}
-		
-		if (analyzeRunTimes) this.qSimInternalTime += System.nanoTime() - this.startTime;
-
-		return doContinue;
 	}
 
 	public void insertAgentIntoMobsim(final MobsimAgent agent) {
@@ -497,7 +552,8 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 	private void printSimLog(final double time) {
 		if (time >= this.infoTime) {
 			//		if(true){
-			this.infoTime += INFO_PERIOD;
+			// (more than one period if time steps were skipped; the time may be infinite if no agent has anything to do)
+			this.infoTime = (Math.floor(time / INFO_PERIOD) + 1) * INFO_PERIOD;
 			Date endtime = new Date();
 			long diffreal = (endtime.getTime() - this.realWorldStarttime
 					.getTime()) / 1000;
@@ -101,4 +101,10 @@ class NetworkChangeEventsEngine implements NetworkChangeEventsEngineI {
 	public void doSimStep(double time) {
 
 	}
+
+	@Override
+	public double getNextRelevantTime() {
+		// the change events are applied by the MessageQueueEngine
+		return Double.POSITIVE_INFINITY;
+	}
 }
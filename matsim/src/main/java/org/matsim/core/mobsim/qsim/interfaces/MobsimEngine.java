@@ -19,6 +19,7 @@
  * *********************************************************************** */
 package org.matsim.core.mobsim.qsim.interfaces;
 
+import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.mobsim.framework.Steppable;
 import org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener;
 import org.matsim.core.mobsim.qsim.InternalInterface;
@@ -47,4 +48,17 @@ public interface MobsimEngine extends Steppable, QSimComponent {
   
   void setInternalInterface(InternalInterface internalInterface);
 
+  /**
+   * Tells the QSim from which time on this engine has something to do, so that it may skip the time steps before if
+   * {@link QSimConfigGroup#isSkippingIdleTimeSteps()} is set.  The returned time is a lower bound: it is asked again
+   * after every simulated time step, since other engines may hand agents over to this engine in the meantime.
+   *
+   * @return the earliest time at which {@link #doSimStep(double)} needs to be called again, {@link Double#POSITIVE_INFINITY}
+   * if there is nothing to do at all, or {@link Double#NEGATIVE_INFINITY} (the default) if it needs to be called in every time step.
+   */
+  default double getNextRelevantTime() {
+    return Double.NEGATIVE_INFINITY;
+  }
+
+
 }
@@ -45,4 +45,11 @@ public class SteppableScheduler extends Scheduler implements Steppable {
         return finished;
     }
 
+    /**
+     * @return true if there are messages which have not been handled yet, also if they are not due yet.
+     */
+    public boolean hasPendingMessages() {
+        return lookahead != null || !queue.isEmpty();
+    }
+
 }
@@ -20,4 +20,10 @@ class MessageQueueEngine implements MobsimBeforeSimStepListener {
 		scheduler.doSimStep(e.getSimulationTime());
 	}
 
+	@Override
+	public boolean isNeedingEveryTimeStep() {
+		// the messages, e.g. network change events, must be handled in time even if nothing else happens
+		return scheduler.hasPendingMessages();
+	}
+
 }
@@ -0,0 +1,81 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactQNetworkFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import javax.inject.Inject;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.QSimConfigGroup;
+import org.matsim.core.config.groups.QSimConfigGroup.LinkDynamics;
+import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QNetsimEngine.NetsimInternalInterface;
+import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
+
+/**
+ * Like {@link DefaultQNetworkFactory}, but the links use {@link CompactQueueWithBuffer} instead of {@link QueueWithBuffer}.
+ * Used instead of the default if {@link QSimConfigGroup#isUsingCompactLinkQueues()} is set, see {@link QNetsimEngineModule}.
+ */
+public final class CompactQNetworkFactory extends QNetworkFactory {
+	private final EventsManager events ;
+	private final Scenario scenario ;
+	private NetsimEngineContext context;
+	private NetsimInternalInterface netsimEngine ;
+	private QVehicleTable vehicles ;
+	@Inject
+	CompactQNetworkFactory( EventsManager events, Scenario scenario ) {
+		if ( scenario.getConfig().qsim().getLinkDynamics() != LinkDynamics.FIFO ) {
+			throw new RuntimeException( "compact link queues are only available with link dynamics " + LinkDynamics.FIFO
+					+ ", but link dynamics is " + scenario.getConfig().qsim().getLinkDynamics() ) ;
+		}
+		this.events = events;
+		this.scenario = scenario;
+	}
+	@Override
+	void initializeFactory( AgentCounter agentCounter, MobsimTimer mobsimTimer, NetsimInternalInterface netsimEngine1 ) {
+		this.netsimEngine = netsimEngine1;
+		double effectiveCellSize = scenario.getNetwork().getEffectiveCellSize() ;
+
+		SnapshotLinkWidthCalculator linkWidthCalculator = new SnapshotLinkWidthCalculator();
+		linkWidthCalculator.setLinkWidthForVis( scenario.getConfig().qsim().getLinkWidthForVis() );
+		linkWidthCalculator.setLaneWidth( scenario.getNetwork().getEffectiveLaneWidth() );
+
+		AbstractAgentSnapshotInfoBuilder agentSnapshotInfoBuilder = QNetsimEngine.createAgentSnapshotInfoBuilder( scenario, linkWidthCalculator );
+
+		context = new NetsimEngineContext( events, effectiveCellSize, agentCounter, agentSnapshotInfoBuilder, scenario.getConfig().qsim(),
+				mobsimTimer, linkWidthCalculator );
+		vehicles = new QVehicleTable() ;
+	}
+	@Override
+	QLinkI createNetsimLink(final Link link, final QNodeI toQueueNode) {
+		QLinkImpl.Builder linkBuilder = new QLinkImpl.Builder(context, netsimEngine) ;
+		linkBuilder.setLaneFactory( new CompactQueueWithBuffer.Builder( context, vehicles ) );
+		return linkBuilder.build(link, toQueueNode) ;
+	}
+	@Override
+	QNodeI createNetsimNode(final Node node) {
+		QNodeImpl.Builder builder = new QNodeImpl.Builder( netsimEngine, context ) ;
+		return builder.build( node ) ;
+	}
+}
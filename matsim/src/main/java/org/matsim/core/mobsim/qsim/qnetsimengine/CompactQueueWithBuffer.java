@@ -0,0 +1,852 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactQueueWithBuffer.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.Queue;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.VehicleAbortsEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.config.groups.QSimConfigGroup.LinkDynamics;
+import org.matsim.core.config.groups.QSimConfigGroup.TrafficDynamics;
+import org.matsim.core.gbl.Gbl;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.mobsim.framework.MobsimDriverAgent;
+import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
+import org.matsim.core.mobsim.qsim.interfaces.SignalGroupState;
+import org.matsim.core.mobsim.qsim.interfaces.SignalizeableItem;
+import org.matsim.core.mobsim.qsim.pt.TransitDriverAgent;
+import org.matsim.core.mobsim.qsim.qnetsimengine.AbstractQLink.HandleTransitStopResult;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QLinkImpl.LaneFactory;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.lanes.Lane;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vis.snapshotwriters.AgentSnapshotInfo;
+
+/**
+ * A variant of {@link QueueWithBuffer} with the same traffic flow dynamics, but a more compact storage:<ul>
+ * <li> The vehicles on the lane and in its buffer are kept in ring buffers of vehicle indices (see {@link QVehicleTable}),
+ * the queue together with the earliest exit times of its vehicles in a parallel <code>double</code> array.  So moving
+ * the queue to the buffer only reads the next exit time until a vehicle actually leaves.
+ * <li> Holes are kept in ring buffers of their exit times and sizes instead of one object per hole.
+ * <li> The flow and storage capacities and their accumulators are in the {@link LinkCapacityAccumulators} of the runner
+ * which simulates the link.
+ * </ul>
+ * Only supports {@link LinkDynamics#FIFO}, since passing and seepage need to reorder the queue.  See
+ * {@link CompactQNetworkFactory}.
+ */
+final class CompactQueueWithBuffer implements QLaneI, SignalizeableItem {
+	private static final Logger log = Logger.getLogger( CompactQueueWithBuffer.class ) ;
+
+	static final class Builder implements LaneFactory {
+		private final NetsimEngineContext context;
+		private final QVehicleTable vehicles;
+		Builder( final NetsimEngineContext context, final QVehicleTable vehicles ) {
+			this.context = context ;
+			this.vehicles = vehicles ;
+		}
+		@Override public CompactQueueWithBuffer createLane( AbstractQLink qLink ) {
+			Link link = qLink.getLink() ;
+			return new CompactQueueWithBuffer( qLink.getInternalInterface(), vehicles, Id.create( link.getId(), Lane.class ),
+					link.getLength(), link.getNumberOfLanes(), link.getFlowCapacityPerSec(), context ) ;
+		}
+	}
+
+	/**
+	 * A FIFO queue of vehicle indices together with a <code>double</code> per vehicle, in two parallel ring buffers.
+	 */
+	static final class IndexQueue {
+		private int[] indices = new int[4];
+		private double[] times = new double[4];
+		private int head = 0;
+		private int size = 0;
+
+		void addLast( final int index, final double time ) {
+			if ( size == indices.length ) grow() ;
+			int pos = ( head + size ) & ( indices.length - 1 ) ;
+			indices[pos] = index ;
+			times[pos] = time ;
+			size++ ;
+		}
+
+		void addFirst( final int index, final double time ) {
+			if ( size == indices.length ) grow() ;
+			head = ( head - 1 ) & ( indices.length - 1 ) ;
+			indices[head] = index ;
+			times[head] = time ;
+			size++ ;
+		}
+
+		int firstIndex() {
+			return indices[head] ;
+		}
+
+		double firstTime() {
+			return times[head] ;
+		}
+
+		void setFirstTime( final double time ) {
+			times[head] = time ;
+		}
+
+		void removeFirst() {
+			head = ( head + 1 ) & ( indices.length - 1 ) ;
+			size-- ;
+		}
+
+		/**
+		 * @return the index of the i-th element, counted from the first one
+		 */
+		int index( final int i ) {
+			return indices[( head + i ) & ( indices.length - 1 )] ;
+		}
+
+		int size() {
+			return size ;
+		}
+
+		boolean isEmpty() {
+			return size == 0 ;
+		}
+
+		void clear() {
+			head = 0 ;
+			size = 0 ;
+		}
+
+		private void grow() {
+			// the length stays a power of two, so that positions can be wrapped by masking
+			int[] newIndices = new int[2 * indices.length] ;
+			double[] newTimes = new double[2 * times.length] ;
+			int firstPart = Math.min( size, indices.length - head ) ;
+			System.arraycopy( indices, head, newIndices, 0, firstPart ) ;
+			System.arraycopy( indices, 0, newIndices, firstPart, size - firstPart ) ;
+			System.arraycopy( times, head, newTimes, 0, firstPart ) ;
+			System.arraycopy( times, 0, newTimes, firstPart, size - firstPart ) ;
+			indices = newIndices ;
+			times = newTimes ;
+			head = 0 ;
+		}
+	}
+
+	/**
+	 * A FIFO queue of holes, i.e. their earliest link exit times and their sizes in two parallel ring buffers.
+	 */
+	static final class HoleQueue {
+		private double[] exitTimes = new double[4];
+		private double[] sizes = new double[4];
+		private int head = 0;
+		private int size = 0;
+
+		void addLast( final double exitTime, final double sizeInEquivalents ) {
+			if ( size == exitTimes.length ) grow() ;
+			int pos = ( head + size ) & ( exitTimes.length - 1 ) ;
+			exitTimes[pos] = exitTime ;
+			sizes[pos] = sizeInEquivalents ;
+			size++ ;
+		}
+
+		double firstExitTime() {
+			return exitTimes[head] ;
+		}
+
+		double firstSize() {
+			return sizes[head] ;
+		}
+
+		void removeFirst() {
+			head = ( head + 1 ) & ( exitTimes.length - 1 ) ;
+			size-- ;
+		}
+
+		double exitTime( final int i ) {
+			return exitTimes[( head + i ) & ( exitTimes.length - 1 )] ;
+		}
+
+		double sizeInEquivalents( final int i ) {
+			return sizes[( head + i ) & ( sizes.length - 1 )] ;
+		}
+
+		int size() {
+			return size ;
+		}
+
+		boolean isEmpty() {
+			return size == 0 ;
+		}
+
+		void clear() {
+			head = 0 ;
+			size = 0 ;
+		}
+
+		private void grow() {
+			double[] newExitTimes = new double[2 * exitTimes.length] ;
+			double[] newSizes = new double[2 * sizes.length] ;
+			int firstPart = Math.min( size, exitTimes.length - head ) ;
+			System.arraycopy( exitTimes, head, newExitTimes, 0, firstPart ) ;
+			System.arraycopy( exitTimes, 0, newExitTimes, firstPart, size - firstPart ) ;
+			System.arraycopy( sizes, head, newSizes, 0, firstPart ) ;
+			System.arraycopy( sizes, 0, newSizes, firstPart, size - firstPart ) ;
+			exitTimes = newExitTimes ;
+			sizes = newSizes ;
+			head = 0 ;
+		}
+	}
+
+	/**
+	 * true, i.e. green, if the link is not signalized
+	 */
+	private boolean thisTimeStepGreen = true ;
+	private double inverseFlowCapacityPerTimeStep;
+
+	private final HoleQueue holes = new HoleQueue() ;
+
+	/** the last time-step the front-most vehicle in the buffer was moved. Used for detecting dead-locks. */
+	private double bufferLastMovedTime = Time.getUndefinedTime() ;
+	/**
+	 * The vehicles that have not yet reached the end of the link according to the free travel speed of the link,
+	 * with their earliest link exit times
+	 */
+	private final IndexQueue vehQueue = new IndexQueue() ;
+	/**
+	 * Holds all vehicles that are ready to cross the outgoing intersection; the times are not used
+	 */
+	private final IndexQueue buffer = new IndexQueue() ;
+	private final QVehicleTable vehicles ;
+
+	/**
+	 * the flow and storage capacities of this lane are in this slot of the accumulators
+	 */
+	private LinkCapacityAccumulators capacities = new LinkCapacityAccumulators() ;
+	private int slot = capacities.addSlot() ;
+
+	/**
+	 * null if the link is not signalized
+	 */
+	private DefaultSignalizeableItem qSignalizedItem = null ;
+	private final AbstractQLink.QLinkInternalInterface qLink;
+	private final Id<Lane> id;
+	private static int spaceCapWarningCount = 0;
+
+	private final double length ;
+	private double unscaledFlowCapacity_s = Double.NaN ;
+	private double effectiveNumberOfLanes = Double.NaN ;
+
+	private final VisData visData = new VisDataImpl() ;
+	private final NetsimEngineContext context;
+
+	private double maxFlowFromFdiag = Double.POSITIVE_INFINITY ;
+
+	private CompactQueueWithBuffer(AbstractQLink.QLinkInternalInterface qlink, final QVehicleTable vehicles, Id<Lane> laneId,
+			double length, double effectiveNumberOfLanes, double flowCapacity_s, final NetsimEngineContext context) {
+		this.qLink = qlink;
+		this.vehicles = vehicles ;
+		this.id = laneId ;
+		this.context = context ;
+		this.length = length;
+		this.unscaledFlowCapacity_s = flowCapacity_s ;
+		this.effectiveNumberOfLanes = effectiveNumberOfLanes;
+		this.capacities.inflowAccumulation[slot] = 1. ;
+
+		this.calculateFlowCapacity();
+		this.calculateStorageCapacity();
+
+		capacities.flowAccumulation[slot] = capacities.flowCapacityPerTimeStep[slot] ;
+
+		if ( context.qsimConfig.getTimeStepSize() < 1. ) {
+			throw new RuntimeException("yyyy This will produce weird results because in at least one place "
+					+ "(addFromUpstream(...)) everything is pulled to integer values.  Aborting ... ") ;
+		}
+	}
+
+	/**
+	 * Moves the capacities of this lane into the accumulators of the runner which simulates it from now on.
+	 */
+	void setCapacityAccumulators( final LinkCapacityAccumulators accumulators ) {
+		this.slot = accumulators.addSlotFrom( this.capacities, this.slot ) ;
+		this.capacities = accumulators ;
+	}
+
+	@Override
+	public final void addFromWait(final QVehicle veh) {
+		//To protect against calling addToBuffer() without calling hasFlowCapacityLeft() first.
+		//This only could happen for addFromWait(), because it can be called from outside the lane
+		if (capacities.flowAccumulation[slot] <= 0.0 && veh.getVehicle().getType().getPcuEquivalents() > context.qsimConfig
+				.getPcuThresholdForFlowCapacityEasing()) {
+			throw new IllegalStateException("Buffer of link " + this.id + " has no space left!");
+		}
+
+		addToBuffer(veh, vehicles.register(veh));
+	}
+
+	private void addToBuffer(final QVehicle veh, final int vehicleIndex) {
+		double now = context.getSimTimer().getTimeOfDay() ;
+		capacities.flowAccumulation[slot] -= veh.getFlowCapacityConsumptionInEquivalents() ;
+		capacities.flowAccumulationTime[slot] = now ;
+
+		buffer.addLast(vehicleIndex, now);
+		if (buffer.size() == 1) {
+			bufferLastMovedTime = now;
+		}
+		final QNodeI toNode = qLink.getToNodeQ();
+		if ( toNode instanceof QNodeImpl ) {
+			((QNodeImpl) toNode).activateNode();
+		}
+	}
+
+	@Override
+	public final boolean isAcceptingFromWait(QVehicle veh) {
+		return this.hasFlowCapacityLeft(veh) ;
+	}
+
+	private boolean hasFlowCapacityLeft(QVehicle veh) {
+		if(context.qsimConfig.isUsingFastCapacityUpdate() ){
+			updateFastFlowAccumulation();
+		}
+
+		return capacities.flowAccumulation[slot] > 0.0 || veh.getVehicle().getType()
+				.getPcuEquivalents() <= context.qsimConfig.getPcuThresholdForFlowCapacityEasing();
+	}
+
+	private void updateFastFlowAccumulation(){
+		double now = context.getSimTimer().getTimeOfDay() ;
+		final LinkCapacityAccumulators acc = this.capacities ;
+		final double flowCapacityPerTimeStep = acc.flowCapacityPerTimeStep[slot] ;
+
+		if( acc.flowAccumulationTime[slot] < now
+				&& acc.flowAccumulation[slot] < flowCapacityPerTimeStep
+				&& isNotOfferingVehicle() ){
+
+			double timeSteps = (now - acc.flowAccumulationTime[slot]) / context.qsimConfig.getTimeStepSize();
+			double accumulateFlowCap = timeSteps * flowCapacityPerTimeStep;
+			acc.flowAccumulation[slot] = Math.min(acc.flowAccumulation[slot] + accumulateFlowCap, flowCapacityPerTimeStep);
+			acc.flowAccumulationTime[slot] = now ;
+		}
+	}
+
+	private void updateSlowFlowAccumulation(){
+		final LinkCapacityAccumulators acc = this.capacities ;
+		final double flowCapacityPerTimeStep = acc.flowCapacityPerTimeStep[slot] ;
+		if (this.thisTimeStepGreen
+				&& acc.flowAccumulation[slot] < flowCapacityPerTimeStep
+				&& isNotOfferingVehicle() ){
+			acc.flowAccumulation[slot] = Math.min(acc.flowAccumulation[slot] + flowCapacityPerTimeStep, flowCapacityPerTimeStep);
+		}
+	}
+
+	@Override
+	public final void initBeforeSimStep() {
+		if(!context.qsimConfig.isUsingFastCapacityUpdate() ){
+			updateSlowFlowAccumulation();
+		}
+	}
+
+	private static int wrnCnt=0 ;
+	private void calculateFlowCapacity() {
+		double flowCapacityPerTimeStep = this.unscaledFlowCapacity_s ;
+		// we need the flow capacity per sim-tick and multiplied with flowCapFactor
+		flowCapacityPerTimeStep = flowCapacityPerTimeStep * context.qsimConfig.getTimeStepSize() * context.qsimConfig.getFlowCapFactor() ;
+		capacities.flowCapacityPerTimeStep[slot] = flowCapacityPerTimeStep ;
+		inverseFlowCapacityPerTimeStep = 1.0 / flowCapacityPerTimeStep;
+
+		switch (context.qsimConfig.getTrafficDynamics()) {
+			case queue:
+			case withHoles:
+				break;
+			case kinematicWaves:
+				// see QueueWithBuffer
+				this.maxFlowFromFdiag = (1/context.effectiveCellSize) / ( 1./(QueueWithBuffer.HOLE_SPEED_KM_H/3.6) + 1/this.qLink.getFreespeed() ) ;
+				if ( this.maxFlowFromFdiag < flowCapacityPerTimeStep && wrnCnt<10 ) {
+					wrnCnt++ ;
+					log.warn( "max flow from fdiag < requested flow cap; linkId=" + qLink.getId() +
+									  "; req flow cap/h=" + 3600.*flowCapacityPerTimeStep/context.qsimConfig.getTimeStepSize() +
+									  "; max flow from fdiag/h=" + 3600*maxFlowFromFdiag/context.qsimConfig.getTimeStepSize() ) ;
+					if ( wrnCnt==10 ) {
+						log.warn( Gbl.FUTURE_SUPPRESSED ) ;
+					}
+				}
+				break;
+			default: throw new RuntimeException("The traffic dynamics "+context.qsimConfig.getTrafficDynamics()+" is not implemented yet.");
+		}
+	}
+
+	private void calculateStorageCapacity() {
+		final double flowCapacityPerTimeStep = capacities.flowCapacityPerTimeStep[slot] ;
+
+		// first guess at storageCapacity:
+		double storageCapacity = this.length * this.effectiveNumberOfLanes / context.effectiveCellSize * context.qsimConfig.getStorageCapFactor() ;
+
+		// storage capacity needs to be at least enough to handle the cap_per_time_step:
+		storageCapacity = Math.max(storageCapacity, getBufferStorageCapacity());
+
+		// if speed on link is relatively slow, then we need MORE cells than the above spaceCap to handle the flowCap,
+		// see QueueWithBuffer
+		double freespeedTravelTime = this.length / qLink.getFreespeed();
+		if (Double.isNaN(freespeedTravelTime)) {
+			throw new IllegalStateException("Double.NaN is not a valid freespeed travel time for a link. Please check the attributes length and freespeed!");
+		}
+
+		//this assumes that vehicles have the flowEfficiencyFactor of 1.0; the actual flow can be different
+		double tempStorageCapacity = freespeedTravelTime * flowCapacityPerTimeStep;
+
+		if (storageCapacity < tempStorageCapacity) {
+			if (CompactQueueWithBuffer.spaceCapWarningCount <= 10) {
+				log.warn("Link " + this.id + " too small: enlarge storage capacity from: " + storageCapacity
+						+ " Vehicles to: " + tempStorageCapacity + " Vehicles.  This is not fatal, but modifies the traffic flow dynamics.");
+				if (CompactQueueWithBuffer.spaceCapWarningCount == 10) {
+					log.warn("Additional warnings of this type are suppressed.");
+				}
+				CompactQueueWithBuffer.spaceCapWarningCount++;
+			}
+			storageCapacity = tempStorageCapacity;
+		}
+
+		switch (context.qsimConfig.getTrafficDynamics()) {
+			case queue:
+				break;
+			case withHoles:
+			case kinematicWaves:
+				final double freeSpeed = qLink.getFreespeed() ;
+				final double holeSpeed = QueueWithBuffer.HOLE_SPEED_KM_H/3.6;
+				final double minStorCapForHoles = length * flowCapacityPerTimeStep * (freeSpeed + holeSpeed) / freeSpeed / holeSpeed ;
+				if ( storageCapacity < minStorCapForHoles ) {
+					if ( spaceCapWarningCount <= 10 ) {
+						log.warn("storage capacity not sufficient for holes; increasing from " + storageCapacity + " to " + minStorCapForHoles ) ;
+						CompactQueueWithBuffer.spaceCapWarningCount++;
+					}
+					storageCapacity = minStorCapForHoles ;
+				}
+
+				capacities.remainingHolesStorageCapacity[slot] = storageCapacity ;
+				break;
+			default: throw new RuntimeException("The traffic dynmics "+context.qsimConfig.getTrafficDynamics()+" is not implemented yet.");
+		}
+		capacities.storageCapacity[slot] = storageCapacity ;
+	}
+
+	private double getBufferStorageCapacity() {
+		return capacities.flowCapacityPerTimeStep[slot];//this assumes that vehicles have the flowEfficiencyFactor of 1.0
+	}
+
+	@Override
+	public final boolean doSimStep( ) {
+		switch (context.qsimConfig.getTrafficDynamics()) {
+			case queue:
+				break;
+			case withHoles:
+				this.processArrivalOfHoles( ) ;
+				break;
+			case kinematicWaves:
+				capacities.inflowAccumulation[slot] = Math.min(capacities.inflowAccumulation[slot] + maxFlowFromFdiag, maxFlowFromFdiag);
+				this.processArrivalOfHoles( ) ;
+				break;
+			default: throw new RuntimeException("The traffic dynmics "+context.qsimConfig.getTrafficDynamics()+" is not implemented yet.");
+		}
+		this.moveQueueToBuffer();
+		return true ;
+	}
+
+	private void processArrivalOfHoles() {
+		double now = context.getSimTimer().getTimeOfDay() ;
+		while ( !this.holes.isEmpty() && this.holes.firstExitTime() < now ) {
+			capacities.remainingHolesStorageCapacity[slot] += this.holes.firstSize() ;
+			this.holes.removeFirst() ;
+		}
+	}
+
+	/**
+	 * Move vehicles from link to buffer, according to buffer capacity and
+	 * departure time of vehicle. Also removes vehicles from lane if the vehicle
+	 * arrived at its destination.
+	 */
+	private void moveQueueToBuffer() {
+		double now = context.getSimTimer().getTimeOfDay() ;
+
+		while ( !vehQueue.isEmpty() ) {
+			// only the exit time is needed to find out that the first vehicle cannot leave yet
+			if ( vehQueue.firstTime() > now ) {
+				return;
+			}
+			int vehicleIndex = vehQueue.firstIndex() ;
+			QVehicle veh = vehicles.get( vehicleIndex ) ;
+
+			MobsimDriverAgent driver = veh.getDriver();
+
+			if (driver instanceof TransitDriverAgent) {
+				HandleTransitStopResult handleTransitStop = qLink.handleTransitStop(
+						now, veh, (TransitDriverAgent) driver, this.qLink.getId()
+				);
+				if (handleTransitStop == HandleTransitStopResult.accepted) {
+					// vehicle has been accepted into the transit vehicle queue of the link.
+					removeFirstVehicleFromQueue(veh) ;
+					continue;
+				} else if (handleTransitStop == HandleTransitStopResult.rehandle) {
+					// handling the stop may have delayed the vehicle, while it stays the first one in the queue
+					vehQueue.setFirstTime( veh.getEarliestLinkExitTime() ) ;
+					continue;
+				}
+			}
+
+			// Check if veh has reached destination:
+			if ( driver.isWantingToArriveOnCurrentLink() ) {
+				qLink.letVehicleArrive( veh );
+
+				// remove _after_ processing the arrival to keep link active:
+				removeFirstVehicleFromQueue( veh ) ;
+
+				continue;
+			}
+
+			/* is there still any flow capacity left? */
+			if (!hasFlowCapacityLeft(veh) ) {
+				return;
+			}
+
+			addToBuffer(veh, vehicleIndex);
+			removeFirstVehicleFromQueue(veh);
+		} // end while
+	}
+
+	private void removeFirstVehicleFromQueue(final QVehicle veh) {
+		double now = context.getSimTimer().getTimeOfDay() ;
+
+		vehQueue.removeFirst() ;
+		capacities.usedStorageCapacity[slot] -= veh.getSizeInEquivalents() ;
+
+		switch (context.qsimConfig.getTrafficDynamics()) {
+			case queue:
+				break;
+			case withHoles:
+			case kinematicWaves:
+				double ttimeOfHoles = length*3600./QueueWithBuffer.HOLE_SPEED_KM_H/1000. ;
+				// the random number is not used, but drawn as in QueueWithBuffer, to keep the random sequence the same:
+				holes.addLast( now + 1.0*ttimeOfHoles + 0.0*MatsimRandom.getRandom().nextDouble()*ttimeOfHoles,
+						veh.getSizeInEquivalents() ) ;
+				break;
+			default: throw new RuntimeException("The traffic dynmics "+context.qsimConfig.getTrafficDynamics()+" is not implemented yet.");
+		}
+	}
+
+	@Override
+	public final boolean isActive() {
+		if( context.qsimConfig.isUsingFastCapacityUpdate() ){
+			return (!this.vehQueue.isEmpty())
+					|| (!this.isNotOfferingVehicle() && context.qsimConfig.isUseLanes())
+					|| ( !this.holes.isEmpty() ) ;
+		} else {
+			return (capacities.flowAccumulation[slot] < capacities.flowCapacityPerTimeStep[slot]) // still accumulating, thus active
+					|| (!this.vehQueue.isEmpty()) // vehicles are on link, thus active
+					|| (!this.isNotOfferingVehicle() && context.qsimConfig.isUseLanes())
+					|| ( !this.holes.isEmpty() ); // need to process arrival of holes
+		}
+	}
+
+	@Override
+	public final void setSignalStateAllTurningMoves( final SignalGroupState state) {
+		qSignalizedItem.setSignalStateAllTurningMoves(state);
+
+		thisTimeStepGreen  = qSignalizedItem.hasGreenForAllToLinks();
+		// (this is only for capacity accumulation)
+	}
+
+	@Override
+	public final double getSimulatedFlowCapacityPerTimeStep() {
+		return capacities.flowCapacityPerTimeStep[slot];
+	}
+
+	@Override
+	public final boolean isAcceptingFromUpstream() {
+		final LinkCapacityAccumulators acc = this.capacities ;
+		boolean storageOk = acc.usedStorageCapacity[slot] < acc.storageCapacity[slot] ;
+
+		if ( context.qsimConfig.getTrafficDynamics()==TrafficDynamics.queue )  {
+			return storageOk ;
+		}
+		// (continue only if HOLES and/or inflow constraint)
+
+		if ( acc.remainingHolesStorageCapacity[slot] <= 0. ) {
+			return false ;
+		}
+
+		if ( context.qsimConfig.getTrafficDynamics() != TrafficDynamics.kinematicWaves) {
+			return true ;
+		}
+
+		return acc.inflowAccumulation[slot] > 0;
+	}
+
+	@Override
+	public void recalcTimeVariantAttributes() {
+		calculateFlowCapacity();
+		calculateStorageCapacity();
+		capacities.flowAccumulation[slot] = capacities.flowCapacityPerTimeStep[slot] ;
+	}
+
+	@Override
+	public final QVehicle getVehicle(final Id<Vehicle> vehicleId) {
+		for (int i = 0; i < vehQueue.size(); i++) {
+			QVehicle veh = vehicles.get(vehQueue.index(i)) ;
+			if (veh.getId().equals(vehicleId))
+				return veh;
+		}
+		for (int i = 0; i < buffer.size(); i++) {
+			QVehicle veh = vehicles.get(buffer.index(i)) ;
+			if (veh.getId().equals(vehicleId))
+				return veh;
+		}
+		return null;
+	}
+
+	@Override
+	public final Collection<MobsimVehicle> getAllVehicles() {
+		Collection<MobsimVehicle> all = new ArrayList<>( buffer.size() + vehQueue.size() );
+		for (int i = 0; i < buffer.size(); i++) {
+			all.add(vehicles.get(buffer.index(i))) ;
+		}
+		for (int i = 0; i < vehQueue.size(); i++) {
+			all.add(vehicles.get(vehQueue.index(i))) ;
+		}
+		return all ;
+	}
+
+	@Override
+	public final QVehicle popFirstVehicle() {
+		double now = context.getSimTimer().getTimeOfDay() ;
+		QVehicle veh = vehicles.get(buffer.firstIndex()) ;
+		buffer.removeFirst() ;
+		bufferLastMovedTime = now; // just in case there is another vehicle in the buffer that is now the new front-most
+		if( context.qsimConfig.isUsingFastCapacityUpdate() ) {
+			capacities.flowAccumulationTime[slot] = now - 1 ;
+		}
+		return veh;
+	}
+
+	@Override
+	public final void setSignalStateForTurningMove( final SignalGroupState state, final Id<Link> toLinkId) {
+		if (!qLink.getToNode().getOutLinks().containsKey(toLinkId)){
+			throw new IllegalArgumentException("ToLink " + toLinkId + " is not reachable from QLink Id " +  this.id );
+		}
+		qSignalizedItem.setSignalStateForTurningMove(state, toLinkId);
+
+		thisTimeStepGreen = qSignalizedItem.hasGreenForAllToLinks();
+		// (this is only for capacity accumulation.  As soon as at least one turning relation is green, the "link" is considered
+		// green).
+	}
+
+	@Override
+	public final boolean hasGreenForToLink(final Id<Link> toLinkId) {
+		if (qSignalizedItem != null){
+			return qSignalizedItem.hasGreenForToLink(toLinkId);
+		}
+		return true; //the lane is not signalized and thus always green
+	}
+
+	@Override
+	public boolean hasGreenForAllToLinks() {
+		if (qSignalizedItem != null) {
+			return qSignalizedItem.hasGreenForAllToLinks();
+		}
+		return true; //the lane is not signalized and thus always green
+	}
+
+	@Override
+	public final double getStorageCapacity() {
+		return capacities.storageCapacity[slot];
+	}
+
+	@Override
+	public final boolean isNotOfferingVehicle() {
+		return buffer.isEmpty();
+	}
+
+	@Override
+	public final void clearVehicles() {
+		double now = context.getSimTimer().getTimeOfDay() ;
+
+		for (int i = 0; i < vehQueue.size(); i++) {
+			abort(vehicles.get(vehQueue.index(i)), now) ;
+		}
+		vehQueue.clear();
+
+		for (int i = 0; i < buffer.size(); i++) {
+			abort(vehicles.get(buffer.index(i)), now) ;
+		}
+		buffer.clear();
+
+		holes.clear();
+		capacities.remainingHolesStorageCapacity[slot] = capacities.storageCapacity[slot] ;
+	}
+
+	private void abort(final QVehicle veh, final double now) {
+		context.getEventsManager().processEvent( new VehicleAbortsEvent(now, veh.getId(), veh.getCurrentLink().getId()));
+		context.getEventsManager().processEvent( new PersonStuckEvent(now, veh.getDriver().getId(), veh.getCurrentLink().getId(), veh.getDriver().getMode()));
+
+		context.getAgentCounter().incLost();
+		context.getAgentCounter().decLiving();
+	}
+
+	@Override
+	public final void addFromUpstream(final QVehicle veh) {
+		double now = context.getSimTimer().getTimeOfDay() ;
+
+		// activate link since there is now action on it:
+		qLink.activateLink();
+
+		if(context.qsimConfig.isSeepModeStorageFree() && context.qsimConfig.getSeepModes().contains( veh.getVehicle().getType().getId().toString() ) ){
+			// do nothing
+		} else {
+			capacities.usedStorageCapacity[slot] += veh.getSizeInEquivalents();
+		}
+
+		// compute and set earliest link exit time:
+		double linkTravelTime = this.length / this.qLink.getMaximumVelocityFromLinkSpeedCalculator( veh, now ) ;
+		linkTravelTime = context.qsimConfig.getTimeStepSize() * Math.floor( linkTravelTime / context.qsimConfig.getTimeStepSize() );
+
+		veh.setEarliestLinkExitTime(now + linkTravelTime);
+
+		this.qLink.setCurrentLinkToVehicle( veh ) ;
+		vehQueue.addLast(vehicles.register(veh), veh.getEarliestLinkExitTime());
+
+		switch (context.qsimConfig.getTrafficDynamics()) {
+			case queue:
+				break;
+			case withHoles:
+				capacities.remainingHolesStorageCapacity[slot] -= veh.getSizeInEquivalents();
+				break;
+			case kinematicWaves:
+				capacities.remainingHolesStorageCapacity[slot] -= veh.getSizeInEquivalents();
+				capacities.inflowAccumulation[slot] -= veh.getFlowCapacityConsumptionInEquivalents() ;
+				break;
+			default: throw new RuntimeException("The traffic dynamics "+context.qsimConfig.getTrafficDynamics()+" is not implemented yet.");
+		}
+	}
+
+	@Override
+	public final QLaneI.VisData getVisData() {
+		return this.visData  ;
+	}
+
+	@Override
+	public final QVehicle getFirstVehicle() {
+		if (!this.buffer.isEmpty()) {
+			return vehicles.get(this.buffer.firstIndex()) ;
+		}
+		if (!this.vehQueue.isEmpty()) {
+			return vehicles.get(this.vehQueue.firstIndex()) ;
+		}
+		return null ;
+	}
+
+	@Override
+	public final double getLastMovementTimeOfFirstVehicle() {
+		return this.bufferLastMovedTime ;
+	}
+
+	/**
+	 * Needs to be added _upstream_ of the regular stop location so that a possible second stop on the link can also be served.
+	 */
+	@Override
+	public final void addTransitSlightlyUpstreamOfStop( final QVehicle veh) {
+		this.vehQueue.addFirst(vehicles.register(veh), veh.getEarliestLinkExitTime()) ;
+	}
+
+	@Override
+	public final void setSignalized( final boolean isSignalized) {
+		qSignalizedItem  = new DefaultSignalizeableItem(qLink.getToNode().getOutLinks().keySet());
+	}
+
+	@Override
+	public final void changeUnscaledFlowCapacityPerSecond( final double val ) {
+		this.unscaledFlowCapacity_s = val ;
+		// be defensive (might now be called twice):
+		this.recalcTimeVariantAttributes();
+	}
+
+	@Override
+	public final void changeEffectiveNumberOfLanes( final double val ) {
+		this.effectiveNumberOfLanes = val ;
+		// be defensive (might now be called twice):
+		this.recalcTimeVariantAttributes();
+	}
+
+	@Override public Id<Lane> getId() {
+		return this.id;
+	}
+
+	@Override
+	public double getLoadIndicator() {
+		return capacities.usedStorageCapacity[slot];
+	}
+
+	class VisDataImpl implements QLaneI.VisData {
+		private Coord upstreamCoord;
+		private Coord downstreamCoord;
+
+		@Override
+		public final Collection<AgentSnapshotInfo> addAgentSnapshotInfo(Collection<AgentSnapshotInfo> positions, double now) {
+			if ( !buffer.isEmpty() || !vehQueue.isEmpty() || !holes.isEmpty() ) {
+				Gbl.assertNotNull(positions);
+				Gbl.assertNotNull( context.snapshotInfoBuilder );
+				if ( this.upstreamCoord==null ) {
+					this.upstreamCoord = qLink.getFromNode().getCoord() ;
+				}
+				if ( this.downstreamCoord==null ) {
+					this.downstreamCoord = qLink.getToNode().getCoord() ;
+				}
+				// the snapshot info builder works on hole objects, which are only created for it:
+				Queue<QueueWithBuffer.Hole> holeItems = new LinkedList<>() ;
+				for (int i = 0; i < holes.size(); i++) {
+					QueueWithBuffer.Hole hole = new QueueWithBuffer.Hole() ;
+					hole.setEarliestLinkExitTime( holes.exitTime(i) ) ;
+					hole.setSizeInEquivalents( holes.sizeInEquivalents(i) ) ;
+					holeItems.add( hole ) ;
+				}
+				positions = context.snapshotInfoBuilder.positionVehiclesAlongLine(
+						positions,
+						now,
+						getAllVehicles(),
+						length,
+						capacities.storageCapacity[slot] + getBufferStorageCapacity(),
+						this.upstreamCoord,
+						this.downstreamCoord,
+						inverseFlowCapacityPerTimeStep,
+						qLink.getFreespeed(now),
+						qLink.getNumberOfLanesAsInt(now) ,
+						holeItems
+						);
+			}
+			return positions ;
+		}
+
+		void setVisInfo(Coord upstreamCoord, Coord downstreamCoord) {
+			this.upstreamCoord = upstreamCoord;
+			this.downstreamCoord = downstreamCoord;
+		}
+	}
+
+}
@@ -0,0 +1,87 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LinkCapacityAccumulators.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Arrays;
+
+/**
+ * The flow and storage capacities of a set of {@link CompactQueueWithBuffer}s and what is currently used of them, in
+ * struct-of-arrays form: one array per quantity, with one slot per lane.  Each {@link QNetsimEngineRunner} keeps one
+ * instance for the links it simulates, so that the capacities it updates while moving its links lie next to each other
+ * in memory instead of being spread over one object per lane.
+ * <p></p>
+ * Slots are only added before the simulation starts, i.e. while the links are assigned to the runners.
+ */
+final class LinkCapacityAccumulators {
+
+	private static final int INITIAL_SIZE = 16;
+
+	/** the flow capacity which is currently available, in vehicle equivalents */
+	double[] flowAccumulation = new double[INITIAL_SIZE];
+	/** the time step in which the available flow capacity was last updated */
+	double[] flowAccumulationTime = new double[INITIAL_SIZE];
+	double[] flowCapacityPerTimeStep = new double[INITIAL_SIZE];
+	/** the inflow capacity which is currently available, only used with kinematic waves */
+	double[] inflowAccumulation = new double[INITIAL_SIZE];
+	double[] usedStorageCapacity = new double[INITIAL_SIZE];
+	double[] storageCapacity = new double[INITIAL_SIZE];
+	/** the storage capacity which is not occupied by vehicles or holes, only used with holes and kinematic waves */
+	double[] remainingHolesStorageCapacity = new double[INITIAL_SIZE];
+
+	private int size = 0;
+
+	/**
+	 * @return a new slot, with all values zero
+	 */
+	int addSlot() {
+		if (this.size == this.flowAccumulation.length) {
+			int newLength = 2 * this.size;
+			this.flowAccumulation = Arrays.copyOf(this.flowAccumulation, newLength);
+			this.flowAccumulationTime = Arrays.copyOf(this.flowAccumulationTime, newLength);
+			this.flowCapacityPerTimeStep = Arrays.copyOf(this.flowCapacityPerTimeStep, newLength);
+			this.inflowAccumulation = Arrays.copyOf(this.inflowAccumulation, newLength);
+			this.usedStorageCapacity = Arrays.copyOf(this.usedStorageCapacity, newLength);
+			this.storageCapacity = Arrays.copyOf(this.storageCapacity, newLength);
+			this.remainingHolesStorageCapacity = Arrays.copyOf(this.remainingHolesStorageCapacity, newLength);
+		}
+		return this.size++;
+	}
+
+	/**
+	 * @return a new slot of this instance, with all values copied from the given slot of the other instance
+	 */
+	int addSlotFrom(final LinkCapacityAccumulators other, final int otherSlot) {
+		int slot = addSlot();
+		this.flowAccumulation[slot] = other.flowAccumulation[otherSlot];
+		this.flowAccumulationTime[slot] = other.flowAccumulationTime[otherSlot];
+		this.flowCapacityPerTimeStep[slot] = other.flowCapacityPerTimeStep[otherSlot];
+		this.inflowAccumulation[slot] = other.inflowAccumulation[otherSlot];
+		this.usedStorageCapacity[slot] = other.usedStorageCapacity[otherSlot];
+		this.storageCapacity[slot] = other.storageCapacity[otherSlot];
+		this.remainingHolesStorageCapacity[slot] = other.remainingHolesStorageCapacity[otherSlot];
+		return slot;
+	}
+
+	int size() {
+		return this.size;
+	}
+
+}
@@ -286,7 +286,9 @@ public final class QLinkImpl extends AbstractQLink implements SignalizeableItem
 //			AbstractAgentSnapshotInfoBuilder snapshotInfoBuilder = qnetwork.simEngine.getAgentSnapshotInfoBuilder();
 
 			QLaneI.VisData roadVisData = getAcceptingQLane().getVisData() ;
-			if (visLink != null) {
+			if (visLink != null && roadVisData instanceof CompactQueueWithBuffer.VisDataImpl) {
+				((CompactQueueWithBuffer.VisDataImpl)roadVisData).setVisInfo(visLink.getLinkStartCoord(), visLink.getLinkEndCoord()) ;
+			} else if (visLink != null) {
 				((QueueWithBuffer.VisDataImpl)roadVisData).setVisInfo(visLink.getLinkStartCoord(), visLink.getLinkEndCoord()) ;
 				// yyyy not so great but an elegant solution needs more thinking about visualizer structure. kai, jun'13
 			}
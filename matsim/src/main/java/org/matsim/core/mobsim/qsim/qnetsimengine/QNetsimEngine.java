@@ -25,6 +25,7 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
@@ -43,6 +44,7 @@ import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.NetsimNetwork;
+import org.matsim.core.utils.collections.IdMap;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.vehicles.Vehicle;
 import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
@@ -50,7 +52,6 @@ import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
 import javax.inject.Inject;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -95,7 +96,7 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 
 	private QNetwork network;
 
-	private final Map<Id<Vehicle>, QVehicle> vehicles = new HashMap<>();
+	private final Map<Id<Vehicle>, QVehicle> vehicles = new IdMap<>(Vehicle.class);
 
 	private final QSim qsim;
 
@@ -119,6 +120,8 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 	private ExecutorService pool;
 
 	private final boolean usingThreadpool;
+
+	private final boolean usingDomainDecomposition;
 	
 	// for detailed run time analysis - used in combination with QSim.analyzeRunTimes
 	public static int numObservedTimeSteps = 24*3600;
@@ -140,6 +143,10 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		final Config config = sim.getScenario().getConfig();
 		final QSimConfigGroup qsimConfigGroup = config.qsim();
 		this.usingThreadpool = qsimConfigGroup.isUsingThreadpool();
+		this.usingDomainDecomposition = qsimConfigGroup.isUsingDomainDecomposition() && !this.usingThreadpool;
+		if (qsimConfigGroup.isUsingDomainDecomposition() && this.usingThreadpool) {
+			log.warn("Domain decomposition is only available without thread pool; falling back to round robin assignment.");
+		}
 
 
 		// configuring the car departure hander (including the vehicle behavior)
@@ -303,6 +310,10 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 
 		// (b) Do deliberate domain decomposition rather than round robin (fewer runners to wait for at (*) and (**)).
 
+		// (a) and (b) are available via QSimConfigGroup.setUsingDomainDecomposition(true).  Since the other engines of the QSim
+		// are still processed between two time steps, (*) is always fulfilled by the start and end barriers; only the
+		// separation barrier is replaced by (**), see QNetsimEngineRunner.
+
 		// (c) One thread that is much faster than all others is much more efficient than one thread that is much slower than all others. 
 		// So make sure that no thread sticks out in terms of slowness.  Difficult to achieve, though.  A decade back, we used a "typical" run
 		// as input for the domain decomposition under (b).
@@ -338,6 +349,17 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 	}
 
 
+	@Override
+	public double getNextRelevantTime() {
+		// links and nodes stay active as long as there are vehicles on them, so there is nothing to do until one is activated
+		for (QNetsimEngineRunner engine : this.engines) {
+			if (engine.hasActiveNetElements()) {
+				return Double.NEGATIVE_INFINITY;
+			}
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
 	/*package*/ void printSimLog(double time) {
 		if (time >= this.infoTime) {
 			this.infoTime += INFO_PERIOD;
@@ -441,7 +463,11 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 			if (this.usingThreadpool) {
 				engine = new QNetsimEngineRunner();
 			} else {
-				engine = new QNetsimEngineRunner(this.startBarrier, separationBarrier, endBarrier);
+				if (this.usingDomainDecomposition) {
+					engine = new QNetsimEngineRunner(this.startBarrier, endBarrier);
+				} else {
+					engine = new QNetsimEngineRunner(this.startBarrier, separationBarrier, endBarrier);
+				}
 				Thread thread = new Thread(engine);
 				thread.setName("QNetsimEngineRunner_" + i);
 				thread.setDaemon(true);	// make the Thread Daemons so they will terminate automatically
@@ -469,9 +495,14 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		int nodes[] = new int[numOfRunners];
 		int links[] = new int[numOfRunners];
 
+		Map<Id<Node>, Integer> partitions = null;
+		if (this.usingDomainDecomposition) {
+			partitions = QNetworkPartitioner.partition(network.getNetwork().getNodes().values(), this.numOfRunners);
+		}
+
 		int roundRobin = 0;
 		for (QNodeI node : network.getNetsimNodes().values()) {
-			int i = roundRobin % this.numOfRunners;
+			int i = partitions == null ? roundRobin % this.numOfRunners : partitions.get(node.getNode().getId());
 			if ( node instanceof QNodeImpl ) {
 				((QNodeImpl) node).setNetElementActivationRegistry(this.engines.get(i));
 			}
@@ -484,6 +515,11 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 
 				// removing qsim as "person in the middle".  not fully sure if this is the same in the parallel impl.  kai, oct'10
 				qLink.setNetElementActivationRegistry(this.engines.get(i));
+				for (QLaneI lane : qLink.getOfferingQLanes()) {
+					if (lane instanceof CompactQueueWithBuffer) {
+						((CompactQueueWithBuffer) lane).setCapacityAccumulators(this.engines.get(i).getLinkCapacityAccumulators());
+					}
+				}
 
 				/*
 				 * If the QLink contains agents that end their activity in the first time
@@ -501,6 +537,10 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 			roundRobin++;
 		}
 
+		if (partitions != null) {
+			assignDownstreamRunners(partitions);
+		}
+
 		// print some statistics
 		for (int i = 0; i < this.engines.size(); i++) {
 			log.info("Assigned " + nodes[i] + " nodes and " + links[i] + " links to QSimEngineRunner #" + i);
@@ -509,6 +549,32 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		this.linksToActivateInitially.clear();
 	}
 
+	/*
+	 * A link is moved by the runner owning its fromNode, its buffer is emptied by the runner owning its toNode.
+	 * Thus a runner has to wait for the owners of the toNodes of its links before moving them.
+	 */
+	private void assignDownstreamRunners(Map<Id<Node>, Integer> partitions) {
+		List<Set<QNetsimEngineRunner>> downstream = new ArrayList<>();
+		for (int i = 0; i < this.numOfRunners; i++) {
+			downstream.add(new HashSet<>());
+		}
+		int boundaryLinks = 0;
+		for (QLinkI qLink : network.getNetsimLinks().values()) {
+			int from = partitions.get(qLink.getLink().getFromNode().getId());
+			int to = partitions.get(qLink.getLink().getToNode().getId());
+			if (from != to) {
+				downstream.get(from).add(this.engines.get(to));
+				boundaryLinks++;
+			}
+		}
+		for (int i = 0; i < this.numOfRunners; i++) {
+			QNetsimEngineRunner engine = this.engines.get(i);
+			engine.setDownstreamRunners(downstream.get(i));
+			log.info("QSimEngineRunner #" + i + " waits for " + engine.getNumberOfDownstreamRunners() + " other runners.");
+		}
+		log.info("Domain decomposition: " + boundaryLinks + " of " + network.getNetsimLinks().size() + " links cross partition boundaries.");
+	}
+
 	public void printEngineRunTimes() {
 		if (!QSim.analyzeRunTimes) return;
 		
@@ -15,6 +15,8 @@ public class QNetsimEngineModule extends AbstractQSimModule {
 
 		if ( this.getConfig().qsim().isUseLanes() ) {
 			bind(QNetworkFactory.class).to( QLanesNetworkFactory.class ) ;
+		} else if ( this.getConfig().qsim().isUsingCompactLinkQueues() ) {
+			bind(QNetworkFactory.class).to( CompactQNetworkFactory.class ) ;
 		} else {
 			bind(QNetworkFactory.class).to( DefaultQNetworkFactory.class ) ;
 		}
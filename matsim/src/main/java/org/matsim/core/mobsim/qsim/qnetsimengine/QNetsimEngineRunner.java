@@ -62,6 +62,11 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 	 */
 	private final List<QLinkI> linksList = new LinkedList<>();
 
+	/*
+	 * The capacities of the links handled by this runner, if they use CompactQueueWithBuffer.
+	 */
+	private final LinkCapacityAccumulators linkCapacityAccumulators = new LinkCapacityAccumulators();
+
 	/*
 	 * Ensure that nodes and links are only activate during times where we expect it.
 	 * Otherwise this could result in unpredictable behavior. Therefore we throw
@@ -76,6 +81,17 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 
 	private boolean movingNodes;
 
+	/*
+	 * Only used with domain decomposition, where the separationBarrier is replaced by waiting for the
+	 * runners that own the toNodes of this runner's links.  Before moving a link, such a runner must have
+	 * emptied the link's buffer (moved its nodes) in the current time step.  All other runners may still be
+	 * moving their nodes while this runner already moves its links.
+	 */
+	private Collection<QNetsimEngineRunner> downstreamRunners = Collections.emptyList();
+	private int step = 0;
+	private volatile int nodesMovedInStep = 0;
+	private static final int SPINS_BEFORE_YIELD = 1000;
+
 	/*package*/ long[] runTimes;
 	private long startTime = 0;
 	{	
@@ -88,6 +104,10 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 		this.separationBarrier = separationBarrier;
 		this.endBarrier = endBarrier;
 	}
+	/*package*/ QNetsimEngineRunner(Phaser startBarrier, Phaser endBarrier) {
+		// domain decomposition: no global barrier between moving nodes and moving links, see setDownstreamRunners(...)
+		this(startBarrier, null, endBarrier);
+	}
 	QNetsimEngineRunner() {
 		// this is the execution path with invokeAll and the threadpool; it does not need (and should not use) the barriers.
 		// kai, jan'14
@@ -96,6 +116,15 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 		this.endBarrier = null;
 	}
 
+	/*package*/ void setDownstreamRunners(final Collection<QNetsimEngineRunner> runners) {
+		this.downstreamRunners = new ArrayList<>(runners);
+		this.downstreamRunners.remove(this);
+	}
+
+	/*package*/ int getNumberOfDownstreamRunners() {
+		return this.downstreamRunners.size();
+	}
+
 	/*package*/ void setTime(final double t) {
 		time = t;
 	}
@@ -146,8 +175,13 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 
 			moveNodes();
 
-			// After moving the QNodes all we use a Phaser to synchronize the threads.
-			this.separationBarrier.arriveAndAwaitAdvance();
+			if (this.separationBarrier != null) {
+				// After moving the QNodes all we use a Phaser to synchronize the threads.
+				this.separationBarrier.arriveAndAwaitAdvance();
+			} else {
+				// Only wait for the neighbours that empty the buffers of our links.
+				awaitDownstreamRunners();
+			}
 
 			moveLinks();
 
@@ -164,6 +198,20 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 			this.endBarrier.arriveAndAwaitAdvance();
 		}
 	}
+	private void awaitDownstreamRunners() {
+		this.step++;
+		// volatile write, publishes everything done while moving the nodes to the waiting runners
+		this.nodesMovedInStep = this.step;
+		for (QNetsimEngineRunner runner : this.downstreamRunners) {
+			int spins = 0;
+			while (runner.nodesMovedInStep < this.step) {
+				if (++spins > SPINS_BEFORE_YIELD) {
+					Thread.yield();
+				}
+			}
+		}
+	}
+
 	private void moveNodes() {
 		boolean remainsActive;
 		this.lockNodes = true;
@@ -207,6 +255,10 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 		return this.linksList.size();
 	}
 
+	LinkCapacityAccumulators getLinkCapacityAccumulators() {
+		return this.linkCapacityAccumulators;
+	}
+
 	/*
 	 * This method is only called while nodes are NOT "moved", i.e. their
 	 * doStimStep(...) methods are called. To ensure that, we  use a boolean lock.
@@ -229,6 +281,10 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 		return this.nodesQueue.size();
 	}
 
+	/*package*/ boolean hasActiveNetElements() {
+		return !this.linksList.isEmpty() || !this.nodesQueue.isEmpty();
+	}
+
 	public void setMovingNodes(boolean movingNodes) {
 		this.movingNodes = movingNodes;
 	}
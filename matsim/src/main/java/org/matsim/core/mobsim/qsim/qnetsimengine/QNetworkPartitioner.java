@@ -0,0 +1,110 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetworkPartitioner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Splits the nodes of a network into geographically compact partitions by recursive coordinate
+ * bisection.  Each step cuts the current set of nodes orthogonal to the longer side of its bounding box, such
+ * that the weight (one plus the number of out-links, since out-links are simulated by the runner owning their
+ * from-node) on both sides is proportional to the number of partitions that side receives.
+ * <p></p>
+ * Compared to round robin, this keeps most links inside one partition, so a {@link QNetsimEngineRunner} only
+ * needs to synchronize with the few runners owning the other end of its boundary links.
+ */
+final class QNetworkPartitioner {
+
+	private QNetworkPartitioner() {
+		// static helper
+	}
+
+	/**
+	 * @return for every node the index of its partition, in <code>[0, numberOfPartitions)</code>
+	 */
+	static Map<Id<Node>, Integer> partition(final Collection<? extends Node> nodes, final int numberOfPartitions) {
+		if (numberOfPartitions < 1) {
+			throw new IllegalArgumentException("numberOfPartitions must be positive, but is " + numberOfPartitions);
+		}
+		Map<Id<Node>, Integer> partitions = new HashMap<>(nodes.size());
+		bisect(new ArrayList<>(nodes), 0, numberOfPartitions, partitions);
+		return partitions;
+	}
+
+	private static void bisect(final List<Node> nodes, final int firstPartition, final int numberOfPartitions, final Map<Id<Node>, Integer> partitions) {
+		if (numberOfPartitions == 1 || nodes.size() <= 1) {
+			for (Node node : nodes) {
+				partitions.put(node.getId(), firstPartition);
+			}
+			return;
+		}
+
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		long totalWeight = 0;
+		for (Node node : nodes) {
+			Coord coord = node.getCoord();
+			minX = Math.min(minX, coord.getX());
+			maxX = Math.max(maxX, coord.getX());
+			minY = Math.min(minY, coord.getY());
+			maxY = Math.max(maxY, coord.getY());
+			totalWeight += weight(node);
+		}
+
+		// ties are broken by id so that the result does not depend on the iteration order of the network
+		Comparator<Node> byId = (n1, n2) -> n1.getId().compareTo(n2.getId());
+		if (maxX - minX >= maxY - minY) {
+			nodes.sort(Comparator.<Node>comparingDouble(n -> n.getCoord().getX()).thenComparing(byId));
+		} else {
+			nodes.sort(Comparator.<Node>comparingDouble(n -> n.getCoord().getY()).thenComparing(byId));
+		}
+
+		int lowerPartitions = numberOfPartitions / 2;
+		double targetWeight = (double) totalWeight * lowerPartitions / numberOfPartitions;
+		int split = 0;
+		long weight = 0;
+		while (split < nodes.size() - 1 && weight + weight(nodes.get(split)) <= targetWeight) {
+			weight += weight(nodes.get(split));
+			split++;
+		}
+		split = Math.max(split, 1);
+
+		bisect(new ArrayList<>(nodes.subList(0, split)), firstPartition, lowerPartitions, partitions);
+		bisect(new ArrayList<>(nodes.subList(split, nodes.size())), firstPartition + lowerPartitions,
+				numberOfPartitions - lowerPartitions, partitions);
+	}
+
+	private static int weight(final Node node) {
+		return 1 + node.getOutLinks().size();
+	}
+
+}
@@ -0,0 +1,69 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QVehicleTable.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Arrays;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * The vehicles of one mobsim by the index of their {@link Id}, see {@link Id#index()}.  Lets the
+ * {@link CompactQueueWithBuffer}s keep plain <code>int</code>s instead of references in their queues.
+ * <p></p>
+ * Vehicles are registered when they enter a lane, possibly by several runners at the same time, so registering
+ * is synchronized.  Looking a vehicle up is not: a lane only contains indices of vehicles registered before, and
+ * the runners are synchronized between moving the nodes and moving the links.
+ */
+final class QVehicleTable {
+
+	private volatile QVehicle[] vehicles = new QVehicle[Math.max(16, Id.getNumberOfIds(Vehicle.class))];
+
+	/**
+	 * @return the index of the vehicle, under which it can be looked up from now on
+	 */
+	int register(final QVehicle vehicle) {
+		int index = vehicle.getId().index();
+		QVehicle[] table = this.vehicles;
+		if (index >= table.length || table[index] != vehicle) {
+			store(index, vehicle);
+		}
+		return index;
+	}
+
+	private synchronized void store(final int index, final QVehicle vehicle) {
+		if (Id.get(index, Vehicle.class) != vehicle.getId()) {
+			// e.g. an Id of another type, cast to a vehicle Id
+			throw new IllegalArgumentException("The Id " + vehicle.getId() + " of vehicle " + vehicle + " is not a vehicle Id.");
+		}
+		QVehicle[] table = this.vehicles;
+		if (index >= table.length) {
+			table = Arrays.copyOf(table, Math.max(2 * table.length, index + 1));
+		}
+		table[index] = vehicle;
+		this.vehicles = table;
+	}
+
+	QVehicle get(final int index) {
+		return this.vehicles[index];
+	}
+
+}
@@ -0,0 +1,438 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PlanElementsCodec.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactories;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Stores the activities and legs of a plan in a byte array, see {@link PlanImpl#compact(PlanElementsCodec)}.
+ * <p></p>
+ * Ids are stored by their index, activity types, modes, route types and attribute names as indices into a
+ * dictionary shared by all plans of the population, and links of network routes as a list of link id indices.
+ * Times and other values which are undefined are not stored at all, a bit field per element tells which are.
+ * Other routes are stored with their route description, as in the plans file.
+ * <p></p>
+ * Plans containing anything that cannot be restored exactly are not encoded: plan elements of other classes
+ * than {@link ActivityImpl} and {@link LegImpl}, routes of other classes than the ones the {@link RouteFactories}
+ * create for their type, and attribute values of other types than String, Integer, Long, Double and Boolean.
+ * <p></p>
+ * Encoding and decoding may be done by several threads at the same time.
+ */
+/* deliberately package */ final class PlanElementsCodec {
+
+	private static final byte ACTIVITY = 0;
+	private static final byte LEG = 1;
+
+	private static final int ACT_COORD = 1;
+	private static final int ACT_COORD_Z = 1 << 1;
+	private static final int ACT_LINK = 1 << 2;
+	private static final int ACT_FACILITY = 1 << 3;
+	private static final int ACT_START_TIME = 1 << 4;
+	private static final int ACT_END_TIME = 1 << 5;
+	private static final int ACT_DURATION = 1 << 6;
+
+	private static final int LEG_DEPARTURE_TIME = 1;
+	private static final int LEG_TRAVEL_TIME = 1 << 1;
+	private static final int LEG_ROUTE = 1 << 2;
+
+	private static final int ROUTE_START_LINK = 1;
+	private static final int ROUTE_END_LINK = 1 << 1;
+	private static final int ROUTE_DISTANCE = 1 << 2;
+	private static final int ROUTE_TRAVEL_TIME = 1 << 3;
+	private static final int ROUTE_NETWORK = 1 << 4;
+	private static final int ROUTE_VEHICLE = 1 << 5;
+	private static final int ROUTE_DESCRIPTION = 1 << 6;
+
+	private static final byte VALUE_STRING = 0;
+	private static final byte VALUE_INTEGER = 1;
+	private static final byte VALUE_LONG = 2;
+	private static final byte VALUE_DOUBLE = 3;
+	private static final byte VALUE_BOOLEAN = 4;
+
+	private final RouteFactories routeFactories;
+	private final Map<String, Class<?>> routeClassByType = new ConcurrentHashMap<>();
+
+	private final Map<String, Integer> dictionary = new ConcurrentHashMap<>();
+	private volatile String[] strings = new String[64];
+	private int stringCount = 0;
+
+	/* deliberately package */ PlanElementsCodec(final RouteFactories routeFactories) {
+		this.routeFactories = routeFactories;
+	}
+
+	/**
+	 * @return the encoded plan elements, or <code>null</code> if they cannot be encoded.
+	 */
+	/* deliberately package */ byte[] encode(final List<PlanElement> planElements) {
+		Output out = new Output();
+		out.writeInt(planElements.size());
+		for (PlanElement pe : planElements) {
+			if (pe instanceof ActivityImpl) {
+				out.writeByte(ACTIVITY);
+				if (!encodeActivity((Activity) pe, out)) {
+					return null;
+				}
+			} else if (pe instanceof LegImpl) {
+				out.writeByte(LEG);
+				if (!encodeLeg((Leg) pe, out)) {
+					return null;
+				}
+			} else {
+				return null;
+			}
+		}
+		return out.toByteArray();
+	}
+
+	/* deliberately package */ ArrayList<PlanElement> decode(final byte[] data) {
+		Input in = new Input(data);
+		int size = in.readInt();
+		ArrayList<PlanElement> planElements = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			byte kind = in.readByte();
+			if (kind == ACTIVITY) {
+				planElements.add(decodeActivity(in));
+			} else {
+				planElements.add(decodeLeg(in));
+			}
+		}
+		return planElements;
+	}
+
+	private boolean encodeActivity(final Activity act, final Output out) {
+		Coord coord = act.getCoord();
+		int flags = 0;
+		if (coord != null) flags |= coord.hasZ() ? ACT_COORD | ACT_COORD_Z : ACT_COORD;
+		if (act.getLinkId() != null) flags |= ACT_LINK;
+		if (act.getFacilityId() != null) flags |= ACT_FACILITY;
+		if (act.getStartTime() != Time.UNDEFINED_TIME) flags |= ACT_START_TIME;
+		if (act.getEndTime() != Time.UNDEFINED_TIME) flags |= ACT_END_TIME;
+		if (act.getMaximumDuration() != Time.UNDEFINED_TIME) flags |= ACT_DURATION;
+		out.writeByte((byte) flags);
+		out.writeInt(getDictionaryIndex(act.getType()));
+		if (coord != null) {
+			out.writeDouble(coord.getX());
+			out.writeDouble(coord.getY());
+			if (coord.hasZ()) out.writeDouble(coord.getZ());
+		}
+		if (act.getLinkId() != null) out.writeInt(act.getLinkId().index());
+		if (act.getFacilityId() != null) out.writeInt(act.getFacilityId().index());
+		if (act.getStartTime() != Time.UNDEFINED_TIME) out.writeDouble(act.getStartTime());
+		if (act.getEndTime() != Time.UNDEFINED_TIME) out.writeDouble(act.getEndTime());
+		if (act.getMaximumDuration() != Time.UNDEFINED_TIME) out.writeDouble(act.getMaximumDuration());
+		return encodeAttributes(act.getAttributes(), out);
+	}
+
+	private Activity decodeActivity(final Input in) {
+		int flags = in.readByte();
+		Activity act = new ActivityImpl(this.strings[in.readInt()]);
+		if ((flags & ACT_COORD) != 0) {
+			double x = in.readDouble();
+			double y = in.readDouble();
+			act.setCoord((flags & ACT_COORD_Z) != 0 ? new Coord(x, y, in.readDouble()) : new Coord(x, y));
+		}
+		if ((flags & ACT_LINK) != 0) act.setLinkId(Id.get(in.readInt(), Link.class));
+		if ((flags & ACT_FACILITY) != 0) act.setFacilityId(Id.get(in.readInt(), ActivityFacility.class));
+		if ((flags & ACT_START_TIME) != 0) act.setStartTime(in.readDouble());
+		if ((flags & ACT_END_TIME) != 0) act.setEndTime(in.readDouble());
+		if ((flags & ACT_DURATION) != 0) act.setMaximumDuration(in.readDouble());
+		decodeAttributes(act.getAttributes(), in);
+		return act;
+	}
+
+	private boolean encodeLeg(final Leg leg, final Output out) {
+		Route route = leg.getRoute();
+		int flags = 0;
+		if (leg.getDepartureTime() != Time.UNDEFINED_TIME) flags |= LEG_DEPARTURE_TIME;
+		if (leg.getTravelTime() != Time.UNDEFINED_TIME) flags |= LEG_TRAVEL_TIME;
+		if (route != null) flags |= LEG_ROUTE;
+		out.writeByte((byte) flags);
+		out.writeInt(getDictionaryIndex(leg.getMode()));
+		if (leg.getDepartureTime() != Time.UNDEFINED_TIME) out.writeDouble(leg.getDepartureTime());
+		if (leg.getTravelTime() != Time.UNDEFINED_TIME) out.writeDouble(leg.getTravelTime());
+		if (route != null && !encodeRoute(route, out)) {
+			return false;
+		}
+		return encodeAttributes(leg.getAttributes(), out);
+	}
+
+	private Leg decodeLeg(final Input in) {
+		int flags = in.readByte();
+		Leg leg = new LegImpl(this.strings[in.readInt()]);
+		if ((flags & LEG_DEPARTURE_TIME) != 0) leg.setDepartureTime(in.readDouble());
+		if ((flags & LEG_TRAVEL_TIME) != 0) leg.setTravelTime(in.readDouble());
+		if ((flags & LEG_ROUTE) != 0) leg.setRoute(decodeRoute(in));
+		decodeAttributes(leg.getAttributes(), in);
+		return leg;
+	}
+
+	private boolean encodeRoute(final Route route, final Output out) {
+		String routeType = route.getRouteType();
+		if (routeType == null || route.getClass() != getRouteClass(routeType)) {
+			return false;
+		}
+		int flags = 0;
+		if (route.getStartLinkId() != null) flags |= ROUTE_START_LINK;
+		if (route.getEndLinkId() != null) flags |= ROUTE_END_LINK;
+		if (!Double.isNaN(route.getDistance())) flags |= ROUTE_DISTANCE;
+		if (route.getTravelTime() != Time.UNDEFINED_TIME) flags |= ROUTE_TRAVEL_TIME;
+		String description = null;
+		if (route instanceof NetworkRoute) {
+			flags |= ROUTE_NETWORK;
+			if (((NetworkRoute) route).getVehicleId() != null) flags |= ROUTE_VEHICLE;
+		} else {
+			description = route.getRouteDescription();
+			if (description != null) flags |= ROUTE_DESCRIPTION;
+		}
+		out.writeByte((byte) flags);
+		out.writeInt(getDictionaryIndex(routeType));
+		if (route.getStartLinkId() != null) out.writeInt(route.getStartLinkId().index());
+		if (route.getEndLinkId() != null) out.writeInt(route.getEndLinkId().index());
+		if (!Double.isNaN(route.getDistance())) out.writeDouble(route.getDistance());
+		if (route.getTravelTime() != Time.UNDEFINED_TIME) out.writeDouble(route.getTravelTime());
+		if (route instanceof NetworkRoute) {
+			NetworkRoute networkRoute = (NetworkRoute) route;
+			List<Id<Link>> linkIds = networkRoute.getLinkIds();
+			out.writeInt(linkIds.size());
+			for (Id<Link> linkId : linkIds) {
+				out.writeInt(linkId.index());
+			}
+			out.writeDouble(networkRoute.getTravelCost());
+			if (networkRoute.getVehicleId() != null) out.writeInt(networkRoute.getVehicleId().index());
+		} else if (description != null) {
+			out.writeString(description);
+		}
+		return true;
+	}
+
+	private Route decodeRoute(final Input in) {
+		int flags = in.readByte();
+		String routeType = this.strings[in.readInt()];
+		Id<Link> startLinkId = (flags & ROUTE_START_LINK) != 0 ? Id.get(in.readInt(), Link.class) : null;
+		Id<Link> endLinkId = (flags & ROUTE_END_LINK) != 0 ? Id.get(in.readInt(), Link.class) : null;
+		Route route = this.routeFactories.createRoute(this.routeFactories.getRouteClassForType(routeType), startLinkId, endLinkId);
+		if ((flags & ROUTE_DISTANCE) != 0) route.setDistance(in.readDouble());
+		if ((flags & ROUTE_TRAVEL_TIME) != 0) route.setTravelTime(in.readDouble());
+		if ((flags & ROUTE_NETWORK) != 0) {
+			NetworkRoute networkRoute = (NetworkRoute) route;
+			int size = in.readInt();
+			List<Id<Link>> linkIds = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				linkIds.add(Id.get(in.readInt(), Link.class));
+			}
+			networkRoute.setLinkIds(startLinkId, linkIds, endLinkId);
+			networkRoute.setTravelCost(in.readDouble());
+			if ((flags & ROUTE_VEHICLE) != 0) networkRoute.setVehicleId(Id.get(in.readInt(), Vehicle.class));
+		} else if ((flags & ROUTE_DESCRIPTION) != 0) {
+			route.setRouteDescription(in.readString());
+		}
+		return route;
+	}
+
+	private Class<?> getRouteClass(final String routeType) {
+		return this.routeClassByType.computeIfAbsent(routeType, type ->
+				this.routeFactories.createRoute(this.routeFactories.getRouteClassForType(type), null, null).getClass());
+	}
+
+	private boolean encodeAttributes(final Attributes attributes, final Output out) {
+		out.writeInt(attributes.size());
+		for (Map.Entry<String, Object> entry : attributes.getAsMap().entrySet()) {
+			out.writeInt(getDictionaryIndex(entry.getKey()));
+			Object value = entry.getValue();
+			if (value instanceof String) {
+				out.writeByte(VALUE_STRING);
+				out.writeString((String) value);
+			} else if (value instanceof Integer) {
+				out.writeByte(VALUE_INTEGER);
+				out.writeLong((Integer) value);
+			} else if (value instanceof Long) {
+				out.writeByte(VALUE_LONG);
+				out.writeLong((Long) value);
+			} else if (value instanceof Double) {
+				out.writeByte(VALUE_DOUBLE);
+				out.writeDouble((Double) value);
+			} else if (value instanceof Boolean) {
+				out.writeByte(VALUE_BOOLEAN);
+				out.writeByte((byte) (((Boolean) value) ? 1 : 0));
+			} else {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void decodeAttributes(final Attributes attributes, final Input in) {
+		int size = in.readInt();
+		for (int i = 0; i < size; i++) {
+			String name = this.strings[in.readInt()];
+			byte kind = in.readByte();
+			switch (kind) {
+				case VALUE_STRING:
+					attributes.putAttribute(name, in.readString());
+					break;
+				case VALUE_INTEGER:
+					attributes.putAttribute(name, (int) in.readLong());
+					break;
+				case VALUE_LONG:
+					attributes.putAttribute(name, in.readLong());
+					break;
+				case VALUE_DOUBLE:
+					attributes.putAttribute(name, in.readDouble());
+					break;
+				default:
+					attributes.putAttribute(name, in.readByte() != 0);
+			}
+		}
+	}
+
+	private int getDictionaryIndex(final String string) {
+		Integer index = this.dictionary.get(string);
+		if (index == null) {
+			synchronized (this) {
+				index = this.dictionary.get(string);
+				if (index == null) {
+					String[] strings = this.strings;
+					if (this.stringCount == strings.length) {
+						strings = Arrays.copyOf(strings, 2 * this.stringCount);
+					}
+					index = this.stringCount++;
+					strings[index] = string;
+					// publishes the new entry to the decoding threads before its index can be used
+					this.strings = strings;
+					this.dictionary.put(string, index);
+				}
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * A growing byte array. Ints and longs are written with a variable length (7 bits per byte), as most of them
+	 * are small indices or counts.
+	 */
+	private static final class Output {
+		private byte[] data = new byte[256];
+		private int size = 0;
+
+		void writeByte(final byte b) {
+			if (this.size == this.data.length) {
+				this.data = Arrays.copyOf(this.data, 2 * this.size);
+			}
+			this.data[this.size++] = b;
+		}
+
+		void writeInt(final int value) {
+			writeLong(value & 0xffffffffL);
+		}
+
+		void writeLong(final long value) {
+			long v = value;
+			while ((v & ~0x7fL) != 0) {
+				writeByte((byte) ((v & 0x7f) | 0x80));
+				v >>>= 7;
+			}
+			writeByte((byte) v);
+		}
+
+		void writeDouble(final double value) {
+			long bits = Double.doubleToRawLongBits(value);
+			for (int shift = 56; shift >= 0; shift -= 8) {
+				writeByte((byte) (bits >>> shift));
+			}
+		}
+
+		void writeString(final String value) {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeInt(bytes.length);
+			for (byte b : bytes) {
+				writeByte(b);
+			}
+		}
+
+		byte[] toByteArray() {
+			return Arrays.copyOf(this.data, this.size);
+		}
+	}
+
+	private static final class Input {
+		private final byte[] data;
+		private int pos = 0;
+
+		Input(final byte[] data) {
+			this.data = data;
+		}
+
+		byte readByte() {
+			return this.data[this.pos++];
+		}
+
+		int readInt() {
+			return (int) readLong();
+		}
+
+		long readLong() {
+			long value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = this.data[this.pos++];
+				value |= (long) (b & 0x7f) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+			return value;
+		}
+
+		double readDouble() {
+			long bits = 0;
+			for (int i = 0; i < 8; i++) {
+				bits = (bits << 8) | (this.data[this.pos++] & 0xff);
+			}
+			return Double.longBitsToDouble(bits);
+		}
+
+		String readString() {
+			int length = readInt();
+			String value = new String(this.data, this.pos, length, StandardCharsets.UTF_8);
+			this.pos += length;
+			return value;
+		}
+	}
+
+}
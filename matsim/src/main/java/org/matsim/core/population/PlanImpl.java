@@ -33,11 +33,19 @@ import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.PlanElement;
 import org.matsim.core.scenario.CustomizableUtils;
 import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.utils.objectattributes.attributable.AttributesUtils;
 
 /* deliberately package */  final class PlanImpl implements Plan {
 
 	private ArrayList<PlanElement> actsLegs = new ArrayList<>();
 
+	/**
+	 * If not null, the plan elements are stored here in compact form instead of in actsLegs, see
+	 * {@link #compact(PlanElementsCodec)}.
+	 */
+	private volatile byte[] compactActsLegs = null;
+	private PlanElementsCodec codec = null;
+
 	private Double score = null;
 	private Person person = null;
 
@@ -122,17 +130,73 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 
 	@Override
 	public final List<PlanElement> getPlanElements() {
+		if (this.compactActsLegs != null) {
+			expand();
+		}
 		return this.actsLegs;
 	}
 
 	@Override
 	public final void addLeg(final Leg leg) {
-		this.actsLegs.add(leg);
+		getPlanElements().add(leg);
 	}
 
 	@Override
 	public final void addActivity(final Activity act) {
-		this.actsLegs.add(act);
+		getPlanElements().add(act);
+	}
+
+	/**
+	 * Replaces the activities and legs of this plan by a compact binary representation, which is expanded again
+	 * as soon as they are accessed. The plan elements are new objects after the expansion.
+	 * <p></p>
+	 * Must not be called while other threads access this plan.
+	 *
+	 * @return false if the plan elements could not be encoded and are kept as they are.
+	 */
+	/* deliberately package */ boolean compact(final PlanElementsCodec planElementsCodec) {
+		if (this.compactActsLegs != null) {
+			return true;
+		}
+		byte[] data = planElementsCodec.encode(this.actsLegs);
+		if (data == null) {
+			return false;
+		}
+		this.codec = planElementsCodec;
+		this.compactActsLegs = data;
+		this.actsLegs = null;
+		return true;
+	}
+
+	/**
+	 * Creates a copy of this plan which shares the activities and legs with this plan, or their compact form if this
+	 * plan is compacted, so this plan stays compacted. Only the list of plan elements, the score, the type and the
+	 * attributes are copied.
+	 */
+	/* deliberately package */ PlanImpl createSnapshot() {
+		PlanImpl snapshot = new PlanImpl();
+		synchronized (this) {
+			if (this.compactActsLegs != null) {
+				snapshot.actsLegs = null;
+				snapshot.codec = this.codec;
+				snapshot.compactActsLegs = this.compactActsLegs;
+			} else {
+				snapshot.actsLegs.addAll(this.actsLegs);
+			}
+		}
+		snapshot.score = this.score;
+		snapshot.type = this.type;
+		AttributesUtils.copyAttributesFromTo(this, snapshot);
+		return snapshot;
+	}
+
+	private synchronized void expand() {
+		// another thread may have expanded the plan elements in the meantime
+		if (this.compactActsLegs != null) {
+			this.actsLegs = this.codec.decode(this.compactActsLegs);
+			this.codec = null;
+			this.compactActsLegs = null;
+		}
 	}
 
 	@Override
@@ -149,7 +213,7 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 
 		return "[score=" + scoreString + "]" +
 //				"[selected=" + PersonUtils.isSelected(this) + "]" +
-				"[nof_acts_legs=" + getPlanElements().size() + "]" +
+				"[nof_acts_legs=" + (this.compactActsLegs != null ? "compact" : String.valueOf(this.actsLegs.size())) + "]" +
 				"[type=" + this.type + "]" +
 				"[personId=" + personIdString + "]" ;
 	}
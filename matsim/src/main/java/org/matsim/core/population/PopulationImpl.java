@@ -44,6 +44,7 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 	private final ObjectAttributes personAttributes = new ObjectAttributes();
 	private long counter = 0;
 	private long nextMsg = 1;
+	private PlanElementsCodec planElementsCodec = null;
 
 	PopulationImpl(PopulationFactory populationFactory2) {
 		this.populationFactory = populationFactory2 ;
@@ -89,6 +90,16 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 		return this.populationFactory;
 	}
 
+	/**
+	 * The codec used to compact the plans of this population, which shares its dictionary among all plans.
+	 */
+	/* deliberately package */ synchronized PlanElementsCodec getPlanElementsCodec() {
+		if (this.planElementsCodec == null) {
+			this.planElementsCodec = new PlanElementsCodec(this.populationFactory.getRouteFactories());
+		}
+		return this.planElementsCodec;
+	}
+
 	@Override
 	public String getName() {
 		return this.name ;
@@ -399,6 +399,44 @@ public final class PopulationUtils {
 		map.putAll(treeMap);
 	}
 
+	/**
+	 * Stores the activities and legs of all non-selected plans of the population in a compact binary form, see
+	 * {@link PlansConfigGroup#isCompactingNonSelectedPlans()}. They are restored transparently when the plan
+	 * elements are accessed the next time. Plans which are not {@link PlanImpl}s, or contain anything which cannot
+	 * be restored exactly, are left as they are.
+	 * <p></p>
+	 * Must not be called while other threads access the plans, e.g. during replanning or the mobsim.
+	 */
+	public static void compactNonSelectedPlans(final Population population) {
+		PlanElementsCodec codec = getPlanElementsCodec(population);
+		for (Person person : population.getPersons().values()) {
+			compactNonSelectedPlans(person, codec);
+		}
+	}
+
+	/**
+	 * Same as {@link #compactNonSelectedPlans(Population)}, but only for one person of the population.
+	 */
+	public static void compactNonSelectedPlans(final Population population, final Person person) {
+		compactNonSelectedPlans(person, getPlanElementsCodec(population));
+	}
+
+	private static void compactNonSelectedPlans(final Person person, final PlanElementsCodec codec) {
+		Plan selectedPlan = person.getSelectedPlan();
+		for (Plan plan : person.getPlans()) {
+			if (plan != selectedPlan && plan instanceof PlanImpl) {
+				((PlanImpl) plan).compact(codec);
+			}
+		}
+	}
+
+	private static PlanElementsCodec getPlanElementsCodec(final Population population) {
+		if (population instanceof PopulationImpl) {
+			return ((PopulationImpl) population).getPlanElementsCodec();
+		}
+		return new PlanElementsCodec(population.getFactory().getRouteFactories());
+	}
+
 	/**
 	 * Computes the (expected or planned) activity end time, depending on the configured time interpretation.
 	 */
@@ -806,6 +844,21 @@ public final class PopulationUtils {
 	 * @param in a plan who's data will be loaded into this plan
 	 * @param out 
 	 **/
+	/**
+	 * Creates a copy of the plan that can be read while the plans of the person are replaced, removed or scored, e.g.
+	 * to write it in background. The activities and legs of {@link PlanImpl}s are not copied but shared with the
+	 * original, in compact form if the original is compacted, so they must not be changed while the copy is used.
+	 * Other plans are copied completely.
+	 */
+	public static Plan createSnapshot(final Plan plan) {
+		if (plan instanceof PlanImpl) {
+			return ((PlanImpl) plan).createSnapshot();
+		}
+		Plan copy = createPlan();
+		copyFromTo(plan, copy);
+		return copy;
+	}
+
 	public static void copyFromTo(final Plan in, Plan out) {
 		out.getPlanElements().clear();
 		out.setScore(in.getScore());
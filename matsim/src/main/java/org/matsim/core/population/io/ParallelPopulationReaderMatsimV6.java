@@ -0,0 +1,291 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelPopulationReaderMatsimV6.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Parallel implementation of the PopulationReaderMatsimV6. The main thread only parses the file and
+ * collects the xml data of each person, which is then interpreted by the parallel threads. The persons
+ * are added to the population by the main thread in the order of the file, so this reader can also be
+ * used for population streaming, where the person algorithms are run as each person is added.
+ * <p></p>
+ * To limit the memory used for persons not yet added, the main thread waits for the oldest person if too
+ * many persons are pending. The person ids are created by the main thread as well, so that their index follows the
+ * order of the file and does not depend on the scheduling of the threads.
+ * <p></p>
+ * {@link PopulationReader} only uses this reader if plans.readingInParallel is switched on and global.numberOfThreads is
+ * larger than 1.
+ *
+ * @see ParallelPopulationReaderMatsimV4
+ */
+/* deliberately package */ class ParallelPopulationReaderMatsimV6 extends PopulationReaderMatsimV6 {
+
+	private static final Logger log = Logger.getLogger(ParallelPopulationReaderMatsimV6.class);
+
+	private final static String POPULATION = "population";
+	private final static String PERSON = "person";
+	private final static String ATTR_PERSON_ID = "id";
+
+	private final static int MAX_PENDING_PERSONS_PER_THREAD = 100;
+
+	private final static PersonData END_PROCESSING = new PersonData(null);
+
+	private final Scenario scenario;
+	private final int numThreads;
+	private final Map<Class<?>, AttributeConverter<?>> attributeConverters = new HashMap<>();
+	private final BlockingQueue<PersonData> queue = new LinkedBlockingQueue<>();
+	private final ArrayDeque<PersonData> pendingPersons = new ArrayDeque<>();
+
+	private Thread[] threads = null;
+	private PersonData currentPersonData = null;
+
+	ParallelPopulationReaderMatsimV6(
+			final String inputCRS,
+			final String targetCRS,
+			final Scenario scenario) {
+		super(inputCRS, targetCRS, scenario);
+		this.scenario = scenario;
+		this.numThreads = Math.max(1, scenario.getConfig().global().getNumberOfThreads());
+	}
+
+	@Override
+	public void putAttributeConverter(final Class<?> clazz, final AttributeConverter<?> converter) {
+		super.putAttributeConverter(clazz, converter);
+		this.attributeConverters.put(clazz, converter);
+	}
+
+	@Override
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		super.putAttributeConverters(converters);
+		this.attributeConverters.putAll(converters);
+	}
+
+	private void initThreads() {
+		log.info("Start parallel population reading with " + this.numThreads + " threads...");
+		this.threads = new Thread[this.numThreads];
+		for (int i = 0; i < this.numThreads; i++) {
+			// the coordinate transformation might have been set by the attributes of the population, so get it only now
+			Runner runner = new Runner(this.scenario, getCoordinateTransformation(), this.attributeConverters, this.queue);
+			Thread thread = new Thread(runner);
+			thread.setDaemon(true);
+			thread.setName(Runner.class.getSimpleName() + i);
+			this.threads[i] = thread;
+			thread.start();
+		}
+	}
+
+	@Override
+	public void startTag(final String name, final Attributes atts, final Stack<String> context) {
+		if (this.currentPersonData == null) {
+			if (!PERSON.equals(name)) {
+				super.startTag(name, atts, context);
+				return;
+			}
+			if (this.threads == null) {
+				initThreads();
+			}
+			Id.createPersonId(atts.getValue(ATTR_PERSON_ID));
+			Stack<String> personContext = new Stack<>();
+			personContext.addAll(context);
+			this.currentPersonData = new PersonData(personContext);
+		}
+		// We have to create copies of the attributes because the object is re-used by the parser!
+		this.currentPersonData.tags.add(new Tag(name, new AttributesImpl(atts), null));
+	}
+
+	@Override
+	public void endTag(final String name, final String content, final Stack<String> context) {
+		if (this.currentPersonData == null) {
+			if (POPULATION.equals(name) && this.threads != null) {
+				try {
+					addProcessedPersons(0);
+				} finally {
+					stopThreads();
+				}
+				log.info("Finished parallel population reading...");
+			}
+			super.endTag(name, content, context);
+			return;
+		}
+		this.currentPersonData.tags.add(new Tag(name, null, content));
+		if (PERSON.equals(name)) {
+			this.queue.add(this.currentPersonData);
+			this.pendingPersons.add(this.currentPersonData);
+			this.currentPersonData = null;
+			boolean success = false;
+			try {
+				addProcessedPersons(this.numThreads * MAX_PENDING_PERSONS_PER_THREAD);
+				success = true;
+			} finally {
+				if (!success) {
+					stopThreads();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the persons processed so far to the population, in the order they were read. Waits for the oldest person
+	 * as long as more than <code>maxPendingPersons</code> persons are pending.
+	 */
+	private void addProcessedPersons(final int maxPendingPersons) {
+		while (!this.pendingPersons.isEmpty()) {
+			PersonData personData = this.pendingPersons.peek();
+			if (personData.processed.getCount() > 0) {
+				if (this.pendingPersons.size() <= maxPendingPersons) {
+					return;
+				}
+				try {
+					personData.processed.await();
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+			}
+			this.pendingPersons.poll();
+			if (personData.exception != null) {
+				throw personData.exception;
+			}
+			addPerson(personData.person);
+		}
+	}
+
+	private void stopThreads() {
+		// persons still queued after a failure are not needed anymore
+		this.queue.clear();
+		this.pendingPersons.clear();
+		// signal the threads that they should end parsing
+		for (int i = 0; i < this.threads.length; i++) {
+			this.queue.add(END_PROCESSING);
+		}
+		// wait for the threads to finish
+		try {
+			for (Thread thread : this.threads) {
+				thread.join();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+		this.threads = null;
+	}
+
+	private static final class Tag {
+		final String name;
+		final Attributes atts; // only for start tags
+		final String content; // only for end tags
+
+		Tag(final String name, final Attributes atts, final String content) {
+			this.name = name;
+			this.atts = atts;
+			this.content = content;
+		}
+	}
+
+	private static final class PersonData {
+		final Stack<String> context;
+		final List<Tag> tags = new ArrayList<>();
+		final CountDownLatch processed = new CountDownLatch(1);
+		Person person = null;
+		RuntimeException exception = null;
+
+		PersonData(final Stack<String> context) {
+			this.context = context;
+		}
+	}
+
+	/**
+	 * Interprets the xml data of the persons taken from the queue, using the regular reader with a context
+	 * rebuilt from the data.
+	 */
+	private static final class Runner extends PopulationReaderMatsimV6 implements Runnable {
+
+		private final BlockingQueue<PersonData> queue;
+		private PersonData currentPersonData = null;
+
+		Runner(final Scenario scenario,
+				final CoordinateTransformation coordinateTransformation,
+				final Map<Class<?>, AttributeConverter<?>> attributeConverters,
+				final BlockingQueue<PersonData> queue) {
+			super(null, null, scenario);
+			setCoordinateTransformation(coordinateTransformation);
+			putAttributeConverters(attributeConverters);
+			this.queue = queue;
+		}
+
+		@Override
+		void addPerson(final Person person) {
+			this.currentPersonData.person = person;
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				PersonData personData;
+				try {
+					personData = this.queue.take();
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+				if (personData == END_PROCESSING) {
+					return;
+				}
+				this.currentPersonData = personData;
+				try {
+					Stack<String> context = personData.context;
+					for (Tag tag : personData.tags) {
+						if (tag.atts != null) {
+							startTag(tag.name, tag.atts, context);
+							context.push(tag.name);
+						} else {
+							context.pop();
+							endTag(tag.name, tag.content, context);
+						}
+					}
+				} catch (RuntimeException e) {
+					personData.exception = e;
+				} finally {
+					// the data is not needed anymore, the person might still have to wait for its predecessors
+					personData.tags.clear();
+					this.currentPersonData = null;
+					personData.processed.countDown();
+				}
+			}
+		}
+	}
+
+}
@@ -114,11 +114,19 @@ public final class PopulationReader extends MatsimXmlParser {
 
 		switch ( doctype ) {
 			case POPULATION_V6:
-				this.delegate =
-						new PopulationReaderMatsimV6(
-						        inputCRS,
-						        targetCRS,
-								this.scenario);
+				if (this.scenario.getConfig().plans().isReadingInParallel() && this.scenario.getConfig().global().getNumberOfThreads() > 1) {
+					this.delegate =
+							new ParallelPopulationReaderMatsimV6(
+							        inputCRS,
+							        targetCRS,
+									this.scenario);
+				} else {
+					this.delegate =
+							new PopulationReaderMatsimV6(
+							        inputCRS,
+							        targetCRS,
+									this.scenario);
+				}
 				((PopulationReaderMatsimV6) delegate).putAttributeConverters( attributeConverters );
 				log.info("using population_v6-reader.");
 				break;
@@ -191,7 +191,10 @@ import java.util.Stack;
 	public void endTag(final String name, final String content, final Stack<String> context) {
 		switch ( name ) {
 			case PERSON:
-				this.plans.addPerson(this.currperson);
+				if (this.scenario.getConfig().plans().isCompactingNonSelectedPlans()) {
+					PopulationUtils.compactNonSelectedPlans(this.plans, this.currperson);
+				}
+				addPerson(this.currperson);
 				this.currperson = null;
 				break;
 			case ATTRIBUTE:
@@ -227,6 +230,18 @@ import java.util.Stack;
 		}
 	}
 
+	/*package*/ void addPerson(final Person person) {
+		this.plans.addPerson(person);
+	}
+
+	/*package*/ CoordinateTransformation getCoordinateTransformation() {
+		return this.coordinateTransformation;
+	}
+
+	/*package*/ void setCoordinateTransformation(final CoordinateTransformation coordinateTransformation) {
+		this.coordinateTransformation = coordinateTransformation;
+	}
+
 	private void startPopulation(final Attributes atts) {
 		this.plans.setName(atts.getValue(ATTR_POPULATION_DESC));
 	}
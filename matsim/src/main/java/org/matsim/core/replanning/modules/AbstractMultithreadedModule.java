@@ -24,13 +24,16 @@ import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.replanning.PlanStrategyModule;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 import org.matsim.core.replanning.ReplanningContext;
 import org.matsim.core.utils.misc.Counter;
 
 import java.lang.Thread.UncaughtExceptionHandler;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -42,13 +45,21 @@ import java.util.concurrent.atomic.AtomicReference;
  * <p></p>
  * <code>initThreads()</code> creates the threads, but does not yet start them.
  * <p></p>
- * <code>handlePlan(Plan)</code> distributes the plans equally to all threads.
+ * <code>handlePlan(Plan)</code> collects the plans.
  * <p></p>
  * <code>finishReplanning()</code> finally starts the threads and waits for all threads to be finished.
+ * By default, the plans are distributed equally to all threads.  While this approach does not lead to
+ * optimal performance gains ("slow threads" vs. "fast threads"), it helps building reproducible runs.
  * <p></p>
- * While this approach does not lead to optimal performance gains ("slow threads" vs.
- * "fast threads"), it helps building reproducible runs.  Additionally, as the threads are only
- * started after all to-be-handled plans are added, we can use unsynchronized data structures.
+ * If person specific random seeds are used (see {@link GlobalConfigGroup#isUsingPersonSpecificRandomSeeds()}),
+ * the threads take small chunks of plans until all plans are handled instead, so a thread which gets some
+ * slow plans (e.g. long multimodal routes) does not hold up the others.  To keep runs reproducible
+ * nevertheless, the random number generators which the module creates with {@link #createLocalRandom()}
+ * for a plan algorithm are reseeded for each person, so the random numbers drawn for a plan neither depend
+ * on the thread handling it nor on the plans handled before.
+ * <p></p>
+ * As the threads are only started after all to-be-handled plans are added, we can use unsynchronized
+ * data structures.
  * <p></p>
  * Design comments/questions:<ul>
  * <li> As a consequence of the design, the instances that getPlanAlgoInstance() returns, need to be thread-safe.  kai, dec'12
@@ -58,14 +69,20 @@ import java.util.concurrent.atomic.AtomicReference;
  * @author mrieser
  */
 abstract public class AbstractMultithreadedModule implements PlanStrategyModule {
+	private static final int CHUNK_SIZE = 16;
+
 	private final int numOfThreads;
+	private final boolean usingPersonSpecificRandomSeeds;
 
-	private PlanAlgoThread[] algothreads = null;
 	private Thread[] threads = null;
-	private PlanAlgorithm directAlgo = null;
+	private PlanAlgoThread directAlgo = null;
 	private String name = null;
 
-	private int count = 0;
+	private final List<Plan> plans = new ArrayList<>();
+	private final AtomicInteger nextPlan = new AtomicInteger();
+	private long seed;
+	/** the random number generators created for the plan algorithm which is currently created, see {@link #createLocalRandom()} */
+	private List<Random> algoRandoms = null;
 
 	private final AtomicReference<Throwable> hadException = new AtomicReference<>(null);
 	private final ExceptionHandler exceptionHandler = new ExceptionHandler(this.hadException);
@@ -83,11 +100,30 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	abstract public PlanAlgorithm getPlanAlgoInstance();
 
 	public AbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
-		this.numOfThreads = globalConfigGroup.getNumberOfThreads();
+		this(globalConfigGroup.getNumberOfThreads(), globalConfigGroup.isUsingPersonSpecificRandomSeeds());
 	}
 
 	public AbstractMultithreadedModule(final int numOfThreads) {
+		this(numOfThreads, false);
+	}
+
+	public AbstractMultithreadedModule(final int numOfThreads, final boolean usingPersonSpecificRandomSeeds) {
 		this.numOfThreads = numOfThreads;
+		this.usingPersonSpecificRandomSeeds = usingPersonSpecificRandomSeeds;
+	}
+
+	/**
+	 * Returns a local random number generator for the plan algorithm which is created in {@link #getPlanAlgoInstance()}.
+	 * If person specific random seeds are used, it is reseeded before each plan which this algorithm handles, so it must
+	 * only be used by this algorithm.  Without person specific random seeds, this is the same as
+	 * {@link MatsimRandom#getLocalInstance()}.
+	 */
+	protected final Random createLocalRandom() {
+		Random random = MatsimRandom.getLocalInstance();
+		if (this.algoRandoms != null) {
+			this.algoRandoms.add(random);
+		}
+		return random;
 	}
 	
 	protected void beforePrepareReplanningHook(@SuppressWarnings("unused") ReplanningContext replanningContextTmp) {
@@ -102,9 +138,12 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	public final void prepareReplanning(ReplanningContext replanningContextTmp) {
 		this.beforePrepareReplanningHook(replanningContextTmp);
 		this.replanningContext = replanningContextTmp;
+		if (this.usingPersonSpecificRandomSeeds) {
+			this.seed = MatsimRandom.getLocalInstance().nextLong();
+		}
 		if (this.numOfThreads == 0) {
 			// it seems, no threads are desired :(
-			this.directAlgo = getPlanAlgoInstance();
+			this.directAlgo = createPlanAlgoThread(0, null);
 		} else {
 			initThreads();
 		}
@@ -118,10 +157,9 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	@Override
 	public final void handlePlan(final Plan plan) {
 		if (this.directAlgo == null) {
-			this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
-			this.count++;
+			this.plans.add(plan);
 		} else {
-			this.directAlgo.run(plan);
+			this.directAlgo.handlePlan(plan);
 		}
 	}
 
@@ -138,7 +176,7 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		
 		if (this.directAlgo == null) {
 			// only try to start threads if we did not directly work on all the plans
-			log.info("[" + this.name + "] starting " + this.threads.length + " threads, handling " + this.count + " plans");
+			log.info("[" + this.name + "] starting " + this.threads.length + " threads, handling " + this.plans.size() + " plans");
 
 			// start threads
 			for (Thread thread : this.threads) {
@@ -160,10 +198,11 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 			}
 		}
 		// reset
-		this.algothreads = null;
 		this.threads = null;
+		this.directAlgo = null;
 		this.replanningContext = null;
-		this.count = 0;
+		this.plans.clear();
+		this.nextPlan.set(0);
 		
 		this.afterFinishReplanningHook();
 	}
@@ -175,24 +214,37 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 
 		this.hadException.set(null);
 		this.threads = new Thread[this.numOfThreads];
-		this.algothreads = new PlanAlgoThread[this.numOfThreads];
 
 		Counter counter = null;
 		// setup threads
 		for (int i = 0; i < this.numOfThreads; i++) {
-			PlanAlgorithm algo = getPlanAlgoInstance();
+			PlanAlgoThread algothread = createPlanAlgoThread(i, counter);
 			if (i == 0) {
-				this.name = algo.getClass().getSimpleName();
-				counter = new Counter("[" + this.name + "] handled plan # ");
+				counter = algothread.counter;
 			}
-			PlanAlgoThread algothread = new PlanAlgoThread(algo, counter);
 			Thread thread = new Thread(algothread, this.name + "." + i);
 			thread.setUncaughtExceptionHandler(this.exceptionHandler);
 			this.threads[i] = thread;
-			this.algothreads[i] = algothread;
 		}
 	}
 
+	private PlanAlgoThread createPlanAlgoThread(final int index, final Counter counter) {
+		// collect the random number generators of the algorithm, so they can be reseeded for each person
+		List<Random> localInstances = new ArrayList<>();
+		this.algoRandoms = this.usingPersonSpecificRandomSeeds ? localInstances : null;
+		PlanAlgorithm algo;
+		try {
+			algo = getPlanAlgoInstance();
+		} finally {
+			this.algoRandoms = null;
+		}
+		if (counter == null) {
+			this.name = algo.getClass().getSimpleName();
+			return new PlanAlgoThread(index, algo, localInstances, new Counter("[" + this.name + "] handled plan # "));
+		}
+		return new PlanAlgoThread(index, algo, localInstances, counter);
+	}
+
 	/* package (for a test) */ final int getNumOfThreads() {
 		return numOfThreads;
 	}
@@ -213,26 +265,42 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 
 	}
 
-	private final static class PlanAlgoThread implements Runnable {
+	private final class PlanAlgoThread implements Runnable {
 
+		private final int index;
 		private final PlanAlgorithm planAlgo;
-		private final List<Plan> plans = new LinkedList<>();
+		private final List<Random> localInstances;
 		private final Counter counter;
 
-		public PlanAlgoThread(final PlanAlgorithm algo, final Counter counter) {
+		public PlanAlgoThread(final int index, final PlanAlgorithm algo, final List<Random> localInstances, final Counter counter) {
+			this.index = index;
 			this.planAlgo = algo;
+			this.localInstances = localInstances;
 			this.counter = counter;
 		}
 
-		public void addPlanToThread(final Plan plan) {
-			this.plans.add(plan);
+		public void handlePlan(final Plan plan) {
+			if (plan != null && plan.getPerson() != null && !this.localInstances.isEmpty()) {
+				MatsimRandom.reseedLocalInstances(this.localInstances, seed, plan.getPerson().getId());
+			}
+			this.planAlgo.run(plan);
+			this.counter.incCounter();
 		}
 
 		@Override
 		public void run() {
-			for (Plan plan : this.plans) {
-				this.planAlgo.run(plan);
-				this.counter.incCounter();
+			int size = plans.size();
+			if (!usingPersonSpecificRandomSeeds) {
+				// the plans of this thread are the same as if they had been distributed round-robin in handlePlan()
+				for (int i = this.index; i < size; i += numOfThreads) {
+					handlePlan(plans.get(i));
+				}
+				return;
+			}
+			for (int start = nextPlan.getAndAdd(CHUNK_SIZE); start < size; start = nextPlan.getAndAdd(CHUNK_SIZE)) {
+				for (int i = start; i < Math.min(start + CHUNK_SIZE, size); i++) {
+					handlePlan(plans.get(i));
+				}
 			}
 		}
 	}
@@ -22,7 +22,6 @@ package org.matsim.core.replanning.modules;
 
 import org.matsim.core.config.groups.ChangeModeConfigGroup;
 import org.matsim.core.config.groups.GlobalConfigGroup;
-import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.population.algorithms.ChooseRandomLegMode;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 
@@ -56,7 +55,7 @@ public class ChangeLegMode extends AbstractMultithreadedModule {
 
 
 	public ChangeLegMode(final GlobalConfigGroup globalConfigGroup, ChangeModeConfigGroup changeLegModeConfigGroup) {
-		super(globalConfigGroup.getNumberOfThreads());
+		super(globalConfigGroup);
 		this.availableModes = changeLegModeConfigGroup.getModes();
 		this.ignoreCarAvailability = changeLegModeConfigGroup.getIgnoreCarAvailability();
 		if (changeLegModeConfigGroup.getBehavior().equals(ChangeModeConfigGroup.Behavior.fromSpecifiedModesToSpecifiedModes)) {
@@ -72,7 +71,7 @@ public class ChangeLegMode extends AbstractMultithreadedModule {
 
 	@Override
 	public PlanAlgorithm getPlanAlgoInstance() {
-		ChooseRandomLegMode algo = new ChooseRandomLegMode(this.availableModes, MatsimRandom.getLocalInstance(), false);
+		ChooseRandomLegMode algo = new ChooseRandomLegMode(this.availableModes, createLocalRandom(), false);
 		algo.setIgnoreCarAvailability(this.ignoreCarAvailability);
 		return algo;
 	}
@@ -23,7 +23,6 @@ package org.matsim.core.replanning.modules;
 import org.matsim.api.core.v01.TransportMode;
 import org.matsim.core.config.groups.ChangeModeConfigGroup;
 import org.matsim.core.config.groups.GlobalConfigGroup;
-import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.population.algorithms.ChooseRandomSingleLegMode;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 
@@ -54,7 +53,7 @@ public class ChangeSingleLegMode extends AbstractMultithreadedModule {
 	private boolean allowSwitchFromListedModesOnly;
 
 	public ChangeSingleLegMode(final GlobalConfigGroup globalConfigGroup, ChangeModeConfigGroup changeLegModeConfigGroup) {
-		super(globalConfigGroup.getNumberOfThreads());
+		super(globalConfigGroup);
 		this.availableModes = changeLegModeConfigGroup.getModes();
 		this.ignoreCarAvailability = changeLegModeConfigGroup.getIgnoreCarAvailability();
 		if (changeLegModeConfigGroup.getBehavior().equals(ChangeModeConfigGroup.Behavior.fromSpecifiedModesToSpecifiedModes)) {
@@ -70,7 +69,7 @@ public class ChangeSingleLegMode extends AbstractMultithreadedModule {
 
 	@Override
 	public PlanAlgorithm getPlanAlgoInstance() {
-		ChooseRandomSingleLegMode algo = new ChooseRandomSingleLegMode(this.availableModes, MatsimRandom.getLocalInstance(), this.allowSwitchFromListedModesOnly );
+		ChooseRandomSingleLegMode algo = new ChooseRandomSingleLegMode(this.availableModes, createLocalRandom(), this.allowSwitchFromListedModesOnly );
 		algo.setIgnoreCarAvailability(this.ignoreCarAvailability);
 		return algo;
 	}
@@ -25,7 +25,6 @@ import javax.inject.Provider;
 
 import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.config.groups.SubtourModeChoiceConfigGroup;
-import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.population.algorithms.ChooseRandomLegModeForSubtour;
 import org.matsim.core.population.algorithms.PermissibleModesCalculator;
 import org.matsim.core.population.algorithms.PermissibleModesCalculatorImpl;
@@ -67,6 +66,7 @@ public class SubtourModeChoice extends AbstractMultithreadedModule {
 	public SubtourModeChoice(Provider<TripRouter> tripRouterProvider, GlobalConfigGroup globalConfigGroup,
 							 SubtourModeChoiceConfigGroup subtourModeChoiceConfigGroup) {
 		this(globalConfigGroup.getNumberOfThreads(),
+				globalConfigGroup.isUsingPersonSpecificRandomSeeds(),
 				subtourModeChoiceConfigGroup.getModes(),
 				subtourModeChoiceConfigGroup.getChainBasedModes(),
 				subtourModeChoiceConfigGroup.considerCarAvailability(),
@@ -83,7 +83,18 @@ public class SubtourModeChoice extends AbstractMultithreadedModule {
 			final boolean considerCarAvailability,
 			double probaForChangeSingleTripMode,
 			Provider<TripRouter> tripRouterProvider) {
-		super(numberOfThreads);
+		this(numberOfThreads, false, modes, chainBasedModes, considerCarAvailability, probaForChangeSingleTripMode, tripRouterProvider);
+	}
+
+	private SubtourModeChoice(
+			final int numberOfThreads,
+			final boolean usingPersonSpecificRandomSeeds,
+			final String[] modes,
+			final String[] chainBasedModes,
+			final boolean considerCarAvailability,
+			double probaForChangeSingleTripMode,
+			Provider<TripRouter> tripRouterProvider) {
+		super(numberOfThreads, usingPersonSpecificRandomSeeds);
 		this.probaForChangeSingleTripMode = probaForChangeSingleTripMode;
 		this.tripRouterProvider = tripRouterProvider;
 		this.modes = modes.clone();
@@ -114,7 +125,7 @@ public class SubtourModeChoice extends AbstractMultithreadedModule {
 						this.permissibleModesCalculator,
 						this.modes,
 						this.chainBasedModes,
-						MatsimRandom.getLocalInstance(), behavior, probaForChangeSingleTripMode);
+						createLocalRandom(), behavior, probaForChangeSingleTripMode);
 		return chooseRandomLegMode;
 	}
 
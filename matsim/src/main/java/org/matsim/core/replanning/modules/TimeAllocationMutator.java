@@ -121,12 +121,12 @@ public class TimeAllocationMutator extends AbstractMultithreadedModule {
 		PlanAlgorithm pmta;
 		switch (this.activityDurationInterpretation) {
 		case minOfDurationAndEndTime:
-			pmta = new TripPlanMutateTimeAllocation(this.tripRouterProvider.get().getStageActivityTypes(), this.mutationRange, this.affectingDuration, MatsimRandom.getLocalInstance(),
+			pmta = new TripPlanMutateTimeAllocation(this.tripRouterProvider.get().getStageActivityTypes(), this.mutationRange, this.affectingDuration, createLocalRandom(),
 					this.subpopulationAttribute, this.personAttributes, this.subpopulationMutationRanges, this.subpopulationAffectingDuration);
 			break;
 		default:
 			pmta = new PlanMutateTimeAllocationSimplified(
-					this.tripRouterProvider.get().getStageActivityTypes(), this.mutationRange, this.affectingDuration, MatsimRandom.getLocalInstance());
+					this.tripRouterProvider.get().getStageActivityTypes(), this.mutationRange, this.affectingDuration, createLocalRandom());
 		}
 		return pmta;
 	}
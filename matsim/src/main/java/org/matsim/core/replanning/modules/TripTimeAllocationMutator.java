@@ -24,7 +24,6 @@ import com.google.inject.Inject;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.PlansConfigGroup;
 import org.matsim.core.config.groups.PlansConfigGroup.ActivityDurationInterpretation;
-import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 import org.matsim.core.population.algorithms.TripPlanMutateTimeAllocation;
 import org.matsim.core.router.TripRouter;
@@ -82,7 +81,7 @@ public class TripTimeAllocationMutator extends AbstractMultithreadedModule {
 			new TripPlanMutateTimeAllocation(
 					tripRouterProvider.get().getStageActivityTypes(),
 					this.mutationRange,
-					affectingDuration, MatsimRandom.getLocalInstance());
+					affectingDuration, createLocalRandom());
 		pmta.setUseActivityDurations(this.useActivityDurations);
 		return pmta;
 	}
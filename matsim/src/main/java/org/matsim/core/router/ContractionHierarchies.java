@@ -0,0 +1,364 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchies.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Least cost path calculator based on a customizable contraction hierarchy (see {@link ContractionHierarchy}).
+ * <p></p>
+ * The arc weights (the "customization") are computed from the travel disutility at the start of a time slice,
+ * lazily for every time slice a route is requested for. A route is the least cost path for the travel
+ * disutilities at the start of the time slice containing the departure time; the travel time and costs
+ * of the returned path are calculated link by link as the path is traveled, like in {@link Dijkstra}.
+ * As the customization is done for all agents, the person and vehicle are only taken into account for the
+ * travel time and costs of the path, but not when looking for it. The customizations are shared by all path
+ * calculators with the same travel disutility instance (see {@link ContractionHierarchiesFactory}).
+ * <p></p>
+ * The query itself only looks at the nodes on the paths from the start and the end node to the root of the
+ * elimination tree of the hierarchy, so it does not need a priority queue.
+ * <p></p>
+ * Every time slice that is used keeps two float weights and two ints per arc in memory. Instances are not
+ * thread-safe; use one per thread, as it is done by the {@link ContractionHierarchiesFactory}.
+ */
+public class ContractionHierarchies implements LeastCostPathCalculator {
+
+	private static final Logger log = Logger.getLogger(ContractionHierarchies.class);
+
+	private final ContractionHierarchy ch;
+	private final TravelDisutility travelCosts;
+	private final TravelTime travelTimes;
+	private final Customizations customizations;
+
+	private final double[] forwardCost;
+	private final double[] backwardCost;
+	private final int[] forwardArc;
+	private final int[] backwardArc;
+
+	/*package*/ ContractionHierarchies(final ContractionHierarchy ch, final Customizations customizations,
+			final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		this.ch = ch;
+		this.customizations = customizations;
+		this.travelCosts = travelCosts;
+		this.travelTimes = travelTimes;
+		int nodeCount = ch.nodes.length;
+		this.forwardCost = new double[nodeCount];
+		this.backwardCost = new double[nodeCount];
+		Arrays.fill(this.forwardCost, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.backwardCost, Double.POSITIVE_INFINITY);
+		this.forwardArc = new int[nodeCount];
+		this.backwardArc = new int[nodeCount];
+	}
+
+	@Override
+	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double starttime, final Person person, final Vehicle vehicle) {
+		int from = this.ch.getRank(fromNode);
+		int to = this.ch.getRank(toNode);
+		if (from < 0 || to < 0) {
+			throw new IllegalArgumentException("The nodes passed as parameters are not part of the network stored by "+
+					getClass().getSimpleName() + ": the validity of the results cannot be guaranteed. Aborting!");
+		}
+
+		List<Node> nodes = new ArrayList<>();
+		List<Link> links = new ArrayList<>();
+		nodes.add(fromNode);
+		if (from != to) {
+			Customization customization = this.customizations.get(starttime, this.travelCosts);
+			if (!search(customization, from, to, links)) {
+				log.warn("No route was found from node " + fromNode.getId() + " to node " + toNode.getId() + ". Some possible reasons:");
+				log.warn("  * Network is not connected.  Run NetworkCleaner().") ;
+				log.warn("  * Network for considered mode does not even exist.  Modes need to be entered for each link in network.xml.");
+				log.warn("  * Network for considered mode is not connected to starting or ending point of route.  Setting insertingAccessEgressWalk to true may help.");
+				log.warn("This will now return null, but it may fail later with a null pointer exception.");
+				return null;
+			}
+		}
+
+		double time = starttime;
+		double cost = 0.0;
+		for (Link link : links) {
+			nodes.add(link.getToNode());
+			cost += this.travelCosts.getLinkTravelDisutility(link, time, person, vehicle);
+			time += this.travelTimes.getLinkTravelTime(link, time, person, vehicle);
+		}
+		return new Path(nodes, links, time - starttime, cost);
+	}
+
+	/**
+	 * Searches upwards from both nodes along their paths to the root of the elimination tree. All nodes
+	 * reachable via arcs leading upwards are on this path, and it is already sorted by rank.
+	 */
+	private boolean search(final Customization customization, final int from, final int to, final List<Link> links) {
+		int[] upFirst = this.ch.upFirst;
+		int[] arcHead = this.ch.arcHead;
+		int[] parent = this.ch.parent;
+
+		this.forwardCost[from] = 0.0;
+		for (int v = from; v >= 0; v = parent[v]) {
+			double cost = this.forwardCost[v];
+			if (cost == Double.POSITIVE_INFINITY) continue;
+			for (int arc = upFirst[v]; arc < upFirst[v + 1]; arc++) {
+				double newCost = cost + customization.upWeight[arc];
+				int head = arcHead[arc];
+				if (newCost < this.forwardCost[head]) {
+					this.forwardCost[head] = newCost;
+					this.forwardArc[head] = arc;
+				}
+			}
+		}
+		this.backwardCost[to] = 0.0;
+		for (int v = to; v >= 0; v = parent[v]) {
+			double cost = this.backwardCost[v];
+			if (cost == Double.POSITIVE_INFINITY) continue;
+			for (int arc = upFirst[v]; arc < upFirst[v + 1]; arc++) {
+				double newCost = cost + customization.downWeight[arc];
+				int head = arcHead[arc];
+				if (newCost < this.backwardCost[head]) {
+					this.backwardCost[head] = newCost;
+					this.backwardArc[head] = arc;
+				}
+			}
+		}
+
+		int meetingNode = -1;
+		double bestCost = Double.POSITIVE_INFINITY;
+		for (int v = to; v >= 0; v = parent[v]) {
+			double cost = this.forwardCost[v] + this.backwardCost[v];
+			if (cost < bestCost) {
+				bestCost = cost;
+				meetingNode = v;
+			}
+		}
+
+		if (meetingNode >= 0) {
+			// forward part: collect the arcs from the meeting node down to the start node, then unpack them in reverse order
+			List<Integer> arcs = new ArrayList<>();
+			for (int v = meetingNode; v != from; v = this.ch.arcTail[this.forwardArc[v]]) {
+				arcs.add(this.forwardArc[v]);
+			}
+			for (int i = arcs.size() - 1; i >= 0; i--) {
+				unpack(customization, arcs.get(i), true, links);
+			}
+			for (int v = meetingNode; v != to; v = this.ch.arcTail[this.backwardArc[v]]) {
+				unpack(customization, this.backwardArc[v], false, links);
+			}
+		}
+
+		for (int v = from; v >= 0; v = parent[v]) {
+			this.forwardCost[v] = Double.POSITIVE_INFINITY;
+			for (int arc = upFirst[v]; arc < upFirst[v + 1]; arc++) {
+				this.forwardCost[arcHead[arc]] = Double.POSITIVE_INFINITY;
+			}
+		}
+		for (int v = to; v >= 0; v = parent[v]) {
+			this.backwardCost[v] = Double.POSITIVE_INFINITY;
+			for (int arc = upFirst[v]; arc < upFirst[v + 1]; arc++) {
+				this.backwardCost[arcHead[arc]] = Double.POSITIVE_INFINITY;
+			}
+		}
+		return meetingNode >= 0;
+	}
+
+	/**
+	 * Adds the links represented by the arc, either traveled upwards (from tail to head) or downwards.
+	 * A shortcut from u via v to w is the arc from v to u followed by the arc from v to w.
+	 */
+	private void unpack(final Customization customization, final int arc, final boolean up, final List<Link> links) {
+		int[] arcStack = new int[16];
+		boolean[] upStack = new boolean[16];
+		int size = 0;
+		arcStack[size] = arc;
+		upStack[size++] = up;
+		while (size > 0) {
+			size--;
+			int a = arcStack[size];
+			boolean u = upStack[size];
+			int via = u ? customization.upVia[a] : customization.downVia[a];
+			if (via >= 0) {
+				links.add(this.ch.links[via]);
+				continue;
+			}
+			int middle = -via - 1;
+			int toTail = this.ch.findArc(middle, this.ch.arcTail[a]);
+			int toHead = this.ch.findArc(middle, this.ch.arcHead[a]);
+			if (size + 2 > arcStack.length) {
+				arcStack = Arrays.copyOf(arcStack, 2 * arcStack.length);
+				upStack = Arrays.copyOf(upStack, 2 * upStack.length);
+			}
+			// pushed in reverse order of traversal
+			if (u) {
+				arcStack[size] = toHead;
+				upStack[size++] = true;
+				arcStack[size] = toTail;
+				upStack[size++] = false;
+			} else {
+				arcStack[size] = toTail;
+				upStack[size++] = true;
+				arcStack[size] = toHead;
+				upStack[size++] = false;
+			}
+		}
+	}
+
+	/**
+	 * The customizations (without travel times) of all time slices for one travel disutility, created lazily. Reading
+	 * them does not need any locking, and each customization is created only once, by the first thread needing it.
+	 */
+	/*package*/ static final class Customizations {
+		private final ContractionHierarchy ch;
+		private final int timeSliceSize;
+
+		private volatile Customization[] customizations = new Customization[0];
+
+		Customizations(final ContractionHierarchy ch, final int timeSliceSize) {
+			this.ch = ch;
+			this.timeSliceSize = timeSliceSize;
+		}
+
+		/**
+		 * @param travelCosts the disutility of the calling path calculator; it is the same instance for all path
+		 * calculators sharing these customizations
+		 */
+		Customization get(final double time, final TravelDisutility travelCosts) {
+			int slice = time > 0 && time < Double.POSITIVE_INFINITY ? (int) (time / this.timeSliceSize) : 0;
+			Customization[] current = this.customizations;
+			if (slice < current.length && current[slice] != null) {
+				return current[slice];
+			}
+			synchronized (this) {
+				current = this.customizations;
+				if (slice < current.length && current[slice] != null) {
+					return current[slice];
+				}
+				Customization customization = new Customization(this.ch, travelCosts, null, (double) slice * this.timeSliceSize);
+				Customization[] extended = Arrays.copyOf(current, Math.max(current.length, slice + 1));
+				extended[slice] = customization;
+				this.customizations = extended;
+				return customization;
+			}
+		}
+
+		/**
+		 * Drops all customizations, e.g. because the travel times have changed.
+		 */
+		synchronized void clear() {
+			this.customizations = new Customization[0];
+		}
+	}
+
+	/**
+	 * The arc weights for one time slice.
+	 * <p></p>
+	 * <code>upWeight</code> is the cost from the tail to the head of the arc, <code>downWeight</code> the cost
+	 * in the other direction. <code>upVia</code> and <code>downVia</code> contain the index of the link the
+	 * weight is from, or <code>-(v+1)</code> if it is a shortcut via the node <code>v</code>.
+	 * <p></p>
+	 * If travel times are given, <code>upTime</code> and <code>downTime</code> contain the travel time along
+	 * the least cost path the weight belongs to, otherwise they are <code>null</code>.
+	 * <p></p>
+	 * Customizations are not changed after their construction, so they can be shared between threads.
+	 */
+	/*package*/ static final class Customization {
+		final float[] upWeight;
+		final float[] downWeight;
+		final int[] upVia;
+		final int[] downVia;
+		final float[] upTime;
+		final float[] downTime;
+
+		Customization(final ContractionHierarchy ch, final TravelDisutility travelCosts, final TravelTime travelTimes, final double time) {
+			int arcCount = ch.arcHead.length;
+			this.upWeight = new float[arcCount];
+			this.downWeight = new float[arcCount];
+			this.upVia = new int[arcCount];
+			this.downVia = new int[arcCount];
+			Arrays.fill(this.upWeight, Float.POSITIVE_INFINITY);
+			Arrays.fill(this.downWeight, Float.POSITIVE_INFINITY);
+			this.upTime = travelTimes == null ? null : new float[arcCount];
+			this.downTime = travelTimes == null ? null : new float[arcCount];
+
+			for (int l = 0; l < ch.links.length; l++) {
+				int linkArc = ch.linkArc[l];
+				if (linkArc < 0) continue;
+				float cost = (float) travelCosts.getLinkTravelDisutility(ch.links[l], time, null, null);
+				int arc = linkArc >> 1;
+				if ((linkArc & 1) == 0) {
+					if (cost < this.upWeight[arc]) {
+						this.upWeight[arc] = cost;
+						this.upVia[arc] = l;
+						if (travelTimes != null) {
+							this.upTime[arc] = (float) travelTimes.getLinkTravelTime(ch.links[l], time, null, null);
+						}
+					}
+				} else if (cost < this.downWeight[arc]) {
+					this.downWeight[arc] = cost;
+					this.downVia[arc] = l;
+					if (travelTimes != null) {
+						this.downTime[arc] = (float) travelTimes.getLinkTravelTime(ch.links[l], time, null, null);
+					}
+				}
+			}
+
+			// for each lower triangle v-u-w with v < u < w, the path u-v-w may be shorter than the arc u-w
+			int[] upFirst = ch.upFirst;
+			int[] arcHead = ch.arcHead;
+			for (int v = 0; v < ch.nodes.length; v++) {
+				int end = upFirst[v + 1];
+				for (int vu = upFirst[v]; vu < end; vu++) {
+					int u = arcHead[vu];
+					int uw = upFirst[u];
+					for (int vw = vu + 1; vw < end; vw++) {
+						int w = arcHead[vw];
+						while (arcHead[uw] != w) uw++; // all upper neighbors of v are upper neighbors of u, sorted
+						float up = this.downWeight[vu] + this.upWeight[vw];
+						if (up < this.upWeight[uw]) {
+							this.upWeight[uw] = up;
+							this.upVia[uw] = -v - 1;
+							if (this.upTime != null) {
+								this.upTime[uw] = this.downTime[vu] + this.upTime[vw];
+							}
+						}
+						float down = this.downWeight[vw] + this.upWeight[vu];
+						if (down < this.downWeight[uw]) {
+							this.downWeight[uw] = down;
+							this.downVia[uw] = -v - 1;
+							if (this.downTime != null) {
+								this.downTime[uw] = this.downTime[vw] + this.upTime[vu];
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+}
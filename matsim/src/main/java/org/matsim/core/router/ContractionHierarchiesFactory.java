@@ -0,0 +1,187 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.router.ContractionHierarchies.Customizations;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Creates {@link ContractionHierarchies}. The metric independent contraction hierarchy is created once per
+ * network and shared by all path calculators.
+ * <p></p>
+ * The customizations to the travel disutilities are shared, too: path calculators for the same network and
+ * the same instances of the travel time and travel disutility use the same customizations, so that each time
+ * slice is customized only once and not once per path calculator. Different instances are never assumed to be
+ * equivalent, even if they are of the same class.
+ * As the travel times change from one iteration to the next, all customizations are dropped at the start of
+ * each iteration, including the ones of the {@link ManyToManyPathCalculator}s created by this factory.
+ * <p></p>
+ * The customization is done for all agents, so it cannot be done for travel disutilities which need a person
+ * (e.g. the randomizing ones with a sigma other than 0). For them, a {@link FastDijkstra} is created instead.
+ * <p></p>
+ * By default, one customization per hour is used. As the customization is the same for all slots of the
+ * travel time calculator within one time slice, there is no benefit in using time slices shorter than them.
+ */
+@Singleton
+public class ContractionHierarchiesFactory implements LeastCostPathCalculatorFactory, IterationStartsListener {
+
+	private static final Logger log = Logger.getLogger(ContractionHierarchiesFactory.class);
+
+	private final Map<Network, ContractionHierarchy> hierarchies = new HashMap<>();
+	private final List<SharedCustomizations> sharedCustomizations = new ArrayList<>();
+	private final Set<ManyToManyPathCalculator> manyToManyPathCalculators = Collections.newSetFromMap(new WeakHashMap<>());
+	private final FastDijkstraFactory fallbackFactory = new FastDijkstraFactory();
+	private final int timeSliceSize;
+
+	@Inject
+	public ContractionHierarchiesFactory(final TravelTimeCalculatorConfigGroup travelTimeCalculatorConfigGroup) {
+		this(Math.max(3600, travelTimeCalculatorConfigGroup.getTraveltimeBinSize()));
+	}
+
+	public ContractionHierarchiesFactory() {
+		this(3600);
+	}
+
+	public ContractionHierarchiesFactory(final int timeSliceSize) {
+		this.timeSliceSize = timeSliceSize;
+	}
+
+	@Override
+	public LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		ContractionHierarchy ch = getHierarchy(network);
+		if (!canBeEvaluatedWithoutPerson(ch, travelCosts)) {
+			log.warn("The travel disutility " + travelCosts.getClass().getName() + " cannot be evaluated without a person, "
+					+ "so it cannot be used for the customization of the contraction hierarchy. FastDijkstra is used instead.");
+			return this.fallbackFactory.createPathCalculator(network, travelCosts, travelTimes);
+		}
+		return new ContractionHierarchies(ch, getCustomizations(ch, travelCosts, travelTimes), travelCosts, travelTimes);
+	}
+
+	@Override
+	public void notifyIterationStarts(final IterationStartsEvent event) {
+		synchronized (this.sharedCustomizations) {
+			// path calculators created in the previous iterations keep their customizations, but they are re-created lazily
+			for (SharedCustomizations shared : this.sharedCustomizations) {
+				shared.customizations.clear();
+			}
+			this.sharedCustomizations.clear();
+		}
+		synchronized (this.manyToManyPathCalculators) {
+			for (ManyToManyPathCalculator calculator : this.manyToManyPathCalculators) {
+				calculator.clearCustomizations();
+			}
+		}
+	}
+
+	/**
+	 * Creates a {@link ManyToManyPathCalculator} which shares the contraction hierarchy of the network with the
+	 * path calculators created by this factory. Its customizations are dropped at the start of each iteration.
+	 */
+	public ManyToManyPathCalculator createManyToManyPathCalculator(final Network network, final TravelDisutility travelCosts,
+			final TravelTime travelTimes, final int numberOfThreads) {
+		if (!canBeEvaluatedWithoutPerson(getHierarchy(network), travelCosts)) {
+			throw new IllegalArgumentException("The travel disutility " + travelCosts.getClass().getName()
+					+ " cannot be evaluated without a person, so it cannot be used for the customization of the contraction hierarchy.");
+		}
+		ManyToManyPathCalculator calculator = new ManyToManyPathCalculator(getHierarchy(network), travelCosts, travelTimes,
+				this.timeSliceSize, numberOfThreads);
+		synchronized (this.manyToManyPathCalculators) {
+			this.manyToManyPathCalculators.add(calculator);
+		}
+		return calculator;
+	}
+
+	private ContractionHierarchy getHierarchy(final Network network) {
+		synchronized (this.hierarchies) {
+			ContractionHierarchy ch = this.hierarchies.get(network);
+			if (ch == null) {
+				ch = new ContractionHierarchy(network);
+				this.hierarchies.put(network, ch);
+			}
+			return ch;
+		}
+	}
+
+	private Customizations getCustomizations(final ContractionHierarchy ch, final TravelDisutility travelCosts,
+			final TravelTime travelTimes) {
+		synchronized (this.sharedCustomizations) {
+			for (SharedCustomizations shared : this.sharedCustomizations) {
+				if (shared.ch == ch && shared.travelTimes == travelTimes && shared.travelCosts == travelCosts) {
+					return shared.customizations;
+				}
+			}
+			SharedCustomizations shared = new SharedCustomizations(ch, travelTimes, travelCosts,
+					new Customizations(ch, this.timeSliceSize));
+			this.sharedCustomizations.add(shared);
+			return shared.customizations;
+		}
+	}
+
+	/**
+	 * @return <code>false</code> if the travel disutility fails for a link without a person
+	 */
+	private static boolean canBeEvaluatedWithoutPerson(final ContractionHierarchy ch, final TravelDisutility travelCosts) {
+		if (ch.links.length == 0) {
+			return true;
+		}
+		try {
+			travelCosts.getLinkTravelDisutility(ch.links[0], 0, null, null);
+		} catch (RuntimeException e) {
+			return false;
+		}
+		return true;
+	}
+
+	private static final class SharedCustomizations {
+		final ContractionHierarchy ch;
+		final TravelTime travelTimes;
+		final TravelDisutility travelCosts;
+		final Customizations customizations;
+
+		SharedCustomizations(final ContractionHierarchy ch, final TravelTime travelTimes, final TravelDisutility travelCosts,
+				final Customizations customizations) {
+			this.ch = ch;
+			this.travelTimes = travelTimes;
+			this.travelCosts = travelCosts;
+			this.customizations = customizations;
+		}
+	}
+
+}
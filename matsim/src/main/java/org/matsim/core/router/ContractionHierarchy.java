@@ -0,0 +1,332 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchy.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * The metric independent part of a customizable contraction hierarchy (CCH) of a network.
+ * <p></p>
+ * The nodes are ordered by a geometric nested dissection: the network is recursively split at the median
+ * coordinate, and the nodes separating both halves are ranked above all nodes of the halves. Then all nodes
+ * are contracted in this order without witness searches, i.e. for every contracted node, all its neighbors
+ * of higher rank are connected by an arc. The resulting arcs therefore do not depend on travel times or
+ * costs, and {@link ContractionHierarchies} can compute their weights for any {@link
+ * org.matsim.core.router.util.TravelDisutility} in a single pass over the arcs.
+ * <p></p>
+ * Internally, the nodes are identified by their rank. Each arc connects a lower ranked node (its tail) with
+ * a higher ranked one (its head) and is used in both directions.
+ */
+/*package*/ final class ContractionHierarchy {
+
+	private static final Logger log = Logger.getLogger(ContractionHierarchy.class);
+
+	/*package*/ final Network network;
+
+	/** The nodes by rank. */
+	/*package*/ final Node[] nodes;
+	/*package*/ final Link[] links;
+
+	/** The arcs of node <code>v</code> are <code>upFirst[v]</code> to <code>upFirst[v+1] - 1</code>, sorted by head. */
+	/*package*/ final int[] upFirst;
+	/*package*/ final int[] arcHead;
+	/*package*/ final int[] arcTail;
+
+	/** The parent of each node in the elimination tree, i.e. its lowest ranked upper neighbor, or -1. */
+	/*package*/ final int[] parent;
+
+	/** For each link: <code>2 * arc</code> if it leads from tail to head of the arc, <code>2 * arc + 1</code> otherwise, -1 for loops. */
+	/*package*/ final int[] linkArc;
+
+	private final int[] rankByNodeIdIndex;
+
+	/*package*/ ContractionHierarchy(final Network network) {
+		long start = System.currentTimeMillis();
+		this.network = network;
+		int nodeCount = network.getNodes().size();
+		Node[] nodesByIndex = network.getNodes().values().toArray(new Node[nodeCount]);
+
+		int[] indexById = new int[Id.getNumberOfIds(Node.class)];
+		Arrays.fill(indexById, -1);
+		for (int i = 0; i < nodeCount; i++) {
+			indexById[nodesByIndex[i].getId().index()] = i;
+		}
+		this.links = network.getLinks().values().toArray(new Link[network.getLinks().size()]);
+
+		// undirected adjacency of the network, without loops
+		int[][] neighbors = new int[nodeCount][];
+		int[] degree = new int[nodeCount];
+		for (Link link : this.links) {
+			int from = indexById[link.getFromNode().getId().index()];
+			int to = indexById[link.getToNode().getId().index()];
+			if (from != to) {
+				degree[from]++;
+				degree[to]++;
+			}
+		}
+		for (int i = 0; i < nodeCount; i++) {
+			neighbors[i] = new int[degree[i]];
+			degree[i] = 0;
+		}
+		for (Link link : this.links) {
+			int from = indexById[link.getFromNode().getId().index()];
+			int to = indexById[link.getToNode().getId().index()];
+			if (from != to) {
+				neighbors[from][degree[from]++] = to;
+				neighbors[to][degree[to]++] = from;
+			}
+		}
+
+		int[] rankByIndex = orderByNestedDissection(nodesByIndex, neighbors);
+
+		this.nodes = new Node[nodeCount];
+		this.rankByNodeIdIndex = new int[indexById.length];
+		Arrays.fill(this.rankByNodeIdIndex, -1);
+		int[][] upperNeighbors = new int[nodeCount][];
+		for (int i = 0; i < nodeCount; i++) {
+			int rank = rankByIndex[i];
+			this.nodes[rank] = nodesByIndex[i];
+			this.rankByNodeIdIndex[nodesByIndex[i].getId().index()] = rank;
+			int[] upper = new int[neighbors[i].length];
+			int count = 0;
+			for (int neighbor : neighbors[i]) {
+				if (rankByIndex[neighbor] > rank) {
+					upper[count++] = rankByIndex[neighbor];
+				}
+			}
+			upperNeighbors[rank] = Arrays.copyOf(upper, count);
+		}
+
+		// contract the nodes: the upper neighbors of a node become upper neighbors of its parent
+		this.parent = new int[nodeCount];
+		this.upFirst = new int[nodeCount + 1];
+		int[] upperCount = new int[nodeCount];
+		for (int v = 0; v < nodeCount; v++) {
+			int[] upper = upperNeighbors[v];
+			upperCount[v] = upper.length;
+		}
+		for (int v = 0; v < nodeCount; v++) {
+			int[] upper = upperNeighbors[v];
+			Arrays.sort(upper, 0, upperCount[v]);
+			int count = 0;
+			for (int i = 0; i < upperCount[v]; i++) {
+				if (count == 0 || upper[count - 1] != upper[i]) {
+					upper[count++] = upper[i];
+				}
+			}
+			upperNeighbors[v] = upper = Arrays.copyOf(upper, count);
+			this.upFirst[v + 1] = this.upFirst[v] + count;
+			if (count == 0) {
+				this.parent[v] = -1;
+				continue;
+			}
+			int p = upper[0];
+			this.parent[v] = p;
+			int[] parentUpper = upperNeighbors[p];
+			if (upperCount[p] + count - 1 > parentUpper.length) {
+				parentUpper = upperNeighbors[p] = Arrays.copyOf(parentUpper, Math.max(2 * parentUpper.length, upperCount[p] + count - 1));
+			}
+			System.arraycopy(upper, 1, parentUpper, upperCount[p], count - 1);
+			upperCount[p] += count - 1;
+		}
+
+		int arcCount = this.upFirst[nodeCount];
+		this.arcHead = new int[arcCount];
+		this.arcTail = new int[arcCount];
+		for (int v = 0; v < nodeCount; v++) {
+			System.arraycopy(upperNeighbors[v], 0, this.arcHead, this.upFirst[v], upperNeighbors[v].length);
+			Arrays.fill(this.arcTail, this.upFirst[v], this.upFirst[v + 1], v);
+		}
+
+		this.linkArc = new int[this.links.length];
+		for (int l = 0; l < this.links.length; l++) {
+			int from = getRank(this.links[l].getFromNode());
+			int to = getRank(this.links[l].getToNode());
+			if (from == to) {
+				this.linkArc[l] = -1;
+			} else if (from < to) {
+				this.linkArc[l] = 2 * findArc(from, to);
+			} else {
+				this.linkArc[l] = 2 * findArc(to, from) + 1;
+			}
+		}
+
+		log.info("contraction hierarchy with " + nodeCount + " nodes and " + arcCount + " arcs (network: "
+				+ this.links.length + " links) created in " + (System.currentTimeMillis() - start) + " ms.");
+	}
+
+	/**
+	 * @return the rank of the node, or -1 if it does not belong to the network of this hierarchy.
+	 */
+	/*package*/ int getRank(final Node node) {
+		int index = node.getId().index();
+		if (index >= this.rankByNodeIdIndex.length) {
+			return -1;
+		}
+		int rank = this.rankByNodeIdIndex[index];
+		return rank >= 0 && this.nodes[rank] == node ? rank : -1;
+	}
+
+	/**
+	 * @return the arc from <code>tail</code> to the higher ranked node <code>head</code>, or -1 if there is none.
+	 */
+	/*package*/ int findArc(final int tail, final int head) {
+		int arc = Arrays.binarySearch(this.arcHead, this.upFirst[tail], this.upFirst[tail + 1], head);
+		return arc < 0 ? -1 : arc;
+	}
+
+	/**
+	 * Recursively splits the nodes at the median of their x or y coordinates (whichever extent is larger).
+	 * The nodes of the smaller side which are adjacent to the other side form the separator, which gets the
+	 * highest ranks of the part, the remaining nodes of both sides are handled the same way.
+	 */
+	private static int[] orderByNestedDissection(final Node[] nodes, final int[][] neighbors) {
+		int nodeCount = nodes.length;
+		double[] x = new double[nodeCount];
+		double[] y = new double[nodeCount];
+		for (int i = 0; i < nodeCount; i++) {
+			Coord coord = nodes[i].getCoord();
+			x[i] = coord.getX();
+			y[i] = coord.getY();
+		}
+
+		int[] rank = new int[nodeCount];
+		int[] side = new int[nodeCount]; // which part (and side of it) a node currently belongs to
+		int sideCounter = 0;
+
+		List<int[]> parts = new ArrayList<>();
+		int[] all = new int[nodeCount];
+		for (int i = 0; i < nodeCount; i++) all[i] = i;
+		parts.add(all);
+		List<Integer> lowestRanks = new ArrayList<>();
+		lowestRanks.add(0);
+
+		while (!parts.isEmpty()) {
+			int[] part = parts.remove(parts.size() - 1);
+			int lo = lowestRanks.remove(lowestRanks.size() - 1);
+			if (part.length <= 2) {
+				for (int node : part) rank[node] = lo++;
+				continue;
+			}
+
+			double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+			double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+			for (int node : part) {
+				minX = Math.min(minX, x[node]);
+				maxX = Math.max(maxX, x[node]);
+				minY = Math.min(minY, y[node]);
+				maxY = Math.max(maxY, y[node]);
+			}
+			double[] key = (maxX - minX >= maxY - minY) ? x : y;
+			int half = part.length / 2;
+			select(part, key, half);
+
+			int sideA = ++sideCounter;
+			int sideB = ++sideCounter;
+			for (int i = 0; i < part.length; i++) {
+				side[part[i]] = i < half ? sideA : sideB;
+			}
+			int boundaryA = 0;
+			int boundaryB = 0;
+			for (int i = 0; i < part.length; i++) {
+				int node = part[i];
+				int other = i < half ? sideB : sideA;
+				for (int neighbor : neighbors[node]) {
+					if (side[neighbor] == other) {
+						if (i < half) boundaryA++; else boundaryB++;
+						break;
+					}
+				}
+			}
+			// the separator is the boundary of the side with fewer boundary nodes
+			boolean separatorInA = boundaryA <= boundaryB;
+			int separatorSize = separatorInA ? boundaryA : boundaryB;
+			int[] separator = new int[separatorSize];
+			int[] a = new int[(separatorInA ? half - separatorSize : half)];
+			int[] b = new int[(separatorInA ? part.length - half : part.length - half - separatorSize)];
+			int sCount = 0, aCount = 0, bCount = 0;
+			for (int i = 0; i < part.length; i++) {
+				int node = part[i];
+				boolean inA = i < half;
+				boolean isSeparator = false;
+				if (inA == separatorInA) {
+					int other = inA ? sideB : sideA;
+					for (int neighbor : neighbors[node]) {
+						if (side[neighbor] == other) {
+							isSeparator = true;
+							break;
+						}
+					}
+				}
+				if (isSeparator) separator[sCount++] = node;
+				else if (inA) a[aCount++] = node;
+				else b[bCount++] = node;
+			}
+
+			int hi = lo + part.length;
+			for (int i = 0; i < separatorSize; i++) {
+				rank[separator[i]] = hi - separatorSize + i;
+			}
+			parts.add(a);
+			lowestRanks.add(lo);
+			parts.add(b);
+			lowestRanks.add(lo + a.length);
+		}
+		return rank;
+	}
+
+	/**
+	 * Rearranges the nodes such that the first <code>k</code> ones have the smallest keys (quickselect).
+	 */
+	private static void select(final int[] nodes, final double[] key, final int k) {
+		int left = 0;
+		int right = nodes.length - 1;
+		while (left < right) {
+			double pivot = key[nodes[(left + right) >>> 1]];
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (key[nodes[i]] < pivot) i++;
+				while (key[nodes[j]] > pivot) j--;
+				if (i <= j) {
+					int tmp = nodes[i];
+					nodes[i] = nodes[j];
+					nodes[j] = tmp;
+					i++;
+					j--;
+				}
+			}
+			if (k <= j) right = j;
+			else if (k >= i) left = i;
+			else return;
+		}
+	}
+
+}
@@ -28,6 +28,7 @@ import javax.inject.Singleton;
 
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.router.util.ArrayRoutingNetworkFactory;
 import org.matsim.core.router.util.LeastCostPathCalculator;
@@ -50,10 +51,11 @@ public class FastAStarLandmarksFactory implements LeastCostPathCalculatorFactory
 	private final Map<Network, PreProcessLandmarks> preProcessData = new HashMap<>();
 
 	private final int nThreads;
+	private final String landmarksCacheDirectory;
 
 	@Inject
-	public FastAStarLandmarksFactory(final GlobalConfigGroup globalConfigGroup) {
-		this(FastRouterType.ARRAY, globalConfigGroup.getNumberOfThreads());
+	public FastAStarLandmarksFactory(final GlobalConfigGroup globalConfigGroup, final ControlerConfigGroup controlerConfigGroup) {
+		this(FastRouterType.ARRAY, globalConfigGroup.getNumberOfThreads(), controlerConfigGroup.getLandmarksCacheDirectory());
 	}
 
 	public FastAStarLandmarksFactory() {
@@ -64,11 +66,18 @@ public class FastAStarLandmarksFactory implements LeastCostPathCalculatorFactory
 	}
 
 	public FastAStarLandmarksFactory(int nThreads) {
-		this(FastRouterType.ARRAY, nThreads);
+		this(FastRouterType.ARRAY, nThreads, null);
+	}
+
+	/**
+	 * @param landmarksCacheDirectory see {@link PreProcessLandmarks#setCacheDirectory(String)}
+	 */
+	public FastAStarLandmarksFactory(int nThreads, String landmarksCacheDirectory) {
+		this(FastRouterType.ARRAY, nThreads, landmarksCacheDirectory);
 	}
 
 	// hide this constructor, as only one router type is allowed anyway...
-	private FastAStarLandmarksFactory(final FastRouterType fastRouterType, int numberOfThreads) {
+	private FastAStarLandmarksFactory(final FastRouterType fastRouterType, int numberOfThreads, String landmarksCacheDirectory) {
 		switch (fastRouterType) {
 		case ARRAY:
 			this.routingNetworkFactory = new ArrayRoutingNetworkFactory();
@@ -80,6 +89,7 @@ public class FastAStarLandmarksFactory implements LeastCostPathCalculatorFactory
 		}
 
 		this.nThreads = numberOfThreads;
+		this.landmarksCacheDirectory = landmarksCacheDirectory;
 	}
 
 	@Override
@@ -93,6 +103,7 @@ public class FastAStarLandmarksFactory implements LeastCostPathCalculatorFactory
 			if (preProcessLandmarks == null) {
 				preProcessLandmarks = new PreProcessLandmarks(travelCosts);
 				preProcessLandmarks.setNumberOfThreads(nThreads);
+				preProcessLandmarks.setCacheDirectory(landmarksCacheDirectory);
 				preProcessLandmarks.run(network);
 				this.preProcessData.put(network, preProcessLandmarks);
 				
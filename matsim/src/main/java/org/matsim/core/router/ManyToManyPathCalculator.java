@@ -0,0 +1,346 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ManyToManyPathCalculator.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.router.ContractionHierarchies.Customization;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Calculates the travel costs and times of the least cost paths from a set of nodes to another set of nodes,
+ * without the paths themselves, e.g. for accessibility computations or for the evaluation of many insertion
+ * candidates at once.
+ * <p></p>
+ * The calculation uses buckets on a {@link ContractionHierarchy}: first, for each destination, the nodes on its
+ * path to the root of the elimination tree are stored in the buckets of these nodes, together with the costs
+ * and times from the node to the destination. Then, for each origin, the nodes on its path to the root are
+ * searched the same way, and the entries in their buckets give the costs to all destinations at once. The
+ * origins, as well as the destinations, are processed in parallel.
+ * <p></p>
+ * Like in {@link ContractionHierarchies}, the costs and times are calculated for the travel disutilities and
+ * times at the start of the time slice containing the departure time, for all links of the paths. Persons and
+ * vehicles are not taken into account. Nodes without a path between them have infinite costs and times.
+ * <p></p>
+ * The customizations of the time slices are kept until {@link #clearCustomizations()} is called, which must be
+ * done whenever the travel times or disutilities change. Calculators created by {@link ContractionHierarchiesFactory}
+ * are cleared by it at the start of each iteration.
+ * <p></p>
+ * Instances may be used by several threads at the same time. The threads of a calculator, and their search spaces,
+ * are kept until {@link #close()} is called; they are daemon threads, so they do not prevent the JVM from exiting.
+ */
+public class ManyToManyPathCalculator implements AutoCloseable {
+
+	private final ContractionHierarchy ch;
+	private final TravelDisutility travelCosts;
+	private final TravelTime travelTimes;
+	private final int timeSliceSize;
+	private final int numberOfThreads;
+	private final ExecutorService executor;
+	private final ThreadLocal<SearchSpace> searchSpaces;
+
+	private Customization[] customizations = new Customization[0];
+
+	/**
+	 * Creates a calculator with its own contraction hierarchy, see {@link
+	 * ContractionHierarchiesFactory#createManyToManyPathCalculator(Network, TravelDisutility, TravelTime, int)} to
+	 * share it with other calculators.
+	 */
+	public ManyToManyPathCalculator(final Network network, final TravelDisutility travelCosts,
+			final TravelTime travelTimes, final int numberOfThreads) {
+		this(new ContractionHierarchy(network), travelCosts, travelTimes, 3600, numberOfThreads);
+	}
+
+	/*package*/ ManyToManyPathCalculator(final ContractionHierarchy ch, final TravelDisutility travelCosts,
+			final TravelTime travelTimes, final int timeSliceSize, final int numberOfThreads) {
+		this.ch = ch;
+		this.travelCosts = travelCosts;
+		this.travelTimes = travelTimes;
+		this.timeSliceSize = timeSliceSize;
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+		this.executor = Executors.newFixedThreadPool(this.numberOfThreads, new DaemonThreadFactory());
+		this.searchSpaces = ThreadLocal.withInitial(() -> new SearchSpace(ch.nodes.length));
+	}
+
+	/**
+	 * Calculates the travel costs and times from one node to many nodes.
+	 */
+	public Matrix calcOneToMany(final Node fromNode, final List<Node> toNodes, final double departureTime) {
+		return calcManyToMany(Arrays.asList(fromNode), toNodes, departureTime);
+	}
+
+	/**
+	 * Calculates the travel costs and times from each of the <code>fromNodes</code> to each of the
+	 * <code>toNodes</code>. The rows of the matrices are in the order of the <code>fromNodes</code>, the
+	 * columns in the order of the <code>toNodes</code>.
+	 */
+	public Matrix calcManyToMany(final List<Node> fromNodes, final List<Node> toNodes, final double departureTime) {
+		int[] from = getRanks(fromNodes);
+		int[] to = getRanks(toNodes);
+		Customization customization = getCustomization(departureTime);
+
+		Matrix matrix = new Matrix(from.length, to.length);
+		Buckets buckets = fillBuckets(customization, to);
+		runInParallel(from.length, (searchSpace, i) ->
+				scanBuckets(customization, searchSpace, buckets, from[i], matrix.travelCosts[i], matrix.travelTimes[i]));
+		return matrix;
+	}
+
+	/**
+	 * Drops the customizations of all time slices, so that they are created again from the current travel times
+	 * and disutilities when they are needed next.
+	 */
+	public synchronized void clearCustomizations() {
+		this.customizations = new Customization[0];
+	}
+
+	/**
+	 * Stops the threads of this calculator. It must not be used afterwards.
+	 */
+	@Override
+	public void close() {
+		this.executor.shutdown();
+	}
+
+	/**
+	 * Searches from each destination backwards along the down arcs, and collects the costs and times of all nodes
+	 * on the way to the root of the elimination tree into buckets.
+	 */
+	private Buckets fillBuckets(final Customization customization, final int[] to) {
+		int[][] bucketNodes = new int[to.length][];
+		double[][] bucketCosts = new double[to.length][];
+		double[][] bucketTimes = new double[to.length][];
+		runInParallel(to.length, (searchSpace, j) -> {
+			searchSpace.search(this.ch, to[j], customization.downWeight, customization.downTime);
+			int size = searchSpace.size;
+			bucketNodes[j] = Arrays.copyOf(searchSpace.reachedNodes, size);
+			bucketCosts[j] = new double[size];
+			bucketTimes[j] = new double[size];
+			for (int k = 0; k < size; k++) {
+				int v = searchSpace.reachedNodes[k];
+				bucketCosts[j][k] = searchSpace.cost[v];
+				bucketTimes[j][k] = searchSpace.time[v];
+			}
+			searchSpace.clear();
+		});
+
+		Buckets buckets = new Buckets(this.ch.nodes.length);
+		for (int[] nodes : bucketNodes) {
+			for (int v : nodes) {
+				buckets.first[v + 1]++;
+			}
+		}
+		for (int v = 0; v < this.ch.nodes.length; v++) {
+			buckets.first[v + 1] += buckets.first[v];
+		}
+		int entryCount = buckets.first[this.ch.nodes.length];
+		buckets.destination = new int[entryCount];
+		buckets.cost = new double[entryCount];
+		buckets.time = new double[entryCount];
+		int[] pos = Arrays.copyOf(buckets.first, this.ch.nodes.length);
+		for (int j = 0; j < to.length; j++) {
+			for (int k = 0; k < bucketNodes[j].length; k++) {
+				int entry = pos[bucketNodes[j][k]]++;
+				buckets.destination[entry] = j;
+				buckets.cost[entry] = bucketCosts[j][k];
+				buckets.time[entry] = bucketTimes[j][k];
+			}
+		}
+		return buckets;
+	}
+
+	/**
+	 * Searches from the origin forwards along the up arcs, and combines the costs of all nodes on the way to the
+	 * root of the elimination tree with the entries of their buckets.
+	 */
+	private void scanBuckets(final Customization customization, final SearchSpace searchSpace, final Buckets buckets,
+			final int from, final double[] costs, final double[] times) {
+		Arrays.fill(costs, Double.POSITIVE_INFINITY);
+		Arrays.fill(times, Double.POSITIVE_INFINITY);
+		searchSpace.search(this.ch, from, customization.upWeight, customization.upTime);
+		for (int k = 0; k < searchSpace.size; k++) {
+			int v = searchSpace.reachedNodes[k];
+			double cost = searchSpace.cost[v];
+			double time = searchSpace.time[v];
+			for (int entry = buckets.first[v]; entry < buckets.first[v + 1]; entry++) {
+				int j = buckets.destination[entry];
+				double totalCost = cost + buckets.cost[entry];
+				if (totalCost < costs[j]) {
+					costs[j] = totalCost;
+					times[j] = time + buckets.time[entry];
+				}
+			}
+		}
+		searchSpace.clear();
+	}
+
+	private int[] getRanks(final List<Node> nodes) {
+		int[] ranks = new int[nodes.size()];
+		for (int i = 0; i < ranks.length; i++) {
+			ranks[i] = this.ch.getRank(nodes.get(i));
+			if (ranks[i] < 0) {
+				throw new IllegalArgumentException("Node " + nodes.get(i).getId() + " is not part of the network stored by "
+						+ getClass().getSimpleName() + ". Aborting!");
+			}
+		}
+		return ranks;
+	}
+
+	/**
+	 * Runs the task for the indices <code>0</code> to <code>count - 1</code>, which are distributed dynamically to
+	 * the threads. Each thread keeps its own search space from one call to the next.
+	 */
+	private void runInParallel(final int count, final Task task) {
+		AtomicInteger next = new AtomicInteger();
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < this.numberOfThreads; t++) {
+			futures.add(this.executor.submit(() -> {
+				SearchSpace searchSpace = this.searchSpaces.get();
+				for (int i = next.getAndIncrement(); i < count; i = next.getAndIncrement()) {
+					task.run(searchSpace, i);
+				}
+			}));
+		}
+		try {
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private interface Task {
+		void run(SearchSpace searchSpace, int index);
+	}
+
+	private static final class DaemonThreadFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(final Runnable r) {
+			Thread thread = new Thread(r, "ManyToManyPathCalculator-" + this.count.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+	private synchronized Customization getCustomization(final double time) {
+		int slice = time > 0 && time < Double.POSITIVE_INFINITY ? (int) (time / this.timeSliceSize) : 0;
+		if (slice >= this.customizations.length) {
+			this.customizations = Arrays.copyOf(this.customizations, slice + 1);
+		}
+		Customization customization = this.customizations[slice];
+		if (customization == null) {
+			customization = new Customization(this.ch, this.travelCosts, this.travelTimes, (double) slice * this.timeSliceSize);
+			this.customizations[slice] = customization;
+		}
+		return customization;
+	}
+
+	/**
+	 * The travel costs and times of the least cost paths, indexed by <code>[fromNode][toNode]</code>.
+	 */
+	public static final class Matrix {
+		public final double[][] travelCosts;
+		public final double[][] travelTimes;
+
+		/*package*/ Matrix(final int fromCount, final int toCount) {
+			this.travelCosts = new double[fromCount][toCount];
+			this.travelTimes = new double[fromCount][toCount];
+		}
+	}
+
+	/**
+	 * The bucket entries of node <code>v</code> are <code>first[v]</code> to <code>first[v+1] - 1</code>.
+	 */
+	private static final class Buckets {
+		final int[] first;
+		int[] destination;
+		double[] cost;
+		double[] time;
+
+		Buckets(final int nodeCount) {
+			this.first = new int[nodeCount + 1];
+		}
+	}
+
+	/**
+	 * Costs and times of the search from one node upwards in the elimination tree, indexed by rank. As all
+	 * nodes reachable from a node via up arcs are its ancestors in the elimination tree, the nodes reached by
+	 * the search are exactly the ones in <code>reachedNodes</code>, and only they have to be reset afterwards.
+	 */
+	private static final class SearchSpace {
+		final double[] cost;
+		final double[] time;
+		int[] reachedNodes = new int[64];
+		int size = 0;
+
+		SearchSpace(final int nodeCount) {
+			this.cost = new double[nodeCount];
+			this.time = new double[nodeCount];
+			Arrays.fill(this.cost, Double.POSITIVE_INFINITY);
+		}
+
+		void search(final ContractionHierarchy ch, final int start, final float[] weights, final float[] times) {
+			int[] upFirst = ch.upFirst;
+			int[] arcHead = ch.arcHead;
+			this.cost[start] = 0.0;
+			this.time[start] = 0.0;
+			for (int v = start; v >= 0; v = ch.parent[v]) {
+				double cost = this.cost[v];
+				if (cost == Double.POSITIVE_INFINITY) continue;
+				if (this.size == this.reachedNodes.length) {
+					this.reachedNodes = Arrays.copyOf(this.reachedNodes, 2 * this.size);
+				}
+				this.reachedNodes[this.size++] = v;
+				double time = this.time[v];
+				for (int arc = upFirst[v]; arc < upFirst[v + 1]; arc++) {
+					double newCost = cost + weights[arc];
+					int head = arcHead[arc];
+					if (newCost < this.cost[head]) {
+						this.cost[head] = newCost;
+						this.time[head] = time + times[arc];
+					}
+				}
+			}
+		}
+
+		void clear() {
+			for (int k = 0; k < this.size; k++) {
+				this.cost[this.reachedNodes[k]] = Double.POSITIVE_INFINITY;
+			}
+			this.size = 0;
+		}
+	}
+
+}
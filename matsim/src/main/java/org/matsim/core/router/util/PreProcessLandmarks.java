@@ -18,21 +18,35 @@
  *                                                                         *
  * *********************************************************************** */
 
+
 package org.matsim.core.router.util;
 
 import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
-import org.matsim.core.api.internal.MatsimComparator;
 
 import java.awt.geom.Rectangle2D;
-import java.util.Comparator;
-import java.util.Map;
-import java.util.PriorityQueue;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Future;
 
 /**
  * Pre-processes a given network, gathering information which can be used by
@@ -40,11 +54,21 @@ import java.util.concurrent.TimeUnit;
  * between a start and an end node. Specifically, designates some
  * nodes in the network that act as landmarks and computes the last-cost-path
  * from and to each node in the network to each of the landmarks.
+ * <p></p>
+ * The least-cost-path trees of the landmarks are calculated in parallel, each of them on primitive arrays
+ * indexed by the position of the nodes in the network. Only the final results are copied to the
+ * {@link LandmarksData} of the nodes.
+ * <p></p>
+ * If a cache directory is set, the landmarks and their travel times are stored in a file whose name contains
+ * a hash of the network and of the minimal travel disutilities of its links. Later runs on the same network with
+ * the same cost function read this file instead of calculating the landmarks again.
  *
  * @author lnicolas
  */
 public class PreProcessLandmarks extends PreProcessEuclidean {
 
+	private static final int CACHE_FILE_VERSION = 1;
+
 	private final int landmarkCount;
 
 	private final Landmarker landmarker;
@@ -53,6 +77,8 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 	
 	private int numberOfThreads = 8;
 
+	private String cacheDirectory = null;
+
 	private static final Logger log = Logger.getLogger(PreProcessLandmarks.class);
 
 	public PreProcessLandmarks(final TravelDisutility costFunction) {
@@ -82,6 +108,19 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 	public void setNumberOfThreads(int numberOfThreads) {
 		this.numberOfThreads = numberOfThreads;
 	}
+
+	/**
+	 * Sets the directory in which the landmark travel times are cached between runs. If <code>null</code> (the
+	 * default), nothing is cached. The directory is created if it does not exist yet.
+	 * <p></p>
+	 * Note that the landmarks themselves are read from the cache as well, so a cached file may contain landmarks
+	 * identified by another {@link Landmarker}. The travel times are still valid for routing.
+	 *
+	 * @param cacheDirectory
+	 */
+	public void setCacheDirectory(final String cacheDirectory) {
+		this.cacheDirectory = cacheDirectory;
+	}
 	
 	/**
 	 * @param costFunction
@@ -108,17 +147,60 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 	@Override
 	public void run(final Network network) {
 		super.run(network);
-		
-		log.info("Putting landmarks on network...");
-		long now = System.currentTimeMillis();
-		landmarks = landmarker.identifyLandmarks( landmarkCount , network );
-		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
+
+		Graph graph = new Graph(network, this.costFunction);
+
+		File cacheFile = null;
+		double[][] fromTravelTimes = null;
+		double[][] toTravelTimes = null;
+		if (this.cacheDirectory != null) {
+			cacheFile = new File(this.cacheDirectory, "landmarks-" + calcNetworkHash(graph) + ".bin");
+			if (cacheFile.exists()) {
+				log.info("Reading landmarks from " + cacheFile);
+				fromTravelTimes = new double[this.landmarkCount][];
+				toTravelTimes = new double[this.landmarkCount][];
+				try {
+					readCacheFile(cacheFile, network, graph, fromTravelTimes, toTravelTimes);
+				} catch (IOException | RuntimeException e) {
+					log.warn("Could not read landmarks from " + cacheFile + ", they will be calculated again.", e);
+					fromTravelTimes = null;
+					toTravelTimes = null;
+				}
+			}
+		}
+
+		if (fromTravelTimes == null) {
+			log.info("Putting landmarks on network...");
+			long now = System.currentTimeMillis();
+			landmarks = landmarker.identifyLandmarks( landmarkCount , network );
+			log.info("done in " + (System.currentTimeMillis() - now) + " ms");
+
+			fromTravelTimes = new double[this.landmarks.length][];
+			toTravelTimes = new double[this.landmarks.length][];
+			calcLandmarkTravelTimes(graph, fromTravelTimes, toTravelTimes);
+
+			if (cacheFile != null) {
+				try {
+					writeCacheFile(cacheFile, graph, fromTravelTimes, toTravelTimes);
+				} catch (IOException e) {
+					log.warn("Could not write landmarks to " + cacheFile, e);
+				}
+			}
+		}
 
 		log.info("Initializing landmarks data");
-		for (Node node : network.getNodes().values()) {
-			this.nodeData.put(node, new LandmarksData(this.landmarkCount));
+		for (int n = 0; n < graph.nodes.length; n++) {
+			LandmarksData r = new LandmarksData(this.landmarkCount);
+			for (int i = 0; i < this.landmarks.length; i++) {
+				r.setFromLandmarkTravelTime(i, fromTravelTimes[i][n]);
+				r.setToLandmarkTravelTime(i, toTravelTimes[i][n]);
+			}
+			r.updateMinMaxTravelTimes();
+			this.nodeData.put(graph.nodes[n], r);
 		}
-		
+	}
+
+	private void calcLandmarkTravelTimes(final Graph graph, final double[][] fromTravelTimes, final double[][] toTravelTimes) {
 		int nOfThreads = this.numberOfThreads;
 		if (nOfThreads > this.landmarks.length) {
 			nOfThreads = this.landmarks.length;
@@ -127,109 +209,321 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 			nOfThreads = 2; // always use at least two threads
 		}
  		log.info("Calculating distance from each node to each of the " + this.landmarkCount + " landmarks using " + nOfThreads + " threads...");
-		now = System.currentTimeMillis();
+		long now = System.currentTimeMillis();
 
-		
 		ExecutorService executor = Executors.newFixedThreadPool(nOfThreads);
+		List<Future<?>> futures = new ArrayList<>();
 		for (int i = 0; i < this.landmarks.length; i++) {
-			executor.execute(new Calculator(i, this.landmarks[i], this.nodeData, this.costFunction));
+			futures.add(executor.submit(new Calculator(i, graph.getIndex(this.landmarks[i]), graph, fromTravelTimes, toTravelTimes)));
 		}
 		executor.shutdown();
-		while (!executor.isTerminated()) {
-			log.info("wait for landmarks Calculator to finish...");
-			try {
-				executor.awaitTermination(10, TimeUnit.MINUTES);
-			} catch (InterruptedException e) {
-				throw new RuntimeException(e);
+		try {
+			for (Future<?> future : futures) {
+				future.get();
 			}
+		} catch (InterruptedException | ExecutionException e) {
+			executor.shutdownNow();
+			throw new RuntimeException(e);
 		}
 
-		for (Node node : network.getNodes().values()) {
-			LandmarksData r = getNodeData(node);
-			r.updateMinMaxTravelTimes();
-		}
+		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
+	}
 
-		for (Node node : network.getNodes().values()) {
-			LandmarksData r = getNodeData(node);
-			for (int i = 0; i < this.landmarks.length; i++) {
-				if (r.getMinLandmarkTravelTime(i) > r.getMaxLandmarkTravelTime(i)) {
-					log.info("Min > max for node " + node.getId() + " and landmark " + i);
+	/**
+	 * The network as compressed adjacency arrays, with the nodes in the iteration order of the network and the
+	 * minimal travel disutilities of the links. Shared read-only by all calculators.
+	 */
+	private static class Graph {
+
+		private final Node[] nodes;
+		private final int[] indexByNodeIdIndex;
+		private final int[] outFirst;
+		private final int[] outHead;
+		private final double[] outCost;
+		private final int[] inFirst;
+		private final int[] inTail;
+		private final double[] inCost;
+
+		Graph(final Network network, final TravelDisutility costFunction) {
+			this.nodes = network.getNodes().values().toArray(new Node[network.getNodes().size()]);
+			this.indexByNodeIdIndex = new int[Id.getNumberOfIds(Node.class)];
+			Arrays.fill(this.indexByNodeIdIndex, -1);
+			for (int n = 0; n < this.nodes.length; n++) {
+				this.indexByNodeIdIndex[this.nodes[n].getId().index()] = n;
+			}
+
+			this.outFirst = new int[this.nodes.length + 1];
+			this.inFirst = new int[this.nodes.length + 1];
+			int linkCount = 0;
+			for (int n = 0; n < this.nodes.length; n++) {
+				this.outFirst[n] = linkCount;
+				linkCount += this.nodes[n].getOutLinks().size();
+			}
+			this.outFirst[this.nodes.length] = linkCount;
+			this.outHead = new int[linkCount];
+			this.outCost = new double[linkCount];
+			this.inTail = new int[linkCount];
+			this.inCost = new double[linkCount];
+
+			int[] inCount = new int[this.nodes.length];
+			int arc = 0;
+			for (Node node : this.nodes) {
+				for (Link link : node.getOutLinks().values()) {
+					int head = getIndex(link.getToNode());
+					this.outHead[arc] = head;
+					this.outCost[arc] = costFunction.getLinkMinimumTravelDisutility(link);
+					inCount[head]++;
+					arc++;
+				}
+			}
+			for (int n = 0; n < this.nodes.length; n++) {
+				this.inFirst[n + 1] = this.inFirst[n] + inCount[n];
+			}
+			int[] inPos = Arrays.copyOf(this.inFirst, this.nodes.length);
+			for (int n = 0; n < this.nodes.length; n++) {
+				for (int a = this.outFirst[n]; a < this.outFirst[n + 1]; a++) {
+					int pos = inPos[this.outHead[a]]++;
+					this.inTail[pos] = n;
+					this.inCost[pos] = this.outCost[a];
 				}
 			}
 		}
 
-		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
+		int getIndex(final Node node) {
+			int idIndex = node.getId().index();
+			int index = idIndex < this.indexByNodeIdIndex.length ? this.indexByNodeIdIndex[idIndex] : -1;
+			if (index < 0 || this.nodes[index] != node) {
+				throw new IllegalArgumentException("Node " + node.getId() + " is not part of the network.");
+			}
+			return index;
+		}
 	}
 
 	private static class Calculator implements Runnable {
 		
 		private final int landmarkIdx;
-		private final Node landmark;
-		private final Map<Node, DeadEndData> nodeData;
-		private final TravelDisutility costFunction;
+		private final int landmark;
+		private final Graph graph;
+		private final double[][] fromTravelTimes;
+		private final double[][] toTravelTimes;
 		
-		public Calculator(final int landmarkIdx, final Node landmark, final Map<Node, DeadEndData> nodeData, final TravelDisutility costFunction) {
+		public Calculator(final int landmarkIdx, final int landmark, final Graph graph, final double[][] fromTravelTimes, final double[][] toTravelTimes) {
 			this.landmarkIdx = landmarkIdx;
 			this.landmark = landmark;
-			this.nodeData = nodeData;
-			this.costFunction = costFunction;
+			this.graph = graph;
+			this.fromTravelTimes = fromTravelTimes;
+			this.toTravelTimes = toTravelTimes;
 		}
 		
 		@Override
 		public void run() {
-			expandLandmarkFrom();
-			expandLandmarkTo();
+			NodeHeap pendingNodes = new NodeHeap();
+			this.fromTravelTimes[this.landmarkIdx] = expandLandmark(this.graph.outFirst, this.graph.outHead, this.graph.outCost, pendingNodes);
+			this.toTravelTimes[this.landmarkIdx] = expandLandmark(this.graph.inFirst, this.graph.inTail, this.graph.inCost, pendingNodes);
 		}
-	
-		private void expandLandmarkFrom() {
-			LandmarksFromTravelTimeComparator comparator = new LandmarksFromTravelTimeComparator(this.nodeData, this.landmarkIdx);
-			PriorityQueue<Node> pendingNodes = new PriorityQueue<>(100, comparator);
-			LandmarksData role = (LandmarksData) this.nodeData.get(this.landmark);
-			role.setToLandmarkTravelTime(this.landmarkIdx, 0.0);
-			role.setFromLandmarkTravelTime(this.landmarkIdx, 0.0);
-			pendingNodes.add(this.landmark);
+
+		/**
+		 * Plain Dijkstra from the landmark, along the out-links when building the from-tree and along the in-links
+		 * when building the to-tree.
+		 */
+		private double[] expandLandmark(final int[] first, final int[] adjacent, final double[] costs, final NodeHeap pendingNodes) {
+			double[] travelTimes = new double[this.graph.nodes.length];
+			Arrays.fill(travelTimes, Double.POSITIVE_INFINITY);
+			travelTimes[this.landmark] = 0.0;
+			pendingNodes.add(this.landmark, 0.0);
 			while (!pendingNodes.isEmpty()) {
-				Node node = pendingNodes.poll();
-				double fromTravTime = ((LandmarksData) this.nodeData.get(node)).getFromLandmarkTravelTime(this.landmarkIdx);
-				LandmarksData role2;
-				for (Link l : node.getOutLinks().values()) {
-					Node n;
-					n = l.getToNode();
-					double linkTravTime = this.costFunction.getLinkMinimumTravelDisutility(l);
-					role2 = (LandmarksData) this.nodeData.get(n);
-					double totalTravelTime = fromTravTime + linkTravTime;
-					if (role2.getFromLandmarkTravelTime(this.landmarkIdx) > totalTravelTime) {
-						role2.setFromLandmarkTravelTime(this.landmarkIdx, totalTravelTime);
-						pendingNodes.add(n);
+				double travTime = pendingNodes.peekKey();
+				int node = pendingNodes.poll();
+				if (travTime > travelTimes[node]) {
+					continue; // outdated entry, the node was already settled with a lower travel time
+				}
+				for (int a = first[node]; a < first[node + 1]; a++) {
+					int n = adjacent[a];
+					double totalTravelTime = travTime + costs[a];
+					if (travelTimes[n] > totalTravelTime) {
+						travelTimes[n] = totalTravelTime;
+						pendingNodes.add(n, totalTravelTime);
 					}
 				}
 			}
+			return travelTimes;
+		}
+	
+	}
+
+	/**
+	 * Binary min-heap of node indices. Instead of decreasing keys, nodes are added again, outdated entries have to be
+	 * skipped by the caller.
+	 */
+	private static class NodeHeap {
+
+		private int[] nodes = new int[128];
+		private double[] keys = new double[128];
+		private int size = 0;
+
+		boolean isEmpty() {
+			return this.size == 0;
+		}
+
+		void add(final int node, final double key) {
+			if (this.size == this.nodes.length) {
+				this.nodes = Arrays.copyOf(this.nodes, this.size * 2);
+				this.keys = Arrays.copyOf(this.keys, this.size * 2);
+			}
+			int i = this.size++;
+			while (i > 0) {
+				int parent = (i - 1) >> 1;
+				if (this.keys[parent] <= key) {
+					break;
+				}
+				this.nodes[i] = this.nodes[parent];
+				this.keys[i] = this.keys[parent];
+				i = parent;
+			}
+			this.nodes[i] = node;
+			this.keys[i] = key;
 		}
 
-		private void expandLandmarkTo() {
-			LandmarksToTravelTimeComparator comparator = new LandmarksToTravelTimeComparator(this.nodeData, this.landmarkIdx);
-			PriorityQueue<Node> pendingNodes = new PriorityQueue<>(100, comparator);
-			LandmarksData role = (LandmarksData) this.nodeData.get(this.landmark);
-			role.setToLandmarkTravelTime(this.landmarkIdx, 0.0);
-			role.setFromLandmarkTravelTime(this.landmarkIdx, 0.0);
-			pendingNodes.add(this.landmark);
-			while (!pendingNodes.isEmpty()) {
-				Node node = pendingNodes.poll();
-				double toTravTime = ((LandmarksData) this.nodeData.get(node)).getToLandmarkTravelTime(this.landmarkIdx);
-				LandmarksData role2;
-				for (Link l : node.getInLinks().values()) {
-					Node n = l.getFromNode();
-					double linkTravTime = this.costFunction.getLinkMinimumTravelDisutility(l);
-					role2 = (LandmarksData) this.nodeData.get(n);
-					double totalTravelTime = toTravTime + linkTravTime;
-					if (role2.getToLandmarkTravelTime(this.landmarkIdx) > totalTravelTime) {
-						role2.setToLandmarkTravelTime(this.landmarkIdx, totalTravelTime);
-						pendingNodes.add(n);
+		double peekKey() {
+			return this.keys[0];
+		}
+
+		int poll() {
+			int result = this.nodes[0];
+			this.size--;
+			int node = this.nodes[this.size];
+			double key = this.keys[this.size];
+			int i = 0;
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= this.size) {
+					break;
+				}
+				if (child + 1 < this.size && this.keys[child + 1] < this.keys[child]) {
+					child++;
+				}
+				if (key <= this.keys[child]) {
+					break;
+				}
+				this.nodes[i] = this.nodes[child];
+				this.keys[i] = this.keys[child];
+				i = child;
+			}
+			this.nodes[i] = node;
+			this.keys[i] = key;
+			return result;
+		}
+	}
+
+	/**
+	 * @return a hash over the nodes, the links and their minimal travel disutilities, the number of landmarks and the
+	 * type of the landmarker. Everything the landmark travel times depend on, except for the landmarks themselves.
+	 */
+	private String calcNetworkHash(final Graph graph) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			try (DataOutputStream out = new DataOutputStream(new DigestOutputStream(new NullOutputStream(), digest))) {
+				out.writeInt(CACHE_FILE_VERSION);
+				out.writeInt(this.landmarkCount);
+				out.writeUTF(this.landmarker.getClass().getName());
+				out.writeInt(graph.nodes.length);
+				for (Node node : graph.nodes) {
+					out.writeUTF(node.getId().toString());
+					out.writeDouble(node.getCoord().getX());
+					out.writeDouble(node.getCoord().getY());
+				}
+				for (int n = 0; n < graph.nodes.length; n++) {
+					out.writeInt(graph.outFirst[n]);
+					for (int a = graph.outFirst[n]; a < graph.outFirst[n + 1]; a++) {
+						out.writeInt(graph.outHead[a]);
+						out.writeDouble(graph.outCost[a]);
 					}
 				}
 			}
+			StringBuilder hash = new StringBuilder();
+			for (byte b : digest.digest()) {
+				hash.append(String.format("%02x", b));
+			}
+			return hash.toString();
+		} catch (NoSuchAlgorithmException | IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void readCacheFile(final File file, final Network network, final Graph graph,
+			final double[][] fromTravelTimes, final double[][] toTravelTimes) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != CACHE_FILE_VERSION || in.readInt() != graph.nodes.length) {
+				throw new IOException("The file does not match the network.");
+			}
+			int cachedLandmarkCount = in.readInt();
+			if (cachedLandmarkCount > this.landmarkCount) {
+				throw new IOException("The file contains more than " + this.landmarkCount + " landmarks.");
+			}
+			Node[] cachedLandmarks = new Node[cachedLandmarkCount];
+			for (int i = 0; i < cachedLandmarks.length; i++) {
+				cachedLandmarks[i] = network.getNodes().get(Id.create(in.readUTF(), Node.class));
+				if (cachedLandmarks[i] == null) {
+					throw new IOException("Landmark " + i + " is not part of the network.");
+				}
+			}
+			for (int i = 0; i < cachedLandmarks.length; i++) {
+				fromTravelTimes[i] = readTravelTimes(in, graph.nodes.length);
+				toTravelTimes[i] = readTravelTimes(in, graph.nodes.length);
+			}
+			this.landmarks = cachedLandmarks;
+		}
+	}
+
+	private static double[] readTravelTimes(final DataInputStream in, final int nodeCount) throws IOException {
+		double[] travelTimes = new double[nodeCount];
+		for (int n = 0; n < nodeCount; n++) {
+			travelTimes[n] = in.readDouble();
+		}
+		return travelTimes;
+	}
+
+	private void writeCacheFile(final File file, final Graph graph,
+			final double[][] fromTravelTimes, final double[][] toTravelTimes) throws IOException {
+		File directory = file.getParentFile();
+		if (!directory.exists() && !directory.mkdirs()) {
+			throw new IOException("Could not create directory " + directory);
+		}
+		// write to a temporary file first, so concurrent runs never read a partially written file
+		File tmpFile = File.createTempFile(file.getName(), ".tmp", directory);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+			out.writeInt(CACHE_FILE_VERSION);
+			out.writeInt(graph.nodes.length);
+			out.writeInt(this.landmarks.length);
+			for (Node landmark : this.landmarks) {
+				out.writeUTF(landmark.getId().toString());
+			}
+			for (int i = 0; i < this.landmarks.length; i++) {
+				for (double travelTime : fromTravelTimes[i]) {
+					out.writeDouble(travelTime);
+				}
+				for (double travelTime : toTravelTimes[i]) {
+					out.writeDouble(travelTime);
+				}
+			}
+		}
+		if (!tmpFile.renameTo(file)) {
+			tmpFile.delete();
+			if (!file.exists()) {
+				throw new IOException("Could not rename " + tmpFile + " to " + file);
+			}
+		}
+		log.info("Landmarks written to " + file);
+	}
+
+	private static class NullOutputStream extends OutputStream {
+		@Override
+		public void write(final int b) {
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) {
 		}
-	
 	}
 
 	public Node[] getLandmarks() {
@@ -307,66 +601,4 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 		}
 	}
 
-    /**
-	 * Sorts the Nodes ascending according to their ToLandmarkTravelTime.
-	 *
-	 * @author lnicolas
-	 * @author mrieser
-	 */
-	private static class LandmarksToTravelTimeComparator implements Comparator<Node>, MatsimComparator {
-		private final Map<Node, DeadEndData> roleData;
-		private final int landmarkIndex;
-
-		protected LandmarksToTravelTimeComparator(final Map<Node, DeadEndData> roleData, final int landmarkIndex) {
-			this.roleData = roleData;
-			this.landmarkIndex = landmarkIndex;
-		}
-
-		@Override
-		public int compare(final Node n1, final Node n2) {
-
-			double c1 = ((LandmarksData) this.roleData.get(n1)).getToLandmarkTravelTime(this.landmarkIndex);
-			double c2 = ((LandmarksData) this.roleData.get(n2)).getToLandmarkTravelTime(this.landmarkIndex);
-
-			if (c1 < c2) {
-				return -1;
-			}
-			if (c1 > c2) {
-				return +1;
-			}
-			return n1.getId().compareTo(n2.getId());
-		}
-	}
-
-	/**
-	 * Sorts the Nodes ascending according to their FromLandmarkTravelTime.
-	 *
-	 * @author lnicolas
-	 * @author mrieser
-	 */
-	private static class LandmarksFromTravelTimeComparator implements Comparator<Node>, MatsimComparator {
-		private final Map<Node, DeadEndData> roleData;
-		private final int landmarkIndex;
-		
-		protected LandmarksFromTravelTimeComparator(final Map<Node, DeadEndData> roleData, final int landmarkIndex) {
-			this.roleData = roleData;
-			this.landmarkIndex = landmarkIndex;
-		}
-		
-		@Override
-		public int compare(final Node n1, final Node n2) {
-			
-			double c1 = ((LandmarksData) this.roleData.get(n1)).getFromLandmarkTravelTime(this.landmarkIndex);
-			double c2 = ((LandmarksData) this.roleData.get(n2)).getFromLandmarkTravelTime(this.landmarkIndex);
-			
-			if (c1 < c2) {
-				return -1;
-			}
-			if (c1 > c2) {
-				return +1;
-			}
-			return n1.getId().compareTo(n2.getId());
-		}
-	}
-	
 }
@@ -6,10 +6,14 @@ import org.matsim.core.controler.listener.AfterMobsimListener;
 
 import javax.inject.Inject;
 
+import com.google.inject.Singleton;
+
 public final class ExperiencedPlanElementsModule extends AbstractModule {
 	@Override
 	public void install() {
-		bind(EventsToActivities.class).asEagerSingleton();
-		bind(EventsToLegs.class).asEagerSingleton();
+		// not eager: they are only created (and added to the events manager) if needed, e.g. if the experienced plans are not
+		// taken from the scoring
+		bind(EventsToActivities.class).in(Singleton.class);
+		bind(EventsToLegs.class).in(Singleton.class);
 	}
 }
@@ -1,6 +1,7 @@
 package org.matsim.core.scoring;
 
 import com.google.inject.Inject;
+import com.google.inject.Provider;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.population.*;
@@ -24,7 +25,7 @@ class ExperiencedPlansServiceImpl implements ExperiencedPlansService, EventsToLe
 	private final Map<Id<Person>, Plan> agentRecords = new HashMap<>();
 
 	@Inject
-	ExperiencedPlansServiceImpl(ControlerListenerManager controlerListenerManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs) {
+	ExperiencedPlansServiceImpl(ControlerListenerManager controlerListenerManager) {
 		controlerListenerManager.addControlerListener(new IterationStartsListener() {
 			@Override
 			public void notifyIterationStarts(IterationStartsEvent event) {
@@ -33,14 +34,34 @@ class ExperiencedPlansServiceImpl implements ExperiencedPlansService, EventsToLe
 				}
 			}
 		});
-		eventsToActivities.addActivityHandler(this);
-		eventsToLegs.addLegHandler(this);
+	}
+
+	@Inject
+	void addPlanElementsHandler(Provider<EventsToActivities> eventsToActivities, Provider<EventsToLegs> eventsToLegs) {
+		// (called after the fields have been injected)
+		if (scoringFunctionsForPopulation != null) {
+			// take the legs and activities converted for the scoring, instead of converting all events once more. Each person
+			// is handled by one thread there, and agentRecords is only modified when the iteration starts.
+			scoringFunctionsForPopulation.addActivityHandler(this);
+			scoringFunctionsForPopulation.addLegHandler(this);
+		} else {
+			// Has to be synchronized because the thing which sends Legs and the thing which sends Activities can run
+			// on different threads. Will go away when/if we get a more Actor or Reactive Streams like event infrastructure.
+			eventsToActivities.get().addActivityHandler(activity -> {
+				synchronized (this) {
+					handleActivity(activity);
+				}
+			});
+			eventsToLegs.get().addLegHandler(leg -> {
+				synchronized (this) {
+					handleLeg(leg);
+				}
+			});
+		}
 	}
 
 	@Override
-	synchronized public void handleLeg(PersonExperiencedLeg o) {
-		// Has to be synchronized because the thing which sends Legs and the thing which sends Activities can run
-		// on different threads. Will go away when/if we get a more Actor or Reactive Streams like event infrastructure.
+	public void handleLeg(PersonExperiencedLeg o) {
 		Id<Person> agentId = o.getAgentId();
 		Leg leg = o.getLeg();
 		Plan plan = agentRecords.get(agentId);
@@ -50,9 +71,7 @@ class ExperiencedPlansServiceImpl implements ExperiencedPlansService, EventsToLe
 	}
 
 	@Override
-	synchronized public void handleActivity(PersonExperiencedActivity o) {
-		// Has to be synchronized because the thing which sends Legs and the thing which sends Activities can run
-		// on different threads. Will go away when/if we get a more Actor or Reactive Streams like event infrastructure.
+	public void handleActivity(PersonExperiencedActivity o) {
 		Id<Person> agentId = o.getAgentId();
 		Activity activity = o.getActivity();
 		Plan plan = agentRecords.get(agentId);
@@ -22,7 +22,6 @@ package org.matsim.core.scoring;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -30,8 +29,10 @@ import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.Event;
 import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
 import org.matsim.api.core.v01.events.PersonMoneyEvent;
 import org.matsim.api.core.v01.events.PersonStuckEvent;
 import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
@@ -43,10 +44,15 @@ import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.internal.HasPersonId;
 import org.matsim.core.controler.ControlerListenerManager;
+import org.matsim.core.controler.events.AfterMobsimEvent;
 import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.AfterMobsimListener;
 import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.SingleHandlerEventsManager;
 import org.matsim.core.events.algorithms.Vehicle2DriverEventHandler;
 import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.collections.IdMap;
 import org.matsim.core.utils.io.IOUtils;
 import org.matsim.vehicles.Vehicle;
 
@@ -60,11 +66,17 @@ import gnu.trove.list.array.TDoubleArrayList;
  * This class helps EventsToScore by keeping ScoringFunctions for the entire Population - one per Person -, and dispatching Activities
  * and Legs to the ScoringFunctions. It also gives out the ScoringFunctions, so they can be given other events by EventsToScore.
  * It is not independently useful. Please do not make public.
+ * <p></p>
+ * The events are handled by one or several partitions of the population. With parallel event handling, there is one partition
+ * per thread of the events manager, and the persons are assigned to the partitions by the index of their id. Each partition only
+ * handles the events of its own persons and converts them into legs and activities with its own {@link EventsToLegs} and
+ * {@link EventsToActivities}, so each partition is only called by one thread, the partitions never wait for each other, and each
+ * scoring function gets the same events in the same order as without parallel event handling.
  * 
  * @author michaz
  *
  */
- final class ScoringFunctionsForPopulation implements BasicEventHandler, EventsToLegs.LegHandler, EventsToActivities.ActivityHandler {
+ final class ScoringFunctionsForPopulation {
 	// yyyyyy there is currently only one place outside package where this is used, and I think it
 	// can be changed there.  kai, sep'17
 	// I just removed that.  kai, apr'18
@@ -83,8 +95,13 @@ import gnu.trove.list.array.TDoubleArrayList;
 	 * should be faster and reduce the memory overhead.
 	 *
 	 * cdobler, nov'15
+	 *
+	 * 'agentScorers' is looked up for almost every event, thus it is an IdMap which is indexed by Id.index()
+	 * instead of hashing the id's string.
+	 *
+	 * Both maps are only filled in init(), so the partitions may read them concurrently while the events are handled.
 	 */
-	private final Map<Id<Person>, ScoringFunction> agentScorers = new HashMap<>();
+	private final Map<Id<Person>, ScoringFunction> agentScorers = new IdMap<>(Person.class);
 	private final Map<Id<Person>, TDoubleCollection> partialScores = new LinkedHashMap<>();
 	private final AtomicReference<Throwable> exception = new AtomicReference<>();
 	
@@ -93,26 +110,42 @@ import gnu.trove.list.array.TDoubleArrayList;
 //	 * kai, mar'17
 //	 */
 //	private boolean passLinkEventsToPerson = false;
-	
-	private Vehicle2DriverEventHandler vehicles2Drivers = new Vehicle2DriverEventHandler();
+
+	private final Partition[] partitions;
 
 	@Inject
-	ScoringFunctionsForPopulation(ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
-								  Population population, ScoringFunctionFactory scoringFunctionFactory) {
+	ScoringFunctionsForPopulation(ControlerListenerManager controlerListenerManager, EventsManager eventsManager, Scenario scenario,
+								  ScoringFunctionFactory scoringFunctionFactory) {
+		this(controlerListenerManager, eventsManager, scenario, scoringFunctionFactory, EventsUtils.getNumberOfHandlerThreads(eventsManager));
+	}
+
+	/*package*/ ScoringFunctionsForPopulation(ControlerListenerManager controlerListenerManager, EventsManager eventsManager, Scenario scenario,
+								  ScoringFunctionFactory scoringFunctionFactory, int numberOfPartitions) {
+		if (numberOfPartitions < 1) {
+			throw new IllegalArgumentException("The number of partitions must be at least 1, but is " + numberOfPartitions + ".");
+		}
 		controlerListenerManager.addControlerListener(new IterationStartsListener() {
 			@Override
 			public void notifyIterationStarts(IterationStartsEvent event) {
 				init();
 			}
 		});
-		this.population = population;
+		controlerListenerManager.addControlerListener(new AfterMobsimListener() {
+			@Override
+			public void notifyAfterMobsim(AfterMobsimEvent event) {
+				for (Partition partition : partitions) {
+					partition.eventsToActivities.finish();
+				}
+			}
+		});
+		this.population = scenario.getPopulation();
 		this.scoringFunctionFactory = scoringFunctionFactory;
-		eventsManager.addHandler(this);
-		eventsToActivities.addActivityHandler(this);
-		eventsToLegs.addLegHandler(this);
-//		if ( passLinkEventsToPerson ) {
-			eventsManager.addHandler(vehicles2Drivers);
-//		}
+		this.partitions = new Partition[numberOfPartitions];
+		for (int i = 0; i < numberOfPartitions; i++) {
+			this.partitions[i] = new Partition(i, new EventsToActivities(), new EventsToLegs(scenario));
+			// the events managers assign the handlers to their threads in the order they are added, one after the other
+			eventsManager.addHandler(this.partitions[i]);
+		}
 	}
 
 	private void init() {
@@ -123,78 +156,154 @@ import gnu.trove.list.array.TDoubleArrayList;
 		}
 	}
 
-	@Override
-	synchronized public void handleEvent(Event o) {
-		// this is for the stuff that is directly based on events.
-		// note that this passes on _all_ person events, even those which are aggregated into legs and activities.
-		// for the time being, not all PersonEvents may "implement HasPersonId".
-		// link enter/leave events are NOT passed on, for performance reasons.
-		// kai/dominik, dec'12
-		if (o instanceof HasPersonId) {
-			ScoringFunction scoringFunction = getScoringFunctionForAgent(((HasPersonId) o).getPersonId());
-			if (scoringFunction != null) {
-				if (o instanceof PersonStuckEvent) {
-					scoringFunction.agentStuck(o.getTime());
-				} else if (o instanceof PersonMoneyEvent) {
-					scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
-					// yy looking at this, I am a bit skeptic if it truly makes sense to not pass this additionally into the general events handling function below.
-					// A use case might be different utilities of money by money transaction type (e.g. toll, fare, reimbursement, ...).  kai, mar'17
-				} 
-//				else {
-					scoringFunction.handleEvent(o);
-					// passing this on in any case, see comment above.  kai, mar'17
-//				}
-			}
+	/**
+	 * Handles the events of the persons whose id index modulo the number of partitions is the index of the partition, as well as the
+	 * events without person which are needed to convert them into legs (e.g. for transit vehicles). The events are passed to the
+	 * converters of the partition, which call back the partition on the same thread, so nothing is synchronized.
+	 */
+	private final class Partition implements BasicEventHandler, EventsToLegs.LegHandler, EventsToActivities.ActivityHandler {
+
+		private final int index;
+		private final EventsToActivities eventsToActivities;
+		private final EventsToLegs eventsToLegs;
+		private final SingleHandlerEventsManager activityEvents;
+		private final SingleHandlerEventsManager legEvents;
+
+		private final Vehicle2DriverEventHandler vehicles2Drivers = new Vehicle2DriverEventHandler();
+
+		Partition(int index, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs) {
+			this.index = index;
+			this.eventsToActivities = eventsToActivities;
+			this.eventsToLegs = eventsToLegs;
+			eventsToActivities.addActivityHandler(this);
+			eventsToLegs.addLegHandler(this);
+			this.activityEvents = new SingleHandlerEventsManager(eventsToActivities);
+			this.legEvents = new SingleHandlerEventsManager(eventsToLegs);
 		}
-//		if ( passLinkEventsToPerson ) {
-			// Establish and end connection between driver and vehicle
-			if (o instanceof VehicleEntersTrafficEvent) {
-				vehicles2Drivers.handleEvent((VehicleEntersTrafficEvent) o);
+
+		private boolean isResponsibleFor(Event o) {
+			if (partitions.length == 1) {
+				return true;
+			}
+			if (o instanceof HasPersonId) {
+				Id<Person> personId = ((HasPersonId) o).getPersonId();
+				return (personId == null ? 0 : personId.index() % partitions.length) == this.index;
 			}
-			if (o instanceof VehicleLeavesTrafficEvent) {
-				vehicles2Drivers.handleEvent((VehicleLeavesTrafficEvent) o);
+			if (o instanceof LinkEnterEvent) {
+				// only the partition of the driver knows the vehicle
+				return this.vehicles2Drivers.getDriverOfVehicle(((LinkEnterEvent) o).getVehicleId()) != null;
+			}
+			// link leave events are neither scored nor needed for the legs; all other events may be needed by every partition,
+			// e.g. the transit vehicle events for the legs of the passengers
+			return !(o instanceof LinkLeaveEvent);
+		}
+
+		@Override
+		public void handleEvent(Event o) {
+			if (!isResponsibleFor(o)) {
+				return;
 			}
-			// Pass LinkEnterEvent to person scoring, required e.g. for bicycle where link attributes are observed in scoring
-			if ( o instanceof LinkEnterEvent ) {
-				Id<Vehicle> vehicleId = ((LinkEnterEvent)o).getVehicleId() ;
-				Id<Person> driverId = vehicles2Drivers.getDriverOfVehicle(vehicleId) ;
-				ScoringFunction scoringFunction = getScoringFunctionForAgent( driverId );
-				// (this will NOT do the scoring function lookup twice since LinkEnterEvent is not an instance of HasPersonId.  kai, mar'17)
+			// same order as in the events manager, where the typed handlers of the converters come before the basic event handlers
+			this.activityEvents.processEvent(o);
+			this.legEvents.processEvent(o);
+
+			// this is for the stuff that is directly based on events.
+			// note that this passes on _all_ person events, even those which are aggregated into legs and activities.
+			// for the time being, not all PersonEvents may "implement HasPersonId".
+			// link enter/leave events are NOT passed on, for performance reasons.
+			// kai/dominik, dec'12
+			if (o instanceof HasPersonId) {
+				ScoringFunction scoringFunction = getScoringFunctionForAgent(((HasPersonId) o).getPersonId());
 				if (scoringFunction != null) {
-					scoringFunction.handleEvent(o) ;
+					if (o instanceof PersonStuckEvent) {
+						scoringFunction.agentStuck(o.getTime());
+					} else if (o instanceof PersonMoneyEvent) {
+						scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
+						// yy looking at this, I am a bit skeptic if it truly makes sense to not pass this additionally into the general events handling function below.
+						// A use case might be different utilities of money by money transaction type (e.g. toll, fare, reimbursement, ...).  kai, mar'17
+					} 
+//					else {
+						scoringFunction.handleEvent(o);
+						// passing this on in any case, see comment above.  kai, mar'17
+//					}
+				}
+			}
+//			if ( passLinkEventsToPerson ) {
+				// Establish and end connection between driver and vehicle
+				if (o instanceof VehicleEntersTrafficEvent) {
+					vehicles2Drivers.handleEvent((VehicleEntersTrafficEvent) o);
+				}
+				if (o instanceof VehicleLeavesTrafficEvent) {
+					vehicles2Drivers.handleEvent((VehicleLeavesTrafficEvent) o);
+				}
+				// Pass LinkEnterEvent to person scoring, required e.g. for bicycle where link attributes are observed in scoring
+				if ( o instanceof LinkEnterEvent ) {
+					Id<Vehicle> vehicleId = ((LinkEnterEvent)o).getVehicleId() ;
+					Id<Person> driverId = vehicles2Drivers.getDriverOfVehicle(vehicleId) ;
+					ScoringFunction scoringFunction = getScoringFunctionForAgent( driverId );
+					// (this will NOT do the scoring function lookup twice since LinkEnterEvent is not an instance of HasPersonId.  kai, mar'17)
+					if (scoringFunction != null) {
+						scoringFunction.handleEvent(o) ;
+					}
 				}
+				/*
+				 * (This shouldn't really be more expensive than passing the link events to the router: here, we have a map lookup
+				 * for agentId, there we have a map lookup for linkId. Should be somewhat similar in terms of average
+				 * computational complexity. In BetaTravelTest, 194sec w/ "false", 193sec w/ "true". However, the experienced
+				 * plans service in fact does the same thing, so we should be able to get away without having to do this twice.
+				 * kai, mar'17)
+				 */
+//			}
+		}
+
+		@Override
+		public void handleLeg(PersonExperiencedLeg o) {
+			Id<Person> agentId = o.getAgentId();
+			Leg leg = o.getLeg();
+			ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
+			if (scoringFunction != null) {
+				scoringFunction.handleLeg(leg);
+				TDoubleCollection partialScoresForAgent = partialScores.get(agentId);
+				partialScoresForAgent.add(scoringFunction.getScore());
 			}
-			/*
-			 * (This shouldn't really be more expensive than passing the link events to the router: here, we have a map lookup
-			 * for agentId, there we have a map lookup for linkId. Should be somewhat similar in terms of average
-			 * computational complexity. In BetaTravelTest, 194sec w/ "false", 193sec w/ "true". However, the experienced
-			 * plans service in fact does the same thing, so we should be able to get away without having to do this twice.
-			 * kai, mar'17)
-			 */
-//		}
+		}
+
+		@Override
+		public void handleActivity(PersonExperiencedActivity o) {
+			Id<Person> agentId = o.getAgentId();
+			Activity activity = o.getActivity();
+			ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
+			if (scoringFunction != null) {
+				scoringFunction.handleActivity(activity);
+				TDoubleCollection partialScoresForAgent = partialScores.get(agentId);
+				partialScoresForAgent.add(scoringFunction.getScore());
+			}
+		}
+
+		@Override
+		public void reset(int iteration) {
+			vehicles2Drivers.reset(iteration);
+			this.eventsToActivities.reset(iteration);
+			this.eventsToLegs.reset(iteration);
+		}
 	}
 
-	@Override
-	synchronized public void handleLeg(PersonExperiencedLeg o) {
-		Id<Person> agentId = o.getAgentId();
-		Leg leg = o.getLeg();
-		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
-		if (scoringFunction != null) {
-			scoringFunction.handleLeg(leg);
-			TDoubleCollection partialScoresForAgent = partialScores.get(agentId);
-			partialScoresForAgent.add(scoringFunction.getScore());
+	/**
+	 * Passes the legs of all persons to the given handler, e.g. for the experienced plans. The handler is called after the scoring
+	 * functions, by the threads of the partitions, but each person is always handled by the same thread.
+	 */
+	void addLegHandler(EventsToLegs.LegHandler legHandler) {
+		for (Partition partition : this.partitions) {
+			partition.eventsToLegs.addLegHandler(legHandler);
 		}
 	}
 
-	@Override
-	synchronized public void handleActivity(PersonExperiencedActivity o) {
-		Id<Person> agentId = o.getAgentId();
-		Activity activity = o.getActivity();
-		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
-		if (scoringFunction != null) {
-			scoringFunction.handleActivity(activity);
-			TDoubleCollection partialScoresForAgent = partialScores.get(agentId);
-			partialScoresForAgent.add(scoringFunction.getScore());
+	/**
+	 * Passes the activities of all persons to the given handler, see {@link #addLegHandler(EventsToLegs.LegHandler)}.
+	 */
+	void addActivityHandler(EventsToActivities.ActivityHandler activityHandler) {
+		for (Partition partition : this.partitions) {
+			partition.eventsToActivities.addActivityHandler(activityHandler);
 		}
 	}
 
@@ -246,11 +355,6 @@ import gnu.trove.list.array.TDoubleArrayList;
 		}
 	}
 
-	@Override
-	public void reset(int iteration) {
-
-	}
-
 //	public boolean isPassLinkEventsToPerson() {
 //		return passLinkEventsToPerson;
 //	}
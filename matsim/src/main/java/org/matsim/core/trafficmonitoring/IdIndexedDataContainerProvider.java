@@ -0,0 +1,103 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IdIndexedDataContainerProvider.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.trafficmonitoring.TravelTimeCalculator.DataContainer;
+
+/**
+ * Stores the DataContainer objects in an array indexed by {@link Id#index()} of the link ids. In contrast
+ * to the {@link ArrayBasedDataContainerProvider}, this works for the event handler part of the
+ * TravelTimeCalculator as well as for all kinds of links, so neither of them performs a map lookup.
+ * <p></p>
+ * The DataContainers of all links of the network are created up front, so routers running in several
+ * threads never have to create (and thus synchronize on) missing containers. Containers for links added
+ * to the network later are created on demand.
+ */
+/*package*/ final class IdIndexedDataContainerProvider implements DataContainerProvider {
+
+	private final Map<Id<Link>, DataContainer> linkData;
+	private final TravelTimeDataFactory ttDataFactory;
+
+	// replaced if it has to grow, so every lookup sees a consistent array
+	private volatile DataContainer[] data;
+
+	/*package*/ IdIndexedDataContainerProvider(Map<Id<Link>, DataContainer> linkData, TravelTimeDataFactory ttDataFactory,
+			Network network) {
+		this.linkData = linkData;
+		this.ttDataFactory = ttDataFactory;
+		DataContainer[] data = new DataContainer[Id.getNumberOfIds(Link.class)];
+		for (Link link : network.getLinks().values()) {
+			data[link.getId().index()] = getOrCreate(link.getId());
+		}
+		this.data = data;
+	}
+
+	@Override
+	public DataContainer getTravelTimeData(final Id<Link> linkId, final boolean createIfMissing) {
+		int index = linkId.index();
+		DataContainer[] data = this.data;
+		if (index < data.length) {
+			DataContainer container = data[index];
+			if (container != null) {
+				return container;
+			}
+		}
+		return createIfMissing ? add(linkId) : null;
+	}
+
+	@Override
+	public DataContainer getTravelTimeData(final Link link, final boolean createIfMissing) {
+		return this.getTravelTimeData(link.getId(), createIfMissing);
+	}
+
+	private synchronized DataContainer add(final Id<Link> linkId) {
+		int index = linkId.index();
+		DataContainer[] data = this.data;
+		if (index >= data.length) {
+			data = Arrays.copyOf(data, Math.max(index + 1, Id.getNumberOfIds(Link.class)));
+		} else if (data[index] != null) {
+			return data[index];
+		} else {
+			data = data.clone();
+		}
+		DataContainer container = getOrCreate(linkId);
+		data[index] = container;
+		this.data = data;
+		return container;
+	}
+
+	private DataContainer getOrCreate(final Id<Link> linkId) {
+		// the map is still used by the TravelTimeCalculator to reset all containers
+		DataContainer container = this.linkData.get(linkId);
+		if (container == null) {
+			container = new DataContainer(this.ttDataFactory.createTravelTimeData(linkId));
+			this.linkData.put(linkId, container);
+		}
+		return container;
+	}
+
+}
@@ -19,7 +19,7 @@
  * *********************************************************************** */
 package org.matsim.core.trafficmonitoring;
 
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -47,6 +47,7 @@ import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
 import org.matsim.core.router.util.LinkToLinkTravelTime;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.utils.collections.CollectionUtils;
+import org.matsim.core.utils.collections.IdSet;
 import org.matsim.core.utils.collections.Tuple;
 import org.matsim.vehicles.Vehicle;
 
@@ -63,7 +64,12 @@ import com.google.inject.Inject;
  * use {@link TravelTimeDataHashMap} (see {@link #setTravelTimeDataFactory(TravelTimeDataFactory)}
  * as that one does not use any memory to time bins where no traffic occurred. By default,
  * {@link TravelTimeDataArray} is used.
- * 
+ * <br>
+ * With the calculator type <code>TravelTimeCalculatorIdIndexedArray</code>, the data of all network links is
+ * created up front and looked up by the index of the link id, both when handling events and when
+ * returning travel times. This needs more memory if many links carry no traffic, but routers in
+ * several threads then only read shared arrays.
+ *
  * @author dgrether
  * @author mrieser
  */
@@ -84,9 +90,16 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 
 	private Map<Tuple<Id<Link>, Id<Link>>, DataContainer> linkToLinkData;
 
-	private final DataContainerProvider dataContainerProvider;
+	private DataContainerProvider dataContainerProvider;
 	
-	private final Map<Id<Vehicle>, LinkEnterEvent> linkEnterEvents;
+	/*
+	 * The time and link of the last link enter event per vehicle, indexed by the vehicle's Id.index().
+	 * Storing them as primitives (instead of the events in a map) avoids allocations and keeps the
+	 * events from being retained until the vehicle leaves the link. NaN means that the vehicle is not
+	 * on a link (or its time on the link should not be counted).
+	 */
+	private double[] linkEnterTimes = new double[0];
+	private int[] linkEnterLinks = new int[0];
 
 	private final Set<Id<Vehicle>> vehiclesToIgnore;
 	private final Set<String> analyzedModes;
@@ -116,6 +129,12 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 			case TravelTimeCalculatorHashMap:
 				calculator.setTravelTimeDataFactory(new TravelTimeDataHashMapFactory(network));
 				break;
+			case TravelTimeCalculatorIdIndexedArray:
+				calculator.setTravelTimeDataFactory(new TravelTimeDataArrayFactory(network, calculator.numSlots));
+				if (calculator.calculateLinkTravelTimes) {
+					calculator.dataContainerProvider = new IdIndexedDataContainerProvider(calculator.linkData, calculator.ttDataFactory, network);
+				}
+				break;
 			default:
 				throw new RuntimeException(config.getTravelTimeCalculatorType() + " is unknown!");
 		}
@@ -194,11 +213,10 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 			// assume that every link has 2 outgoing links as default
 			this.linkToLinkData = new ConcurrentHashMap<>((int) (network.getLinks().size() * 1.4 * 2));
 		}
-		this.linkEnterEvents = new ConcurrentHashMap<>();
 
 		// if we just look at one mode, we need to ignore all vehicles with a different mode. However, the info re the mode is only in
 		// the vehicleEntersTraffic event.  So we need to memorize the ignored vehicles from there ...
-		this.vehiclesToIgnore = new HashSet<>();
+		this.vehiclesToIgnore = new IdSet<>(Vehicle.class);
 
 
 		this.reset(0);
@@ -211,23 +229,33 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 		 * performs a trip with one of those modes. if not, we skip the event. */
 		if (filterAnalyzedModes && vehiclesToIgnore.contains(e.getVehicleId())) return;
 
-		LinkEnterEvent oldEvent = this.linkEnterEvents.remove(e.getVehicleId());
-		if ((oldEvent != null) && this.calculateLinkToLinkTravelTimes) {
-			Tuple<Id<Link>, Id<Link>> fromToLink = new Tuple<>(oldEvent.getLinkId(), e.getLinkId());
+		int vehicleIndex = e.getVehicleId().index();
+		if (vehicleIndex >= this.linkEnterTimes.length) {
+			int length = Math.max(vehicleIndex + 1, Id.getNumberOfIds(Vehicle.class));
+			int oldLength = this.linkEnterTimes.length;
+			this.linkEnterTimes = Arrays.copyOf(this.linkEnterTimes, length);
+			this.linkEnterLinks = Arrays.copyOf(this.linkEnterLinks, length);
+			Arrays.fill(this.linkEnterTimes, oldLength, length, Double.NaN);
+		}
+		double oldEnterTime = this.linkEnterTimes[vehicleIndex];
+		if (!Double.isNaN(oldEnterTime) && this.calculateLinkToLinkTravelTimes) {
+			Id<Link> oldLinkId = Id.get(this.linkEnterLinks[vehicleIndex], Link.class);
+			Tuple<Id<Link>, Id<Link>> fromToLink = new Tuple<>(oldLinkId, e.getLinkId());
 			DataContainer data = getLinkToLinkTravelTimeData(fromToLink, true);
-			this.aggregator.addTravelTime(data.ttData, oldEvent.getTime(), e.getTime());
+			this.aggregator.addTravelTime(data.ttData, oldEnterTime, e.getTime());
 			data.needsConsolidation = true;
 		}
-		this.linkEnterEvents.put(e.getVehicleId(), e);
+		this.linkEnterTimes[vehicleIndex] = e.getTime();
+		this.linkEnterLinks[vehicleIndex] = e.getLinkId().index();
 	}
 
 	@Override
 	public void handleEvent(final LinkLeaveEvent e) {
 		if (this.calculateLinkTravelTimes) {
-			LinkEnterEvent oldEvent = this.linkEnterEvents.get(e.getVehicleId());
-			if (oldEvent != null) {
+			double enterTime = getLinkEnterTime(e.getVehicleId());
+			if (!Double.isNaN(enterTime)) {
 				DataContainer data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
-				this.aggregator.addTravelTime(data.ttData, oldEvent.getTime(), e.getTime());
+				this.aggregator.addTravelTime(data.ttData, enterTime, e.getTime());
 				data.needsConsolidation = true;
 			}
 		}
@@ -248,7 +276,7 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 		/* remove EnterEvents from list when a vehicle arrives.
 		 * otherwise, the activity duration would counted as travel time, when the
 		 * vehicle departs again and leaves the link! */
-		this.linkEnterEvents.remove(event.getVehicleId());
+		removeLinkEnterTime(event.getVehicleId());
 
 		// try to remove vehicles from set with filtered vehicles
 		if (filterAnalyzedModes) this.vehiclesToIgnore.remove(event.getVehicleId());
@@ -259,16 +287,17 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 		/* remove EnterEvents from list when a bus stops on a link.
 		 * otherwise, the stop time would counted as travel time, when the
 		 * bus departs again and leaves the link! */
-		this.linkEnterEvents.remove(event.getVehicleId());
+		removeLinkEnterTime(event.getVehicleId());
 	}
 
 	@Override
 	public void handleEvent(VehicleAbortsEvent event) {
-		LinkEnterEvent e = this.linkEnterEvents.remove(event.getVehicleId());
-		if (e != null) {
-			DataContainer data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
+		double enterTime = removeLinkEnterTime(event.getVehicleId());
+		if (!Double.isNaN(enterTime)) {
+			Id<Link> linkId = Id.get(this.linkEnterLinks[event.getVehicleId().index()], Link.class);
+			DataContainer data = this.dataContainerProvider.getTravelTimeData(linkId, true);
 			data.needsConsolidation = true;
-			this.aggregator.addStuckEventTravelTime(data.ttData, e.getTime(), event.getTime());
+			this.aggregator.addStuckEventTravelTime(data.ttData, enterTime, event.getTime());
 			if (this.calculateLinkToLinkTravelTimes 
 					&& event.getTime() < qsimConfig.getEndTime() 
 					// (we think that this only makes problems when the abort is not just because of mobsim end time. kai & theresa, jan'17) 
@@ -282,6 +311,21 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 		if (filterAnalyzedModes) this.vehiclesToIgnore.remove(event.getVehicleId());
 	}
 
+	private double getLinkEnterTime(final Id<Vehicle> vehicleId) {
+		int vehicleIndex = vehicleId.index();
+		return vehicleIndex < this.linkEnterTimes.length ? this.linkEnterTimes[vehicleIndex] : Double.NaN;
+	}
+
+	private double removeLinkEnterTime(final Id<Vehicle> vehicleId) {
+		int vehicleIndex = vehicleId.index();
+		if (vehicleIndex >= this.linkEnterTimes.length) {
+			return Double.NaN;
+		}
+		double enterTime = this.linkEnterTimes[vehicleIndex];
+		this.linkEnterTimes[vehicleIndex] = Double.NaN;
+		return enterTime;
+	}
+
 	private DataContainer getLinkToLinkTravelTimeData(Tuple<Id<Link>, Id<Link>> fromLinkToLink, final boolean createIfMissing) {
 		DataContainer data = this.linkToLinkData.get(fromLinkToLink);
 		if ((null == data) && createIfMissing) {
@@ -364,7 +408,7 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 				data.needsConsolidation = false;
 			}
 		}
-		this.linkEnterEvents.clear();
+		Arrays.fill(this.linkEnterTimes, Double.NaN);
 		this.vehiclesToIgnore.clear();
 	}
 
@@ -0,0 +1,272 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.matsim.api.core.v01.Id;
+
+/**
+ * Map with {@link Id}s of one type as keys, backed by arrays of the keys and values indexed by {@link Id#index()}.
+ * Lookups thus neither compute hash codes nor compare strings, and there are no entry objects. As indices are only
+ * unique per type, a lookup compares the given key with the stored one by identity.
+ * <p></p>
+ * The array grows up to the highest index used as key, so this map is best suited for maps that contain
+ * a considerable fraction of all Ids of its type (e.g. data per link, per vehicle or per person). Iteration
+ * is in the order of the indices, i.e. in the order the Ids were created.
+ * <p></p>
+ * Like {@link java.util.concurrent.ConcurrentHashMap}, this map does not support <code>null</code> values.
+ * It is not thread-safe.
+ *
+ * @param <T> the type of the Ids used as keys
+ * @param <V> the type of the values
+ */
+public class IdMap<T, V> extends AbstractMap<Id<T>, V> {
+
+	private final Class<T> idClass;
+	private Id<?>[] keys;
+	private Object[] data;
+	private int size = 0;
+	private int modCount = 0;
+
+	public IdMap(final Class<T> idClass) {
+		this(idClass, Math.max(16, Id.getNumberOfIds(idClass)));
+	}
+
+	public IdMap(final Class<T> idClass, final int initialCapacity) {
+		this.idClass = idClass;
+		this.keys = new Id<?>[initialCapacity];
+		this.data = new Object[initialCapacity];
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public boolean containsKey(final Object key) {
+		return get(key) != null;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public V get(final Object key) {
+		int index = indexOf(key);
+		return index < 0 ? null : (V) this.data[index];
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public V put(final Id<T> key, final V value) {
+		if (value == null) {
+			throw new NullPointerException("null values are not supported.");
+		}
+		int index = key.index();
+		if (index < this.keys.length && this.keys[index] == key) {
+			V old = (V) this.data[index];
+			this.data[index] = value;
+			return old;
+		}
+		if (index >= Id.getNumberOfIds(this.idClass) || Id.get(index, this.idClass) != key) {
+			throw new IllegalArgumentException("The Id " + key + " is not an Id of type " + this.idClass.getName() + ".");
+		}
+		if (index >= this.data.length) {
+			int capacity = Math.max(index + 1, this.data.length * 2);
+			this.keys = Arrays.copyOf(this.keys, capacity);
+			this.data = Arrays.copyOf(this.data, capacity);
+		}
+		this.keys[index] = key;
+		this.data[index] = value;
+		this.size++;
+		this.modCount++;
+		return null;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public V remove(final Object key) {
+		int index = indexOf(key);
+		if (index < 0) {
+			return null;
+		}
+		V old = (V) this.data[index];
+		this.keys[index] = null;
+		this.data[index] = null;
+		this.size--;
+		this.modCount++;
+		return old;
+	}
+
+	/**
+	 * @return the index of the given key if it is mapped to a value, -1 otherwise. As indices are only unique per
+	 * type, an Id of another type with the same index must not be mistaken for the key.
+	 */
+	private int indexOf(final Object key) {
+		if (!(key instanceof Id)) {
+			return -1;
+		}
+		int index = ((Id<?>) key).index();
+		if (index >= this.keys.length || this.keys[index] != key) {
+			return -1;
+		}
+		return index;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(this.keys, null);
+		Arrays.fill(this.data, null);
+		this.size = 0;
+		this.modCount++;
+	}
+
+	@Override
+	public Set<Map.Entry<Id<T>, V>> entrySet() {
+		return new EntrySet();
+	}
+
+	private class EntrySet extends AbstractSet<Map.Entry<Id<T>, V>> {
+
+		@Override
+		public int size() {
+			return IdMap.this.size;
+		}
+
+		@Override
+		public void clear() {
+			IdMap.this.clear();
+		}
+
+		@Override
+		public Iterator<Map.Entry<Id<T>, V>> iterator() {
+			return new EntryIterator();
+		}
+	}
+
+	private class EntryIterator implements Iterator<Map.Entry<Id<T>, V>> {
+
+		private int expectedModCount = IdMap.this.modCount;
+		private int next = -1;
+		private int current = -1;
+
+		EntryIterator() {
+			advance();
+		}
+
+		private void advance() {
+			Id<?>[] keys = IdMap.this.keys;
+			do {
+				this.next++;
+			} while (this.next < keys.length && keys[this.next] == null);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.next < IdMap.this.keys.length;
+		}
+
+		@Override
+		public Map.Entry<Id<T>, V> next() {
+			if (IdMap.this.modCount != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			this.current = this.next;
+			advance();
+			return new Entry(this.current);
+		}
+
+		@Override
+		public void remove() {
+			if (this.current < 0) {
+				throw new IllegalStateException();
+			}
+			if (IdMap.this.modCount != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			IdMap.this.remove(IdMap.this.keys[this.current]);
+			this.expectedModCount = IdMap.this.modCount;
+			this.current = -1;
+		}
+	}
+
+	private class Entry implements Map.Entry<Id<T>, V> {
+
+		private final int index;
+		private final Id<T> key;
+
+		@SuppressWarnings("unchecked")
+		Entry(final int index) {
+			this.index = index;
+			this.key = (Id<T>) IdMap.this.keys[index];
+		}
+
+		@Override
+		public Id<T> getKey() {
+			return this.key;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public V getValue() {
+			return (V) IdMap.this.data[this.index];
+		}
+
+		@Override
+		public V setValue(final V value) {
+			return IdMap.this.put(getKey(), value);
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (!(o instanceof Map.Entry)) {
+				return false;
+			}
+			Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+			return getKey().equals(e.getKey()) && getValue().equals(e.getValue());
+		}
+
+		@Override
+		public int hashCode() {
+			return getKey().hashCode() ^ getValue().hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+	}
+
+}
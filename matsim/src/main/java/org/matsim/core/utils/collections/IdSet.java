@@ -0,0 +1,161 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.matsim.api.core.v01.Id;
+
+/**
+ * Set of {@link Id}s of one type, backed by an array of the Ids indexed by {@link Id#index()}. As indices are only
+ * unique per type, a lookup compares the given Id with the stored one by identity.
+ * Iteration is in the order of the indices, i.e. in the order the Ids were created. It is not thread-safe.
+ *
+ * @see IdMap
+ * @param <T> the type of the Ids
+ */
+public class IdSet<T> extends AbstractSet<Id<T>> {
+
+	private final Class<T> idClass;
+	private Id<?>[] data;
+	private int size = 0;
+	private int modCount = 0;
+
+	public IdSet(final Class<T> idClass) {
+		this.idClass = idClass;
+		this.data = new Id<?>[Math.max(16, Id.getNumberOfIds(idClass))];
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public boolean contains(final Object o) {
+		if (!(o instanceof Id)) {
+			return false;
+		}
+		int index = ((Id<?>) o).index();
+		return index < this.data.length && this.data[index] == o;
+	}
+
+	@Override
+	public boolean add(final Id<T> id) {
+		int index = id.index();
+		if (index < this.data.length && this.data[index] == id) {
+			return false;
+		}
+		if (index >= Id.getNumberOfIds(this.idClass) || Id.get(index, this.idClass) != id) {
+			throw new IllegalArgumentException("The Id " + id + " is not an Id of type " + this.idClass.getName() + ".");
+		}
+		if (index >= this.data.length) {
+			this.data = Arrays.copyOf(this.data, Math.max(index + 1, this.data.length * 2));
+		}
+		this.data[index] = id;
+		this.size++;
+		this.modCount++;
+		return true;
+	}
+
+	@Override
+	public boolean remove(final Object o) {
+		if (!contains(o)) {
+			return false;
+		}
+		this.data[((Id<?>) o).index()] = null;
+		this.size--;
+		this.modCount++;
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(this.data, null);
+		this.size = 0;
+		this.modCount++;
+	}
+
+	@Override
+	public Iterator<Id<T>> iterator() {
+		return new Iterator<Id<T>>() {
+
+			private int expectedModCount = IdSet.this.modCount;
+			private int next = nextIndex(0);
+			private int current = -1;
+
+			@Override
+			public boolean hasNext() {
+				return this.next >= 0;
+			}
+
+			@SuppressWarnings("unchecked")
+			@Override
+			public Id<T> next() {
+				if (IdSet.this.modCount != this.expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+				if (this.next < 0) {
+					throw new NoSuchElementException();
+				}
+				this.current = this.next;
+				this.next = nextIndex(this.current + 1);
+				return (Id<T>) IdSet.this.data[this.current];
+			}
+
+			@Override
+			public void remove() {
+				if (this.current < 0) {
+					throw new IllegalStateException();
+				}
+				if (IdSet.this.modCount != this.expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+				IdSet.this.data[this.current] = null;
+				IdSet.this.size--;
+				IdSet.this.modCount++;
+				this.expectedModCount = IdSet.this.modCount;
+				this.current = -1;
+			}
+		};
+	}
+
+	/**
+	 * @return the first index from <code>from</code> on which contains an Id, or -1 if there is none
+	 */
+	private int nextIndex(final int from) {
+		for (int i = from; i < this.data.length; i++) {
+			if (this.data[i] != null) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+}
@@ -47,6 +47,9 @@ public abstract class AbstractMatsimWriter {
 	 * or not). */
 	protected Boolean useCompression = null;
 
+	/** The number of threads used to compress the output, see {@link IOUtils#getOutputStream(String, boolean, int)}. */
+	protected int compressionThreads = 1;
+
 	/**
 	 * Sets whether the file should be gzip-compressed or not. Must be set before
 	 * the file is opened for writing. If not set explicitly, the usage of
@@ -58,6 +61,16 @@ public abstract class AbstractMatsimWriter {
 		this.useCompression = useCompression;
 	}
 
+	/**
+	 * Sets the number of threads used to gzip-compress the file. Must be set before
+	 * the file is opened for writing. Defaults to 1.
+	 *
+	 * @param compressionThreads
+	 */
+	public final void setCompressionThreads(final int compressionThreads) {
+		this.compressionThreads = compressionThreads;
+	}
+
 	/**
 	 * Opens the specified file for writing.
 	 *
@@ -67,9 +80,9 @@ public abstract class AbstractMatsimWriter {
 	protected final void openFile(final String filename) throws UncheckedIOException {
 		assertNotAlreadyOpen();
 		if (this.useCompression == null) {
-			this.writer = IOUtils.getBufferedWriter(filename);
+			this.writer = IOUtils.getBufferedWriter(filename, IOUtils.CHARSET_UTF8, false, this.compressionThreads);
 		} else {
-			this.writer = IOUtils.getBufferedWriter(filename, this.useCompression);
+			this.writer = IOUtils.getBufferedWriter(filename, this.useCompression, this.compressionThreads);
 		}
 	}
 
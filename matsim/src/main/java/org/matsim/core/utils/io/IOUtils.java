@@ -164,15 +164,23 @@ public class IOUtils {
 	 * @throws UncheckedIOException
 	 */
 	public static BufferedWriter getBufferedWriter(final String filename, final boolean useCompression) throws UncheckedIOException {
+		return getBufferedWriter(filename, useCompression, 1);
+	}
+
+	/**
+	 * Same as {@link #getBufferedWriter(String, boolean)}, but compresses the data with the specified number of
+	 * threads, see {@link #getOutputStream(String, boolean, int)}.
+	 */
+	public static BufferedWriter getBufferedWriter(final String filename, final boolean useCompression, final int compressionThreads) throws UncheckedIOException {
 		if (filename == null) {
 			throw new UncheckedIOException(new FileNotFoundException("No filename given (filename == null)"));
 		}
 		if (useCompression && !filename.endsWith(GZ)) {
-			return getBufferedWriter(filename + GZ);
+			return getBufferedWriter(filename + GZ, CHARSET_UTF8, false, compressionThreads);
 		} else if (!useCompression && filename.endsWith(GZ)) {
-			return getBufferedWriter(filename.substring(0, filename.length() - 3));
+			return getBufferedWriter(filename.substring(0, filename.length() - 3), CHARSET_UTF8, false, compressionThreads);
 		} else {
-			return getBufferedWriter(filename);
+			return getBufferedWriter(filename, CHARSET_UTF8, false, compressionThreads);
 		}
 	}
 
@@ -249,11 +257,19 @@ public class IOUtils {
 	 * @throws UncheckedIOException
 	 */
 	public static BufferedWriter getBufferedWriter(final String filename, final Charset charset, final boolean append) throws UncheckedIOException {
+		return getBufferedWriter(filename, charset, append, 1);
+	}
+
+	/**
+	 * Same as {@link #getBufferedWriter(String, Charset, boolean)}, but compresses the data with the specified
+	 * number of threads, see {@link #getOutputStream(String, boolean, int)}.
+	 */
+	public static BufferedWriter getBufferedWriter(final String filename, final Charset charset, final boolean append, final int compressionThreads) throws UncheckedIOException {
 		if (filename == null) {
 			throw new UncheckedIOException(new FileNotFoundException("No filename given (filename == null)"));
 		}
 		try {
-			return new BufferedWriter(new OutputStreamWriter(getOutputStream(filename, append), charset));
+			return new BufferedWriter(new OutputStreamWriter(getOutputStream(filename, append, compressionThreads), charset));
 		} catch (UncheckedIOException e) {
 			throw new UncheckedIOException(e);
 		}
@@ -387,6 +403,19 @@ public class IOUtils {
 	 * <br> author mrieser
 	 */
 	public static OutputStream getOutputStream(final String filename, boolean append) throws UncheckedIOException {
+		return getOutputStream(filename, append, 1);
+	}
+
+	/**
+	 * Returns a buffered and optionally gzip-compressed output stream to the specified file.
+	 * If the given filename ends with ".gz", the written file content will be automatically
+	 * compressed with the gzip-algorithm. If more than one compression thread is given,
+	 * blocks of the content are compressed in parallel by a {@link ParallelGZIPOutputStream}.
+	 * The number of threads has no effect on uncompressed or lz4-compressed files.
+	 *
+	 * @throws UncheckedIOException if the file cannot be created.
+	 */
+	public static OutputStream getOutputStream(final String filename, boolean append, final int compressionThreads) throws UncheckedIOException {
 		if (filename == null) {
 			throw new UncheckedIOException(new FileNotFoundException("No filename given (filename == null)"));
 		}
@@ -396,6 +425,9 @@ public class IOUtils {
 				if (append && f.exists() && (f.length() > 0)) {
 					throw new IllegalArgumentException("Appending to an existing gzip-compressed file is not supported.");
 				}
+				if (compressionThreads > 1) {
+					return new BufferedOutputStream(new ParallelGZIPOutputStream(new FileOutputStream(filename, append), compressionThreads));
+				}
 				return new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(filename, append)));
 			} else if (filename.toLowerCase(Locale.ROOT).endsWith(LZ4)) {
 				File f = new File(filename);
@@ -0,0 +1,232 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelGZIPOutputStream.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes gzip-compressed data like {@link java.util.zip.GZIPOutputStream}, but compresses blocks of the data in
+ * parallel, in the same way as <code>pigz</code> does. Each block is deflated independently, using the end of
+ * the previous block as dictionary, and the compressed blocks are concatenated in order, resulting in a single
+ * regular gzip member that can be read by any gzip decompressor.
+ * <p></p>
+ * Instances are not thread-safe, only one thread may write to it.
+ *
+ * @see IOUtils#getOutputStream(String, boolean, int)
+ */
+public final class ParallelGZIPOutputStream extends OutputStream {
+
+	private static final int BLOCK_SIZE = 128 * 1024;
+	private static final int DICTIONARY_SIZE = 32 * 1024;
+	private static final int GZIP_MAGIC = 0x8b1f;
+
+	private final OutputStream out;
+	private final ExecutorService executor;
+	private final int maxPendingBlocks;
+	private final ArrayDeque<Future<byte[]>> pendingBlocks = new ArrayDeque<>();
+	private final CRC32 crc = new CRC32();
+	private final byte[] singleByte = new byte[1];
+
+	private byte[] block = new byte[BLOCK_SIZE];
+	private int blockLength = 0;
+	private byte[] dictionary = null;
+	private long totalLength = 0;
+	private int peakPendingBlocks = 0;
+	private boolean closed = false;
+
+	public ParallelGZIPOutputStream(final OutputStream out, final int numberOfThreads) throws IOException {
+		this.out = out;
+		this.executor = Executors.newFixedThreadPool(numberOfThreads, runnable -> {
+			Thread thread = new Thread(runnable, ParallelGZIPOutputStream.class.getSimpleName());
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.maxPendingBlocks = 2 * numberOfThreads;
+		writeHeader();
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		this.singleByte[0] = (byte) b;
+		write(this.singleByte, 0, 1);
+	}
+
+	@Override
+	public void write(final byte[] b, int off, int len) throws IOException {
+		if (this.closed) {
+			throw new IOException("Stream closed");
+		}
+		while (len > 0) {
+			int n = Math.min(len, BLOCK_SIZE - this.blockLength);
+			System.arraycopy(b, off, this.block, this.blockLength, n);
+			this.blockLength += n;
+			off += n;
+			len -= n;
+			if (this.blockLength == BLOCK_SIZE) {
+				submitBlock(false);
+			}
+		}
+	}
+
+	/**
+	 * Only flushes the underlying stream, like {@link java.util.zip.GZIPOutputStream} without <code>syncFlush</code>.
+	 * Data that is not yet compressed stays buffered, as cutting a block on every flush would result in many small
+	 * blocks that are compressed one after the other, and worse compression.
+	 */
+	@Override
+	public void flush() throws IOException {
+		if (this.closed) {
+			throw new IOException("Stream closed");
+		}
+		this.out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (this.closed) {
+			return;
+		}
+		try {
+			submitBlock(true);
+			writeCompressedBlocks(0);
+			writeTrailer();
+			this.out.flush();
+		} finally {
+			this.closed = true;
+			this.executor.shutdownNow();
+			this.out.close();
+		}
+	}
+
+	private void submitBlock(final boolean last) throws IOException {
+		final byte[] data = this.block;
+		final int length = this.blockLength;
+		final byte[] dict = this.dictionary;
+		this.crc.update(data, 0, length);
+		this.totalLength += length;
+		this.pendingBlocks.add(this.executor.submit(() -> compress(data, length, dict, last)));
+		this.peakPendingBlocks = Math.max(this.peakPendingBlocks, this.pendingBlocks.size());
+
+		// the end of this block is the dictionary for the next one
+		if (length >= DICTIONARY_SIZE) {
+			this.dictionary = Arrays.copyOfRange(data, length - DICTIONARY_SIZE, length);
+		} else if (length > 0) {
+			int keep = dict == null ? 0 : Math.min(dict.length, DICTIONARY_SIZE - length);
+			byte[] newDictionary = new byte[keep + length];
+			if (keep > 0) {
+				System.arraycopy(dict, dict.length - keep, newDictionary, 0, keep);
+			}
+			System.arraycopy(data, 0, newDictionary, keep, length);
+			this.dictionary = newDictionary;
+		}
+		this.block = new byte[BLOCK_SIZE];
+		this.blockLength = 0;
+
+		writeCompressedBlocks(this.maxPendingBlocks);
+	}
+
+	/**
+	 * Writes the compressed blocks in the order they were submitted, waiting for them as long as more than
+	 * <code>maxPendingBlocks</code> blocks are pending.
+	 */
+	private void writeCompressedBlocks(final int maxPendingBlocks) throws IOException {
+		while (!this.pendingBlocks.isEmpty() && (this.pendingBlocks.size() > maxPendingBlocks || this.pendingBlocks.peek().isDone())) {
+			try {
+				this.out.write(this.pendingBlocks.poll().get());
+			} catch (InterruptedException e) {
+				throw new IOException(e);
+			} catch (ExecutionException e) {
+				throw new IOException(e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * @return the largest number of blocks that were handed to the compressing threads at the same time.
+	 */
+	int getPeakPendingBlocks() {
+		return this.peakPendingBlocks;
+	}
+
+	private static byte[] compress(final byte[] data, final int length, final byte[] dictionary, final boolean last) {
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		try {
+			if (dictionary != null) {
+				deflater.setDictionary(dictionary);
+			}
+			deflater.setInput(data, 0, length);
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + 64);
+			byte[] buffer = new byte[16 * 1024];
+			if (last) {
+				deflater.finish();
+				while (!deflater.finished()) {
+					int n = deflater.deflate(buffer);
+					compressed.write(buffer, 0, n);
+				}
+			} else {
+				// a sync flush ends the block on a byte boundary, so the next block can simply be appended
+				int n;
+				do {
+					n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+					compressed.write(buffer, 0, n);
+				} while (n == buffer.length);
+			}
+			return compressed.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private void writeHeader() throws IOException {
+		this.out.write(new byte[] {
+				(byte) GZIP_MAGIC,        // magic number
+				(byte) (GZIP_MAGIC >> 8), // magic number
+				Deflater.DEFLATED,        // compression method
+				0,                        // flags
+				0, 0, 0, 0,               // modification time
+				0,                        // extra flags
+				0                         // operating system
+		});
+	}
+
+	private void writeTrailer() throws IOException {
+		writeInt((int) this.crc.getValue());
+		writeInt((int) this.totalLength); // the length modulo 2^32
+	}
+
+	private void writeInt(final int i) throws IOException {
+		this.out.write(i & 0xff);
+		this.out.write((i >> 8) & 0xff);
+		this.out.write((i >> 16) & 0xff);
+		this.out.write((i >> 24) & 0xff);
+	}
+
+}
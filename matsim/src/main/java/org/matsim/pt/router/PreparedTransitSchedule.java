@@ -24,6 +24,7 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
 import org.matsim.pt.transitSchedule.api.TransitRoute;
 import org.matsim.pt.transitSchedule.api.TransitRouteStop;
 import org.matsim.pt.transitSchedule.api.TransitSchedule;
@@ -53,9 +54,16 @@ public class PreparedTransitSchedule {
 
     /*
      * Conceptually, an instance of this class wraps a TransitSchedule to optimize a function of it.
+     * 
+     * The departures of all routes are sorted here, so afterwards all accesses to the cache are read only and
+     * one instance can be shared by the routers of all threads.
      */
 	public PreparedTransitSchedule(TransitSchedule schedule) {
-		
+		for (TransitLine line : schedule.getTransitLines().values()) {
+			for (TransitRoute route : line.getRoutes().values()) {
+				this.sortedDepartureCache.put(route, createSortedDepartures(route));
+			}
+		}
 	}
 
 	@Deprecated
@@ -82,12 +90,8 @@ public class PreparedTransitSchedule {
 		// this will search for the terminus departure that corresponds to my departure at the stop:
 		double[] cache = sortedDepartureCache.get(route);
 		if (cache == null) {
-			cache = new double[route.getDepartures().size()];
-			int i = 0;
-			for (Departure dep : route.getDepartures().values()) {
-				cache[i++] = dep.getDepartureTime();
-			}
-			Arrays.sort(cache);
+			// only happens for routes added after the creation, or with the deprecated constructor
+			cache = createSortedDepartures(route);
 			sortedDepartureCache.put(route, cache);
 		}
 		int pos = Arrays.binarySearch(cache, earliestDepartureTimeAtTerminus);
@@ -112,4 +116,14 @@ public class PreparedTransitSchedule {
 		}
 		return bestDepartureTime;
 	}
+
+	private static double[] createSortedDepartures(final TransitRoute route) {
+		double[] departures = new double[route.getDepartures().size()];
+		int i = 0;
+		for (Departure dep : route.getDepartures().values()) {
+			departures[i++] = dep.getDepartureTime();
+		}
+		Arrays.sort(departures);
+		return departures;
+	}
 }
\ No newline at end of file
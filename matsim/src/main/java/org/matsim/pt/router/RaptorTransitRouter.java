@@ -0,0 +1,558 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorTransitRouter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.facilities.Facility;
+
+/**
+ * A transit router based on the round-based RAPTOR algorithm (Delling, Pajor, Werneck: Round-Based Public Transit
+ * Routing, 2012). Instead of searching a least cost path in a {@link TransitRouterNetwork}, it scans the transit routes
+ * of a {@link RaptorTransitSchedule} directly: round <i>k</i> finds the earliest arrival at every stop with at most
+ * <i>k</i> vehicles, so the search results in the journeys which are Pareto-optimal with respect to arrival time and
+ * number of transfers. {@link #calcRoute(Facility, Facility, double, Person)} returns the journey with the lowest
+ * generalized costs out of these, using the same cost parameters as {@link TransitRouterNetworkTravelTimeAndDisutility}.
+ * <p></p>
+ * Compared to {@link TransitRouterImpl}, there are the following differences:
+ * <ul>
+ * <li>Journeys which are later or use more vehicles than another journey are never returned, even if their
+ * generalized costs would be lower (e.g. because of less walking).</li>
+ * <li>Agents walk directly from the start location to a stop within the search radius, and directly from a stop to
+ * the destination, but not to further stops from there.</li>
+ * <li>Agents may change between any two routes at the same stop, also between routes of the same line.</li>
+ * </ul>
+ * <p></p>
+ * The schedule data can be shared, but every instance keeps the state of its search and must thus only be used by one
+ * thread at a time. Creating an instance is cheap, see {@link RaptorTransitRouterFactory}.
+ */
+public class RaptorTransitRouter extends AbstractTransitRouter implements TransitRouter {
+
+	private static final double INF = Double.POSITIVE_INFINITY;
+
+	private final RaptorTransitSchedule schedule;
+	private final int stopCount;
+
+	// per stop, over all rounds
+	private final double[] bestVehicleArrival;
+	private final double[] bestBoardTime;
+	private final double[] accessTimes;
+	private final double[] egressTimes;
+	private final boolean[] markedStops;
+	private final boolean[] improvedStops;
+	private final int[] routeFirstMarkedRouteStop;
+
+	// per round and stop
+	private double[][] vehicleArrival = new double[0][];
+	private int[][] vehicleBoardRouteStop = new int[0][];
+	private int[][] vehicleAlightRouteStop = new int[0][];
+	private double[][] vehicleTripDeparture = new double[0][];
+	private double[][] boardTime = new double[0][];
+	/** the stop from which the agent walked to a stop to board there, or <code>-1</code> for the start location */
+	private int[][] boardFromStop = new int[0][];
+	/** whether the agent walked from a vehicle at <code>boardFromStop</code>, or from another stop it had walked to */
+	private boolean[][] boardFromVehicle = new boolean[0][];
+	private int usedRounds = 0;
+
+	// per round, the best way to the destination
+	private double[] targetArrival = new double[0];
+	private int[] targetStop = new int[0];
+	private double bestTargetArrival;
+
+	public RaptorTransitRouter(final RaptorTransitSchedule schedule, final TransitRouterConfig config) {
+		super(config, new TransitRouterNetworkTravelTimeAndDisutility(config));
+		this.schedule = schedule;
+		this.stopCount = schedule.stops.length;
+		this.bestVehicleArrival = new double[this.stopCount];
+		this.bestBoardTime = new double[this.stopCount];
+		this.accessTimes = new double[this.stopCount];
+		this.egressTimes = new double[this.stopCount];
+		this.markedStops = new boolean[this.stopCount];
+		this.improvedStops = new boolean[this.stopCount];
+		this.routeFirstMarkedRouteStop = new int[schedule.routes.length];
+		Arrays.fill(this.accessTimes, INF);
+		Arrays.fill(this.egressTimes, INF);
+		Arrays.fill(this.routeFirstMarkedRouteStop, -1);
+	}
+
+	@Override
+	public List<Leg> calcRoute(final Facility fromFacility, final Facility toFacility, final double departureTime, final Person person) {
+		Coord fromCoord = fromFacility.getCoord();
+		Coord toCoord = toFacility.getCoord();
+		Journey bestJourney = null;
+		for (Journey journey : calcParetoJourneys(fromFacility, toFacility, departureTime, person)) {
+			if (bestJourney == null || journey.cost < bestJourney.cost) {
+				bestJourney = journey;
+			}
+		}
+		if (bestJourney == null) {
+			return this.createDirectWalkLegList(null, fromCoord, toCoord);
+		}
+		double directWalkCost = getWalkDisutility(person, fromCoord, toCoord);
+		if (directWalkCost * getConfig().getDirectWalkFactor() < bestJourney.cost) {
+			return this.createDirectWalkLegList(null, fromCoord, toCoord);
+		}
+		return bestJourney.createLegs(fromCoord, toCoord, person);
+	}
+
+	/**
+	 * @return the journeys to the destination which are Pareto-optimal with respect to the arrival time and the number
+	 * of transfers, ordered by the number of transfers. Journeys without any transit leg are not returned.
+	 */
+	public List<Journey> calcParetoJourneys(final Facility fromFacility, final Facility toFacility, final double departureTime, final Person person) {
+		int[] accessStops = findNearbyStops(fromFacility.getCoord());
+		int[] egressStops = findNearbyStops(toFacility.getCoord());
+		try {
+			setAccessAndEgressTimes(accessStops, egressStops, fromFacility.getCoord(), toFacility.getCoord(), person);
+			return search(accessStops, departureTime, fromFacility.getCoord(), toFacility.getCoord(), person);
+		} finally {
+			clearAccessAndEgressTimes(accessStops, egressStops);
+		}
+	}
+
+	/**
+	 * Searches the journeys for all departure times between <code>earliestDepartureTime</code> and
+	 * <code>latestDepartureTime</code>: there is one search for every departure of a transit route at a stop which can
+	 * be reached from the start location in this time window.
+	 *
+	 * @return the journeys which are Pareto-optimal with respect to the departure time (later is better), the arrival
+	 * time and the number of transfers, ordered by their departure time.
+	 */
+	public List<Journey> calcRangeJourneys(final Facility fromFacility, final Facility toFacility,
+			final double earliestDepartureTime, final double latestDepartureTime, final Person person) {
+		int[] accessStops = findNearbyStops(fromFacility.getCoord());
+		int[] egressStops = findNearbyStops(toFacility.getCoord());
+		try {
+			setAccessAndEgressTimes(accessStops, egressStops, fromFacility.getCoord(), toFacility.getCoord(), person);
+
+			TreeSet<Double> departureTimes = new TreeSet<>();
+			departureTimes.add(earliestDepartureTime);
+			for (int s : accessStops) {
+				double accessTime = this.accessTimes[s];
+				for (int i = this.schedule.stopRouteStopsFirst[s]; i < this.schedule.stopRouteStopsFirst[s + 1]; i++) {
+					int rs = this.schedule.stopRouteStops[i];
+					int r = this.schedule.routeStopRoute[rs];
+					if (rs == this.schedule.routeStopsFirst[r + 1] - 1) {
+						continue; // one cannot board at the last stop
+					}
+					double time = earliestDepartureTime + accessTime;
+					while (true) {
+						double stopDepartureTime = this.schedule.getNextDepartureTime(r, rs, time) + this.schedule.departureOffsets[rs];
+						if (stopDepartureTime - accessTime > latestDepartureTime) {
+							break;
+						}
+						departureTimes.add(stopDepartureTime - accessTime);
+						time = Math.nextUp(stopDepartureTime);
+					}
+				}
+			}
+
+			// search from the latest departure on, so earlier departures only need to be kept if they arrive earlier
+			List<Journey> journeys = new ArrayList<>();
+			for (double departureTime : departureTimes.descendingSet()) {
+				for (Journey journey : search(accessStops, departureTime, fromFacility.getCoord(), toFacility.getCoord(), person)) {
+					if (!isDominated(journey, journeys)) {
+						journeys.add(journey);
+					}
+				}
+			}
+			Collections.reverse(journeys);
+			return journeys;
+		} finally {
+			clearAccessAndEgressTimes(accessStops, egressStops);
+		}
+	}
+
+	private static boolean isDominated(final Journey journey, final List<Journey> laterJourneys) {
+		for (Journey other : laterJourneys) {
+			if (other.arrivalTime <= journey.arrivalTime && other.numberOfTransfers <= journey.numberOfTransfers) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private int[] findNearbyStops(final Coord coord) {
+		Collection<Integer> stops = this.schedule.stopsQuadTree.getDisk(coord.getX(), coord.getY(), getConfig().getSearchRadius());
+		if (stops.size() < 2) {
+			// also enlarge search area if only one stop found, maybe a second one is near the border of the search area
+			Integer nearestStop = this.schedule.stopsQuadTree.getClosest(coord.getX(), coord.getY());
+			if (nearestStop != null) { // transit schedule might be completely empty!
+				double distance = CoordUtils.calcEuclideanDistance(coord, this.schedule.stops[nearestStop].getCoord());
+				stops = this.schedule.stopsQuadTree.getDisk(coord.getX(), coord.getY(), distance + getConfig().getExtensionRadius());
+			}
+		}
+		return RaptorTransitSchedule.toSortedArray(stops);
+	}
+
+	private void setAccessAndEgressTimes(final int[] accessStops, final int[] egressStops, final Coord fromCoord, final Coord toCoord, final Person person) {
+		for (int s : accessStops) {
+			this.accessTimes[s] = getWalkTime(person, fromCoord, this.schedule.stops[s].getCoord());
+		}
+		for (int s : egressStops) {
+			this.egressTimes[s] = getWalkTime(person, this.schedule.stops[s].getCoord(), toCoord);
+		}
+	}
+
+	private void clearAccessAndEgressTimes(final int[] accessStops, final int[] egressStops) {
+		for (int s : accessStops) {
+			this.accessTimes[s] = INF;
+		}
+		for (int s : egressStops) {
+			this.egressTimes[s] = INF;
+		}
+	}
+
+	private List<Journey> search(final int[] accessStops, final double departureTime, final Coord fromCoord, final Coord toCoord, final Person person) {
+		reset();
+		ensureRound(0);
+		for (int s : accessStops) {
+			double time = departureTime + this.accessTimes[s];
+			this.boardTime[0][s] = time;
+			this.boardFromStop[0][s] = -1;
+			this.bestBoardTime[s] = time;
+			this.markedStops[s] = true;
+		}
+
+		List<Integer> markedStopList = new ArrayList<>();
+		for (int s : accessStops) {
+			markedStopList.add(s);
+		}
+		for (int k = 1; !markedStopList.isEmpty(); k++) {
+			ensureRound(k);
+			List<Integer> improvedStopList = scanRoutes(k, markedStopList);
+			for (int s : markedStopList) {
+				this.markedStops[s] = false;
+			}
+			markedStopList = walkTransfers(k, improvedStopList);
+			for (int s : improvedStopList) {
+				this.improvedStops[s] = false;
+			}
+		}
+		List<Journey> journeys = new ArrayList<>();
+		for (int k = 1; k < this.usedRounds; k++) {
+			if (this.targetStop[k] >= 0) {
+				journeys.add(createJourney(k, this.targetStop[k], departureTime, fromCoord, toCoord, person));
+			}
+		}
+		return journeys;
+	}
+
+	/**
+	 * Scans all routes serving a stop marked in the previous round, and sets the vehicle arrivals of round k.
+	 *
+	 * @return the stops with an improved vehicle arrival
+	 */
+	private List<Integer> scanRoutes(final int k, final List<Integer> markedStopList) {
+		RaptorTransitSchedule sched = this.schedule;
+		List<Integer> routeList = new ArrayList<>();
+		for (int s : markedStopList) {
+			for (int i = sched.stopRouteStopsFirst[s]; i < sched.stopRouteStopsFirst[s + 1]; i++) {
+				int rs = sched.stopRouteStops[i];
+				int r = sched.routeStopRoute[rs];
+				int first = this.routeFirstMarkedRouteStop[r];
+				if (first < 0) {
+					routeList.add(r);
+					this.routeFirstMarkedRouteStop[r] = rs;
+				} else if (rs < first) {
+					this.routeFirstMarkedRouteStop[r] = rs;
+				}
+			}
+		}
+		Collections.sort(routeList); // for deterministic results with equal arrival times
+
+		double[] prevBoardTime = this.boardTime[k - 1];
+		double[] arrival = this.vehicleArrival[k];
+		List<Integer> improvedStopList = new ArrayList<>();
+		for (int r : routeList) {
+			int lastRouteStop = sched.routeStopsFirst[r + 1] - 1;
+			double tripDeparture = INF;
+			int boardRouteStop = -1;
+			for (int rs = this.routeFirstMarkedRouteStop[r]; rs <= lastRouteStop; rs++) {
+				int s = sched.routeStopStop[rs];
+				if (boardRouteStop >= 0) {
+					double time = tripDeparture + sched.arrivalOffsets[rs];
+					if (time < this.bestVehicleArrival[s] && time < this.bestTargetArrival) {
+						arrival[s] = time;
+						this.vehicleBoardRouteStop[k][s] = boardRouteStop;
+						this.vehicleAlightRouteStop[k][s] = rs;
+						this.vehicleTripDeparture[k][s] = tripDeparture;
+						this.bestVehicleArrival[s] = time;
+						if (!this.improvedStops[s]) {
+							this.improvedStops[s] = true;
+							improvedStopList.add(s);
+						}
+					}
+				}
+				// check whether an earlier trip can be caught at this stop
+				if (rs < lastRouteStop && prevBoardTime[s] < INF
+						&& (boardRouteStop < 0 || prevBoardTime[s] <= tripDeparture + sched.departureOffsets[rs])) {
+					double departure = sched.getNextDepartureTime(r, rs, prevBoardTime[s]);
+					if (departure < tripDeparture) {
+						tripDeparture = departure;
+						boardRouteStop = rs;
+					}
+				}
+			}
+			this.routeFirstMarkedRouteStop[r] = -1;
+		}
+
+		// check whether the destination can be reached earlier
+		for (int s : improvedStopList) {
+			double time = arrival[s] + this.egressTimes[s];
+			if (time < this.bestTargetArrival) {
+				this.bestTargetArrival = time;
+				this.targetArrival[k] = time;
+				this.targetStop[k] = s;
+			}
+		}
+		return improvedStopList;
+	}
+
+	/**
+	 * Lets the agents walk from the stops where they arrived with a vehicle in round k to the stops where they can
+	 * board a vehicle in the next round, including the stop itself. Like the transfer links in the
+	 * {@link TransitRouterNetwork}, every walk takes the additional transfer time, and agents may walk on from a stop
+	 * they have walked to.
+	 *
+	 * @return the stops with an improved board time
+	 */
+	private List<Integer> walkTransfers(final int k, final List<Integer> improvedStopList) {
+		RaptorTransitSchedule sched = this.schedule;
+		double walkSpeed = getConfig().getBeelineWalkSpeed();
+		double additionalTransferTime = getConfig().getAdditionalTransferTime();
+		double[] board = this.boardTime[k];
+		List<Integer> markedStopList = new ArrayList<>();
+		PriorityQueue<WalkEntry> queue = new PriorityQueue<>();
+		for (int s : improvedStopList) {
+			double time = this.vehicleArrival[k][s] + additionalTransferTime;
+			if (improveBoardTime(k, s, time, s, true, markedStopList)) {
+				queue.add(new WalkEntry(s, time));
+			}
+			for (int i = sched.transfersFirst[s]; i < sched.transfersFirst[s + 1]; i++) {
+				int s2 = sched.transferStops[i];
+				time = this.vehicleArrival[k][s] + sched.transferDistances[i] / walkSpeed + additionalTransferTime;
+				if (improveBoardTime(k, s2, time, s, true, markedStopList)) {
+					queue.add(new WalkEntry(s2, time));
+				}
+			}
+		}
+		while (!queue.isEmpty()) {
+			WalkEntry entry = queue.poll();
+			int s = entry.stop;
+			if (entry.time > board[s]) {
+				continue; // outdated
+			}
+			for (int i = sched.transfersFirst[s]; i < sched.transfersFirst[s + 1]; i++) {
+				int s2 = sched.transferStops[i];
+				double time = board[s] + sched.transferDistances[i] / walkSpeed + additionalTransferTime;
+				if (improveBoardTime(k, s2, time, s, false, markedStopList)) {
+					queue.add(new WalkEntry(s2, time));
+				}
+			}
+		}
+		return markedStopList;
+	}
+
+	private boolean improveBoardTime(final int k, final int s, final double time, final int fromStop, final boolean fromVehicle, final List<Integer> markedStopList) {
+		if (time < this.bestBoardTime[s] && time < this.bestTargetArrival) {
+			this.boardTime[k][s] = time;
+			this.boardFromStop[k][s] = fromStop;
+			this.boardFromVehicle[k][s] = fromVehicle;
+			this.bestBoardTime[s] = time;
+			if (!this.markedStops[s]) {
+				this.markedStops[s] = true;
+				markedStopList.add(s);
+			}
+			return true;
+		}
+		return false;
+	}
+
+	private Journey createJourney(final int rounds, final int egressStop, final double departureTime, final Coord fromCoord, final Coord toCoord, final Person person) {
+		RaptorTransitSchedule sched = this.schedule;
+		TransitRouterConfig config = getConfig();
+		List<RouteSegment> segments = new ArrayList<>();
+		double cost = getWalkDisutility(person, sched.stops[egressStop].getCoord(), toCoord);
+		int s = egressStop;
+		for (int k = rounds; k > 0; k--) {
+			// the transit leg
+			int boardRouteStop = this.vehicleBoardRouteStop[k][s];
+			int alightRouteStop = this.vehicleAlightRouteStop[k][s];
+			int r = sched.routeStopRoute[boardRouteStop];
+			int boardStop = sched.routeStopStop[boardRouteStop];
+			double readyTime = this.boardTime[k - 1][boardStop];
+			double travelTime = this.vehicleArrival[k][s] - readyTime;
+			double waitTime = Math.max(0.0, this.vehicleTripDeparture[k][s] + sched.arrivalOffsets[boardRouteStop] - readyTime);
+			double distance = sched.distances[alightRouteStop] - sched.distances[boardRouteStop];
+			cost += - (travelTime - waitTime) * config.getMarginalUtilityOfTravelTimePt_utl_s()
+					- waitTime * config.getMarginalUtilityOfWaitingPt_utl_s()
+					- distance * config.getMarginalUtilityOfTravelDistancePt_utl_m();
+			segments.add(new RouteSegment(sched.stops[boardStop], sched.stops[s], travelTime,
+					sched.routeLines[r].getId(), sched.routes[r].getId()));
+
+			// the walk to the transit leg
+			int fromStop = this.boardFromStop[k - 1][boardStop];
+			if (fromStop < 0) {
+				cost += getWalkDisutility(person, fromCoord, sched.stops[boardStop].getCoord());
+				break;
+			}
+			int walkStop = boardStop;
+			while (true) {
+				fromStop = this.boardFromStop[k - 1][walkStop];
+				double walkDistance = CoordUtils.calcEuclideanDistance(sched.stops[fromStop].getCoord(), sched.stops[walkStop].getCoord());
+				cost += - walkDistance / config.getBeelineWalkSpeed() * config.getMarginalUtilityOfTravelTimeWalk_utl_s()
+						- walkDistance * config.getMarginalUtilityOfTravelDistanceWalk_utl_m()
+						- config.getAdditionalTransferTime() * config.getMarginalUtilityOfWaitingPt_utl_s()
+						- config.getUtilityOfLineSwitch_utl();
+				if (this.boardFromVehicle[k - 1][walkStop]) {
+					break;
+				}
+				walkStop = fromStop;
+			}
+			segments.add(new RouteSegment(sched.stops[fromStop], sched.stops[boardStop],
+					readyTime - this.vehicleArrival[k - 1][fromStop], null, null));
+			s = fromStop;
+		}
+		Collections.reverse(segments);
+		return new Journey(departureTime, this.targetArrival[rounds], rounds - 1, cost, segments);
+	}
+
+	private void reset() {
+		Arrays.fill(this.bestVehicleArrival, INF);
+		Arrays.fill(this.bestBoardTime, INF);
+		for (int k = 0; k < this.usedRounds; k++) {
+			Arrays.fill(this.vehicleArrival[k], INF);
+			Arrays.fill(this.boardTime[k], INF);
+			this.targetStop[k] = -1;
+			this.targetArrival[k] = INF;
+		}
+		this.usedRounds = 0;
+		this.bestTargetArrival = INF;
+	}
+
+	private void ensureRound(final int k) {
+		if (k >= this.vehicleArrival.length) {
+			int rounds = k + 1;
+			this.vehicleArrival = Arrays.copyOf(this.vehicleArrival, rounds);
+			this.vehicleBoardRouteStop = Arrays.copyOf(this.vehicleBoardRouteStop, rounds);
+			this.vehicleAlightRouteStop = Arrays.copyOf(this.vehicleAlightRouteStop, rounds);
+			this.vehicleTripDeparture = Arrays.copyOf(this.vehicleTripDeparture, rounds);
+			this.boardTime = Arrays.copyOf(this.boardTime, rounds);
+			this.boardFromStop = Arrays.copyOf(this.boardFromStop, rounds);
+			this.boardFromVehicle = Arrays.copyOf(this.boardFromVehicle, rounds);
+			this.targetArrival = Arrays.copyOf(this.targetArrival, rounds);
+			this.targetStop = Arrays.copyOf(this.targetStop, rounds);
+			this.vehicleArrival[k] = new double[this.stopCount];
+			this.vehicleBoardRouteStop[k] = new int[this.stopCount];
+			this.vehicleAlightRouteStop[k] = new int[this.stopCount];
+			this.vehicleTripDeparture[k] = new double[this.stopCount];
+			this.boardTime[k] = new double[this.stopCount];
+			this.boardFromStop[k] = new int[this.stopCount];
+			this.boardFromVehicle[k] = new boolean[this.stopCount];
+			Arrays.fill(this.vehicleArrival[k], INF);
+			Arrays.fill(this.boardTime[k], INF);
+		}
+		this.targetStop[k] = -1;
+		this.targetArrival[k] = INF;
+		this.usedRounds = Math.max(this.usedRounds, k + 1);
+	}
+
+	private static final class WalkEntry implements Comparable<WalkEntry> {
+		final int stop;
+		final double time;
+
+		WalkEntry(final int stop, final double time) {
+			this.stop = stop;
+			this.time = time;
+		}
+
+		@Override
+		public int compareTo(final WalkEntry o) {
+			int cmp = Double.compare(this.time, o.time);
+			return cmp != 0 ? cmp : Integer.compare(this.stop, o.stop);
+		}
+	}
+
+	/**
+	 * A journey found by the router, consisting of the transit legs and the transfers between them.
+	 */
+	public final class Journey {
+		private final double departureTime;
+		private final double arrivalTime;
+		private final int numberOfTransfers;
+		private final double cost;
+		private final List<RouteSegment> segments;
+
+		/*package*/ Journey(final double departureTime, final double arrivalTime, final int numberOfTransfers, final double cost, final List<RouteSegment> segments) {
+			this.departureTime = departureTime;
+			this.arrivalTime = arrivalTime;
+			this.numberOfTransfers = numberOfTransfers;
+			this.cost = cost;
+			this.segments = segments;
+		}
+
+		public double getDepartureTime() {
+			return this.departureTime;
+		}
+
+		public double getArrivalTime() {
+			return this.arrivalTime;
+		}
+
+		public int getNumberOfTransfers() {
+			return this.numberOfTransfers;
+		}
+
+		public double getCost() {
+			return this.cost;
+		}
+
+		public List<RouteSegment> getRouteSegments() {
+			return Collections.unmodifiableList(this.segments);
+		}
+
+		/**
+		 * @return the legs of this journey, including the walk legs from the start location and to the destination.
+		 */
+		public List<Leg> createLegs(final Coord fromCoord, final Coord toCoord, final Person person) {
+			TransitPassengerRoute route = new TransitPassengerRoute(this.cost, new ArrayList<>(this.segments));
+			return convertPassengerRouteToLegList(this.departureTime, route, fromCoord, toCoord, person);
+		}
+
+		@Override
+		public String toString() {
+			return "[departure=" + this.departureTime + " arrival=" + this.arrivalTime + " transfers=" + this.numberOfTransfers
+					+ " cost=" + this.cost + " via " + this.segments + "]";
+		}
+	}
+
+}
@@ -0,0 +1,264 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorTransitSchedule.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.core.utils.collections.QuadTree;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+/**
+ * The transit schedule in the array based form used by the {@link RaptorTransitRouter}.
+ * <p></p>
+ * The stops of all transit routes are stored one route after the other ("route stops"), so a route is scanned
+ * by iterating over a range of array indices. The departures of each route are sorted, and each stop knows its
+ * route stops and the stops which can be reached from it by walking.
+ * <p></p>
+ * Instances are not modified after their creation, and can thus be shared by the routers of all threads. Like
+ * {@link TransitRouterNetwork}, they do not reflect changes of the transit schedule after their creation.
+ *
+ * @see RaptorTransitRouter
+ */
+public final class RaptorTransitSchedule {
+
+	private static final Logger log = Logger.getLogger(RaptorTransitSchedule.class);
+
+	/*package*/ final TransitStopFacility[] stops;
+	/** the stops served by at least one route, with their index */
+	/*package*/ final QuadTree<Integer> stopsQuadTree;
+
+	/*package*/ final TransitLine[] routeLines;
+	/*package*/ final TransitRoute[] routes;
+	/** the route stops of route <code>r</code> are <code>routeStopsFirst[r]</code> to <code>routeStopsFirst[r+1] - 1</code> */
+	/*package*/ final int[] routeStopsFirst;
+	/** the departures of route <code>r</code> are <code>departuresFirst[r]</code> to <code>departuresFirst[r+1] - 1</code> */
+	/*package*/ final int[] departuresFirst;
+	/** departure times at the first stop, sorted per route */
+	/*package*/ final double[] departureTimes;
+
+	// per route stop
+	/*package*/ final int[] routeStopRoute;
+	/*package*/ final int[] routeStopStop;
+	/*package*/ final double[] arrivalOffsets;
+	/*package*/ final double[] departureOffsets;
+	/** beeline distance from the first stop of the route along its stops */
+	/*package*/ final double[] distances;
+
+	// per stop
+	/** the route stops at stop <code>s</code> are <code>stopRouteStops[stopRouteStopsFirst[s]]</code> to <code>stopRouteStops[stopRouteStopsFirst[s+1] - 1]</code> */
+	/*package*/ final int[] stopRouteStopsFirst;
+	/*package*/ final int[] stopRouteStops;
+	/** the transfers from stop <code>s</code> are <code>transfersFirst[s]</code> to <code>transfersFirst[s+1] - 1</code> */
+	/*package*/ final int[] transfersFirst;
+	/*package*/ final int[] transferStops;
+	/*package*/ final double[] transferDistances;
+
+	public RaptorTransitSchedule(final TransitSchedule schedule, final TransitRouterConfig config) {
+		log.info("start creating raptor transit schedule");
+
+		Map<Id<TransitStopFacility>, Integer> stopIndices = new LinkedHashMap<>();
+		List<TransitStopFacility> stopList = new ArrayList<>();
+		List<TransitLine> lineList = new ArrayList<>();
+		List<TransitRoute> routeList = new ArrayList<>();
+		int routeStopCount = 0;
+		int departureCount = 0;
+		for (TransitLine line : schedule.getTransitLines().values()) {
+			for (TransitRoute route : line.getRoutes().values()) {
+				if (route.getStops().size() < 2 || route.getDepartures().isEmpty()) {
+					continue;
+				}
+				lineList.add(line);
+				routeList.add(route);
+				routeStopCount += route.getStops().size();
+				departureCount += route.getDepartures().size();
+				for (TransitRouteStop stop : route.getStops()) {
+					if (!stopIndices.containsKey(stop.getStopFacility().getId())) {
+						stopIndices.put(stop.getStopFacility().getId(), stopList.size());
+						stopList.add(stop.getStopFacility());
+					}
+				}
+			}
+		}
+		this.stops = stopList.toArray(new TransitStopFacility[stopList.size()]);
+		this.routeLines = lineList.toArray(new TransitLine[lineList.size()]);
+		this.routes = routeList.toArray(new TransitRoute[routeList.size()]);
+
+		this.routeStopsFirst = new int[this.routes.length + 1];
+		this.departuresFirst = new int[this.routes.length + 1];
+		this.departureTimes = new double[departureCount];
+		this.routeStopRoute = new int[routeStopCount];
+		this.routeStopStop = new int[routeStopCount];
+		this.arrivalOffsets = new double[routeStopCount];
+		this.departureOffsets = new double[routeStopCount];
+		this.distances = new double[routeStopCount];
+		int[] stopRouteStopCounts = new int[this.stops.length];
+		int rs = 0;
+		int d = 0;
+		for (int r = 0; r < this.routes.length; r++) {
+			this.routeStopsFirst[r] = rs;
+			Coord prevCoord = null;
+			double distance = 0.0;
+			for (TransitRouteStop stop : this.routes[r].getStops()) {
+				int s = stopIndices.get(stop.getStopFacility().getId());
+				Coord coord = stop.getStopFacility().getCoord();
+				if (prevCoord != null) {
+					distance += CoordUtils.calcEuclideanDistance(prevCoord, coord);
+				}
+				prevCoord = coord;
+				this.routeStopRoute[rs] = r;
+				this.routeStopStop[rs] = s;
+				// often, only one of the offsets is given
+				double arrivalOffset = stop.getArrivalOffset();
+				double departureOffset = stop.getDepartureOffset();
+				this.arrivalOffsets[rs] = arrivalOffset != Time.UNDEFINED_TIME ? arrivalOffset : departureOffset;
+				this.departureOffsets[rs] = departureOffset != Time.UNDEFINED_TIME ? departureOffset : arrivalOffset;
+				this.distances[rs] = distance;
+				stopRouteStopCounts[s]++;
+				rs++;
+			}
+			this.departuresFirst[r] = d;
+			for (Departure departure : this.routes[r].getDepartures().values()) {
+				this.departureTimes[d++] = departure.getDepartureTime();
+			}
+			Arrays.sort(this.departureTimes, this.departuresFirst[r], d);
+		}
+		this.routeStopsFirst[this.routes.length] = rs;
+		this.departuresFirst[this.routes.length] = d;
+
+		this.stopRouteStopsFirst = new int[this.stops.length + 1];
+		for (int s = 0; s < this.stops.length; s++) {
+			this.stopRouteStopsFirst[s + 1] = this.stopRouteStopsFirst[s] + stopRouteStopCounts[s];
+		}
+		this.stopRouteStops = new int[routeStopCount];
+		int[] pos = Arrays.copyOf(this.stopRouteStopsFirst, this.stops.length);
+		for (rs = 0; rs < routeStopCount; rs++) {
+			this.stopRouteStops[pos[this.routeStopStop[rs]]++] = rs;
+		}
+
+		this.stopsQuadTree = createQuadTree(this.stops);
+
+		// connect all stops with transfers if they're located less than beelineWalkConnectionDistance from each other
+		this.transfersFirst = new int[this.stops.length + 1];
+		List<Integer> transferStopList = new ArrayList<>();
+		List<Double> transferDistanceList = new ArrayList<>();
+		for (int s = 0; s < this.stops.length; s++) {
+			this.transfersFirst[s] = transferStopList.size();
+			Coord coord = this.stops[s].getCoord();
+			int[] nearStops = toSortedArray(this.stopsQuadTree.getDisk(coord.getX(), coord.getY(), config.getBeelineWalkConnectionDistance()));
+			for (int s2 : nearStops) {
+				if (s2 != s) {
+					transferStopList.add(s2);
+					transferDistanceList.add(CoordUtils.calcEuclideanDistance(coord, this.stops[s2].getCoord()));
+				}
+			}
+		}
+		this.transfersFirst[this.stops.length] = transferStopList.size();
+		this.transferStops = new int[transferStopList.size()];
+		this.transferDistances = new double[transferStopList.size()];
+		for (int i = 0; i < this.transferStops.length; i++) {
+			this.transferStops[i] = transferStopList.get(i);
+			this.transferDistances[i] = transferDistanceList.get(i);
+		}
+
+		log.info("raptor transit schedule statistics:");
+		log.info(" # stops:       " + this.stops.length);
+		log.info(" # routes:      " + this.routes.length);
+		log.info(" # route stops: " + routeStopCount);
+		log.info(" # departures:  " + departureCount);
+		log.info(" # transfers:   " + this.transferStops.length);
+	}
+
+	private static QuadTree<Integer> createQuadTree(final TransitStopFacility[] stops) {
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (TransitStopFacility stop : stops) {
+			Coord c = stop.getCoord();
+			minX = Math.min(minX, c.getX());
+			minY = Math.min(minY, c.getY());
+			maxX = Math.max(maxX, c.getX());
+			maxY = Math.max(maxY, c.getY());
+		}
+		if (stops.length == 0) {
+			minX = minY = maxX = maxY = 0.0;
+		}
+		QuadTree<Integer> quadTree = new QuadTree<>(minX, minY, maxX, maxY);
+		for (int s = 0; s < stops.length; s++) {
+			Coord c = stops[s].getCoord();
+			quadTree.put(c.getX(), c.getY(), s);
+		}
+		return quadTree;
+	}
+
+	/**
+	 * The quad tree does not return the stops in a deterministic order, so they are sorted by index.
+	 */
+	/*package*/ static int[] toSortedArray(final java.util.Collection<Integer> stops) {
+		int[] array = new int[stops.size()];
+		int i = 0;
+		for (Integer s : stops) {
+			array[i++] = s;
+		}
+		Arrays.sort(array);
+		return array;
+	}
+
+	/**
+	 * @return the departure time at the first stop of the earliest trip of the route that departs at the given route
+	 * stop at or after <code>time</code>. Like {@link PreparedTransitSchedule}, the departures are repeated every day
+	 * if there is no later departure.
+	 */
+	/*package*/ double getNextDepartureTime(final int route, final int routeStop, final double time) {
+		int first = this.departuresFirst[route];
+		int last = this.departuresFirst[route + 1];
+		double earliestDepartureTimeAtTerminus = time - this.departureOffsets[routeStop];
+		for (double shift = 0.0; ; shift += TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT) {
+			int pos = Arrays.binarySearch(this.departureTimes, first, last, earliestDepartureTimeAtTerminus - shift);
+			if (pos < 0) {
+				pos = -(pos + 1);
+			} else {
+				// there might be several departures at the same time
+				while (pos > first && this.departureTimes[pos - 1] == this.departureTimes[pos]) {
+					pos--;
+				}
+			}
+			if (pos < last) {
+				return this.departureTimes[pos] + shift;
+			}
+		}
+	}
+
+}
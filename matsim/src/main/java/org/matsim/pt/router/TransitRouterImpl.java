@@ -59,7 +59,7 @@ public class TransitRouterImpl extends AbstractTransitRouter implements TransitR
         this.preparedTransitSchedule = new PreparedTransitSchedule(schedule);
         TransitRouterNetworkTravelTimeAndDisutility transitRouterNetworkTravelTimeAndDisutility = new TransitRouterNetworkTravelTimeAndDisutility(
                 trConfig,
-                new PreparedTransitSchedule(schedule));
+                this.preparedTransitSchedule);
         this.travelDisutility = transitRouterNetworkTravelTimeAndDisutility;
         this.travelTime = transitRouterNetworkTravelTimeAndDisutility;
         setTransitTravelDisutility(this.travelDisutility);
@@ -29,6 +29,10 @@ import javax.inject.Provider;
 import javax.inject.Singleton;
 
 /**
+ * Creates a {@link TransitRouterImpl} for every caller. The {@link TransitRouterNetwork} and the
+ * {@link PreparedTransitSchedule} are not modified by the routers and are thus shared by all of them, only the
+ * search state and the travel time caches are per router.
+ *
  * @author mrieser
  */
 @Singleton
@@ -47,8 +51,10 @@ public class TransitRouterImplFactory implements Provider<TransitRouter> {
 				config.transitRouter(),
 				config.vspExperimental()));
 		events.addHandler((TransitScheduleChangedEventHandler) event -> {
-			routerNetwork = null;
-			preparedTransitSchedule = null;
+			synchronized (this) {
+				this.routerNetwork = null;
+				this.preparedTransitSchedule = null;
+			}
 		});
 	}
 
@@ -58,7 +64,8 @@ public class TransitRouterImplFactory implements Provider<TransitRouter> {
 	}
 
 	@Override
-	public TransitRouter get() {
+	public synchronized TransitRouter get() {
+		// synchronized, as the routers of several threads are created concurrently and should not each build their own network
 		if (this.routerNetwork == null) {
 			this.routerNetwork = TransitRouterNetwork.createFromSchedule(transitSchedule, this.config.getBeelineWalkConnectionDistance());
 		}
@@ -0,0 +1,57 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.controler.corelisteners;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BackgroundOutputWriterTest {
+
+	@Test
+	public void testErrorIsRethrownByWaitForAll() {
+		BackgroundOutputWriter writer = new BackgroundOutputWriter(true);
+		writer.write("failing", () -> {
+			throw new AssertionError("expected");
+		});
+		try {
+			writer.waitForAll();
+			Assert.fail("the error of the task was lost");
+		} catch (AssertionError e) {
+			Assert.assertEquals("expected", e.getMessage());
+		}
+		writer.shutdown();// the error was rethrown once, so nothing is thrown anymore
+	}
+
+	@Test
+	public void testExceptionIsRethrownByShutdown() {
+		BackgroundOutputWriter writer = new BackgroundOutputWriter(true);
+		writer.write("failing", () -> {
+			throw new IllegalStateException("expected");
+		});
+		try {
+			writer.shutdown();
+			Assert.fail("the exception of the task was lost");
+		} catch (RuntimeException e) {
+			Assert.assertEquals("expected", e.getCause().getMessage());
+		}
+	}
+
+}
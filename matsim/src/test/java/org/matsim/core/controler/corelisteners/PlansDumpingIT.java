@@ -21,12 +21,19 @@ package org.matsim.core.controler.corelisteners;
 
 import org.junit.Rule;
 import org.junit.Test;
+import org.matsim.api.core.v01.Scenario;
 import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.controler.Controler;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.population.io.PopulationReader;
+import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.testcases.MatsimTestUtils;
 
 import java.io.File;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -108,4 +115,27 @@ public class PlansDumpingIT {
 		assertTrue(new File(c.getControlerIO().getIterationFilename(9, "plans.xml.gz")).exists());
 		assertTrue(new File(c.getControlerIO().getIterationFilename(10, "plans.xml.gz")).exists());
 	}
+
+	@Test
+	public void testPlansDump_InBackground() {
+		Config config = this.util.loadConfig("test/scenarios/equil/config_plans1.xml");
+		config.controler().setLastIteration(10);
+		config.controler().setWritePlansInterval(3);
+		config.controler().setWriteInBackground(true);
+		Controler c = new Controler(config);
+		c.getConfig().controler().setWriteEventsInterval(1);
+		c.getConfig().controler().setCreateGraphs(false);
+
+		c.run();
+
+		// all files must be completely written when the controler returns
+		for (int i = 0; i <= 10; i++) {
+			assertEquals(i <= 1 || i % 3 == 0, new File(c.getControlerIO().getIterationFilename(i, "plans.xml.gz")).exists());
+			assertTrue(new File(c.getControlerIO().getIterationFilename(i, "events.xml.gz")).exists());
+		}
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new PopulationReader(scenario).readFile(c.getControlerIO().getIterationFilename(9, "plans.xml.gz"));
+		assertEquals(c.getScenario().getPopulation().getPersons().size(), scenario.getPopulation().getPersons().size());
+		new MatsimEventsReader(EventsUtils.createEventsManager()).readFile(c.getControlerIO().getIterationFilename(10, "events.xml.gz"));
+	}
 }
@@ -0,0 +1,105 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.controler.corelisteners;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.PopulationWriter;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.io.PopulationReader;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class PlansDumpingImplTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	/**
+	 * Changes done by the mobsim, the scoring and the replanning after the copy was handed to the background writer
+	 * must not show up in the written plans.
+	 */
+	@Test
+	public void testCopyNotChangedByLaterModifications() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Population population = scenario.getPopulation();
+		PopulationFactory pf = population.getFactory();
+		Person person = pf.createPerson(Id.createPersonId("1"));
+		Plan selectedPlan = createPlan(pf, 8 * 3600, "car", 10.);
+		Plan otherPlan = createPlan(pf, 9 * 3600, "walk", 5.);
+		person.addPlan(selectedPlan);
+		person.addPlan(otherPlan);
+		person.setSelectedPlan(selectedPlan);
+		population.addPerson(person);
+		PopulationUtils.compactNonSelectedPlans(population);
+
+		Population copy = PlansDumpingImpl.copyPopulation(population, scenario.getConfig(), scenario.getNetwork());
+		Assert.assertTrue("copying should not expand the compacted plan", otherPlan.toString().contains("compact"));
+
+		// the mobsim and scoring change the selected plan
+		((Activity) selectedPlan.getPlanElements().get(0)).setEndTime(10 * 3600);
+		((Leg) selectedPlan.getPlanElements().get(1)).setMode("bike");
+		selectedPlan.setScore(20.);
+		// the replanning removes and adds plans, and expands the compacted ones
+		Assert.assertEquals(3, otherPlan.getPlanElements().size());
+		person.removePlan(otherPlan);
+		Plan newPlan = createPlan(pf, 7 * 3600, "pt", null);
+		person.addPlan(newPlan);
+		person.setSelectedPlan(newPlan);
+
+		String filename = this.utils.getOutputDirectory() + "plans.xml.gz";
+		new PopulationWriter(copy).write(filename);
+		Scenario written = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new PopulationReader(written).readFile(filename);
+
+		Person writtenPerson = written.getPopulation().getPersons().get(person.getId());
+		Assert.assertEquals(2, writtenPerson.getPlans().size());
+		assertPlan(writtenPerson.getSelectedPlan(), 8 * 3600, "car", 10.);
+		assertPlan(writtenPerson.getPlans().get(1), 9 * 3600, "walk", 5.);
+	}
+
+	private static Plan createPlan(final PopulationFactory pf, final double endTime, final String mode, final Double score) {
+		Plan plan = pf.createPlan();
+		Activity home = pf.createActivityFromCoord("home", new Coord(0, 0));
+		home.setEndTime(endTime);
+		plan.addActivity(home);
+		plan.addLeg(pf.createLeg(mode));
+		plan.addActivity(pf.createActivityFromCoord("work", new Coord(1000, 0)));
+		plan.setScore(score);
+		return plan;
+	}
+
+	private static void assertPlan(final Plan plan, final double endTime, final String mode, final Double score) {
+		Assert.assertEquals(endTime, ((Activity) plan.getPlanElements().get(0)).getEndTime(), 0.);
+		Assert.assertEquals(mode, ((Leg) plan.getPlanElements().get(1)).getMode());
+		Assert.assertEquals(score, plan.getScore());
+	}
+
+}
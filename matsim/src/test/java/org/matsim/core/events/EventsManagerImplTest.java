@@ -63,6 +63,16 @@ public class EventsManagerImplTest {
 		}
 	}
 
+	@Test
+	public void testProcessEvent_SubclassOfCustomEvent() {
+		EventsManager manager = EventsUtils.createEventsManager();
+		CountingMyEventHandler handler = new CountingMyEventHandler();
+		manager.addHandler(handler);
+		manager.processEvent(new MySubEvent(123.45));
+		manager.processEvent(new MyEvent(123.45));
+		Assert.assertEquals("EventHandler was not called for both events.", 2, handler.counter);
+	}
+
 	/*package*/ static class MyEvent extends Event {
 		public MyEvent(final double time) {
 			super(time);
@@ -73,6 +83,12 @@ public class EventsManagerImplTest {
 		}
 	}
 
+	/*package*/ static class MySubEvent extends MyEvent {
+		public MySubEvent(final double time) {
+			super(time);
+		}
+	}
+
 	/*package*/ static interface MyEventHandler extends EventHandler {
 		public void handleEvent(final MyEvent e);
 	}
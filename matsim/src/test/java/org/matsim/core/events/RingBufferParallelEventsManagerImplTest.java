@@ -0,0 +1,121 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.events;
+
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class RingBufferParallelEventsManagerImplTest {
+
+	@Test
+	public void testEventHandlerCanProduceAdditionalEventLateInSimStep() {
+		final RingBufferParallelEventsManagerImpl events = new RingBufferParallelEventsManagerImpl(8);
+		events.addHandler(new LinkEnterEventHandler() {
+			@Override
+			public void handleEvent(LinkEnterEvent event) {
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+				events.processEvent(new PersonStuckEvent(event.getTime(), Id.createPersonId(0), Id.createLinkId(0), "car"));
+			}
+
+			@Override
+			public void reset(int iteration) {}
+		});
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		events.processEvent(new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.processEvent(new LinkLeaveEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(0.0);
+		events.processEvent(new LinkEnterEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.processEvent(new LinkLeaveEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(1.0);
+		events.finishProcessing();
+
+		assertThat(collector.getEvents(),
+			contains(
+					new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new LinkLeaveEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new PersonStuckEvent(0.0, Id.createPersonId(0), Id.createLinkId(0), "car"),
+					new LinkEnterEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new LinkLeaveEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new PersonStuckEvent(1.0, Id.createPersonId(0), Id.createLinkId(0), "car")));
+	}
+
+	@Test
+	public void testAllEventsOfSimStepProcessed_multipleProducers() throws InterruptedException {
+		// use a small ring buffer so that the producers have to wait for the events processing threads
+		final RingBufferParallelEventsManagerImpl events = new RingBufferParallelEventsManagerImpl(4, 16);
+		final int numberOfProducers = 3;
+		final int eventsPerProducer = 1000;
+		CountingHandler[] handlers = new CountingHandler[6];
+		for (int i = 0; i < handlers.length; i++) {
+			handlers[i] = new CountingHandler();
+			events.addHandler(handlers[i]);
+		}
+		events.initProcessing();
+		for (int step = 0; step < 5; step++) {
+			final double time = step;
+			Thread[] producers = new Thread[numberOfProducers];
+			for (int p = 0; p < numberOfProducers; p++) {
+				producers[p] = new Thread(() -> {
+					for (int i = 0; i < eventsPerProducer; i++) {
+						events.processEvent(new LinkEnterEvent(time, Id.createVehicleId(0), Id.createLinkId(0)));
+					}
+				});
+				producers[p].start();
+			}
+			for (Thread producer : producers) {
+				producer.join();
+			}
+			events.afterSimStep(time);
+			for (CountingHandler handler : handlers) {
+				Assert.assertEquals((step + 1) * numberOfProducers * eventsPerProducer, handler.counter);
+			}
+		}
+		events.finishProcessing();
+	}
+
+	private static class CountingHandler implements LinkEnterEventHandler {
+		private int counter = 0;
+
+		@Override
+		public void handleEvent(LinkEnterEvent event) {
+			this.counter++;
+		}
+
+		@Override
+		public void reset(int iteration) {
+			this.counter = 0;
+		}
+	}
+
+}
@@ -0,0 +1,178 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
+import org.matsim.api.core.v01.events.VehicleAbortsEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.AgentWaitingForPtEvent;
+import org.matsim.core.api.experimental.events.BoardingDeniedEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+import org.matsim.vehicles.Vehicle;
+
+public class EventWriterBinaryTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testWriteRead() {
+		List<Event> expected = new ArrayList<>();
+		// more events than fit into one block
+		for (int i = 0; i < EventWriterBinary.BLOCK_SIZE + 100; i++) {
+			Id<Vehicle> vehicleId = Id.create(i % 50, Vehicle.class);
+			Id<Link> linkId = Id.create("link<" + (i % 20), Link.class);
+			expected.add(new LinkEnterEvent(i * 0.5, vehicleId, linkId));
+			expected.add(new LinkLeaveEvent(i * 0.5 + 10, vehicleId, linkId));
+		}
+		expected.add(new VehicleEntersTrafficEvent(100.0, Id.create(1, Person.class), Id.create(2, Link.class), Id.create(3, Vehicle.class), "car", 0.25));
+		expected.add(new PersonMoneyEvent(200.0, Id.create(1, Person.class), -3.7));
+		expected.add(new ActivityEndEvent(300.0, Id.create(1, Person.class), Id.create(2, Link.class), null, "home"));
+		expected.add(new PersonDepartureEvent(300.0, Id.create(1, Person.class), Id.create(2, Link.class), "pt"));
+		expected.add(new PersonStuckEvent(301.0, Id.create(2, Person.class), null, null));
+		expected.add(new VehicleAbortsEvent(301.0, Id.create(3, Vehicle.class), Id.create(2, Link.class)));
+		expected.add(new VehicleLeavesTrafficEvent(302.0, Id.create(1, Person.class), Id.create(2, Link.class), Id.create(3, Vehicle.class), "car", 1.0));
+		expected.add(new TransitDriverStartsEvent(310.0, Id.create("pt_driver", Person.class), Id.create("bus", Vehicle.class),
+				Id.create("line", TransitLine.class), Id.create("route", TransitRoute.class), Id.create("dep", Departure.class)));
+		expected.add(new AgentWaitingForPtEvent(311.0, Id.create(1, Person.class), Id.create("stop1", TransitStopFacility.class),
+				Id.create("stop2", TransitStopFacility.class)));
+		expected.add(new VehicleArrivesAtFacilityEvent(320.0, Id.create("bus", Vehicle.class), Id.create("stop1", TransitStopFacility.class), -12.5));
+		expected.add(new BoardingDeniedEvent(321.0, Id.create(2, Person.class), Id.create("bus", Vehicle.class)));
+		expected.add(new PersonEntersVehicleEvent(321.0, Id.create(1, Person.class), Id.create("bus", Vehicle.class)));
+		expected.add(new VehicleDepartsAtFacilityEvent(330.0, Id.create("bus", Vehicle.class), Id.create("stop1", TransitStopFacility.class), 0.0));
+		expected.add(new PersonLeavesVehicleEvent(390.0, Id.create(1, Person.class), Id.create("bus", Vehicle.class)));
+		expected.add(new PersonArrivalEvent(390.0, Id.create(1, Person.class), Id.create(5, Link.class), "pt"));
+		expected.add(new TeleportationArrivalEvent(391.0, Id.create(1, Person.class), 123.4));
+		expected.add(new ActivityStartEvent(391.0, Id.create(1, Person.class), Id.create(5, Link.class), Id.create("work", ActivityFacility.class), "work"));
+
+		GenericEvent generic = new GenericEvent("special", 400.0);
+		generic.getAttributes().put("coord", new Coord(1.5, 2.5).toString());
+		generic.getAttributes().put("x", "683518.0");
+		generic.getAttributes().put("notExactlyADouble", "1.50");
+		generic.getAttributes().put("id", "17");
+		expected.add(generic);
+
+		String filename = this.utils.getOutputDirectory() + "events.bin";
+		EventWriterBinary writer = new EventWriterBinary(filename);
+		for (Event event : expected) {
+			writer.handleEvent(event);
+		}
+		writer.closeFile();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		new MatsimEventsReader(events).readFile(filename);
+
+		Assert.assertEquals(expected.size(), collector.getEvents().size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals(expected.get(i), collector.getEvents().get(i));
+			Assert.assertEquals(expected.get(i).getClass(), collector.getEvents().get(i).getClass());
+		}
+	}
+
+	@Test
+	public void testNullAttribute() {
+		String filename = this.utils.getOutputDirectory() + "events.bin";
+		EventWriterBinary writer = new EventWriterBinary(filename);
+
+		GenericEvent event = new GenericEvent("TEST", 3600.0);
+		event.getAttributes().put("dummy", null);
+		writer.handleEvent(event);
+		writer.closeFile();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		new MatsimEventsReader(events).readFile(filename);
+
+		Assert.assertEquals("there must be 1 event.", 1, collector.getEvents().size());
+		Assert.assertNull(collector.getEvents().get(0).getAttributes().get("dummy"));
+	}
+
+	@Test
+	public void testReadStreamAndUrl() throws IOException {
+		List<Event> expected = new ArrayList<>();
+		expected.add(new ActivityEndEvent(300.0, Id.create(1, Person.class), Id.create(2, Link.class), null, "home"));
+		expected.add(new PersonDepartureEvent(300.0, Id.create(1, Person.class), Id.create(2, Link.class), "car"));
+
+		// the format is recognized from the content, whatever the extension
+		for (String filename : new String[] { "events.bin", "events.bin.gz", "events.bin.lz4", "events.xml", "events.xml.gz" }) {
+			String path = this.utils.getOutputDirectory() + filename;
+			EventWriter writer = filename.contains(".bin") ? new EventWriterBinary(path) : new EventWriterXML(path);
+			for (Event event : expected) {
+				((BasicEventHandler)writer).handleEvent(event);
+			}
+			writer.closeFile();
+
+			EventsManager events = EventsUtils.createEventsManager();
+			EventsCollector collector = new EventsCollector();
+			events.addHandler(collector);
+			try (InputStream stream = new FileInputStream(path)) {
+				new MatsimEventsReader(events).readStream(stream);
+			}
+			new MatsimEventsReader(events).readURL(new File(path).toURI().toURL());
+			Assert.assertEquals(filename, expected.size() * 2, collector.getEvents().size());
+			for (int i = 0; i < collector.getEvents().size(); i++) {
+				Assert.assertEquals(filename, expected.get(i % expected.size()), collector.getEvents().get(i));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,221 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ActivityEndsQueueTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.facilities.Facility;
+
+public class ActivityEndsQueueTest {
+
+	@Test
+	public void testCollectDueAgents_Order() {
+		MobsimAgent agent1 = new TestAgent("1");
+		MobsimAgent agent2 = new TestAgent("2");
+		MobsimAgent agent3 = new TestAgent("3");
+		MobsimAgent agent4 = new TestAgent("4");
+
+		ActivityEndsQueue queue = new ActivityEndsQueue();
+		queue.add(agent1, 100.0);
+		queue.add(agent2, 100.5);
+		queue.add(agent3, 100.0);
+		queue.add(agent4, 99.0);
+
+		List<MobsimAgent> dueAgents = new ArrayList<>();
+		queue.collectDueAgents(98.0, dueAgents);
+		Assert.assertTrue(dueAgents.isEmpty());
+
+		// for the same end time, the agent with the larger id comes first
+		queue.collectDueAgents(100.0, dueAgents);
+		Assert.assertEquals(Arrays.asList(agent4, agent3, agent1), dueAgents);
+		for (MobsimAgent agent : dueAgents) {
+			Assert.assertTrue(queue.removeIfDue(agent, 100.0));
+		}
+
+		dueAgents.clear();
+		queue.collectDueAgents(100.0, dueAgents);
+		Assert.assertTrue("agent 2 is not due before 100.5", dueAgents.isEmpty());
+		Assert.assertFalse(queue.removeIfDue(agent2, 100.0));
+
+		queue.collectDueAgents(101.0, dueAgents);
+		Assert.assertEquals(Arrays.asList(agent2), dueAgents);
+		Assert.assertTrue(queue.removeIfDue(agent2, 101.0));
+		Assert.assertFalse(queue.remove(agent2));
+	}
+
+	@Test
+	public void testReschedule() {
+		MobsimAgent agent1 = new TestAgent("1");
+		MobsimAgent agent2 = new TestAgent("2");
+		MobsimAgent agent3 = new TestAgent("3");
+
+		ActivityEndsQueue queue = new ActivityEndsQueue();
+		queue.add(agent1, 3600.0);
+		queue.add(agent2, 7200.0);
+		queue.add(agent3, 2.0 * ActivityEndsQueue.BUCKET_COUNT);
+
+		// agent 1 ends later, agent 2 earlier, agent 3 is moved back and forth
+		Assert.assertTrue(queue.remove(agent1));
+		queue.add(agent1, 10800.0);
+		Assert.assertTrue(queue.remove(agent2));
+		queue.add(agent2, 1800.0);
+		Assert.assertTrue(queue.remove(agent3));
+		queue.add(agent3, 3600.0);
+		Assert.assertTrue(queue.remove(agent3));
+		queue.add(agent3, 3.0 * ActivityEndsQueue.BUCKET_COUNT);
+
+		List<MobsimAgent> dueAgents = new ArrayList<>();
+		queue.collectDueAgents(7200.0, dueAgents);
+		Assert.assertEquals(Arrays.asList(agent2), dueAgents);
+		Assert.assertTrue(queue.removeIfDue(agent2, 7200.0));
+
+		dueAgents.clear();
+		queue.collectDueAgents(2.5 * ActivityEndsQueue.BUCKET_COUNT, dueAgents);
+		Assert.assertEquals(Arrays.asList(agent1), dueAgents);
+		Assert.assertTrue(queue.removeIfDue(agent1, 2.5 * ActivityEndsQueue.BUCKET_COUNT));
+
+		dueAgents.clear();
+		queue.collectDueAgents(3.0 * ActivityEndsQueue.BUCKET_COUNT, dueAgents);
+		Assert.assertEquals(Arrays.asList(agent3), dueAgents);
+
+		List<MobsimAgent> remainingAgents = new ArrayList<>();
+		queue.removeAll((agent, activityEndTime) -> remainingAgents.add(agent));
+		Assert.assertEquals(Arrays.asList(agent3), remainingAgents);
+		Assert.assertFalse(queue.remove(agent3));
+	}
+
+	@Test
+	public void testGetNextActivityEndTime() {
+		MobsimAgent agent1 = new TestAgent("1");
+		MobsimAgent agent2 = new TestAgent("2");
+
+		ActivityEndsQueue queue = new ActivityEndsQueue();
+		Assert.assertEquals(Double.POSITIVE_INFINITY, queue.getNextActivityEndTime(), 0.0);
+		queue.add(agent1, 3600.5);
+		queue.add(agent2, 2.0 * ActivityEndsQueue.BUCKET_COUNT);
+		Assert.assertEquals(3600.0, queue.getNextActivityEndTime(), 0.0);
+
+		// an earlier activity end must be found although the buckets before 3600 are known to be empty
+		Assert.assertTrue(queue.remove(agent2));
+		queue.add(agent2, 1800.0);
+		Assert.assertEquals(1800.0, queue.getNextActivityEndTime(), 0.0);
+
+		List<MobsimAgent> dueAgents = new ArrayList<>();
+		queue.collectDueAgents(1800.0, dueAgents);
+		Assert.assertTrue(queue.removeIfDue(agent2, 1800.0));
+		Assert.assertEquals(3600.0, queue.getNextActivityEndTime(), 0.0);
+
+		dueAgents.clear();
+		queue.collectDueAgents(3601.0, dueAgents);
+		Assert.assertTrue(queue.removeIfDue(agent1, 3601.0));
+		Assert.assertEquals(Double.POSITIVE_INFINITY, queue.getNextActivityEndTime(), 0.0);
+
+		queue.add(agent1, 3.0 * ActivityEndsQueue.BUCKET_COUNT);
+		Assert.assertEquals(3.0 * ActivityEndsQueue.BUCKET_COUNT, queue.getNextActivityEndTime(), 0.0);
+	}
+
+	private static class TestAgent implements MobsimAgent {
+		private final Id<Person> id;
+
+		TestAgent(final String id) {
+			this.id = Id.create(id, Person.class);
+		}
+
+		@Override
+		public Id<Person> getId() {
+			return this.id;
+		}
+
+		@Override
+		public Id<Link> getCurrentLinkId() {
+			return null;
+		}
+
+		@Override
+		public Id<Link> getDestinationLinkId() {
+			return null;
+		}
+
+		@Override
+		public String getMode() {
+			return null;
+		}
+
+		@Override
+		public State getState() {
+			return State.ACTIVITY;
+		}
+
+		@Override
+		public double getActivityEndTime() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void endActivityAndComputeNextState(final double now) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void endLegAndComputeNextState(final double now) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void setStateToAbort(final double now) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Double getExpectedTravelTime() {
+			return null;
+		}
+
+		@Override
+		public Double getExpectedTravelDistance() {
+			return null;
+		}
+
+		@Override
+		public void notifyArrivalOnLinkByNonNetworkMode(final Id<Link> linkId) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Facility getCurrentFacility() {
+			return null;
+		}
+
+		@Override
+		public Facility getDestinationFacility() {
+			return null;
+		}
+	}
+
+}
@@ -68,6 +68,8 @@ import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.controler.PrepareForSimUtils;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener;
 import org.matsim.core.mobsim.qsim.agents.PersonDriverAgentImpl;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.NetsimLink;
@@ -270,6 +272,66 @@ public class QSimTest {
 		Assert.assertEquals("wrong time in second event.", 7.0*3600 + 12, collector.events.get(3).getTime(), MatsimTestCase.EPSILON);
 	}
 
+	/**
+	 * Tests that skipping idle time steps results in the same events, and that only the listeners which need every
+	 * time step are notified in the skipped time steps.
+	 */
+	@Test
+	public void testSkippingIdleTimeSteps() {
+		for (boolean withEveryStepListener : new boolean[] { false, true }) {
+			Fixture f = new Fixture(isUsingFastCapacityUpdate);
+			f.config.qsim().setSkippingIdleTimeSteps(true);
+
+			// add two persons with leg from link1 to link3, the first starting at 6am, the second at 7am
+			for (int i = 0; i < 2; i++) {
+				Person person = PopulationUtils.getFactory().createPerson(Id.create(i, Person.class));
+				Plan plan = PersonUtils.createAndAddPlan(person, true);
+				Activity a1 = PopulationUtils.createAndAddActivityFromLinkId(plan, "h", f.link1.getId());
+				a1.setEndTime((6+i)*3600);
+				Leg leg = PopulationUtils.createAndAddLeg( plan, TransportMode.car );
+				NetworkRoute route = f.scenario.getPopulation().getFactory().getRouteFactories().createRoute(NetworkRoute.class, f.link1.getId(), f.link3.getId());
+				route.setLinkIds(f.link1.getId(), f.linkIds2, f.link3.getId());
+				leg.setRoute(route);
+				PopulationUtils.createAndAddActivityFromLinkId(plan, "w", f.link3.getId());
+				f.plans.addPerson(person);
+			}
+
+			/* build events */
+			EventsManager events = EventsUtils.createEventsManager();
+			LinkEnterEventCollector collector = new LinkEnterEventCollector();
+			events.addHandler(collector);
+
+			/* run sim */
+			QSim sim = createQSim(f, events);
+			final int[] notifications = new int[2];
+			sim.addQueueSimulationListeners((MobsimBeforeSimStepListener) e -> notifications[0]++);
+			if (withEveryStepListener) {
+				sim.addQueueSimulationListeners(new MobsimBeforeSimStepListener() {
+					@Override
+					public void notifyMobsimBeforeSimStep(MobsimBeforeSimStepEvent e) {
+						notifications[1]++;
+					}
+					@Override
+					public boolean isNeedingEveryTimeStep() {
+						return true;
+					}
+				});
+			}
+			sim.run();
+
+			/* finish */
+			Assert.assertEquals("wrong number of link enter events.", 4, collector.events.size());
+			Assert.assertEquals("wrong time in first event.", 6.0*3600 + 1, collector.events.get(0).getTime(), MatsimTestCase.EPSILON);
+			Assert.assertEquals("wrong time in second event.", 6.0*3600 + 12, collector.events.get(1).getTime(), MatsimTestCase.EPSILON);
+			Assert.assertEquals("wrong time in first event.", 7.0*3600 + 1, collector.events.get(2).getTime(), MatsimTestCase.EPSILON);
+			Assert.assertEquals("wrong time in second event.", 7.0*3600 + 12, collector.events.get(3).getTime(), MatsimTestCase.EPSILON);
+			Assert.assertTrue("too many simulated time steps: " + notifications[0], notifications[0] < 100);
+			if (withEveryStepListener) {
+				Assert.assertEquals(sim.getSimTimer().getTimeOfDay() - 6.0*3600 + 1, notifications[1], MatsimTestCase.EPSILON);
+			}
+		}
+	}
+
 	/**
 	 * A single agent is simulated that uses teleportation for its one and only leg.
 	 *
@@ -0,0 +1,205 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.QSimConfigGroup.LinkDynamics;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class CompactQueueWithBufferTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	/**
+	 * Applies the same random operations to an {@link CompactQueueWithBuffer.IndexQueue} and an {@link ArrayDeque} and
+	 * checks that both always contain the same elements in the same order.
+	 */
+	@Test
+	public void testIndexQueueSameBehaviorAsDeque() {
+		CompactQueueWithBuffer.IndexQueue queue = new CompactQueueWithBuffer.IndexQueue();
+		Deque<double[]> deque = new ArrayDeque<>();
+		Random random = new Random(4711);
+		for (int step = 0; step < 10000; step++) {
+			int index = random.nextInt(1000);
+			double time = random.nextDouble();
+			switch (random.nextInt(5)) {
+			case 0:
+			case 1:
+				queue.addLast(index, time);
+				deque.addLast(new double[] { index, time });
+				break;
+			case 2:
+				queue.addFirst(index, time);
+				deque.addFirst(new double[] { index, time });
+				break;
+			case 3:
+				if (!deque.isEmpty()) {
+					queue.setFirstTime(time);
+					deque.peekFirst()[1] = time;
+				}
+				break;
+			default:
+				if (!deque.isEmpty()) {
+					queue.removeFirst();
+					deque.removeFirst();
+				}
+				if (random.nextInt(50) == 0) {
+					queue.clear();
+					deque.clear();
+				}
+			}
+			Assert.assertEquals(deque.size(), queue.size());
+			Assert.assertEquals(deque.isEmpty(), queue.isEmpty());
+			if (!deque.isEmpty()) {
+				Assert.assertEquals((int) deque.peekFirst()[0], queue.firstIndex());
+				Assert.assertEquals(deque.peekFirst()[1], queue.firstTime(), 0.);
+			}
+			Iterator<double[]> it = deque.iterator();
+			for (int i = 0; i < queue.size(); i++) {
+				Assert.assertEquals((int) it.next()[0], queue.index(i));
+			}
+		}
+	}
+
+	@Test
+	public void testHoleQueueWrapsAround() {
+		CompactQueueWithBuffer.HoleQueue holes = new CompactQueueWithBuffer.HoleQueue();
+		for (int i = 0; i < 3; i++) {
+			holes.addLast(i, 10 * i);
+		}
+		holes.removeFirst();
+		holes.removeFirst();
+		// the next ones wrap around the end of the arrays, and then grow them
+		for (int i = 3; i < 10; i++) {
+			holes.addLast(i, 10 * i);
+		}
+		Assert.assertEquals(8, holes.size());
+		for (int i = 0; i < holes.size(); i++) {
+			Assert.assertEquals(i + 2, holes.exitTime(i), 0.);
+			Assert.assertEquals(10 * (i + 2), holes.sizeInEquivalents(i), 0.);
+		}
+		Assert.assertEquals(2, holes.firstExitTime(), 0.);
+		Assert.assertEquals(20, holes.firstSize(), 0.);
+	}
+
+	@Test
+	public void testSelectedByConfig() {
+		QLinkI link = (QLinkI) createQSim(true).getNetsimNetwork().getNetsimLink(Id.createLinkId("1"));
+		Assert.assertTrue(link.getAcceptingQLane() instanceof CompactQueueWithBuffer);
+		link = (QLinkI) createQSim(false).getNetsimNetwork().getNetsimLink(Id.createLinkId("1"));
+		Assert.assertTrue(link.getAcceptingQLane() instanceof QueueWithBuffer);
+	}
+
+	/**
+	 * Transit vehicles leave the queue of a link when they serve a stop which does not block the lane.
+	 */
+	@Test
+	public void testSameEventsAsQueueWithBufferWithTransit() {
+		URL configUrl = IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("pt-tutorial"), "0.config.xml");
+		List<String> expected = CompactQueueWithBufferIntegrationTest.runQSim(loadScenario(configUrl, false));
+		List<String> actual = CompactQueueWithBufferIntegrationTest.runQSim(loadScenario(configUrl, true));
+		Assert.assertTrue(expected.size() > 1000);
+		Assert.assertEquals(expected, actual);
+	}
+
+	/**
+	 * Transit vehicles stay in the queue of a link, and are delayed there, when they serve a stop which blocks the lane.
+	 */
+	@Test
+	public void testSameEventsAsQueueWithBufferWithBlockingStops() throws IOException {
+		URL scenarioUrl = ExamplesUtils.getTestScenarioURL("pt-tutorial");
+		String scheduleFile = new File(this.utils.getOutputDirectory(), "blockingTransitSchedule.xml").getAbsolutePath();
+		try (BufferedReader reader = IOUtils.getBufferedReader(IOUtils.newUrl(scenarioUrl, "transitschedule.xml"));
+				BufferedWriter writer = IOUtils.getBufferedWriter(scheduleFile)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				writer.write(line.replace("<stopFacility ", "<stopFacility isBlocking=\"true\" "));
+				writer.newLine();
+			}
+		}
+
+		URL configUrl = IOUtils.newUrl(scenarioUrl, "0.config.xml");
+		List<String> expected = CompactQueueWithBufferIntegrationTest.runQSim(loadScenario(configUrl, false, scheduleFile));
+		List<String> actual = CompactQueueWithBufferIntegrationTest.runQSim(loadScenario(configUrl, true, scheduleFile));
+		Assert.assertTrue(expected.size() > 1000);
+		Assert.assertEquals(expected, actual);
+	}
+
+	private static Scenario loadScenario(final URL configUrl, final boolean usingCompactLinkQueues) {
+		return loadScenario(configUrl, usingCompactLinkQueues, null);
+	}
+
+	private static Scenario loadScenario(final URL configUrl, final boolean usingCompactLinkQueues, final String scheduleFile) {
+		Config config = ConfigUtils.loadConfig(configUrl);
+		config.qsim().setUsingCompactLinkQueues(usingCompactLinkQueues);
+		if (scheduleFile != null) {
+			config.transit().setTransitScheduleFile(scheduleFile);
+		}
+		return ScenarioUtils.loadScenario(config);
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void testNotAllowedWithPassingQ() {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setLinkDynamics(LinkDynamics.PassingQ);
+		config.qsim().setUsingCompactLinkQueues(true);
+		new QSimBuilder(config).useDefaults().build(ScenarioUtils.createScenario(config), EventsUtils.createEventsManager());
+	}
+
+	private static QSim createQSim(final boolean usingCompactLinkQueues) {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setUsingCompactLinkQueues(usingCompactLinkQueues);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		Network network = scenario.getNetwork();
+		Node from = NetworkUtils.createAndAddNode(network, Id.createNodeId("a"), new Coord(0., 0.));
+		Node to = NetworkUtils.createAndAddNode(network, Id.createNodeId("b"), new Coord(100., 0.));
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("1"), from, to, 100., 10., 1000., 1.);
+		return new QSimBuilder(config).useDefaults().build(scenario, EventsUtils.createEventsManager());
+	}
+
+}
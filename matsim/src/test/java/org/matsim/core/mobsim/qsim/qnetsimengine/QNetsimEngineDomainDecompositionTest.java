@@ -0,0 +1,174 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.utils.EventsCollector;
+
+/**
+ * Checks that assigning the nodes to the runners by domain decomposition, where each runner only waits for its
+ * downstream runners between moving the nodes and moving the links, results in the same simulation as the round
+ * robin assignment with the global separation barrier.
+ */
+public class QNetsimEngineDomainDecompositionTest {
+
+	private static final int GRID_SIZE = 8;
+	private static final int NUMBER_OF_PERSONS = 1000;
+	private static final int NUMBER_OF_THREADS = 4;
+
+	@Test
+	public void testSameEventsAsRoundRobin() {
+		List<String> expected = runQSim(createScenario(false));
+		List<String> actual = runQSim(createScenario(true));
+
+		Assert.assertTrue("too few events, the scenario is probably broken", expected.size() > NUMBER_OF_PERSONS * 10);
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals("event " + i + " differs", expected.get(i), actual.get(i));
+		}
+	}
+
+	/**
+	 * The runners throw their events concurrently, so only the events per time step are compared, not their order
+	 * within a time step.
+	 */
+	private static List<String> runQSim(final Scenario scenario) {
+		// the nodes draw their random number generators from the global one
+		MatsimRandom.reset();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+		new QSimBuilder(scenario.getConfig()) //
+				.useDefaults() //
+				.build(scenario, events) //
+				.run();
+		events.finishProcessing();
+
+		List<String> result = new ArrayList<>();
+		List<String> timeStep = new ArrayList<>();
+		double time = Double.NaN;
+		for (Event event : collector.getEvents()) {
+			if (event.getTime() != time) {
+				Collections.sort(timeStep);
+				result.addAll(timeStep);
+				timeStep.clear();
+				time = event.getTime();
+			}
+			timeStep.add(event.toString());
+		}
+		Collections.sort(timeStep);
+		result.addAll(timeStep);
+		return result;
+	}
+
+	/**
+	 * A grid with low capacities, so that there are queues spilling back over the partition boundaries.
+	 */
+	private static Scenario createScenario(final boolean usingDomainDecomposition) {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setEndTime(30 * 3600);
+		config.qsim().setNumberOfThreads(NUMBER_OF_THREADS);
+		config.qsim().setUsingThreadpool(false);
+		config.qsim().setUsingDomainDecomposition(usingDomainDecomposition);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+
+		Network network = scenario.getNetwork();
+		Node[][] nodes = new Node[GRID_SIZE][GRID_SIZE];
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * 200., y * 200.));
+			}
+		}
+		List<Link> links = new ArrayList<>();
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				if (x + 1 < GRID_SIZE) {
+					links.add(createLink(network, nodes[x][y], nodes[x + 1][y]));
+					links.add(createLink(network, nodes[x + 1][y], nodes[x][y]));
+				}
+				if (y + 1 < GRID_SIZE) {
+					links.add(createLink(network, nodes[x][y], nodes[x][y + 1]));
+					links.add(createLink(network, nodes[x][y + 1], nodes[x][y]));
+				}
+			}
+		}
+
+		Random random = new Random(4711);
+		Population population = scenario.getPopulation();
+		PopulationFactory pf = population.getFactory();
+		for (int i = 0; i < NUMBER_OF_PERSONS; i++) {
+			Person person = pf.createPerson(Id.createPersonId(i));
+			Plan plan = pf.createPlan();
+			Id<Link> homeLinkId = links.get(random.nextInt(links.size())).getId();
+			Id<Link> workLinkId = links.get(random.nextInt(links.size())).getId();
+
+			Activity home = pf.createActivityFromLinkId("h", homeLinkId);
+			home.setEndTime(6 * 3600 + random.nextInt(900));
+			plan.addActivity(home);
+			plan.addLeg(pf.createLeg("car"));
+			Activity work = pf.createActivityFromLinkId("w", workLinkId);
+			work.setEndTime(7 * 3600 + random.nextInt(900));
+			plan.addActivity(work);
+			plan.addLeg(pf.createLeg("car"));
+			plan.addActivity(pf.createActivityFromLinkId("h", homeLinkId));
+
+			person.addPlan(plan);
+			population.addPerson(person);
+		}
+		return scenario;
+	}
+
+	private static Link createLink(final Network network, final Node from, final Node to) {
+		return NetworkUtils.createAndAddLink(network, Id.createLinkId(from.getId() + "-" + to.getId()), from, to,
+				200., 10., 300., 1.);
+	}
+
+}
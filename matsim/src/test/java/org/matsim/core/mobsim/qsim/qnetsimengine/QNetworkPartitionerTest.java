@@ -0,0 +1,96 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+
+public class QNetworkPartitionerTest {
+
+	private static final int GRID_SIZE = 8;
+
+	@Test
+	public void testAllNodesAssignedAndBalanced() {
+		Network network = createGrid();
+		for (int numberOfPartitions = 1; numberOfPartitions <= 5; numberOfPartitions++) {
+			Map<Id<Node>, Integer> partitions = QNetworkPartitioner.partition(network.getNodes().values(), numberOfPartitions);
+			Assert.assertEquals(network.getNodes().size(), partitions.size());
+
+			int[] sizes = new int[numberOfPartitions];
+			for (int partition : partitions.values()) {
+				Assert.assertTrue(partition >= 0 && partition < numberOfPartitions);
+				sizes[partition]++;
+			}
+			int expected = network.getNodes().size() / numberOfPartitions;
+			for (int size : sizes) {
+				Assert.assertTrue("unbalanced partition of size " + size, Math.abs(size - expected) <= GRID_SIZE);
+			}
+		}
+	}
+
+	@Test
+	public void testGeographicCuts() {
+		Network network = createGrid();
+		Map<Id<Node>, Integer> partitions = QNetworkPartitioner.partition(network.getNodes().values(), 4);
+
+		int boundaryLinks = 0;
+		for (Link link : network.getLinks().values()) {
+			if (!partitions.get(link.getFromNode().getId()).equals(partitions.get(link.getToNode().getId()))) {
+				boundaryLinks++;
+			}
+		}
+		// one cut through the whole 8x8 grid and two cuts through its halves, links in both directions
+		Assert.assertEquals(2 * GRID_SIZE + 2 * 2 * (GRID_SIZE / 2), boundaryLinks);
+	}
+
+	private static Network createGrid() {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[GRID_SIZE][GRID_SIZE];
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * 100., y * 100.));
+			}
+		}
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				if (x + 1 < GRID_SIZE) {
+					addLinks(network, nodes[x][y], nodes[x + 1][y]);
+				}
+				if (y + 1 < GRID_SIZE) {
+					addLinks(network, nodes[x][y], nodes[x][y + 1]);
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void addLinks(Network network, Node n1, Node n2) {
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(n1.getId() + "-" + n2.getId()), n1, n2, 100., 10., 1000., 1.);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(n2.getId() + "-" + n1.getId()), n2, n1, 100., 10., 1000., 1.);
+	}
+
+}
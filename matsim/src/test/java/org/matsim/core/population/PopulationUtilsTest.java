@@ -5,10 +5,16 @@ import org.junit.Test;
 import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.*;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.population.io.PopulationReader;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
 import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.vehicles.Vehicle;
+
+import java.util.Arrays;
 
 /**
  * @author thibautd
@@ -61,4 +67,88 @@ public class PopulationUtilsTest {
 				legCopy.getAttributes().getAttribute( "mpg" ) );
 	}
 
+	@Test
+	public void testCompactNonSelectedPlans() {
+		final Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig() );
+		final PopulationFactory factory = population.getFactory();
+		final Person person = factory.createPerson(Id.createPersonId( "1" ));
+		population.addPerson( person );
+
+		final Plan selectedPlan = factory.createPlan();
+		person.addPlan( selectedPlan );
+		selectedPlan.addActivity( factory.createActivityFromCoord( "home" , new Coord( 0 , 0 ) ) );
+		person.setSelectedPlan( selectedPlan );
+
+		final Plan plan = factory.createPlan();
+		person.addPlan( plan );
+		final Activity home = factory.createActivityFromCoord( "home" , new Coord( 10.5 , -20 ) );
+		home.setLinkId( Id.createLinkId( "1" ) );
+		home.setEndTime( 7.5 * 3600 );
+		home.getAttributes().putAttribute( "n" , 42 );
+		plan.addActivity( home );
+		final Leg car = factory.createLeg( "car" );
+		car.setDepartureTime( 7.5 * 3600 );
+		car.setTravelTime( 600 );
+		final NetworkRoute networkRoute = RouteUtils.createLinkNetworkRouteImpl( Id.createLinkId( "1" ),
+				Arrays.asList( Id.createLinkId( "2" ), Id.createLinkId( "3" ) ), Id.createLinkId( "4" ) );
+		networkRoute.setDistance( 1234.5 );
+		networkRoute.setTravelCost( 17.25 );
+		networkRoute.setVehicleId( Id.create( "v1" , Vehicle.class ) );
+		car.setRoute( networkRoute );
+		plan.addLeg( car );
+		final Activity work = factory.createActivityFromLinkId( "work" , Id.createLinkId( "4" ) );
+		work.setMaximumDuration( 8 * 3600 );
+		plan.addActivity( work );
+		final Leg walk = factory.createLeg( "walk" );
+		final Route genericRoute = RouteUtils.createGenericRouteImpl( Id.createLinkId( "4" ), Id.createLinkId( "1" ) );
+		genericRoute.setRouteDescription( "somewhere" );
+		walk.setRoute( genericRoute );
+		walk.getAttributes().putAttribute( "note" , "slowly" );
+		plan.addLeg( walk );
+		plan.addActivity( factory.createActivityFromLinkId( "home" , Id.createLinkId( "1" ) ) );
+
+		final Activity selectedActivity = (Activity) selectedPlan.getPlanElements().get( 0 );
+		final Activity[] activitiesBefore = plan.getPlanElements().stream().filter( Activity.class::isInstance ).toArray( Activity[]::new );
+
+		PopulationUtils.compactNonSelectedPlans( population );
+
+		Assert.assertSame( "selected plan must not be compacted", selectedActivity, selectedPlan.getPlanElements().get( 0 ) );
+		Assert.assertEquals( 5, plan.getPlanElements().size() );
+		Assert.assertNotSame( "plan elements should have been restored", activitiesBefore[0], plan.getPlanElements().get( 0 ) );
+
+		final Activity homeCopy = (Activity) plan.getPlanElements().get( 0 );
+		Assert.assertEquals( "home", homeCopy.getType() );
+		Assert.assertEquals( home.getCoord(), homeCopy.getCoord() );
+		Assert.assertEquals( home.getLinkId(), homeCopy.getLinkId() );
+		Assert.assertEquals( home.getEndTime(), homeCopy.getEndTime(), 0.0 );
+		Assert.assertEquals( home.getStartTime(), homeCopy.getStartTime(), 0.0 );
+		Assert.assertEquals( home.getMaximumDuration(), homeCopy.getMaximumDuration(), 0.0 );
+		Assert.assertNull( homeCopy.getFacilityId() );
+		Assert.assertEquals( 42, homeCopy.getAttributes().getAttribute( "n" ) );
+
+		final Leg carCopy = (Leg) plan.getPlanElements().get( 1 );
+		Assert.assertEquals( "car", carCopy.getMode() );
+		Assert.assertEquals( car.getDepartureTime(), carCopy.getDepartureTime(), 0.0 );
+		Assert.assertEquals( car.getTravelTime(), carCopy.getTravelTime(), 0.0 );
+		final NetworkRoute routeCopy = (NetworkRoute) carCopy.getRoute();
+		Assert.assertEquals( networkRoute.getClass(), routeCopy.getClass() );
+		Assert.assertEquals( networkRoute.getStartLinkId(), routeCopy.getStartLinkId() );
+		Assert.assertEquals( networkRoute.getLinkIds(), routeCopy.getLinkIds() );
+		Assert.assertEquals( networkRoute.getEndLinkId(), routeCopy.getEndLinkId() );
+		Assert.assertEquals( networkRoute.getDistance(), routeCopy.getDistance(), 0.0 );
+		Assert.assertEquals( networkRoute.getTravelCost(), routeCopy.getTravelCost(), 0.0 );
+		Assert.assertEquals( networkRoute.getVehicleId(), routeCopy.getVehicleId() );
+
+		final Activity workCopy = (Activity) plan.getPlanElements().get( 2 );
+		Assert.assertEquals( "work", workCopy.getType() );
+		Assert.assertNull( workCopy.getCoord() );
+		Assert.assertEquals( work.getMaximumDuration(), workCopy.getMaximumDuration(), 0.0 );
+
+		final Leg walkCopy = (Leg) plan.getPlanElements().get( 3 );
+		Assert.assertEquals( genericRoute.getClass(), walkCopy.getRoute().getClass() );
+		Assert.assertEquals( "somewhere", walkCopy.getRoute().getRouteDescription() );
+		Assert.assertEquals( Id.createLinkId( "1" ), walkCopy.getRoute().getEndLinkId() );
+		Assert.assertEquals( "slowly", walkCopy.getAttributes().getAttribute( "note" ) );
+	}
+
 }
@@ -0,0 +1,109 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+
+public class ParallelPopulationReaderMatsimV6Test {
+
+	private static final int NUMBER_OF_PERSONS = 2000;
+
+	@Test
+	public void testPersonIdsInFileOrder() {
+		Scenario scenario = readPopulation(createPopulationXml("order", NUMBER_OF_PERSONS, null));
+		Assert.assertEquals(NUMBER_OF_PERSONS, scenario.getPopulation().getPersons().size());
+
+		int previousIndex = -1;
+		List<Id<Person>> personIds = new ArrayList<>(scenario.getPopulation().getPersons().keySet());
+		for (int i = 0; i < NUMBER_OF_PERSONS; i++) {
+			Id<Person> personId = Id.createPersonId("order" + i);
+			Assert.assertEquals("persons should be added in the order of the file", personId, personIds.get(i));
+			Assert.assertTrue("person ids should be created in the order of the file", personId.index() > previousIndex);
+			previousIndex = personId.index();
+		}
+	}
+
+	@Test
+	public void testThreadsStoppedAfterFailure() {
+		String threadName = "Runner";
+		int threadsBefore = countThreads(threadName);
+		try {
+			// the person is added by the main thread, which fails for the duplicate
+			readPopulation(createPopulationXml("failure", NUMBER_OF_PERSONS, "failure0"));
+			Assert.fail("duplicate person should not be accepted");
+		} catch (RuntimeException e) {
+			// expected
+		}
+		Assert.assertEquals("parser threads should be stopped", threadsBefore, countThreads(threadName));
+	}
+
+	private static Scenario readPopulation(final String xml) {
+		Config config = ConfigUtils.createConfig();
+		config.global().setNumberOfThreads(4);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		new PopulationReader(scenario).parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+		return scenario;
+	}
+
+	/**
+	 * @param duplicatePerson the id of a person that is contained twice, or <code>null</code>
+	 */
+	private static String createPopulationXml(final String prefix, final int numberOfPersons, final String duplicatePerson) {
+		StringBuilder xml = new StringBuilder();
+		xml.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
+		xml.append("<!DOCTYPE population SYSTEM \"http://www.matsim.org/files/dtd/population_v6.dtd\">\n");
+		xml.append("<population>\n");
+		for (int i = 0; i < numberOfPersons; i++) {
+			String personId = i == numberOfPersons / 2 && duplicatePerson != null ? duplicatePerson : prefix + i;
+			xml.append("\t<person id=\"").append(personId).append("\">\n");
+			xml.append("\t\t<plan selected=\"yes\">\n");
+			xml.append("\t\t\t<activity type=\"h\" x=\"").append(i).append(".0\" y=\"0.0\" end_time=\"08:00:00\" />\n");
+			xml.append("\t\t\t<leg mode=\"walk\" />\n");
+			xml.append("\t\t\t<activity type=\"w\" x=\"0.0\" y=\"").append(i).append(".0\" />\n");
+			xml.append("\t\t</plan>\n");
+			xml.append("\t</person>\n");
+		}
+		xml.append("</population>\n");
+		return xml.toString();
+	}
+
+	private static int countThreads(final String namePrefix) {
+		int count = 0;
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.isAlive() && thread.getName().startsWith(namePrefix)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+}
@@ -1,5 +1,8 @@
 package org.matsim.core.population.io;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
@@ -7,6 +10,7 @@ import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.population.*;
+import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.scenario.ScenarioUtils;
@@ -208,4 +212,67 @@ public class PopulationV6IOTest {
 				population.getAttributes().getAttribute( "type" ) ,
 				readScenario.getPopulation().getAttributes().getAttribute( "type" ) );
 	}
+
+	@Test
+	public void testParallelReadingKeepsOrder() {
+		final Population population = createPopulationWithManyPersons();
+		final String file = utils.getOutputDirectory()+"/population.xml";
+		new PopulationWriter( population ).writeV6( file );
+
+		final Config config = ConfigUtils.createConfig();
+		config.global().setNumberOfThreads( 4 );
+		config.plans().setReadingInParallel( true );
+		final Scenario readScenario = ScenarioUtils.createScenario( config );
+		new PopulationReader( readScenario ).readFile( file );
+
+		// the writer writes the persons sorted by id, the reader has to keep the order of the file
+		Assert.assertEquals( "unexpected persons",
+				new ArrayList<>( PopulationUtils.getSortedPersons( population ).keySet() ),
+				new ArrayList<>( readScenario.getPopulation().getPersons().keySet() ) );
+		for ( Person person : population.getPersons().values() ) {
+			final Person readPerson = readScenario.getPopulation().getPersons().get( person.getId() );
+			Assert.assertEquals( person.getPlans().size() , readPerson.getPlans().size() );
+			Assert.assertEquals( person.getAttributes().getAttribute( "index" ) , readPerson.getAttributes().getAttribute( "index" ) );
+			final Activity act = (Activity) readPerson.getSelectedPlan().getPlanElements().get( 0 );
+			Assert.assertEquals( ((Activity) person.getSelectedPlan().getPlanElements().get( 0 )).getCoord() , act.getCoord() );
+		}
+	}
+
+	@Test
+	public void testParallelStreamingKeepsOrder() {
+		final Population population = createPopulationWithManyPersons();
+		final String file = utils.getOutputDirectory()+"/population.xml";
+		new PopulationWriter( population ).writeV6( file );
+
+		final Config config = ConfigUtils.createConfig();
+		config.global().setNumberOfThreads( 4 );
+		config.plans().setReadingInParallel( true );
+		final Scenario readScenario = ScenarioUtils.createScenario( config );
+		final StreamingPopulationReader reader = new StreamingPopulationReader( readScenario );
+		final List<Id<Person>> readPersonIds = new ArrayList<>();
+		reader.addAlgorithm( person -> readPersonIds.add( person.getId() ) );
+		reader.readFile( file );
+
+		Assert.assertEquals( "unexpected persons",
+				new ArrayList<>( PopulationUtils.getSortedPersons( population ).keySet() ),
+				readPersonIds );
+	}
+
+	private static Population createPopulationWithManyPersons() {
+		final Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig() );
+		for ( int i = 0; i < 1000; i++ ) {
+			final Person person = population.getFactory().createPerson(Id.createPersonId( "p" + ((i * 7919) % 1000) ));
+			person.getAttributes().putAttribute( "index" , i );
+			population.addPerson( person );
+			for ( int j = 0; j < 3; j++ ) {
+				final Plan plan = population.getFactory().createPlan();
+				person.addPlan( plan );
+				plan.addActivity( population.getFactory().createActivityFromCoord( "home" , new Coord( i , j ) ) );
+				plan.addLeg( population.getFactory().createLeg( "walk" ) );
+				plan.addActivity( population.getFactory().createActivityFromCoord( "work" , new Coord( j , i ) ) );
+			}
+			person.setSelectedPlan( person.getPlans().get( i % 3 ) );
+		}
+		return population;
+	}
 }
@@ -20,12 +20,21 @@
 
 package org.matsim.core.replanning.modules;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 
 /**
@@ -60,6 +69,70 @@ public class AbstractMultithreadedModuleTest {
 
 	}
 
+	@Test
+	public void testRandomNumbersIndependentOfThreads() {
+		List<Plan> plans = createPlans(100);
+
+		double[] expectedScores = null;
+		for (int numOfThreads : new int[] { 0, 1, 3 }) {
+			MatsimRandom.reset();
+			double[] scores = runRandomModule(new DummyRandomModule(numOfThreads, true), plans);
+			if (expectedScores == null) {
+				expectedScores = scores;
+			} else {
+				Assert.assertArrayEquals("different random numbers with " + numOfThreads + " threads.", expectedScores, scores, 0.0);
+			}
+		}
+	}
+
+	@Test
+	public void testRandomNumbersWithoutPersonSpecificRandomSeeds() {
+		List<Plan> plans = createPlans(100);
+
+		// the plans are distributed round-robin, each thread draws from its own local instance
+		for (int numOfThreads : new int[] { 0, 1, 3 }) {
+			MatsimRandom.reset();
+			Random[] randoms = new Random[Math.max(1, numOfThreads)];
+			for (int t = 0; t < randoms.length; t++) {
+				randoms[t] = MatsimRandom.getLocalInstance();
+			}
+			double[] expectedScores = new double[plans.size()];
+			for (int i = 0; i < expectedScores.length; i++) {
+				expectedScores[i] = randoms[i % randoms.length].nextDouble();
+			}
+
+			MatsimRandom.reset();
+			double[] scores = runRandomModule(new DummyRandomModule(numOfThreads, false), plans);
+			Assert.assertArrayEquals("unexpected random numbers with " + numOfThreads + " threads.", expectedScores, scores, 0.0);
+		}
+	}
+
+	private static List<Plan> createPlans(final int count) {
+		PopulationFactory factory = PopulationUtils.getFactory();
+		List<Plan> plans = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			Person person = factory.createPerson(Id.create(i, Person.class));
+			Plan plan = factory.createPlan();
+			person.addPlan(plan);
+			plans.add(plan);
+		}
+		return plans;
+	}
+
+	private static double[] runRandomModule(final AbstractMultithreadedModule testee, final List<Plan> plans) {
+		testee.prepareReplanning(null);
+		for (Plan plan : plans) {
+			testee.handlePlan(plan);
+		}
+		testee.finishReplanning();
+
+		double[] scores = new double[plans.size()];
+		for (int i = 0; i < scores.length; i++) {
+			scores[i] = plans.get(i).getScore();
+		}
+		return scores;
+	}
+
 	private static class DummyAbstractMultithreadedModule extends AbstractMultithreadedModule {
 		public DummyAbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
 			super(globalConfigGroup);
@@ -80,6 +153,22 @@ public class AbstractMultithreadedModuleTest {
 		}
 	}
 
+	private static class DummyRandomModule extends AbstractMultithreadedModule {
+		public DummyRandomModule(final int nOfThreads, final boolean usingPersonSpecificRandomSeeds) {
+			super(nOfThreads, usingPersonSpecificRandomSeeds);
+		}
+		@Override
+		public PlanAlgorithm getPlanAlgoInstance() {
+			final Random random = createLocalRandom();
+			return new PlanAlgorithm() {
+				@Override
+				public void run(Plan plan) {
+					plan.setScore(random.nextDouble());
+				}
+			};
+		}
+	}
+
 	private static class CrashingPlanAlgo implements PlanAlgorithm {
 		@Override
 		public void run(Plan plan) {
@@ -20,11 +20,17 @@
 
 package org.matsim.core.router;
 
+import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.io.MatsimNetworkReader;
 import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.PreProcessLandmarks;
+import org.matsim.core.scenario.ScenarioUtils;
+
+import java.io.File;
 
 public class AStarLandmarksTest extends AbstractLeastCostPathCalculatorTest {
 
@@ -36,4 +42,34 @@ public class AStarLandmarksTest extends AbstractLeastCostPathCalculatorTest {
 		return new AStarLandmarks(network, preProcessData, travelTimeCostCalculator);
 	}
 
+	public void testPreProcessLandmarks_cache() {
+		Scenario scenario = ScenarioUtils.createScenario(loadConfig(null));
+		Network network = scenario.getNetwork();
+		new MatsimNetworkReader(scenario.getNetwork()).readFile("test/scenarios/equil/network.xml");
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		String cacheDirectory = getOutputDirectory() + "landmarks";
+
+		PreProcessLandmarks calculated = new PreProcessLandmarks(travelTimeCostCalculator, 4);
+		calculated.setCacheDirectory(cacheDirectory);
+		calculated.run(network);
+		assertEquals("cache file should have been written.", 1, new File(cacheDirectory).listFiles().length);
+
+		PreProcessLandmarks cached = new PreProcessLandmarks(travelTimeCostCalculator, 4);
+		cached.setCacheDirectory(cacheDirectory);
+		cached.run(network);
+
+		assertEquals(calculated.getLandmarks().length, cached.getLandmarks().length);
+		for (int i = 0; i < calculated.getLandmarks().length; i++) {
+			assertSame(calculated.getLandmarks()[i], cached.getLandmarks()[i]);
+		}
+		for (Node node : network.getNodes().values()) {
+			PreProcessLandmarks.LandmarksData expected = calculated.getNodeData(node);
+			PreProcessLandmarks.LandmarksData actual = cached.getNodeData(node);
+			for (int i = 0; i < calculated.getLandmarks().length; i++) {
+				assertEquals(expected.getMinLandmarkTravelTime(i), actual.getMinLandmarkTravelTime(i), 0.0);
+				assertEquals(expected.getMaxLandmarkTravelTime(i), actual.getMaxLandmarkTravelTime(i), 0.0);
+			}
+		}
+	}
+
 }
@@ -0,0 +1,185 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+import org.matsim.vehicles.Vehicle;
+
+public class ContractionHierarchiesTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		return new ContractionHierarchiesFactory().createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+	}
+
+	public void testCalcLeastCostPath_SameAsDijkstra() {
+		Scenario scenario = ScenarioUtils.createScenario(loadConfig(null));
+		Network network = scenario.getNetwork();
+		new MatsimNetworkReader(scenario.getNetwork()).readFile("test/scenarios/equil/network.xml");
+
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		LeastCostPathCalculator dijkstra = new Dijkstra(network, travelTimeCostCalculator, travelTimeCostCalculator);
+		LeastCostPathCalculator routerAlgo = getLeastCostPathCalculator(network);
+
+		for (Node fromNode : network.getNodes().values()) {
+			for (Node toNode : network.getNodes().values()) {
+				Path expected = dijkstra.calcLeastCostPath(fromNode, toNode, 8.0*3600, null, null);
+				Path path = routerAlgo.calcLeastCostPath(fromNode, toNode, 8.0*3600, null, null);
+				// there may be several paths with the same costs, so only the costs are compared
+				assertEquals("wrong costs from " + fromNode.getId() + " to " + toNode.getId(), expected.travelCost, path.travelCost, 1e-6);
+				assertEquals(path.links.size() + 1, path.nodes.size());
+				for (int i = 0; i < path.links.size(); i++) {
+					assertSame(path.nodes.get(i), path.links.get(i).getFromNode());
+					assertSame(path.nodes.get(i + 1), path.links.get(i).getToNode());
+				}
+			}
+		}
+	}
+
+
+	public void testCustomizationsSharedBetweenPathCalculators() {
+		Network network = loadEquilNetwork();
+		Node fromNode = network.getNodes().get(Id.createNodeId("1"));
+		Node toNode = network.getNodes().get(Id.createNodeId("15"));
+		int linkCount = network.getLinks().size();
+
+		TravelTime travelTime = new FreeSpeedTravelTime();
+		AtomicInteger evaluations = new AtomicInteger();
+		ContractionHierarchiesFactory factory = new ContractionHierarchiesFactory();
+		// two path calculators (e.g. for two threads) with the same travel disutility
+		TravelDisutility travelDisutility = new CountingTravelDisutility(travelTime, 1, evaluations);
+		LeastCostPathCalculator router1 = factory.createPathCalculator(network, travelDisutility, travelTime);
+		LeastCostPathCalculator router2 = factory.createPathCalculator(network, travelDisutility, travelTime);
+		// a different travel disutility
+		LeastCostPathCalculator router3 = factory.createPathCalculator(network, new CountingTravelDisutility(travelTime, 2, evaluations), travelTime);
+		// another instance of the same class, which is not assumed to be equivalent
+		LeastCostPathCalculator router4 = factory.createPathCalculator(network, new CountingTravelDisutility(travelTime, 1, evaluations), travelTime);
+
+		evaluations.set(0);
+		Path path1 = router1.calcLeastCostPath(fromNode, toNode, 8.0*3600, null, null);
+		assertTrue(evaluations.get() >= linkCount);
+
+		// the time slice has been customized by router1
+		evaluations.set(0);
+		Path path2 = router2.calcLeastCostPath(fromNode, toNode, 8.5*3600, null, null);
+		assertEquals(path1.links.size(), evaluations.get());
+		assertEquals(path1.links, path2.links);
+
+		evaluations.set(0);
+		Path path3 = router3.calcLeastCostPath(fromNode, toNode, 8.0*3600, null, null);
+		assertTrue(evaluations.get() >= linkCount);
+		assertEquals(2 * path1.travelCost, path3.travelCost, 1e-6);
+
+		evaluations.set(0);
+		Path path4 = router4.calcLeastCostPath(fromNode, toNode, 8.0*3600, null, null);
+		assertTrue(evaluations.get() >= linkCount);
+		assertEquals(path1.links, path4.links);
+
+		// travel times may have changed in the next iteration
+		factory.notifyIterationStarts(null);
+		evaluations.set(0);
+		router2.calcLeastCostPath(fromNode, toNode, 8.0*3600, null, null);
+		assertTrue(evaluations.get() >= linkCount);
+		evaluations.set(0);
+		router1.calcLeastCostPath(fromNode, toNode, 8.0*3600, null, null);
+		assertEquals(path1.links.size(), evaluations.get());
+	}
+
+	public void testPersonDependentTravelDisutility() {
+		Network network = loadEquilNetwork();
+		Node fromNode = network.getNodes().get(Id.createNodeId("1"));
+		Node toNode = network.getNodes().get(Id.createNodeId("15"));
+		Person person = PopulationUtils.getFactory().createPerson(Id.createPersonId("p"));
+
+		TravelTime travelTime = new FreeSpeedTravelTime();
+		TravelDisutility travelDisutility = new CountingTravelDisutility(travelTime, 1, new AtomicInteger()) {
+			@Override
+			public double getLinkTravelDisutility(final Link link, final double time, final Person p, final Vehicle vehicle) {
+				if (p == null) {
+					throw new RuntimeException("a person is needed");
+				}
+				return super.getLinkTravelDisutility(link, time, p, vehicle);
+			}
+		};
+
+		ContractionHierarchiesFactory factory = new ContractionHierarchiesFactory();
+		LeastCostPathCalculator routerAlgo = factory.createPathCalculator(network, travelDisutility, travelTime);
+		assertFalse(routerAlgo instanceof ContractionHierarchies);
+		Path expected = new Dijkstra(network, travelDisutility, travelTime).calcLeastCostPath(fromNode, toNode, 8.0*3600, person, null);
+		Path path = routerAlgo.calcLeastCostPath(fromNode, toNode, 8.0*3600, person, null);
+		assertEquals(expected.travelCost, path.travelCost, 1e-6);
+
+		try {
+			factory.createManyToManyPathCalculator(network, travelDisutility, travelTime, 1);
+			fail("a person dependent travel disutility cannot be used for the customization");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	private Network loadEquilNetwork() {
+		Scenario scenario = ScenarioUtils.createScenario(loadConfig(null));
+		new MatsimNetworkReader(scenario.getNetwork()).readFile("test/scenarios/equil/network.xml");
+		return scenario.getNetwork();
+	}
+
+	private static class CountingTravelDisutility implements TravelDisutility {
+		private final TravelTime travelTime;
+		private final double factor;
+		private final AtomicInteger evaluations;
+
+		CountingTravelDisutility(final TravelTime travelTime, final double factor, final AtomicInteger evaluations) {
+			this.travelTime = travelTime;
+			this.factor = factor;
+			this.evaluations = evaluations;
+		}
+
+		@Override
+		public double getLinkTravelDisutility(final Link link, final double time, final Person person, final Vehicle vehicle) {
+			this.evaluations.incrementAndGet();
+			return this.factor * this.travelTime.getLinkTravelTime(link, time, person, vehicle);
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(final Link link) {
+			return this.factor * link.getLength() / link.getFreespeed();
+		}
+	}
+
+}
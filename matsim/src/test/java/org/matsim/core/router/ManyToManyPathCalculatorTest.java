@@ -0,0 +1,161 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ManyToManyPathCalculatorTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.vehicles.Vehicle;
+
+public class ManyToManyPathCalculatorTest {
+
+	@Test
+	public void testCalcManyToMany_SameAsDijkstra() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Network network = scenario.getNetwork();
+		new MatsimNetworkReader(network).readFile("test/scenarios/equil/network.xml");
+
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		LeastCostPathCalculator dijkstra = new Dijkstra(network, travelTimeCostCalculator, travelTimeCostCalculator);
+		ManyToManyPathCalculator calculator = new ManyToManyPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator, 2);
+
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		ManyToManyPathCalculator.Matrix matrix = calculator.calcManyToMany(nodes, nodes, 8.0 * 3600);
+
+		for (int i = 0; i < nodes.size(); i++) {
+			for (int j = 0; j < nodes.size(); j++) {
+				Path path = dijkstra.calcLeastCostPath(nodes.get(i), nodes.get(j), 8.0 * 3600, null, null);
+				String pair = " from " + nodes.get(i).getId() + " to " + nodes.get(j).getId();
+				Assert.assertEquals("wrong costs" + pair, path.travelCost, matrix.travelCosts[i][j], 1e-3);
+				Assert.assertEquals("wrong travel time" + pair, path.travelTime, matrix.travelTimes[i][j], 1e-3);
+			}
+		}
+
+		// the threads are reused for further calculations
+		ManyToManyPathCalculator.Matrix matrix2 = calculator.calcManyToMany(nodes, nodes, 8.0 * 3600);
+		for (int i = 0; i < nodes.size(); i++) {
+			Assert.assertArrayEquals(matrix.travelCosts[i], matrix2.travelCosts[i], 0.0);
+		}
+		calculator.close();
+	}
+
+	@Test
+	public void testCalcOneToMany_Unreachable() {
+		Network network = NetworkUtils.createNetwork();
+		NetworkFactory factory = network.getFactory();
+		Node node1 = factory.createNode(Id.create("1", Node.class), new Coord(0, 0));
+		Node node2 = factory.createNode(Id.create("2", Node.class), new Coord(1000, 0));
+		Node node3 = factory.createNode(Id.create("3", Node.class), new Coord(2000, 0));
+		network.addNode(node1);
+		network.addNode(node2);
+		network.addNode(node3);
+		Link link = factory.createLink(Id.create("1", Link.class), node1, node2);
+		link.setLength(1000);
+		link.setFreespeed(10);
+		network.addLink(link);
+		link = factory.createLink(Id.create("2", Link.class), node3, node2);
+		link.setLength(1000);
+		link.setFreespeed(10);
+		network.addLink(link);
+
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		ManyToManyPathCalculator calculator = new ManyToManyPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator, 1);
+		List<Node> toNodes = new ArrayList<>();
+		toNodes.add(node1);
+		toNodes.add(node2);
+		toNodes.add(node3);
+		ManyToManyPathCalculator.Matrix matrix = calculator.calcOneToMany(node1, toNodes, 0.0);
+
+		Assert.assertEquals(1, matrix.travelTimes.length);
+		Assert.assertEquals(0.0, matrix.travelTimes[0][0], 1e-6);
+		Assert.assertEquals(100.0, matrix.travelTimes[0][1], 1e-6);
+		Assert.assertEquals(Double.POSITIVE_INFINITY, matrix.travelTimes[0][2], 0.0);
+		Assert.assertEquals(Double.POSITIVE_INFINITY, matrix.travelCosts[0][2], 0.0);
+		calculator.close();
+	}
+
+	@Test
+	public void testClearCustomizations() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Network network = scenario.getNetwork();
+		new MatsimNetworkReader(network).readFile("test/scenarios/equil/network.xml");
+		Node fromNode = network.getNodes().get(Id.createNodeId("1"));
+		List<Node> toNodes = new ArrayList<>();
+		toNodes.add(network.getNodes().get(Id.createNodeId("15")));
+
+		ScaledTravelTime travelTime = new ScaledTravelTime();
+		ContractionHierarchiesFactory factory = new ContractionHierarchiesFactory();
+		ManyToManyPathCalculator calculator = factory.createManyToManyPathCalculator(network, travelTime, travelTime, 2);
+		double travelTime1 = calculator.calcOneToMany(fromNode, toNodes, 8.0 * 3600).travelTimes[0][0];
+
+		// the customization of the time slice is kept until it is cleared
+		travelTime.factor = 2.0;
+		Assert.assertEquals(travelTime1, calculator.calcOneToMany(fromNode, toNodes, 8.0 * 3600).travelTimes[0][0], 1e-3);
+		calculator.clearCustomizations();
+		Assert.assertEquals(2 * travelTime1, calculator.calcOneToMany(fromNode, toNodes, 8.0 * 3600).travelTimes[0][0], 1e-2);
+
+		// the factory clears it at the start of each iteration
+		travelTime.factor = 3.0;
+		factory.notifyIterationStarts(null);
+		Assert.assertEquals(3 * travelTime1, calculator.calcOneToMany(fromNode, toNodes, 8.0 * 3600).travelTimes[0][0], 1e-2);
+		calculator.close();
+	}
+
+	private static final class ScaledTravelTime implements TravelTime, TravelDisutility {
+		double factor = 1.0;
+
+		@Override
+		public double getLinkTravelTime(final Link link, final double time, final Person person, final Vehicle vehicle) {
+			return this.factor * link.getLength() / link.getFreespeed();
+		}
+
+		@Override
+		public double getLinkTravelDisutility(final Link link, final double time, final Person person, final Vehicle vehicle) {
+			return getLinkTravelTime(link, time, person, vehicle);
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(final Link link) {
+			return link.getLength() / link.getFreespeed();
+		}
+	}
+
+}
@@ -18,6 +18,10 @@ import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.core.scoring.functions.CharyparNagelScoringFunctionFactory;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
 import static org.junit.Assert.assertEquals;
 
 public class ScoringFunctionsForPopulationStressIT {
@@ -33,7 +37,7 @@ public class ScoringFunctionsForPopulationStressIT {
 		EventsManager events = EventsUtils.createEventsManager(config);
 		ControlerListenerManagerImpl controlerListenerManager = new ControlerListenerManagerImpl();
 		ScoringFunctionFactory throwingScoringFunctionFactory = new ThrowingScoringFunctionFactory();
-		ScoringFunctionsForPopulation scoringFunctionsForPopulation = new ScoringFunctionsForPopulation(controlerListenerManager, events, new EventsToActivities(controlerListenerManager, events), new EventsToLegs(scenario.getNetwork(), events), scenario.getPopulation(), throwingScoringFunctionFactory);
+		ScoringFunctionsForPopulation scoringFunctionsForPopulation = new ScoringFunctionsForPopulation(controlerListenerManager, events, scenario, throwingScoringFunctionFactory);
 		controlerListenerManager.fireControlerIterationStartsEvent(0);
 		events.processEvent(new PersonMoneyEvent(3600.0, personId, 3.4));
 		scoringFunctionsForPopulation.finishScoringFunctions();
@@ -152,7 +156,7 @@ public class ScoringFunctionsForPopulationStressIT {
 				};
 			}
 		};
-		ScoringFunctionsForPopulation scoringFunctionsForPopulation = new ScoringFunctionsForPopulation(controlerListenerManager, events, new EventsToActivities(controlerListenerManager, events), new EventsToLegs(scenario.getNetwork(), events), scenario.getPopulation(), scoringFunctionFactory);
+		ScoringFunctionsForPopulation scoringFunctionsForPopulation = new ScoringFunctionsForPopulation(controlerListenerManager, events, scenario, scoringFunctionFactory);
 		controlerListenerManager.fireControlerIterationStartsEvent(0);
 		events.initProcessing();
 		for (int i=0; i<MAX; i++) {
@@ -266,7 +270,7 @@ public class ScoringFunctionsForPopulationStressIT {
 			}
 		};
 		ControlerListenerManagerImpl controlerListenerManager = new ControlerListenerManagerImpl();
-		ScoringFunctionsForPopulation scoringFunctionsForPopulation = new ScoringFunctionsForPopulation(controlerListenerManager, events, new EventsToActivities(controlerListenerManager, events), new EventsToLegs(scenario.getNetwork(), events), scenario.getPopulation(), scoringFunctionFactory);
+		ScoringFunctionsForPopulation scoringFunctionsForPopulation = new ScoringFunctionsForPopulation(controlerListenerManager, events, scenario, scoringFunctionFactory);
 		controlerListenerManager.fireControlerIterationStartsEvent(0);
 		int MAX = 10;
 		events.initProcessing();
@@ -287,4 +291,66 @@ public class ScoringFunctionsForPopulationStressIT {
 		assertEquals(1.0/6.0 * MAX, scoringFunctionsForPopulation.getScoringFunctionForAgent(personId).getScore(), 1.0);
 	}
 
+	@Test
+	public void partitionedScoringGivesSameScores() {
+		Config config = ConfigUtils.createConfig();
+		config.parallelEventHandling().setNumberOfThreads(4);
+		PlanCalcScoreConfigGroup.ActivityParams work = new PlanCalcScoreConfigGroup.ActivityParams("work");
+		work.setTypicalDuration(100.0);
+		config.planCalcScore().addActivityParams(work);
+		PlanCalcScoreConfigGroup.ModeParams car = new PlanCalcScoreConfigGroup.ModeParams("car");
+		car.setConstant(-1.0);
+		config.planCalcScore().addModeParams(car);
+		final Scenario scenario = ScenarioUtils.createScenario(config);
+		int persons = 50;
+		for (int p = 0; p < persons; p++) {
+			scenario.getPopulation().addPerson(scenario.getPopulation().getFactory().createPerson(Id.createPersonId(p)));
+		}
+		ScoringFunctionFactory scoringFunctionFactory = new CharyparNagelScoringFunctionFactory(scenario);
+
+		ControlerListenerManagerImpl serialListenerManager = new ControlerListenerManagerImpl();
+		EventsManager serialEvents = EventsUtils.createEventsManager();
+		ScoringFunctionsForPopulation serial = new ScoringFunctionsForPopulation(serialListenerManager, serialEvents, scenario, scoringFunctionFactory);
+
+		ControlerListenerManagerImpl partitionedListenerManager = new ControlerListenerManagerImpl();
+		EventsManager partitionedEvents = EventsUtils.createEventsManager(config);
+		ScoringFunctionsForPopulation partitioned = new ScoringFunctionsForPopulation(partitionedListenerManager, partitionedEvents, scenario, scoringFunctionFactory);
+
+		for (ControlerListenerManagerImpl controlerListenerManager : new ControlerListenerManagerImpl[] { serialListenerManager, partitionedListenerManager }) {
+			controlerListenerManager.fireControlerIterationStartsEvent(0);
+		}
+		for (EventsManager events : new EventsManager[] { serialEvents, partitionedEvents }) {
+			events.initProcessing();
+			for (int i=0; i<100; i++) {
+				List<Event> simStepEvents = new ArrayList<>();
+				for (int p = 0; p < persons; p++) {
+					Id<Person> personId = Id.createPersonId(p);
+					double time = i*200 + p;
+					simStepEvents.add(new ActivityEndEvent(time, personId, Id.createLinkId(0), null, "work"));
+					simStepEvents.add(new PersonDepartureEvent(time, personId, Id.createLinkId(0), "car"));
+					simStepEvents.add(new PersonMoneyEvent(time + 10, personId, p % 3));
+					simStepEvents.add(new PersonArrivalEvent(time + 50 + i % 7, personId, Id.createLinkId(0), "car"));
+					simStepEvents.add(new ActivityStartEvent(time + 50 + i % 7, personId, Id.createLinkId(0), null, "work"));
+				}
+				// the parallel events manager requires chronological order (the sort is stable, so the order per person is kept)
+				simStepEvents.sort(Comparator.comparingDouble(Event::getTime));
+				for (Event event : simStepEvents) {
+					events.processEvent(event);
+				}
+				events.afterSimStep(i*200 + 199);
+			}
+			events.finishProcessing();
+		}
+		for (ControlerListenerManagerImpl controlerListenerManager : new ControlerListenerManagerImpl[] { serialListenerManager, partitionedListenerManager }) {
+			controlerListenerManager.fireControlerAfterMobsimEvent(0);
+		}
+		serial.finishScoringFunctions();
+		partitioned.finishScoringFunctions();
+
+		for (int p = 0; p < persons; p++) {
+			Id<Person> personId = Id.createPersonId(p);
+			assertEquals(serial.getScoringFunctionForAgent(personId).getScore(), partitioned.getScoringFunctionForAgent(personId).getScore(), 0.0);
+		}
+	}
+
 }
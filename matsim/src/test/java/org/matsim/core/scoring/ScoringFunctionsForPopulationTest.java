@@ -0,0 +1,170 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ScoringFunctionsForPopulationTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.scoring;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.ControlerListenerManagerImpl;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+
+public class ScoringFunctionsForPopulationTest {
+
+	private static final int PERSONS = 20;
+
+	@Test
+	public void testNumberOfHandlerThreads() {
+		Assert.assertEquals(1, EventsUtils.getNumberOfHandlerThreads(EventsUtils.createEventsManager()));
+		Assert.assertEquals(3, EventsUtils.getNumberOfHandlerThreads(EventsUtils.createEventsManager(createConfig(3))));
+		Assert.assertEquals(3, EventsUtils.getNumberOfHandlerThreads(
+				EventsUtils.getParallelFeedableInstance(EventsUtils.createEventsManager(createConfig(3)))));
+	}
+
+	@Test
+	public void testSingleThread() {
+		runAndCheck(EventsUtils.createEventsManager(), 1);
+	}
+
+	@Test
+	public void testPartitionPerEventsHandlingThread() {
+		runAndCheck(EventsUtils.createEventsManager(createConfig(4)), 4);
+	}
+
+	private static Config createConfig(int numberOfThreads) {
+		Config config = ConfigUtils.createConfig();
+		config.parallelEventHandling().setNumberOfThreads(numberOfThreads);
+		config.parallelEventHandling().setSynchronizeOnSimSteps(true);
+		return config;
+	}
+
+	private static void runAndCheck(EventsManager events, int numberOfThreads) {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		for (int p = 0; p < PERSONS; p++) {
+			scenario.getPopulation().addPerson(scenario.getPopulation().getFactory().createPerson(Id.createPersonId(p)));
+		}
+		Map<Id<Person>, Set<Thread>> threadsByPerson = new ConcurrentHashMap<>();
+		ControlerListenerManagerImpl controlerListenerManager = new ControlerListenerManagerImpl();
+		ScoringFunctionsForPopulation scoringFunctionsForPopulation = new ScoringFunctionsForPopulation(controlerListenerManager,
+				events, scenario, person -> new ThreadRecordingScoringFunction(threadsByPerson.computeIfAbsent(person.getId(),
+						id -> ConcurrentHashMap.newKeySet())));
+
+		// the legs and activities are passed on, e.g. to the experienced plans
+		AtomicInteger legCount = new AtomicInteger();
+		AtomicInteger activityCount = new AtomicInteger();
+		scoringFunctionsForPopulation.addLegHandler(leg -> legCount.incrementAndGet());
+		scoringFunctionsForPopulation.addActivityHandler(activity -> activityCount.incrementAndGet());
+
+		controlerListenerManager.fireControlerIterationStartsEvent(0);
+		events.initProcessing();
+		for (int i = 0; i < 10; i++) {
+			for (int p = 0; p < PERSONS; p++) {
+				Id<Person> personId = Id.createPersonId(p);
+				events.processEvent(new ActivityEndEvent(i * 200, personId, Id.createLinkId(0), null, "work"));
+				events.processEvent(new PersonDepartureEvent(i * 200, personId, Id.createLinkId(0), "car"));
+			}
+			for (int p = 0; p < PERSONS; p++) {
+				Id<Person> personId = Id.createPersonId(p);
+				events.processEvent(new PersonArrivalEvent(i * 200 + 100, personId, Id.createLinkId(0), "car"));
+				events.processEvent(new ActivityStartEvent(i * 200 + 100, personId, Id.createLinkId(0), null, "work"));
+			}
+			events.afterSimStep(i * 200 + 199);
+		}
+		events.finishProcessing();
+
+		// each person is always handled by the same thread, and the persons are spread over all threads
+		Set<Thread> allThreads = new HashSet<>();
+		Set<Integer> partitions = new HashSet<>();
+		for (int p = 0; p < PERSONS; p++) {
+			Id<Person> personId = Id.createPersonId(p);
+			Set<Thread> threads = threadsByPerson.get(personId);
+			Assert.assertEquals(1, threads.size());
+			allThreads.addAll(threads);
+			partitions.add(personId.index() % numberOfThreads);
+		}
+		Assert.assertEquals(partitions.size(), allThreads.size());
+
+		controlerListenerManager.fireControlerAfterMobsimEvent(0);
+		scoringFunctionsForPopulation.finishScoringFunctions();
+		Assert.assertEquals(10 * PERSONS, legCount.get());
+		Assert.assertEquals(11 * PERSONS, activityCount.get());// incl. the last activities, which are finished after the mobsim
+	}
+
+	private static class ThreadRecordingScoringFunction implements ScoringFunction {
+		private final Set<Thread> threads;
+
+		private ThreadRecordingScoringFunction(Set<Thread> threads) {
+			this.threads = threads;
+		}
+
+		@Override
+		public void handleActivity(Activity activity) {
+			threads.add(Thread.currentThread());
+		}
+
+		@Override
+		public void handleLeg(Leg leg) {
+			threads.add(Thread.currentThread());
+		}
+
+		@Override
+		public void agentStuck(double time) {
+			threads.add(Thread.currentThread());
+		}
+
+		@Override
+		public void addMoney(double amount) {
+			threads.add(Thread.currentThread());
+		}
+
+		@Override
+		public void finish() {
+		}
+
+		@Override
+		public double getScore() {
+			return 0;
+		}
+
+		@Override
+		public void handleEvent(Event event) {
+			threads.add(Thread.currentThread());
+		}
+	}
+}
@@ -579,4 +579,47 @@ public class TravelTimeCalculatorTest extends MatsimTestCase {
 		Assert.assertEquals("Filtering analyzed transport modes is enabled, but no modes set. Therefore, use default (=car)", 100.0, 
 				ttc.getLinkTravelTimes().getLinkTravelTime(link2, 200, null, null), 1e-8);
 	}
+	/**
+	 * Checks that the calculator type with link data indexed by id returns the same travel times,
+	 * also for links that are added to the network after the calculator was created.
+	 */
+	public void testGetLinkTravelTime_IdIndexedArray() {
+		Network network = NetworkUtils.createNetwork();
+		Node n1 = network.getFactory().createNode(Id.create(1, Node.class), new Coord(0, 0));
+		Node n2 = network.getFactory().createNode(Id.create(2, Node.class), new Coord(1000, 0));
+		Node n3 = network.getFactory().createNode(Id.create(3, Node.class), new Coord(2000, 0));
+		network.addNode(n1);
+		network.addNode(n2);
+		network.addNode(n3);
+		Link link1 = network.getFactory().createLink(Id.create(1, Link.class), n1, n2);
+		network.addLink(link1);
+
+		TravelTimeCalculatorConfigGroup config = new TravelTimeCalculatorConfigGroup();
+		config.setTraveltimeBinSize(900);
+		config.setTravelTimeCalculatorType(TravelTimeCalculatorConfigGroup.TravelTimeCalculatorType.TravelTimeCalculatorIdIndexedArray.toString());
+		TravelTimeCalculator ttc = TravelTimeCalculator.create(network, config);
+
+		Link link2 = network.getFactory().createLink(Id.create(2, Link.class), n2, n3);
+		network.addLink(link2);
+
+		Id<Vehicle> vehId1 = Id.create("idIndexedVeh1", Vehicle.class);
+		Id<Vehicle> vehId2 = Id.create("idIndexedVeh2", Vehicle.class);
+
+		ttc.handleEvent(new LinkEnterEvent(100, vehId1, link1.getId()));
+		ttc.handleEvent(new LinkEnterEvent(150, vehId2, link1.getId()));
+		ttc.handleEvent(new LinkLeaveEvent(200, vehId1, link1.getId()));
+		ttc.handleEvent(new LinkEnterEvent(200, vehId1, link2.getId()));
+		ttc.handleEvent(new LinkLeaveEvent(400, vehId2, link1.getId()));
+		ttc.handleEvent(new LinkLeaveEvent(500, vehId1, link2.getId()));
+
+		Assert.assertEquals(175.0, ttc.getLinkTravelTimes().getLinkTravelTime(link1, 200, null, null), 1e-8);
+		Assert.assertEquals(300.0, ttc.getLinkTravelTimes().getLinkTravelTime(link2, 200, null, null), 1e-8);
+
+		ttc.reset(1);
+		Assert.assertEquals(NetworkUtils.getFreespeedTravelTime(link1), ttc.getLinkTravelTimes().getLinkTravelTime(link1, 200, null, null), 1e-8);
+
+		// enter times must not survive the reset
+		ttc.handleEvent(new LinkLeaveEvent(600, vehId1, link2.getId()));
+		Assert.assertEquals(NetworkUtils.getFreespeedTravelTime(link2), ttc.getLinkTravelTimes().getLinkTravelTime(link2, 200, null, null), 1e-8);
+	}
 }
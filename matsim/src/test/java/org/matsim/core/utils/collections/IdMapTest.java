@@ -0,0 +1,175 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+
+public class IdMapTest {
+
+	@Test
+	public void testPutGetRemove() {
+		Map<Id<TO>, String> map = new IdMap<>(TO.class, 2);
+		Id<TO> id1 = Id.create("1", TO.class);
+		Id<TO> id2 = Id.create("2", TO.class);
+		Id<TO> id3 = Id.create("3", TO.class);
+
+		Assert.assertNull(map.put(id1, "one"));
+		Assert.assertNull(map.put(id3, "three"));
+		Assert.assertEquals(2, map.size());
+		Assert.assertEquals("one", map.get(id1));
+		Assert.assertNull(map.get(id2));
+		Assert.assertEquals("three", map.get(id3));
+		Assert.assertTrue(map.containsKey(id3));
+		Assert.assertFalse(map.containsKey(id2));
+		Assert.assertFalse(map.containsKey("1"));
+
+		Assert.assertEquals("one", map.put(id1, "uno"));
+		Assert.assertEquals(2, map.size());
+		Assert.assertEquals("uno", map.get(id1));
+
+		Assert.assertEquals("uno", map.remove(id1));
+		Assert.assertNull(map.remove(id1));
+		Assert.assertEquals(1, map.size());
+		Assert.assertNull(map.get(id1));
+
+		map.clear();
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertNull(map.get(id3));
+	}
+
+	@Test
+	public void testIteration() {
+		Map<Id<TO>, String> map = new IdMap<>(TO.class);
+		Id<TO> idA = Id.create("a", TO.class);
+		Id<TO> idB = Id.create("b", TO.class);
+		Id<TO> idC = Id.create("c", TO.class);
+		map.put(idC, "c");
+		map.put(idA, "a");
+		map.put(idB, "b");
+
+		// iteration is in the order of creation of the ids
+		Iterator<Map.Entry<Id<TO>, String>> iter = map.entrySet().iterator();
+		Assert.assertEquals(idA, iter.next().getKey());
+		Map.Entry<Id<TO>, String> entry = iter.next();
+		Assert.assertEquals(idB, entry.getKey());
+		Assert.assertEquals("b", entry.getValue());
+		iter.remove();
+		Assert.assertEquals(idC, iter.next().getKey());
+		Assert.assertFalse(iter.hasNext());
+
+		Assert.assertEquals(2, map.size());
+		Assert.assertFalse(map.containsKey(idB));
+		Assert.assertTrue(map.values().contains("c"));
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testPutNull() {
+		new IdMap<TO, String>(TO.class).put(Id.create("x", TO.class), null);
+	}
+
+	@Test
+	public void testIdSet() {
+		Set<Id<TO>> set = new IdSet<>(TO.class);
+		Id<TO> id1 = Id.create("s1", TO.class);
+		Id<TO> id2 = Id.create("s2", TO.class);
+
+		Assert.assertTrue(set.add(id2));
+		Assert.assertFalse(set.add(id2));
+		Assert.assertTrue(set.add(id1));
+		Assert.assertEquals(2, set.size());
+		Assert.assertTrue(set.contains(id1));
+
+		Iterator<Id<TO>> iter = set.iterator();
+		Assert.assertEquals(id1, iter.next());
+		Assert.assertEquals(id2, iter.next());
+		Assert.assertFalse(iter.hasNext());
+
+		Assert.assertTrue(set.remove(id1));
+		Assert.assertFalse(set.remove(id1));
+		Assert.assertEquals(1, set.size());
+		Assert.assertFalse(set.contains(id1));
+	}
+
+	@Test
+	public void testIdsOfOtherType() {
+		// both types are only used here, so both ids get index 0
+		Id<TA> idA = Id.create("1", TA.class);
+		Id<TB> idB = Id.create("2", TB.class);
+		Id<TB> idBSameKey = Id.create("1", TB.class);
+		Assert.assertEquals(idA.index(), idB.index());
+
+		Map<Id<TA>, String> map = new IdMap<>(TA.class);
+		map.put(idA, "a");
+		Assert.assertNull(map.get(idB));
+		Assert.assertNull(map.get(idBSameKey));
+		Assert.assertFalse(map.containsKey(idB));
+		Assert.assertNull(map.remove(idB));
+		Assert.assertEquals(1, map.size());
+		Assert.assertEquals("a", map.get(idA));
+
+		Set<Id<TA>> set = new IdSet<>(TA.class);
+		set.add(idA);
+		Assert.assertFalse(set.contains(idB));
+		Assert.assertFalse(set.contains(idBSameKey));
+		Assert.assertFalse(set.remove(idB));
+		Assert.assertEquals(1, set.size());
+		Assert.assertTrue(set.contains(idA));
+	}
+
+	@Test
+	public void testPutIdOfOtherType() {
+		Id<TC> idC = Id.create("x", TC.class);
+
+		@SuppressWarnings({ "rawtypes", "unchecked" })
+		Map<Id<TC>, String> map = (Map) new IdMap<TO, String>(TO.class);
+		try {
+			map.put(idC, "c");
+			Assert.fail("an Id of another type must not be accepted as key.");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		Assert.assertTrue(map.isEmpty());
+
+		@SuppressWarnings({ "rawtypes", "unchecked" })
+		Set<Id<TC>> set = (Set) new IdSet<TO>(TO.class);
+		try {
+			set.add(idC);
+			Assert.fail("an Id of another type must not be added.");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		Assert.assertTrue(set.isEmpty());
+	}
+
+	private static class TO {}
+
+	private static class TA {}
+
+	private static class TB {}
+
+	private static class TC {}
+
+}
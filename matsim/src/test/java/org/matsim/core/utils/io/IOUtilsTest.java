@@ -218,6 +218,28 @@ public class IOUtilsTest {
 		Assert.assertTrue("compressed file should be less than 50 bytes, but is " + file.length(), file.length() < 50);
 	}
 	
+	@Test
+	public void testGetBufferedWriter_gzippedInParallel() throws IOException {
+		String filename = this.utils.getOutputDirectory() + "test.txt.gz";
+		BufferedWriter writer = IOUtils.getBufferedWriter(filename, IOUtils.CHARSET_UTF8, false, 4);
+		for (int i = 0; i < 100000; i++) {
+			writer.write("line " + i + "\n");
+			if (i % 30000 == 0) {
+				writer.flush();
+			}
+		}
+		writer.close();
+
+		File file = new File(filename);
+		Assert.assertTrue("compressed file should be less than 300000 bytes, but is " + file.length(), file.length() < 300000);
+		BufferedReader reader = IOUtils.getBufferedReader(filename);
+		for (int i = 0; i < 100000; i++) {
+			Assert.assertEquals("line " + i, reader.readLine());
+		}
+		Assert.assertNull(reader.readLine());
+		reader.close();
+	}
+
 	@Test
 	public void testGetBufferedWriter_append_lz4() throws IOException {
 		String filename = this.utils.getOutputDirectory() + "test.txt.lz4";
@@ -0,0 +1,107 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.PopulationWriter;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class ParallelGZIPOutputStreamTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	/**
+	 * The population writer flushes after every person, which must not result in one small block per person.
+	 */
+	@Test
+	public void testWritePopulation() throws IOException {
+		Population population = createPopulation(5000);
+		String serialFile = this.utils.getOutputDirectory() + "serial.xml.gz";
+		String parallelFile = this.utils.getOutputDirectory() + "parallel.xml.gz";
+		String streamFile = this.utils.getOutputDirectory() + "stream.xml.gz";
+
+		new PopulationWriter(population).write(serialFile);
+		PopulationWriter writer = new PopulationWriter(population);
+		writer.setCompressionThreads(4);
+		writer.write(parallelFile);
+
+		ParallelGZIPOutputStream stream = new ParallelGZIPOutputStream(new FileOutputStream(streamFile), 4);
+		new org.matsim.core.population.io.PopulationWriter(population).write(stream);
+		Assert.assertTrue("blocks should be compressed concurrently", stream.getPeakPendingBlocks() > 1);
+
+		long serialLength = new File(serialFile).length();
+		long parallelLength = new File(parallelFile).length();
+		Assert.assertTrue("compressed size " + parallelLength + " should be similar to " + serialLength,
+				parallelLength < serialLength * 1.05);
+		assertSameContent(serialFile, parallelFile);
+		assertSameContent(serialFile, streamFile);
+	}
+
+	private static void assertSameContent(final String expectedFile, final String actualFile) throws IOException {
+		try (BufferedReader expected = IOUtils.getBufferedReader(expectedFile);
+				BufferedReader actual = IOUtils.getBufferedReader(actualFile)) {
+			String line;
+			while ((line = expected.readLine()) != null) {
+				Assert.assertEquals(line, actual.readLine());
+			}
+			Assert.assertNull(actual.readLine());
+		}
+	}
+
+	private static Population createPopulation(final int numberOfPersons) {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		PopulationFactory pf = population.getFactory();
+		for (int i = 0; i < numberOfPersons; i++) {
+			Person person = pf.createPerson(Id.createPersonId(i));
+			Plan plan = pf.createPlan();
+			Activity home = pf.createActivityFromCoord("home", new Coord(i % 1000, i / 1000));
+			home.setEndTime(6 * 3600 + i);
+			plan.addActivity(home);
+			plan.addLeg(pf.createLeg("car"));
+			Activity work = pf.createActivityFromCoord("work", new Coord(i * 7 % 1000, i * 3 % 1000));
+			work.setEndTime(16 * 3600 + i);
+			plan.addActivity(work);
+			plan.addLeg(pf.createLeg("walk"));
+			plan.addActivity(pf.createActivityFromCoord("home", new Coord(i % 1000, i / 1000)));
+			plan.setScore(100. + i);
+			person.addPlan(plan);
+			population.addPerson(person);
+		}
+		return population;
+	}
+
+}
@@ -0,0 +1,190 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorTransitRouterTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.pt.routes.ExperimentalTransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.testcases.MatsimTestCase;
+
+public class RaptorTransitRouterTest {
+
+	@Test
+	public void testLineChange() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig trConfig = new TransitRouterConfig(f.scenario.getConfig());
+		TransitRouter router = new RaptorTransitRouter(new RaptorTransitSchedule(f.schedule, trConfig), trConfig);
+		Coord toCoord = new Coord(16100, 10050);
+		List<Leg> legs = router.calcRoute(new FakeFacility(new Coord(3800, 5100)), new FakeFacility(toCoord), 6.0*3600, null);
+		Assert.assertEquals(5, legs.size());
+		Assert.assertEquals(TransportMode.transit_walk, legs.get(0).getMode());
+		Assert.assertEquals(TransportMode.pt, legs.get(1).getMode());
+		Assert.assertEquals(TransportMode.transit_walk, legs.get(2).getMode());
+		Assert.assertEquals(TransportMode.pt, legs.get(3).getMode());
+		Assert.assertEquals(TransportMode.transit_walk, legs.get(4).getMode());
+		ExperimentalTransitRoute ptRoute = (ExperimentalTransitRoute) legs.get(1).getRoute();
+		Assert.assertEquals(Id.create("0", TransitStopFacility.class), ptRoute.getAccessStopId());
+		Assert.assertEquals(Id.create("4", TransitStopFacility.class), ptRoute.getEgressStopId());
+		Assert.assertEquals(Id.create("blue A > I", TransitRoute.class), ptRoute.getRouteId());
+		ptRoute = (ExperimentalTransitRoute) legs.get(3).getRoute();
+		Assert.assertEquals(Id.create("18", TransitStopFacility.class), ptRoute.getAccessStopId());
+		Assert.assertEquals(Id.create("19", TransitStopFacility.class), ptRoute.getEgressStopId());
+		Assert.assertEquals(Id.create("green clockwise", TransitRoute.class), ptRoute.getRouteId());
+		double actualTravelTime = 0.0;
+		for (Leg leg : legs) {
+			actualTravelTime += leg.getTravelTime();
+		}
+		double expectedTravelTime = 31.0 * 60 + // agent takes the *:06 course, arriving in C at *:18, departing at *:21, arriving in K at*:31
+				CoordUtils.calcEuclideanDistance(f.schedule.getFacilities().get(Id.create("19", TransitStopFacility.class)).getCoord(), toCoord) / trConfig.getBeelineWalkSpeed();
+		Assert.assertEquals(expectedTravelTime, actualTravelTime, MatsimTestCase.EPSILON);
+	}
+
+	@Test
+	public void testAfterMidnight() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig trConfig = new TransitRouterConfig(f.scenario.getConfig());
+		trConfig.setBeelineWalkSpeed(0.1); // something very slow, so the agent does not walk over night
+		TransitRouter router = new RaptorTransitRouter(new RaptorTransitSchedule(f.schedule, trConfig), trConfig);
+		Coord toCoord = new Coord(16100, 5050);
+		List<Leg> legs = router.calcRoute(new FakeFacility(new Coord(3800, 5100)), new FakeFacility(toCoord), 25.0*3600, null);
+		Assert.assertEquals(3, legs.size());
+		ExperimentalTransitRoute ptRoute = (ExperimentalTransitRoute) legs.get(1).getRoute();
+		Assert.assertEquals(Id.create("0", TransitStopFacility.class), ptRoute.getAccessStopId());
+		Assert.assertEquals(Id.create("6", TransitStopFacility.class), ptRoute.getEgressStopId());
+		double actualTravelTime = 0.0;
+		for (Leg leg : legs) {
+			actualTravelTime += leg.getTravelTime();
+		}
+		double expectedTravelTime = 4*3600 + 29.0 * 60 + // arrival at 05:29 at D
+				CoordUtils.calcEuclideanDistance(f.schedule.getFacilities().get(Id.create("6", TransitStopFacility.class)).getCoord(), toCoord) / trConfig.getBeelineWalkSpeed();
+		Assert.assertEquals(expectedTravelTime, actualTravelTime, MatsimTestCase.EPSILON);
+	}
+
+	/**
+	 * The least cost route of {@link TransitRouterImpl} may arrive later than the journeys found by the raptor router,
+	 * but never earlier.
+	 */
+	@Test
+	public void testNotLaterThanTransitRouterImpl() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig trConfig = new TransitRouterConfig(f.scenario.getConfig());
+		RaptorTransitRouter raptor = new RaptorTransitRouter(new RaptorTransitSchedule(f.schedule, trConfig), trConfig);
+		TransitRouter dijkstra = new TransitRouterImpl(trConfig, f.schedule);
+
+		Coord[] coords = new Coord[] { new Coord(3800, 5100), new Coord(11900, 5100), new Coord(16100, 5050),
+				new Coord(16100, 10050), new Coord(24100, 4950), new Coord(28100, 4950), new Coord(36100, 5000) };
+		for (Coord fromCoord : coords) {
+			for (Coord toCoord : coords) {
+				for (double time = 5.0 * 3600; time < 9.0 * 3600; time += 7.0 * 60) {
+					List<Leg> legs = dijkstra.calcRoute(new FakeFacility(fromCoord), new FakeFacility(toCoord), time, null);
+					if (legs.size() == 1) {
+						continue; // direct walk
+					}
+					double arrivalTime = time;
+					for (Leg leg : legs) {
+						arrivalTime += leg.getTravelTime();
+					}
+					double earliestArrivalTime = Double.POSITIVE_INFINITY;
+					for (RaptorTransitRouter.Journey journey : raptor.calcParetoJourneys(new FakeFacility(fromCoord), new FakeFacility(toCoord), time, null)) {
+						earliestArrivalTime = Math.min(earliestArrivalTime, journey.getArrivalTime());
+					}
+					Assert.assertTrue("from " + fromCoord + " to " + toCoord + " at " + time,
+							earliestArrivalTime <= arrivalTime + MatsimTestCase.EPSILON);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testParetoJourneys() {
+		/* from C to F: the blue line (dep *:02) arrives at *:23 without transfer, the red line to G
+		 * (dep *:00) and back with the blue line arrives at *:19 with one transfer.
+		 */
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig trConfig = new TransitRouterConfig(f.scenario.getConfig());
+		RaptorTransitRouter router = new RaptorTransitRouter(new RaptorTransitSchedule(f.schedule, trConfig), trConfig);
+		Coord toCoord = new Coord(24100, 4950);
+		List<RaptorTransitRouter.Journey> journeys = router.calcParetoJourneys(new FakeFacility(new Coord(11900, 5100)),
+				new FakeFacility(toCoord), 6.0*3600 - 5.0*60, null);
+		Assert.assertEquals(2, journeys.size());
+
+		RaptorTransitRouter.Journey journey = journeys.get(0);
+		double egressTime = CoordUtils.calcEuclideanDistance(f.schedule.getFacilities().get(Id.create("10", TransitStopFacility.class)).getCoord(), toCoord) / trConfig.getBeelineWalkSpeed();
+		Assert.assertEquals(0, journey.getNumberOfTransfers());
+		Assert.assertEquals(6.0*3600 + 23.0*60 + egressTime, journey.getArrivalTime(), MatsimTestCase.EPSILON);
+		Assert.assertEquals(1, journey.getRouteSegments().size());
+		Assert.assertEquals(f.blueLine.getId(), journey.getRouteSegments().get(0).getLineTaken());
+
+		journey = journeys.get(1);
+		egressTime = CoordUtils.calcEuclideanDistance(f.schedule.getFacilities().get(Id.create("11", TransitStopFacility.class)).getCoord(), toCoord) / trConfig.getBeelineWalkSpeed();
+		Assert.assertEquals(1, journey.getNumberOfTransfers());
+		Assert.assertEquals(6.0*3600 + 19.0*60 + egressTime, journey.getArrivalTime(), MatsimTestCase.EPSILON);
+		Assert.assertEquals(3, journey.getRouteSegments().size());
+		Assert.assertEquals(f.redLine.getId(), journey.getRouteSegments().get(0).getLineTaken());
+		Assert.assertNull(journey.getRouteSegments().get(1).getLineTaken());
+		Assert.assertEquals(f.blueLine.getId(), journey.getRouteSegments().get(2).getLineTaken());
+	}
+
+	@Test
+	public void testRangeJourneys() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig trConfig = new TransitRouterConfig(f.scenario.getConfig());
+		RaptorTransitRouter router = new RaptorTransitRouter(new RaptorTransitSchedule(f.schedule, trConfig), trConfig);
+		Coord fromCoord = new Coord(3800, 5100);
+		Coord toCoord = new Coord(16100, 5050);
+		List<RaptorTransitRouter.Journey> journeys = router.calcRangeJourneys(new FakeFacility(fromCoord), new FakeFacility(toCoord),
+				5.0*3600, 6.0*3600, null);
+
+		// the agent can take the *:06, *:26 and *:46 courses of the blue line, arriving in D at *:29, *:49 and *:09
+		Assert.assertEquals(3, journeys.size());
+		double accessTime = CoordUtils.calcEuclideanDistance(fromCoord, f.schedule.getFacilities().get(Id.create("0", TransitStopFacility.class)).getCoord()) / trConfig.getBeelineWalkSpeed();
+		double egressTime = CoordUtils.calcEuclideanDistance(f.schedule.getFacilities().get(Id.create("6", TransitStopFacility.class)).getCoord(), toCoord) / trConfig.getBeelineWalkSpeed();
+		for (int i = 0; i < 3; i++) {
+			RaptorTransitRouter.Journey journey = journeys.get(i);
+			Assert.assertEquals(5.0*3600 + (6 + 20*i)*60 - accessTime, journey.getDepartureTime(), MatsimTestCase.EPSILON);
+			Assert.assertEquals(5.0*3600 + (29 + 20*i)*60 + egressTime, journey.getArrivalTime(), MatsimTestCase.EPSILON);
+			Assert.assertEquals(0, journey.getNumberOfTransfers());
+			Assert.assertEquals(Id.create("blue A > I", TransitRoute.class), journey.getRouteSegments().get(0).getRouteTaken());
+		}
+
+		List<Leg> legs = journeys.get(1).createLegs(fromCoord, toCoord, null);
+		Assert.assertEquals(3, legs.size());
+		Assert.assertEquals(TransportMode.transit_walk, legs.get(0).getMode());
+		Assert.assertEquals(TransportMode.pt, legs.get(1).getMode());
+		Assert.assertEquals(23.0*60, legs.get(1).getTravelTime(), MatsimTestCase.EPSILON);
+		Assert.assertEquals(TransportMode.transit_walk, legs.get(2).getMode());
+	}
+
+}
@@ -0,0 +1,55 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TransitRouterImplFactoryTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.population.Leg;
+
+public class TransitRouterImplFactoryTest {
+
+	@Test
+	public void testRoutersShareNetworkAndSchedule() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig trConfig = new TransitRouterConfig(f.scenario.getConfig());
+		TransitRouterImplFactory factory = new TransitRouterImplFactory(f.schedule, trConfig);
+		TransitRouterImpl router1 = (TransitRouterImpl) factory.get();
+		TransitRouterImpl router2 = (TransitRouterImpl) factory.get();
+		Assert.assertNotSame(router1, router2);
+		Assert.assertSame(router1.getTransitRouterNetwork(), router2.getTransitRouterNetwork());
+		Assert.assertSame(router1.getPreparedTransitSchedule(), router2.getPreparedTransitSchedule());
+
+		Coord fromCoord = new Coord(3800, 5100);
+		Coord toCoord = new Coord(16100, 10050);
+		List<Leg> legs1 = router1.calcRoute(new FakeFacility(fromCoord), new FakeFacility(toCoord), 6.0*3600, null);
+		List<Leg> legs2 = router2.calcRoute(new FakeFacility(fromCoord), new FakeFacility(toCoord), 6.0*3600, null);
+		Assert.assertEquals(legs1.size(), legs2.size());
+		for (int i = 0; i < legs1.size(); i++) {
+			Assert.assertEquals(legs1.get(i).getMode(), legs2.get(i).getMode());
+			Assert.assertEquals(legs1.get(i).getTravelTime(), legs2.get(i).getTravelTime(), 1e-8);
+		}
+	}
+
+}